@@ -0,0 +1,91 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "app.cache")
+@Data
+public class CacheConfig {
+
+    private Metadata metadata = new Metadata();
+    private Bytes bytes = new Bytes();
+    private Disk disk = new Disk();
+
+    @Data
+    public static class Metadata {
+
+        /**
+         * Maximum number of image records kept in memory; 0 disables the cache.
+         */
+        private int maxEntries = 50_000;
+
+        /**
+         * How long a record is served from memory. Bounds how stale a record can be when it was
+         * changed by another task or by the recognition Lambda.
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * Shorter lifetime for records that are about to change: PENDING uploads and images whose
+         * labels have not been written yet.
+         */
+        private Duration pendingTtl = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Bytes {
+
+        /**
+         * Budget for cached image bodies, held in direct buffers outside the heap; 0 disables the
+         * cache. Evicted buffers are only freed once the garbage collector finds them, so
+         * {@code -XX:MaxDirectMemorySize} (set in the task definition) must leave room for a
+         * multiple of it besides the direct memory of the connector and the SDK clients.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        /**
+         * How many objects read once are remembered. A body is only copied into a direct buffer
+         * when its object is read again while still remembered, so objects read once never take
+         * direct memory. Remembered objects are forgotten all at once when this many accumulate.
+         */
+        private int admissionWindow = 10_000;
+
+        /**
+         * Larger objects are always streamed from S3, so a few big files cannot displace many hot
+         * small ones.
+         */
+        private DataSize maxObjectSize = DataSize.ofMegabytes(1);
+    }
+
+    @Data
+    public static class Disk {
+
+        /**
+         * Directory on the task's local storage holding cached objects. It is reused after a
+         * restart, so it may be a volume that outlives the task.
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/image-cache";
+
+        /**
+         * Disk budget for cached objects; 0 disables the tier.
+         */
+        private DataSize maxSize = DataSize.ofGigabytes(2);
+
+        /**
+         * Larger objects are always streamed from S3.
+         */
+        private DataSize maxObjectSize = DataSize.ofMegabytes(256);
+
+        /**
+         * How long the hard links handed to the connector's sendfile are kept. The connector opens
+         * the file right after the handler returns, so this only has to cover that moment; the
+         * bytes of an entry evicted meanwhile stay on disk, beyond the budget, until its links go.
+         */
+        private Duration sendfileLinkTtl = Duration.ofMinutes(1);
+    }
+}
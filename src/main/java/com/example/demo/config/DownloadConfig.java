@@ -0,0 +1,113 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.download")
+@Data
+public class DownloadConfig {
+
+    /**
+     * How {@code GET /image/file/{id}} delivers the bytes: {@code PROXY} streams them through the
+     * application, {@code REDIRECT} answers with a 302 to a presigned S3 URL.
+     */
+    private Mode mode = Mode.PROXY;
+
+    /**
+     * Lifetime of the presigned GET URLs handed out in redirect mode.
+     */
+    private Duration presignedUrlTtl = Duration.ofMinutes(10);
+
+    /**
+     * A cached presigned URL is handed out again only while it stays valid for at least this long,
+     * so a client following the redirect never receives an expired URL.
+     */
+    private Duration presignedUrlMinRemaining = Duration.ofMinutes(2);
+
+    /**
+     * Maximum number of presigned URLs cached; the least recently used are dropped first.
+     */
+    private int presignedUrlCacheSize = 10_000;
+
+    /**
+     * Maximum number of ids accepted by a single {@code POST /image/batch-get} request.
+     */
+    private int batchGetMaxIds = 100;
+
+    /**
+     * Maximum number of metadata lookups sent to DynamoDB at the same time, across all batch gets.
+     */
+    private int batchGetConcurrency = 16;
+
+    /**
+     * Maximum number of lookups waiting for a free slot. A batch get that does not fit is answered
+     * with 503 Service Unavailable.
+     */
+    private int batchGetQueueCapacity = 1_000;
+
+    /**
+     * How long a batch get waits for its lookups; those not finished by then are reported as failed.
+     */
+    private Duration batchGetTimeout = Duration.ofSeconds(5);
+
+    /**
+     * How often records written before content types were stored are looked for and completed from
+     * their S3 objects. Once a run finds none, the job stops scanning.
+     */
+    private Duration metadataBackfillInterval = Duration.ofHours(1);
+
+    /**
+     * How often content types learned by downloads of such records are written to them. Downloads
+     * of the same image in between are written once.
+     */
+    private Duration learnedContentTypeInterval = Duration.ofSeconds(10);
+
+    /**
+     * Settings for the resized and cropped renditions made on request by {@code GET /image/file/{id}?w=&h=&fit=}.
+     */
+    private Renditions renditions = new Renditions();
+
+    @Data
+    public static class Renditions {
+
+        /**
+         * Number of workers decoding and scaling images; 0 uses one per available processor.
+         * Rendering is CPU-bound, so more workers than processors only add contention.
+         */
+        private int workers = 0;
+
+        /**
+         * Renditions waiting for a worker; further requests for renditions not stored yet are
+         * answered with 503 until the queue drains.
+         */
+        private int queueCapacity = 32;
+
+        /**
+         * Largest width or height a rendition may be requested with.
+         */
+        private int maxDimension = 4096;
+
+        /**
+         * The widths and heights renditions may be requested with. Every rendition is stored for
+         * good, so arbitrary sizes would let clients fill the bucket with copies of one image.
+         */
+        private List<Integer> sizes = new ArrayList<>(List.of(64, 128, 256, 320, 480, 640, 800, 1024, 1280, 1600, 1920, 2048));
+
+        /**
+         * Renditions stored per image; requests for further ones are refused once an image has this
+         * many. Concurrent renderings may exceed it by a few.
+         */
+        private int maxPerImage = 50;
+    }
+
+    public enum Mode {
+        PROXY,
+        REDIRECT
+    }
+}
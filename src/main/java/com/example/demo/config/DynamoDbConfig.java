@@ -0,0 +1,39 @@
+package com.example.demo.config;
+
+import com.example.demo.model.Image;
+import com.example.demo.model.ImageLabel;
+import com.example.demo.model.UploadSession;
+import io.awspring.cloud.dynamodb.DynamoDbTableNameResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+/**
+ * Table handles for operations {@link io.awspring.cloud.dynamodb.DynamoDbTemplate} does not cover,
+ * such as batch writes. Table names go through the same resolver as the template.
+ */
+@Configuration
+public class DynamoDbConfig {
+
+    @Bean
+    public DynamoDbTable<Image> imageTable(DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                                           DynamoDbTableNameResolver tableNameResolver) {
+        return dynamoDbEnhancedClient.table(tableNameResolver.resolve(Image.class), TableSchema.fromBean(Image.class));
+    }
+
+    @Bean
+    public DynamoDbTable<UploadSession> uploadSessionTable(DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                                                           DynamoDbTableNameResolver tableNameResolver) {
+        return dynamoDbEnhancedClient.table(tableNameResolver.resolve(UploadSession.class),
+            TableSchema.fromBean(UploadSession.class));
+    }
+
+    @Bean
+    public DynamoDbTable<ImageLabel> labelTable(DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                                                DynamoDbTableNameResolver tableNameResolver) {
+        return dynamoDbEnhancedClient.table(tableNameResolver.resolve(ImageLabel.class),
+            TableSchema.fromBean(ImageLabel.class));
+    }
+}
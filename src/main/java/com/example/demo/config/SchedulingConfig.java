@@ -0,0 +1,12 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables background maintenance jobs such as the cleanup of abandoned resumable uploads.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
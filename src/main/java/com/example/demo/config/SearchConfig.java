@@ -0,0 +1,61 @@
+package com.example.demo.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "app.search")
+@Data
+public class SearchConfig {
+
+    /**
+     * Number of images returned by {@code GET /image/?label=} when the request sets no {@code limit}.
+     */
+    private int defaultPageSize = 100;
+
+    /**
+     * Largest {@code limit} accepted by {@code GET /image/?label=}; larger values are rejected with
+     * 400, so no request holds more than this many records in memory.
+     */
+    private int maxPageSize = 1000;
+
+    /**
+     * How often the backfill of the label index table checks whether it still has to run. Once one
+     * task has completed it, the check is a single GetItem.
+     */
+    private Duration labelBackfillInterval = Duration.ofHours(1);
+
+    /**
+     * Delay after startup before the first backfill check.
+     */
+    private Duration labelBackfillDelay = Duration.ofMinutes(1);
+
+    /**
+     * Settings for the in-memory label index that answers label searches without querying DynamoDB.
+     */
+    private MemoryIndex memoryIndex = new MemoryIndex();
+
+    @Data
+    public static class MemoryIndex {
+
+        /**
+         * Whether label searches are answered from memory. Until the index is built, and when it is
+         * disabled, they query the label index table.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of segments the image table is scanned in, in parallel, to build the index.
+         */
+        private int scanSegments = 4;
+
+        /**
+         * How often label index entries written since the last refresh, e.g. by the recognition
+         * Lambda or by other tasks, are read into the index.
+         */
+        private Duration refreshInterval = Duration.ofSeconds(30);
+    }
+}
@@ -3,7 +3,9 @@ package com.example.demo.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.List;
 
 @Component
@@ -12,4 +14,138 @@ import java.util.List;
 public class UploadConfig {
     
     private List<String> supportedImageTypes;
-}
\ No newline at end of file
+
+    /**
+     * Uploads larger than this are sent to S3 as a multipart upload instead of a single PUT.
+     */
+    private DataSize multipartThreshold = DataSize.ofMegabytes(16);
+
+    /**
+     * Size of each multipart part. This is also the only buffer held in heap per upload,
+     * so it bounds upload memory regardless of file size. S3 requires at least 5MB.
+     */
+    private DataSize partSize = DataSize.ofMegabytes(8);
+
+    /**
+     * Maximum number of files of a batch upload sent to S3 at the same time.
+     */
+    private int batchConcurrency = 8;
+
+    /**
+     * Maximum number of files accepted by a single batch upload request.
+     */
+    private int maxBatchSize = 500;
+
+    /**
+     * Lifetime of the presigned PUT URLs handed out by {@code POST /image/upload-url}.
+     */
+    private Duration presignedUrlTtl = Duration.ofMinutes(15);
+
+    /**
+     * How often direct uploads still PENDING after their presigned URL expired are looked for and
+     * marked INACTIVE.
+     */
+    private Duration presignedCleanupInterval = Duration.ofMinutes(15);
+
+    /**
+     * How long past the expiry of its presigned URL a direct upload is left alone. S3 checks the
+     * expiry when a PUT starts, so a large upload started just before may still be in flight.
+     */
+    private Duration presignedCleanupGrace = Duration.ofHours(1);
+
+    /**
+     * Largest file accepted for a direct-to-S3 upload. A presigned URL is a single PUT, which S3
+     * limits to 5GB.
+     */
+    private DataSize presignedMaxSize = DataSize.ofGigabytes(1);
+
+    /**
+     * Settings for asynchronous uploads, which are spooled to local disk and finished in the background.
+     */
+    private Async async = new Async();
+
+    /**
+     * Settings for the downscaled copies generated after an image is stored.
+     */
+    private Derivatives derivatives = new Derivatives();
+
+    /**
+     * Settings for resumable uploads, which are sent in numbered parts of an S3 multipart upload.
+     */
+    private Resumable resumable = new Resumable();
+
+    @Data
+    public static class Async {
+
+        /**
+         * Directory on local disk holding uploads until a background worker has stored them in S3.
+         */
+        private String spoolDir = System.getProperty("java.io.tmpdir") + "/image-upload-spool";
+
+        /**
+         * Number of background workers finishing spooled uploads.
+         */
+        private int workers = 4;
+
+        /**
+         * Spooled uploads waiting for a worker; further async uploads are rejected until the queue drains.
+         */
+        private int queueCapacity = 200;
+
+        /**
+         * Age after which a PENDING async upload is considered abandoned, e.g. because the task that
+         * spooled it stopped, and its image is marked INACTIVE.
+         */
+        private Duration pendingTimeout = Duration.ofHours(1);
+
+        /**
+         * How often abandoned async uploads are looked for.
+         */
+        private Duration sweepInterval = Duration.ofMinutes(15);
+    }
+
+    @Data
+    public static class Derivatives {
+
+        /**
+         * Longest-side pixel sizes to generate. Sizes not smaller than the original are skipped.
+         */
+        private List<Integer> sizes = List.of(128, 512, 1024);
+
+        /**
+         * Number of workers decoding and resizing images.
+         */
+        private int workers = 2;
+
+        /**
+         * Stored images waiting for a worker; when the queue is full new images get no derivatives
+         * and are served from the original.
+         */
+        private int queueCapacity = 100;
+    }
+
+    @Data
+    public static class Resumable {
+
+        /**
+         * Size of each part a client sends. Retrying after a failure resends whole parts, so smaller
+         * parts waste less on poor networks. S3 requires at least 5MB for all but the last part.
+         */
+        private DataSize partSize = DataSize.ofMegabytes(8);
+
+        /**
+         * Largest file accepted for a resumable upload.
+         */
+        private DataSize maxSize = DataSize.ofGigabytes(5);
+
+        /**
+         * Time without a new part after which a session is considered abandoned and cleaned up.
+         */
+        private Duration sessionTtl = Duration.ofHours(24);
+
+        /**
+         * How often abandoned sessions are looked for.
+         */
+        private Duration cleanupInterval = Duration.ofMinutes(15);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.controller;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Evaluates the conditional request headers of RFC 9110 against the validators of a resource.
+ * Validators that are not known ({@code null}) never match, so the full response is sent.
+ */
+final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * {@code If-None-Match} takes precedence; {@code If-Modified-Since} is only consulted when it is absent.
+     */
+    static boolean isNotModified(HttpHeaders headers, String eTag, Instant lastModified) {
+        List<String> ifNoneMatch;
+        try {
+            ifNoneMatch = headers.getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            // A malformed list makes the condition void
+            ifNoneMatch = List.of();
+        }
+        if (!ifNoneMatch.isEmpty()) {
+            return eTag != null && ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || weakMatch(tag, eTag));
+        }
+        Instant ifModifiedSince = parseDate(headers.getFirst(HttpHeaders.IF_MODIFIED_SINCE));
+        return ifModifiedSince != null && lastModified != null && !lastModified.isAfter(ifModifiedSince);
+    }
+
+    /**
+     * Whether a {@code Range} may be served: {@code If-Range} must be absent or still match. An
+     * entity tag matches only strongly and a date only exactly.
+     */
+    static boolean rangeApplies(HttpHeaders headers, String eTag, Instant lastModified) {
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return eTag != null && !ifRange.startsWith("W/") && !eTag.startsWith("W/") && ifRange.equals(eTag);
+        }
+        Instant date = parseDate(ifRange);
+        return date != null && date.equals(lastModified);
+    }
+
+    private static boolean weakMatch(String tag, String eTag) {
+        return opaque(tag).equals(opaque(eTag));
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static Instant parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            // An invalid date makes the condition void
+            return null;
+        }
+    }
+}
@@ -1,30 +1,107 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.DownloadConfig;
+import com.example.demo.config.SearchConfig;
 import com.example.demo.config.UploadConfig;
+import com.example.demo.model.BatchGetRequest;
+import com.example.demo.model.BatchGetResult;
+import com.example.demo.model.BatchUploadResult;
 import com.example.demo.model.Image;
+import com.example.demo.model.ImageFile;
+import com.example.demo.model.ImageStatus;
+import com.example.demo.model.LabelSearchPage;
+import com.example.demo.model.PresignedUpload;
+import com.example.demo.model.PresignedUploadRequest;
+import com.example.demo.model.Rendition;
+import com.example.demo.model.ResumableUploadRequest;
+import com.example.demo.model.ResumableUploadStatus;
+import com.example.demo.model.Status;
+import com.example.demo.model.UploadSession;
+import com.example.demo.service.AsyncUploadService;
+import com.example.demo.service.BatchGetService;
+import com.example.demo.service.BatchUploadService;
 import com.example.demo.service.ImageService;
+import com.example.demo.service.InvalidCursorException;
+import com.example.demo.service.PresignedDownloadService;
+import com.example.demo.service.PresignedUploadService;
+import com.example.demo.service.RenditionLimitException;
+import com.example.demo.service.RenditionService;
+import com.example.demo.service.ResumableUploadService;
+import com.example.demo.service.UnrenderableImageException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/image")
 public class ImageController {
 
+    private static final int MAX_RANGES = 16;
+
+    // Request attributes of Tomcat's sendfile support (see org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final ImageService imageService;
+    private final BatchUploadService batchUploadService;
+    private final BatchGetService batchGetService;
+    private final AsyncUploadService asyncUploadService;
+    private final PresignedUploadService presignedUploadService;
+    private final ResumableUploadService resumableUploadService;
+    private final PresignedDownloadService presignedDownloadService;
+    private final RenditionService renditionService;
     private final UploadConfig uploadConfig;
+    private final DownloadConfig downloadConfig;
+    private final SearchConfig searchConfig;
 
     @Autowired
-    public ImageController(ImageService imageService, UploadConfig uploadConfig) {
+    public ImageController(ImageService imageService, BatchUploadService batchUploadService,
+                           BatchGetService batchGetService, AsyncUploadService asyncUploadService, PresignedUploadService presignedUploadService,
+                           ResumableUploadService resumableUploadService,
+                           PresignedDownloadService presignedDownloadService, RenditionService renditionService,
+                           UploadConfig uploadConfig, DownloadConfig downloadConfig, SearchConfig searchConfig) {
         this.imageService = imageService;
+        this.batchUploadService = batchUploadService;
+        this.batchGetService = batchGetService;
+        this.asyncUploadService = asyncUploadService;
+        this.presignedUploadService = presignedUploadService;
+        this.resumableUploadService = resumableUploadService;
+        this.presignedDownloadService = presignedDownloadService;
+        this.renditionService = renditionService;
         this.uploadConfig = uploadConfig;
+        this.downloadConfig = downloadConfig;
+        this.searchConfig = searchConfig;
     }
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
@@ -42,6 +119,159 @@ public class ImageController {
         }
     }
     
+    @PostMapping(value = "/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Image> uploadImageAsync(@RequestParam("file") MultipartFile file) {
+        if (!isValidImageFile(file)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            Image pending = asyncUploadService.submit(file);
+            return ResponseEntity.accepted()
+                .location(URI.create("/image/" + pending.getId() + "/status"))
+                .body(pending);
+        } catch (RejectedExecutionException e) {
+            // Upload queue is full; the client should retry later
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<List<BatchUploadResult>> uploadImages(@RequestParam("files") List<MultipartFile> files) {
+        if (files == null || files.isEmpty() || files.size() > uploadConfig.getMaxBatchSize()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Reject invalid files individually so the rest of the batch still goes through
+        BatchUploadResult[] results = new BatchUploadResult[files.size()];
+        List<MultipartFile> validFiles = new ArrayList<>();
+        List<Integer> validPositions = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            if (isValidImageFile(file)) {
+                validFiles.add(file);
+                validPositions.add(i);
+            } else {
+                results[i] = BatchUploadResult.failed(file.getOriginalFilename(), "Unsupported or empty image file");
+            }
+        }
+
+        if (!validFiles.isEmpty()) {
+            List<BatchUploadResult> stored = batchUploadService.createBatch(validFiles);
+            for (int i = 0; i < stored.size(); i++) {
+                results[validPositions.get(i)] = stored.get(i);
+            }
+        }
+        return ResponseEntity.ok(List.of(results));
+    }
+    
+    @PostMapping(value = "/upload-url", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<PresignedUpload> createUploadUrl(@RequestBody PresignedUploadRequest request) {
+        if (request.getFileName() == null || request.getFileName().isBlank()
+                || request.getContentType() == null
+                || !uploadConfig.getSupportedImageTypes().contains(request.getContentType())
+                || request.getSize() <= 0
+                || request.getSize() > uploadConfig.getPresignedMaxSize().toBytes()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        PresignedUpload upload = presignedUploadService.createUploadUrl(
+            request.getFileName(), request.getContentType(), request.getSize());
+        return ResponseEntity.created(URI.create("/image/" + upload.getId())).body(upload);
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<Image> completeUpload(@PathVariable UUID id) {
+        try {
+            Image image = presignedUploadService.complete(id);
+            if (image == null) {
+                return ResponseEntity.notFound().build();
+            }
+            if (image.getStatus() == Status.INACTIVE) {
+                // The uploaded object did not match the announced size or content type
+                return ResponseEntity.unprocessableEntity().body(image);
+            }
+            return ResponseEntity.ok(image);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @PostMapping(value = "/uploads", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResumableUploadStatus> initiateResumableUpload(@RequestBody ResumableUploadRequest request) {
+        if (request.getFileName() == null || request.getFileName().isBlank()
+                || request.getContentType() == null
+                || !uploadConfig.getSupportedImageTypes().contains(request.getContentType())
+                || request.getSize() <= 0
+                || request.getSize() > uploadConfig.getResumable().getMaxSize().toBytes()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            UploadSession session = resumableUploadService.initiate(
+                request.getFileName(), request.getContentType(), request.getSize());
+            return ResponseEntity.created(URI.create("/image/uploads/" + session.getId()))
+                .body(ResumableUploadStatus.of(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/uploads/{id}")
+    public ResponseEntity<ResumableUploadStatus> getResumableUpload(@PathVariable UUID id) {
+        UploadSession session = resumableUploadService.getSession(id);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ResumableUploadStatus.of(session));
+    }
+
+    @PutMapping(value = "/uploads/{id}/parts/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<ResumableUploadStatus> uploadPart(@PathVariable UUID id, @PathVariable int partNumber,
+                                                            HttpServletRequest request) {
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            // Parts are streamed to S3, which needs the length up front
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).build();
+        }
+
+        try {
+            UploadSession session = resumableUploadService.uploadPart(id, partNumber, request.getInputStream(), length);
+            if (session == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(ResumableUploadStatus.of(session));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/uploads/{id}/complete")
+    public ResponseEntity<Image> completeResumableUpload(@PathVariable UUID id) {
+        try {
+            Image image = resumableUploadService.complete(id);
+            if (image == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(image);
+        } catch (IllegalStateException e) {
+            // Parts are missing; GET /image/uploads/{id} lists them
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @DeleteMapping("/uploads/{id}")
+    public ResponseEntity<Void> abortResumableUpload(@PathVariable UUID id) {
+        if (!resumableUploadService.abort(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
     private boolean isValidImageFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             return false;
@@ -56,51 +286,355 @@ public class ImageController {
         return uploadConfig.getSupportedImageTypes().contains(contentType);
     }
 
+    /**
+     * Returns the metadata with an ETag and Last-Modified derived from {@code timeUpdated}, which
+     * every writer bumps, and answers a matching conditional request with 304.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getImage(@PathVariable UUID id) {
+    public ResponseEntity<Object> getImage(@PathVariable UUID id, @RequestHeader HttpHeaders headers) {
         try {
             Image image = imageService.getById(id);
             if (image == null) {
                 return ResponseEntity.notFound().build();
             }
-            return ResponseEntity.ok(image);
+            String eTag = metadataETag(image);
+            Instant lastModified = image.getTimeUpdated() != null
+                ? image.getTimeUpdated().toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS)
+                : null;
+            boolean notModified = ConditionalRequests.isNotModified(headers, eTag, lastModified);
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+                .eTag(eTag);
+            if (lastModified != null) {
+                response.lastModified(lastModified);
+            }
+            return notModified ? response.build() : response.body(image);
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                 .body("Error: " + e.getMessage() + " | Cause: " + (e.getCause() != null ? e.getCause().getMessage() : "none"));
         }
     }
 
+    private static String metadataETag(Image image) {
+        String version = image.getId() + "|" + image.getTimeUpdated();
+        return "\"" + DigestUtils.md5DigestAsHex(version.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Returns the metadata of up to {@code app.download.batch-get-max-ids} images in the order of
+     * the requested ids, marking the ones that do not exist, so a page of images needs one call.
+     */
+    @PostMapping(value = "/batch-get", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchGetResult>> getImages(@RequestBody BatchGetRequest request) {
+        List<String> ids = request.getIds();
+        if (ids == null || ids.isEmpty() || ids.size() > downloadConfig.getBatchGetMaxIds()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(batchGetService.getBatch(ids));
+        } catch (RejectedExecutionException e) {
+            // Lookup queue is full; the client should retry later
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/{id}/status")
+    public ResponseEntity<ImageStatus> getImageStatus(@PathVariable UUID id) {
+        Image image = imageService.getById(id);
+        if (image == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(ImageStatus.of(image));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteImage(@PathVariable UUID id) {
         imageService.deleteById(id);
+        presignedDownloadService.evict(id.toString());
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Returns a page of at most {@code limit} images carrying the label, by default
+     * {@code app.search.default-page-size}; a limit above {@code app.search.max-page-size} is
+     * rejected. When more images follow, a {@code Link} header with {@code rel="next"} gives the URL
+     * of the next page, whose opaque {@code cursor} parameter continues the search.
+     */
     @GetMapping("/")
-    public ResponseEntity<List<Image>> searchByLabel(@RequestParam String label) {
-        List<Image> images = imageService.searchByLabel(label);
-        return ResponseEntity.ok(images);
+    public ResponseEntity<List<Image>> searchByLabel(@RequestParam String label,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     @RequestParam(required = false) String cursor,
+                                                     HttpServletRequest request) {
+        int pageSize = limit != null ? limit : searchConfig.getDefaultPageSize();
+        if (pageSize < 1 || pageSize > searchConfig.getMaxPageSize()) {
+            return ResponseEntity.badRequest().build();
+        }
+        LabelSearchPage page;
+        try {
+            page = imageService.searchByLabel(label, pageSize, cursor);
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (page.getNextCursor() == null) {
+            return ResponseEntity.ok(page.getImages());
+        }
+        String next = ServletUriComponentsBuilder.fromRequest(request)
+            .replaceQueryParam("cursor", page.getNextCursor())
+            .toUriString();
+        return ResponseEntity.ok()
+            .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+            .body(page.getImages());
     }
 
+    /**
+     * Streams the file from S3 to the client; the body is copied through a fixed-size buffer and
+     * never held in memory as a whole. A {@code Range} header is answered with 206 from ranged S3
+     * reads: a single range directly, several as {@code multipart/byteranges}. Malformed headers
+     * and headers with more than {@value #MAX_RANGES} ranges are ignored and the whole file is sent.
+     * <p>
+     * Conditional requests are answered with 304 from the metadata when it records the validators;
+     * otherwise {@code If-None-Match} is passed on to S3, which then sends no body either.
+     * <p>
+     * With {@code app.download.mode=REDIRECT} the bytes bypass the application: after the metadata
+     * lookup the client is sent a 302 to a presigned S3 URL, which answers ranges itself.
+     * <p>
+     * Files held by the local disk cache are handed to the connector's {@code sendfile} when it
+     * supports it, so their bytes are copied from the page cache to the socket by the kernel. The
+     * connector gets a hard link of its own, which eviction of the entry does not remove. Without
+     * sendfile they are streamed through the application from the file opened during the lookup.
+     * <p>
+     * {@code w}, {@code h} and {@code fit} request a resized or cropped rendition instead. It is
+     * made from the original on first request and stored, so it is rendered only once; while the
+     * rendering queue is full, renditions not stored yet are answered with 503, and once the image
+     * has {@code app.download.renditions.max-per-image} of them, with 409.
+     */
     @GetMapping("/file/{id}")
-    public ResponseEntity<byte[]> downloadImageFile(@PathVariable UUID id) {
+    public ResponseEntity<Resource> downloadImageFile(@PathVariable UUID id,
+                                                      @RequestParam(required = false) Integer size,
+                                                      @RequestParam(name = "w", required = false) Integer width,
+                                                      @RequestParam(name = "h", required = false) Integer height,
+                                                      @RequestParam(required = false) String fit,
+                                                      @RequestHeader HttpHeaders headers,
+                                                      HttpServletRequest request) {
+        if (size != null && size <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        Rendition rendition = null;
+        if (width != null || height != null || fit != null) {
+            rendition = renditionOf(width, height, fit);
+            if (size != null || rendition == null || !renditionService.isValid(rendition)) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
         try {
-            byte[] imageData = imageService.downloadImageFile(id);
-            String contentType = imageService.getImageContentType(id);
-            
-            // Get file extension from content type
-            String fileExtension = imageService.getFileExtensionFromContentType(contentType);
-            String filename = "image-" + id + fileExtension;
-            
-            return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                .body(imageData);
+            ImageFile file = rendition != null ? renditionService.resolve(id, rendition) : imageService.resolveImageFile(id, size);
+            if (ConditionalRequests.isNotModified(headers, file.getETag(), file.getLastModified())) {
+                return notModified(file);
+            }
+            String filename = "image-" + id + imageService.getFileExtensionFromContentType(file.getContentType());
+            if (downloadConfig.getMode() == DownloadConfig.Mode.REDIRECT) {
+                if (rendition != null) {
+                    renditionService.ensureStored(file, rendition);
+                }
+                return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(presignedDownloadService.presignedUrlFor(file, filename))
+                    .build();
+            }
+            List<HttpRange> ranges = ConditionalRequests.rangeApplies(headers, file.getETag(), file.getLastModified())
+                ? parseRanges(headers.getFirst(HttpHeaders.RANGE))
+                : List.of();
+            if (ranges.size() > 1) {
+                ranges = satisfiableRanges(ranges, imageService.knownLengthOf(file));
+            }
+            String ifNoneMatch = file.getETag() == null ? headers.getFirst(HttpHeaders.IF_NONE_MATCH) : null;
+            boolean opened;
+            while (true) {
+                String range = ranges.isEmpty() ? null : HttpRange.toString(ranges.subList(0, 1));
+                try {
+                    opened = rendition != null
+                        ? renditionService.open(file, rendition, range, ifNoneMatch)
+                        : imageService.openImageFile(file, range, ifNoneMatch);
+                    break;
+                } catch (IllegalArgumentException e) {
+                    // The length was not known up front; 416 only when none of the ranges can be served
+                    if (ranges.size() <= 1) {
+                        throw e;
+                    }
+                    ranges = ranges.subList(1, ranges.size());
+                }
+            }
+            if (!opened) {
+                // The ETag is now the one of the object that matched
+                return notModified(file);
+            }
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(ranges.isEmpty() ? HttpStatus.OK : HttpStatus.PARTIAL_CONTENT)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
+            withValidators(response, file);
+            if (ranges.size() > 1) {
+                return multipartRanges(response, file, ranges);
+            }
+            if (file.getContentRange() != null) {
+                response.header(HttpHeaders.CONTENT_RANGE, file.getContentRange());
+            }
+            response
+                .contentType(MediaType.parseMediaType(file.getContentType()))
+                .contentLength(file.getContentLength());
+            Path link = Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))
+                ? imageService.linkForSendfile(file) : null;
+            if (link != null) {
+                try {
+                    file.getContent().close();
+                } catch (IOException e) {
+                    // The connector opens the file itself
+                }
+                request.setAttribute(SENDFILE_FILENAME, link.toString());
+                request.setAttribute(SENDFILE_START, file.getLocalOffset());
+                request.setAttribute(SENDFILE_END, file.getLocalOffset() + file.getContentLength());
+                return response.build();
+            }
+            return response.body(new InputStreamResource(file.getContent()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .build();
+        } catch (RejectedExecutionException e) {
+            // Rendering queue is full; the client should retry later
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (RenditionLimitException e) {
+            // Only the renditions already stored can be served for this image
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (UnrenderableImageException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
         } catch (RuntimeException e) {
-            if (e.getMessage().contains("not found")) {
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
                 return ResponseEntity.notFound().build();
             }
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * @return {@code null} when {@code fit} is not one of {@code contain}, {@code cover} or {@code fill}
+     */
+    private static Rendition renditionOf(Integer width, Integer height, String fit) {
+        try {
+            Rendition.Fit parsed = fit == null ? Rendition.Fit.CONTAIN : Rendition.Fit.valueOf(fit.toUpperCase(Locale.ROOT));
+            return new Rendition(width, height, parsed);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static ResponseEntity<Resource> notModified(ImageFile file) {
+        return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), file).build();
+    }
+
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder response, ImageFile file) {
+        if (file.getETag() != null) {
+            response.eTag(file.getETag());
+        }
+        if (file.getLastModified() != null) {
+            response.lastModified(file.getLastModified());
+        }
+        return response;
+    }
+
+    private static List<HttpRange> parseRanges(String range) {
+        if (range == null) {
+            return List.of();
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() <= MAX_RANGES ? ranges : List.of();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Drops the ranges starting beyond the end of an object of {@code length} bytes, as long as
+     * one of them remains; a {@code null} length is not known without asking S3.
+     *
+     * @throws IllegalArgumentException when no range can be served
+     */
+    private static List<HttpRange> satisfiableRanges(List<HttpRange> ranges, Long length) {
+        if (length == null) {
+            return ranges;
+        }
+        List<HttpRange> satisfiable = ranges.stream()
+            .filter(range -> range.getRangeStart(length) < length)
+            .toList();
+        if (satisfiable.isEmpty()) {
+            throw new IllegalArgumentException("None of the ranges can be served");
+        }
+        return satisfiable;
+    }
+
+    /**
+     * Builds a {@code multipart/byteranges} body. The first range was already opened together with
+     * the metadata and tells the object size; the other ranges are opened only when the client has
+     * read up to them, so at most one S3 stream is open at a time.
+     */
+    private ResponseEntity<Resource> multipartRanges(ResponseEntity.BodyBuilder response, ImageFile file,
+                                                     List<HttpRange> ranges) {
+        long total = file.getTotalLength();
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<InputStream> parts = new ArrayList<>();
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            long start = i == 0 ? firstByteOf(file.getContentRange()) : ranges.get(i).getRangeStart(total);
+            if (start >= total) {
+                // Unsatisfiable ranges are left out as long as another one can be served
+                continue;
+            }
+            long end = i == 0 ? start + file.getContentLength() - 1 : ranges.get(i).getRangeEnd(total);
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                + HttpHeaders.CONTENT_TYPE + ": " + file.getContentType() + "\r\n"
+                + HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + total + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+            parts.add(new ByteArrayInputStream(header));
+            parts.add(i == 0 ? file.getContent() : lazyRange(file, "bytes=" + start + "-" + end));
+            contentLength += header.length + (end - start + 1);
+        }
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        parts.add(new ByteArrayInputStream(trailer));
+        contentLength += trailer.length;
+
+        return response
+            .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+            .contentLength(contentLength)
+            .body(new InputStreamResource(new SequenceInputStream(Collections.enumeration(parts))));
+    }
+
+    private static long firstByteOf(String contentRange) {
+        // Content-Range is "bytes <first>-<last>/<total>"
+        return Long.parseLong(contentRange.substring("bytes ".length(), contentRange.indexOf('-')));
+    }
+
+    private InputStream lazyRange(ImageFile file, String range) {
+        return new FilterInputStream(InputStream.nullInputStream()) {
+            private boolean opened;
+
+            @Override
+            public int read() throws IOException {
+                open();
+                return super.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                open();
+                return super.read(b, off, len);
+            }
+
+            private void open() {
+                if (!opened) {
+                    opened = true;
+                    in = imageService.openRange(file, range);
+                }
+            }
+        };
+    }
 }
@@ -0,0 +1,37 @@
+package com.example.demo.health;
+
+import com.example.demo.service.S3BucketManager;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports DOWN until the image bucket has been verified, which keeps the readiness group
+ * (and the load balancer health check) failing while uploads cannot succeed.
+ */
+@Component("s3Bucket")
+public class S3BucketHealthIndicator implements HealthIndicator {
+
+    private final S3BucketManager s3BucketManager;
+
+    public S3BucketHealthIndicator(S3BucketManager s3BucketManager) {
+        this.s3BucketManager = s3BucketManager;
+    }
+
+    @Override
+    public Health health() {
+        if (!s3BucketManager.isBucketReady()) {
+            try {
+                s3BucketManager.ensureBucket();
+            } catch (RuntimeException e) {
+                return Health.down()
+                    .withDetail("bucket", s3BucketManager.getBucketName())
+                    .withDetail("error", e.getMessage())
+                    .build();
+            }
+        }
+        return Health.up()
+            .withDetail("bucket", s3BucketManager.getBucketName())
+            .build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of {@code POST /image/batch-get}: the ids of the images to look up.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchGetRequest {
+    private List<String> ids;
+}
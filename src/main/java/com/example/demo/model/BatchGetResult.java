@@ -0,0 +1,31 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one id of a batch get. {@code image} is set only when {@code found}; {@code error}
+ * explains ids that could not be looked up, so a missing image is told apart from a failed lookup.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchGetResult {
+    private String id;
+    private boolean found;
+    private Image image;
+    private String error;
+
+    public static BatchGetResult found(String id, Image image) {
+        return new BatchGetResult(id, true, image, null);
+    }
+
+    public static BatchGetResult notFound(String id) {
+        return new BatchGetResult(id, false, null, null);
+    }
+
+    public static BatchGetResult failed(String id, String error) {
+        return new BatchGetResult(id, false, null, error);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one file of a batch upload. {@code id} and {@code objectPath} are set only when
+ * the file was stored and its metadata saved.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadResult {
+    private String fileName;
+    private boolean success;
+    private String id;
+    private String objectPath;
+    private String error;
+
+    public static BatchUploadResult stored(String fileName, Image image) {
+        return new BatchUploadResult(fileName, true, image.getId(), image.getObjectPath(), null);
+    }
+
+    public static BatchUploadResult failed(String fileName, String error) {
+        return new BatchUploadResult(fileName, false, null, null, error);
+    }
+}
@@ -5,6 +5,9 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import com.example.demo.annotations.TableName;
@@ -21,10 +24,38 @@ public class Image {
     private String id;
     private String objectPath;
     private String objectSize;
+    // Validated content type of the upload; null for records written before it was stored
+    private String contentType;
     private LocalDateTime timeAdded;
     private LocalDateTime timeUpdated;
     private Set<String> labels;
     private Status status;
+    // Set on PENDING records of uploads finished later, so abandoned ones can be found; null otherwise
+    private UploadMode uploadMode;
+    // SHA-256 of the image bytes and the S3 key holding them; the key differs from objectPath
+    // when the bytes were already stored for another image. Both are null for legacy records.
+    private String contentDigest;
+    private String contentKey;
+    // S3 ETag of the stored object, recorded at upload; the strong validator of file downloads
+    private String objectETag;
+    // Downscaled copies by longest-side pixel size, e.g. "128" -> S3 key
+    private Map<String, String> derivatives;
+    // Read from the image header at upload; null when the format has no JDK reader (e.g. WebP)
+    private Integer width;
+    private Integer height;
+    private String format;
+    private String colorModel;
+    // EXIF orientation (1-8) of JPEGs that carry one
+    private Integer orientation;
+
+    /**
+     * Returns a copy whose labels and derivatives can be changed without affecting this record.
+     */
+    public Image copy() {
+        return new Image(id, objectPath, objectSize, contentType, timeAdded, timeUpdated,
+            labels != null ? new HashSet<>(labels) : null, status, uploadMode, contentDigest, contentKey, objectETag,
+            derivatives != null ? new HashMap<>(derivatives) : null, width, height, format, colorModel, orientation);
+    }
 
     @DynamoDbPartitionKey
     public String getId() {
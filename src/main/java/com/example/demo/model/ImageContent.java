@@ -0,0 +1,33 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+import com.example.demo.annotations.TableName;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+/**
+ * Content index entry mapping the SHA-256 of uploaded bytes to the S3 object holding them.
+ * {@code refCount} counts the {@link Image} records pointing at the object.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDbBean
+@TableName(propertyName = "app.dynamodb.content-table-name")
+public class ImageContent {
+    private String digest;
+    private String objectPath;
+    private Long refCount;
+    private String sourceImageId;
+    private LocalDateTime timeAdded;
+
+    @DynamoDbPartitionKey
+    public String getDigest() {
+        return digest;
+    }
+}
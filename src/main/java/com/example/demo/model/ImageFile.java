@@ -0,0 +1,35 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * An image file ready to be served: the open S3 stream of the original or of a derivative
+ * together with the metadata record it was resolved from. Whoever reads {@code content} closes it.
+ * For a ranged read {@code contentRange} holds the S3 Content-Range and {@code contentLength} the
+ * length of the range, while {@code totalLength} is always the size of the whole object.
+ * {@code eTag} and {@code lastModified} are the validators for conditional requests.
+ * When the content is read from the local disk cache, {@code cachedOnDisk} is set and
+ * {@code localOffset} is where the content starts in the cached file, so it can be handed to the
+ * connector's sendfile instead.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageFile {
+    private Image image;
+    private InputStream content;
+    private String contentType;
+    private long contentLength;
+    private String objectKey;
+    private String contentRange;
+    private long totalLength;
+    private String eTag;
+    private Instant lastModified;
+    private boolean cachedOnDisk;
+    private long localOffset;
+}
@@ -0,0 +1,79 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import com.example.demo.annotations.TableName;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondarySortKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey;
+
+/**
+ * Label index entry: one item per label of an {@link Image}. {@code objectPath} completes the key
+ * of the image record, so the records of a page of entries can be read with one BatchGetItem.
+ * <p>
+ * {@code labelledMinute} (UTC, e.g. {@code 2024-01-01T10:00}) and {@code labelledAt} (epoch
+ * millis) key the {@value #LABELLED_INDEX} index, through which each task learns of the entries
+ * written since its last look.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDbBean
+@TableName(propertyName = "app.dynamodb.label-table-name")
+public class ImageLabel {
+
+    public static final String LABELLED_INDEX = "labelled-index";
+
+    private static final DateTimeFormatter MINUTE = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm").withZone(ZoneOffset.UTC);
+
+    private String label;
+    private String imageId;
+    private String objectPath;
+    private String labelledMinute;
+    private Long labelledAt;
+
+    public ImageLabel(String label, String imageId, String objectPath) {
+        this(label, imageId, objectPath, null, null);
+    }
+
+    /**
+     * Stamps the entry as written at {@code at}, which keys it in the {@value #LABELLED_INDEX} index.
+     */
+    public ImageLabel markLabelled(Instant at) {
+        this.labelledMinute = minuteOf(at);
+        this.labelledAt = at.toEpochMilli();
+        return this;
+    }
+
+    public static String minuteOf(Instant at) {
+        return MINUTE.format(at);
+    }
+
+    @DynamoDbPartitionKey
+    public String getLabel() {
+        return label;
+    }
+
+    @DynamoDbSortKey
+    public String getImageId() {
+        return imageId;
+    }
+
+    @DynamoDbSecondaryPartitionKey(indexNames = LABELLED_INDEX)
+    public String getLabelledMinute() {
+        return labelledMinute;
+    }
+
+    @DynamoDbSecondarySortKey(indexNames = LABELLED_INDEX)
+    public Long getLabelledAt() {
+        return labelledAt;
+    }
+}
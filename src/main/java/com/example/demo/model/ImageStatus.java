@@ -0,0 +1,23 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of an image upload as reported by {@code GET /image/{id}/status}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageStatus {
+    private String id;
+    private Status status;
+    private LocalDateTime timeUpdated;
+
+    public static ImageStatus of(Image image) {
+        return new ImageStatus(image.getId(), image.getStatus(), image.getTimeUpdated());
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Presigned S3 PUT for a PENDING image. The client must send the listed headers with the PUT and
+ * then call {@code POST /image/{id}/complete}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUpload {
+    private String id;
+    private String objectPath;
+    private String uploadUrl;
+    private Map<String, String> headers;
+    private Instant expiresAt;
+}
@@ -0,0 +1,17 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of {@code POST /image/upload-url}: the file the client is about to PUT directly to S3.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUploadRequest {
+    private String fileName;
+    private String contentType;
+    private long size;
+}
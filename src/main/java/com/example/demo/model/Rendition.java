@@ -0,0 +1,34 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A resized or cropped copy of an image requested with {@code GET /image/file/{id}?w=&h=&fit=}.
+ * A {@code null} width or height leaves that side unconstrained, which only {@link Fit#CONTAIN}
+ * allows.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Rendition {
+    private Integer width;
+    private Integer height;
+    private Fit fit;
+
+    public enum Fit {
+        /**
+         * Scales to fit within the box, keeping the aspect ratio. Never enlarges the image.
+         */
+        CONTAIN,
+        /**
+         * Scales to cover the box, keeping the aspect ratio, and crops the overflow around the center.
+         */
+        COVER,
+        /**
+         * Stretches to exactly the box.
+         */
+        FILL
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of {@code POST /image/uploads}: the file a resumable upload is started for.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumableUploadRequest {
+    private String fileName;
+    private String contentType;
+    private long size;
+}
@@ -0,0 +1,43 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a resumable upload. Part {@code n} starts at byte offset {@code (n - 1) * partSize};
+ * a client resuming an upload sends only the {@code missingParts}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumableUploadStatus {
+    private String id;
+    private long size;
+    private long partSize;
+    private int partCount;
+    private List<Integer> receivedParts;
+    private List<Integer> missingParts;
+    private long receivedBytes;
+    private Instant expiresAt;
+
+    public static ResumableUploadStatus of(UploadSession session) {
+        List<Integer> received = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        long receivedBytes = 0;
+        for (int partNumber = 1; partNumber <= session.partCount(); partNumber++) {
+            if (session.getParts() != null && session.getParts().containsKey(String.valueOf(partNumber))) {
+                received.add(partNumber);
+                receivedBytes += session.partLength(partNumber);
+            } else {
+                missing.add(partNumber);
+            }
+        }
+        return new ResumableUploadStatus(session.getId(), session.getSize(), session.getPartSize(), session.partCount(),
+            received, missing, receivedBytes, Instant.ofEpochSecond(session.getExpiresAt()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.demo.model;
 
 public enum Status {
+  PENDING,
   ACTIVE,
   INACTIVE,
   DELETED
@@ -0,0 +1,10 @@
+package com.example.demo.model;
+
+/**
+ * How the upload of a PENDING image is finished. The sweeps of abandoned uploads use it to find
+ * their own records, as each kind of upload is given up after a different time.
+ */
+public enum UploadMode {
+  ASYNC,
+  PRESIGNED
+}
@@ -0,0 +1,47 @@
+package com.example.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import com.example.demo.annotations.TableName;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+
+/**
+ * State of a resumable upload, backed by an S3 multipart upload. {@code id} is the id of the
+ * PENDING image being uploaded and {@code parts} maps each received part number to its ETag.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@DynamoDbBean
+@TableName(propertyName = "app.dynamodb.upload-session-table-name")
+public class UploadSession {
+    private String id;
+    private String objectPath;
+    private String s3UploadId;
+    private String contentType;
+    private Long size;
+    private Long partSize;
+    private Map<String, String> parts;
+    private LocalDateTime timeAdded;
+    // Epoch seconds; also the DynamoDB TTL attribute, extended whenever a part arrives
+    private Long expiresAt;
+
+    @DynamoDbPartitionKey
+    public String getId() {
+        return id;
+    }
+
+    public int partCount() {
+        return (int) ((size + partSize - 1) / partSize);
+    }
+
+    public long partLength(int partNumber) {
+        return partNumber < partCount() ? partSize : size - (partCount() - 1) * partSize;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.Status;
+import com.example.demo.model.UploadMode;
+import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Accepts uploads without waiting for S3: the content is spooled to local disk, a PENDING record is
+ * written, and a bounded pool of background workers uploads the file and marks the image ACTIVE
+ * (or INACTIVE when the upload fails).
+ * <p>
+ * Uploads still spooled at shutdown are resumed at the next start. Those whose spool file is lost
+ * with its task are marked INACTIVE once they have been PENDING longer than the pending timeout.
+ */
+@Service
+public class AsyncUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncUploadService.class);
+
+    private final ImageService imageService;
+    private final DynamoDbTemplate dynamoDbTemplate;
+    private final Path spoolDirectory;
+    private final Duration pendingTimeout;
+    private final ThreadPoolExecutor uploadWorkers;
+
+    @Autowired
+    public AsyncUploadService(ImageService imageService, DynamoDbTemplate dynamoDbTemplate, UploadConfig uploadConfig) {
+        this.imageService = imageService;
+        this.dynamoDbTemplate = dynamoDbTemplate;
+
+        UploadConfig.Async async = uploadConfig.getAsync();
+        this.spoolDirectory = Path.of(async.getSpoolDir());
+        this.pendingTimeout = async.getPendingTimeout();
+        this.uploadWorkers = new ThreadPoolExecutor(async.getWorkers(), async.getWorkers(), 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(async.getQueueCapacity()),
+            Thread.ofPlatform().name("async-upload-", 0).factory(),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Give queued uploads a chance to finish before the task stops
+        uploadWorkers.shutdown();
+        if (!uploadWorkers.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("{} spooled uploads were not finished before shutdown; they are resumed at the next start",
+                uploadWorkers.getQueue().size());
+        }
+    }
+
+    /**
+     * Queues the uploads left in the spool directory by the previous run. A file whose record is
+     * missing or no longer PENDING is deleted; one that cannot be queued again is given up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeSpooledUploads() {
+        if (!Files.isDirectory(spoolDirectory)) {
+            return;
+        }
+        try (Stream<Path> spoolFiles = Files.list(spoolDirectory)) {
+            spoolFiles.forEach(this::resume);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Failed to list spool directory {}: {}", spoolDirectory, e.getMessage());
+        }
+    }
+
+    private void resume(Path spoolFile) {
+        UUID imageId;
+        try {
+            imageId = UUID.fromString(spoolFile.getFileName().toString());
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        Image pending;
+        try {
+            pending = imageService.getById(imageId);
+        } catch (RuntimeException e) {
+            // Keep the file for the next start; the sweep gives the record up if that is too late
+            logger.warn("Cannot resume spooled upload of image {}: {}", imageId, e.getMessage());
+            return;
+        }
+        if (pending == null || pending.getStatus() != Status.PENDING) {
+            // The record was never saved, or the upload was finished or given up meanwhile
+            discardSpoolFile(spoolFile);
+            return;
+        }
+
+        String objectKeyPrefix = imageService.objectKeyFor(imageId, "");
+        try {
+            if (!pending.getObjectPath().startsWith(objectKeyPrefix)) {
+                throw new IllegalStateException("unexpected object path " + pending.getObjectPath());
+            }
+            String fileName = pending.getObjectPath().substring(objectKeyPrefix.length());
+            long size = Files.size(spoolFile);
+            uploadWorkers.execute(() -> finishUpload(imageId, fileName, pending.getContentType(), size, spoolFile, pending));
+            logger.info("Resuming spooled upload of image {}", imageId);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Giving up spooled upload of image {}: {}", imageId, e.getMessage());
+            discardSpoolFile(spoolFile);
+            markInactive(pending);
+        }
+    }
+
+    /**
+     * Marks async uploads that have been PENDING longer than the pending timeout INACTIVE. Their
+     * spool file went with the task that wrote it, so nothing will finish them any more.
+     */
+    @Scheduled(fixedDelayString = "${app.upload.async.sweep-interval:PT15M}",
+               initialDelayString = "${app.upload.async.sweep-interval:PT15M}")
+    public void sweepAbandonedUploads() {
+        try {
+            imageService.findPendingUploads(UploadMode.ASYNC, LocalDateTime.now().minus(pendingTimeout))
+                .forEach(image -> {
+                    logger.info("Giving up abandoned async upload of image {}", image.getId());
+                    markInactive(image);
+                });
+        } catch (RuntimeException e) {
+            logger.error("Sweep of abandoned async uploads failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Spools the file, saves a PENDING image record and queues the upload.
+     *
+     * @throws RejectedExecutionException when the upload queue is full
+     */
+    public Image submit(MultipartFile file) throws IOException {
+        UUID imageId = UUID.randomUUID();
+        String fileName = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        long size = file.getSize();
+
+        Files.createDirectories(spoolDirectory);
+        Path spoolFile = spoolDirectory.resolve(imageId.toString());
+        file.transferTo(spoolFile.toFile());
+
+        Image pending = imageService.newImage(imageId, imageService.objectKeyFor(imageId, fileName), size, Status.PENDING);
+        pending.setContentType(contentType);
+        pending.setUploadMode(UploadMode.ASYNC);
+        try {
+            dynamoDbTemplate.save(pending);
+            uploadWorkers.execute(() -> finishUpload(imageId, fileName, contentType, size, spoolFile, pending));
+        } catch (RuntimeException e) {
+            discardSpoolFile(spoolFile);
+            if (e instanceof RejectedExecutionException) {
+                dynamoDbTemplate.delete(pending);
+            }
+            throw e;
+        }
+        return pending;
+    }
+
+    private void finishUpload(UUID imageId, String fileName, String contentType, long size, Path spoolFile, Image pending) {
+        Image result;
+        try {
+            result = imageService.storeContent(imageId, fileName, contentType, size, new FileSystemResource(spoolFile));
+            // Keep the time the upload was accepted
+            result.setTimeAdded(null);
+        } catch (RuntimeException e) {
+            logger.error("Async upload of image {} failed: {}", imageId, e.getMessage());
+            result = new Image();
+            result.setStatus(Status.INACTIVE);
+        } finally {
+            discardSpoolFile(spoolFile);
+        }
+
+        result.setId(pending.getId());
+        result.setObjectPath(pending.getObjectPath());
+        result.setTimeUpdated(LocalDateTime.now());
+        try {
+            if (!imageService.update(result)) {
+                // Deleted while uploading; the stored object has no record to belong to
+                if (result.getStatus() == Status.ACTIVE) {
+                    imageService.discardStoredFile(result);
+                }
+            } else if (result.getStatus() == Status.ACTIVE) {
+                imageService.publishStored(result);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to record status {} for image {}: {}", result.getStatus(), imageId, e.getMessage());
+        }
+    }
+
+    private void markInactive(Image pending) {
+        Image result = new Image();
+        result.setId(pending.getId());
+        result.setObjectPath(pending.getObjectPath());
+        result.setStatus(Status.INACTIVE);
+        result.setTimeUpdated(LocalDateTime.now());
+        try {
+            if (!imageService.updateIfPending(result)) {
+                logger.info("Upload of image {} was settled meanwhile; leaving its record as it is", pending.getId());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to mark abandoned upload of image {} INACTIVE: {}", pending.getId(), e.getMessage());
+        }
+    }
+
+    private void discardSpoolFile(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            logger.warn("Failed to delete spool file {}: {}", spoolFile, e.getMessage());
+        }
+    }
+}
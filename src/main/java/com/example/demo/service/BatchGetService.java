@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+import com.example.demo.config.DownloadConfig;
+import com.example.demo.model.BatchGetResult;
+import com.example.demo.model.Image;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Looks up the metadata of many images in one request, e.g. all images of a gallery page.
+ * <p>
+ * The table is keyed on (id, objectPath) and the object path is not known from the id alone, so
+ * BatchGetItem, which needs the full key, cannot be used. Instead each distinct id is looked up
+ * with {@link ImageService#getById}: one single-item Query per id that is not in
+ * {@link ImageMetadataCache}. Throttled lookups are retried with exponential backoff.
+ * <p>
+ * The lookups of all requests share one pool of {@code batch-get-concurrency} threads, which bounds
+ * the Queries in flight against the table. A batch of n uncached ids therefore takes about
+ * n / {@code batch-get-concurrency} Query round trips on an idle pool, and longer behind other
+ * batches. The pool's queue is bounded: a batch that does not fit is rejected as a whole, and
+ * lookups that have not finished by the batch's deadline are reported as failed.
+ */
+@Service
+public class BatchGetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchGetService.class);
+
+    private static final int MAX_LOOKUP_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+
+    private final ImageService imageService;
+    private final ThreadPoolExecutor lookupExecutor;
+    private final long timeoutNanos;
+
+    @Autowired
+    public BatchGetService(ImageService imageService, DownloadConfig downloadConfig) {
+        this.imageService = imageService;
+        this.timeoutNanos = downloadConfig.getBatchGetTimeout().toNanos();
+        int concurrency = downloadConfig.getBatchGetConcurrency();
+        this.lookupExecutor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(downloadConfig.getBatchGetQueueCapacity()),
+            Thread.ofPlatform().name("batch-get-", 0).daemon().factory(),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lookupExecutor.shutdown();
+    }
+
+    /**
+     * Returns one result per entry of {@code ids}, in the same order. Repeated ids are looked up
+     * once; ids that are not UUIDs, whose lookup failed or did not finish within the batch timeout
+     * are reported as failed, the others as found or not found.
+     *
+     * @throws RejectedExecutionException when the lookup queue cannot take the batch; none of its
+     *         lookups run then
+     */
+    public List<BatchGetResult> getBatch(List<String> ids) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        Map<String, CompletableFuture<Image>> lookups = new LinkedHashMap<>();
+        try {
+            for (String id : ids) {
+                UUID uuid = parse(id);
+                if (uuid != null) {
+                    lookups.computeIfAbsent(id, key -> CompletableFuture.supplyAsync(() -> lookUp(uuid), lookupExecutor));
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // A cancelled lookup still in the queue returns without querying
+            lookups.values().forEach(lookup -> lookup.cancel(false));
+            throw e;
+        }
+
+        return ids.stream()
+            .map(id -> {
+                CompletableFuture<Image> lookup = lookups.get(id);
+                if (lookup == null) {
+                    return BatchGetResult.failed(id, "Invalid image id");
+                }
+                try {
+                    Image image = lookup.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    return image != null ? BatchGetResult.found(id, image) : BatchGetResult.notFound(id);
+                } catch (ExecutionException e) {
+                    return BatchGetResult.failed(id, e.getCause().getMessage());
+                } catch (TimeoutException e) {
+                    lookup.cancel(false);
+                    return BatchGetResult.failed(id, "Lookup timed out");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    lookup.cancel(false);
+                    return BatchGetResult.failed(id, "Lookup interrupted");
+                }
+            })
+            .toList();
+    }
+
+    private Image lookUp(UUID id) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return imageService.getById(id);
+            } catch (AwsServiceException e) {
+                if (!e.isThrottlingException() || attempt == MAX_LOOKUP_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Lookup of image {} was throttled (attempt {})", id, attempt);
+                backOff(attempt);
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = BASE_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            // Jitter keeps the lookups of a batch from retrying in lockstep
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a throttled lookup", e);
+        }
+    }
+
+    private static UUID parse(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
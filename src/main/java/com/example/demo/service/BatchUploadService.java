@@ -0,0 +1,153 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.BatchUploadResult;
+import com.example.demo.model.Image;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stores many files in one request: the S3 uploads run in parallel on a bounded pool and the
+ * metadata is written with DynamoDB BatchWriteItem, 25 items per call.
+ */
+@Service
+public class BatchUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchUploadService.class);
+
+    // DynamoDB accepts at most 25 put requests per BatchWriteItem call
+    static final int BATCH_WRITE_LIMIT = 25;
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+
+    private final ImageService imageService;
+    private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final DynamoDbTable<Image> imageTable;
+    private final ExecutorService uploadExecutor;
+
+    @Autowired
+    public BatchUploadService(ImageService imageService, DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                              DynamoDbTable<Image> imageTable, UploadConfig uploadConfig) {
+        this.imageService = imageService;
+        this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.imageTable = imageTable;
+        this.uploadExecutor = Executors.newFixedThreadPool(uploadConfig.getBatchConcurrency(),
+            Thread.ofPlatform().name("batch-upload-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
+
+    /**
+     * Uploads all files and saves their metadata. Results are returned in the order of {@code files};
+     * a failure of one file does not affect the others.
+     */
+    public List<BatchUploadResult> createBatch(List<MultipartFile> files) {
+        List<CompletableFuture<Image>> uploads = files.stream()
+            .map(file -> CompletableFuture.supplyAsync(() -> imageService.storeFile(file), uploadExecutor))
+            .toList();
+
+        BatchUploadResult[] results = new BatchUploadResult[files.size()];
+        Image[] storedImages = new Image[files.size()];
+        List<Image> toSave = new ArrayList<>();
+
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                storedImages[i] = uploads.get(i).join();
+                toSave.add(storedImages[i]);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                results[i] = BatchUploadResult.failed(files.get(i).getOriginalFilename(), cause.getMessage());
+            }
+        }
+
+        Set<String> unsavedIds = new HashSet<>();
+        saveAll(toSave).forEach(image -> unsavedIds.add(image.getId()));
+
+        for (int i = 0; i < files.size(); i++) {
+            Image image = storedImages[i];
+            if (image == null) {
+                continue;
+            }
+            String fileName = files.get(i).getOriginalFilename();
+            if (unsavedIds.contains(image.getId())) {
+                imageService.discardStoredFile(image);
+                results[i] = BatchUploadResult.failed(fileName, "Failed to save image metadata");
+            } else {
+                results[i] = BatchUploadResult.stored(fileName, image);
+                imageService.publishStored(image);
+            }
+        }
+        return List.of(results);
+    }
+
+    /**
+     * Writes the images in BatchWriteItem chunks, resubmitting unprocessed items with exponential
+     * backoff. Returns the images that could not be written.
+     */
+    List<Image> saveAll(List<Image> images) {
+        List<Image> failed = new ArrayList<>();
+        for (int from = 0; from < images.size(); from += BATCH_WRITE_LIMIT) {
+            failed.addAll(writeChunk(images.subList(from, Math.min(from + BATCH_WRITE_LIMIT, images.size()))));
+        }
+        return failed;
+    }
+
+    private List<Image> writeChunk(List<Image> chunk) {
+        List<Image> pending = chunk;
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            WriteBatch.Builder<Image> writeBatch = WriteBatch.builder(Image.class).mappedTableResource(imageTable);
+            pending.forEach(writeBatch::addPutItem);
+
+            try {
+                if (attempt > 1) {
+                    backOff(attempt);
+                }
+                BatchWriteResult result = dynamoDbEnhancedClient.batchWriteItem(BatchWriteItemEnhancedRequest.builder()
+                    .writeBatches(writeBatch.build())
+                    .build());
+                pending = result.unprocessedPutItemsForTable(imageTable);
+            } catch (RuntimeException e) {
+                // Items accepted by earlier attempts are already written; only the current remainder failed
+                logger.error("Batch write of {} images failed: {}", pending.size(), e.getMessage());
+                return pending;
+            }
+        }
+        if (!pending.isEmpty()) {
+            logger.warn("{} images were still unprocessed after {} BatchWriteItem attempts", pending.size(), MAX_WRITE_ATTEMPTS);
+        }
+        return pending;
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = BASE_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            // Jitter keeps concurrent batches from retrying in lockstep
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying unprocessed batch items", e);
+        }
+    }
+}
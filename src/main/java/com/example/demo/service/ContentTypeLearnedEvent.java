@@ -0,0 +1,8 @@
+package com.example.demo.service;
+
+/**
+ * Published when a download finds the content type of an original whose record predates stored
+ * content types, so the record can be completed without delaying the download.
+ */
+public record ContentTypeLearnedEvent(String imageId, String objectPath, String contentType) {
+}
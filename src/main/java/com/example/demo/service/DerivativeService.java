@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.Image;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates downscaled copies of stored images (e.g. thumbnails) on a bounded pool of background
+ * workers, stores them under {@code derivatives/{id}/} and records their keys on the image.
+ * Images that cannot be decoded with the JDK image readers (e.g. WebP) get no derivatives.
+ */
+@Service
+public class DerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DerivativeService.class);
+
+    private final ImageService imageService;
+    private final S3Client s3Client;
+    private final List<Integer> sizes;
+    private final ThreadPoolExecutor resizeWorkers;
+
+    @Value("${app.s3.bucket-name}")
+    private String bucketName;
+
+    @Autowired
+    public DerivativeService(ImageService imageService, S3Client s3Client, UploadConfig uploadConfig) {
+        this.imageService = imageService;
+        this.s3Client = s3Client;
+
+        UploadConfig.Derivatives derivatives = uploadConfig.getDerivatives();
+        this.sizes = derivatives.getSizes().stream().sorted().toList();
+        this.resizeWorkers = new ThreadPoolExecutor(derivatives.getWorkers(), derivatives.getWorkers(), 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(derivatives.getQueueCapacity()),
+            Thread.ofPlatform().name("derivative-", 0).daemon().factory(),
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        resizeWorkers.shutdownNow();
+    }
+
+    @EventListener
+    public void onImageStored(ImageStoredEvent event) {
+        if (sizes.isEmpty()) {
+            return;
+        }
+        Image image = event.image();
+        try {
+            resizeWorkers.execute(() -> generate(image));
+        } catch (RejectedExecutionException e) {
+            // Never hold up the upload; the image is served from the original instead
+            logger.warn("Derivative queue is full; image {} is served without derivatives", image.getId());
+        }
+    }
+
+    /**
+     * Decodes the stored image once and uploads one derivative per configured size below its
+     * dimensions, then records them on the image.
+     */
+    public void generate(Image image) {
+        try {
+            ImageScaling.Decoded decoded = decode(imageService.storageKeyOf(image));
+            if (decoded == null) {
+                logger.info("No image reader for image {}; skipping derivatives", image.getId());
+                return;
+            }
+
+            // Upright before scaling; the derivatives carry no EXIF orientation
+            BufferedImage upright = ImageScaling.orient(decoded.image(), image.getOrientation());
+            boolean alpha = upright.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpg";
+            Map<String, String> derivatives = new TreeMap<>();
+            for (int size : sizes) {
+                if (size >= decoded.originalLongestSide()) {
+                    break;
+                }
+                BufferedImage scaled = scale(upright, size, alpha);
+                String key = derivativeKeyFor(image.getId(), size, format);
+                byte[] bytes = ImageScaling.encode(scaled, format);
+                s3Client.putObject(builder -> builder
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(alpha ? "image/png" : "image/jpeg"),
+                    RequestBody.fromBytes(bytes));
+                derivatives.put(String.valueOf(size), key);
+            }
+            if (derivatives.isEmpty()) {
+                return;
+            }
+
+            Image result = new Image();
+            result.setId(image.getId());
+            result.setObjectPath(image.getObjectPath());
+            result.setDerivatives(derivatives);
+            result.setTimeUpdated(LocalDateTime.now());
+            if (!imageService.update(result)) {
+                // Deleted while resizing; deleteById did not know of these derivatives
+                List<ObjectIdentifier> keys = derivatives.values().stream()
+                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                    .toList();
+                s3Client.deleteObjects(builder -> builder
+                    .bucket(bucketName)
+                    .delete(Delete.builder().objects(keys).quiet(true).build()));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to generate derivatives for image {}: {}", image.getId(), e.getMessage());
+        }
+    }
+
+    public static String derivativeKeyFor(String imageId, int size, String format) {
+        return "derivatives/" + imageId + "/" + size + "." + format;
+    }
+
+    private ImageScaling.Decoded decode(String objectKey) throws IOException {
+        int largest = Collections.max(sizes);
+        try (InputStream in = s3Client.getObject(builder -> builder.bucket(bucketName).key(objectKey))) {
+            // Skip source pixels while decoding large images, keeping at least twice the largest
+            // derivative so the final scaling still has enough detail
+            return ImageScaling.decode(in, (width, height) -> Math.max(width, height) / (2 * largest));
+        }
+    }
+
+    /**
+     * Scales so the longest side equals {@code size}.
+     */
+    private static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, Math.round(source.getWidth() * (float) size / longest));
+        int targetHeight = Math.max(1, Math.round(source.getHeight() * (float) size / longest));
+        return ImageScaling.scale(source, targetWidth, targetHeight, alpha);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import com.example.demo.config.CacheConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Byte-budgeted cache of small, popular S3 objects. Bodies live in direct buffers, so the garbage
+ * collector never scans them, and hits are streamed from a read-only view of the buffer without
+ * copying the body into a new array. Entries are weighted by their size and admitted and evicted
+ * by Caffeine's W-TinyLFU policy. Object keys are never rewritten with different content, so an
+ * entry only has to be dropped when its object is deleted.
+ * <p>
+ * Caffeine decides admission only after a buffer has been allocated, and direct buffers it rejects
+ * or evicts are freed only when the garbage collector gets to them. So that one-off reads do not
+ * churn through direct memory, a body only goes into a direct buffer on the second read of its
+ * object within the admission window; the first read is held in a heap buffer and not cached.
+ * <p>
+ * Hits, misses and evictions are published as the {@code image.bytes} cache metrics and the
+ * occupied budget as {@code image.bytes.cache.size}.
+ */
+@Component
+public class ImageBytesCache {
+
+    static final String CACHE_NAME = "image.bytes";
+
+    private final Cache<String, CachedObject> cache;
+    private final long maxSize;
+    private final long maxObjectSize;
+    private final int admissionWindow;
+    /** Objects read once within the admission window. */
+    private final Set<String> readOnce = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ImageBytesCache(CacheConfig cacheConfig, MeterRegistry meterRegistry) {
+        CacheConfig.Bytes config = cacheConfig.getBytes();
+        this.maxSize = config.getMaxSize().toBytes();
+        this.maxObjectSize = Math.min(config.getMaxObjectSize().toBytes(), Integer.MAX_VALUE);
+        this.admissionWindow = config.getAdmissionWindow();
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxSize)
+            .weigher((String key, CachedObject object) -> object.bytes().capacity())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".cache.size", this, ImageBytesCache::weightedSize)
+            .description("Bytes held by cached image bodies")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether an object of {@code length} bytes is small enough to be cached.
+     */
+    public boolean isCacheable(long length) {
+        return maxSize > 0 && length >= 0 && length <= maxObjectSize;
+    }
+
+    public CachedObject get(String objectKey) {
+        return cache.getIfPresent(objectKey);
+    }
+
+    /**
+     * Reads exactly {@code length} bytes of {@code content} and caches them in a direct buffer when
+     * the object was read before within the admission window. Otherwise the bytes are returned in a
+     * heap buffer without being cached.
+     *
+     * @throws EOFException when the stream ends early; nothing is cached then
+     */
+    public CachedObject put(String objectKey, String eTag, InputStream content, long length) throws IOException {
+        boolean admitted = admit(objectKey);
+        ByteBuffer buffer = admitted ? ByteBuffer.allocateDirect((int) length) : ByteBuffer.allocate((int) length);
+        ReadableByteChannel channel = Channels.newChannel(content);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Object " + objectKey + " ended after " + buffer.position() + " of " + length + " bytes");
+            }
+        }
+        CachedObject object = new CachedObject(buffer.flip().asReadOnlyBuffer(), eTag);
+        if (admitted) {
+            cache.put(objectKey, object);
+        }
+        return object;
+    }
+
+    public void invalidate(String objectKey) {
+        cache.invalidate(objectKey);
+    }
+
+    private boolean admit(String objectKey) {
+        if (readOnce.remove(objectKey)) {
+            return true;
+        }
+        if (readOnce.size() >= admissionWindow) {
+            readOnce.clear();
+        }
+        readOnce.add(objectKey);
+        return false;
+    }
+
+    private long weightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    /**
+     * A cached body and the S3 ETag it was read with.
+     */
+    public record CachedObject(ByteBuffer bytes, String eTag) {
+
+        public long length() {
+            return bytes.capacity();
+        }
+
+        /**
+         * Streams {@code count} bytes from {@code offset} through a view of the shared buffer.
+         */
+        public InputStream open(long offset, long count) {
+            return new ByteBufferInputStream(bytes.duplicate().position((int) offset).limit((int) (offset + count)));
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ImageContent;
+import io.awspring.cloud.dynamodb.DynamoDbTableNameResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Digest-to-object index used to store identical image bytes only once. Reference counts are
+ * maintained with atomic DynamoDB updates so concurrent uploads and deletes of the same content
+ * stay consistent across tasks.
+ */
+@Component
+public class ImageContentIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageContentIndex.class);
+
+    private static final TableSchema<ImageContent> SCHEMA = TableSchema.fromBean(ImageContent.class);
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    @Autowired
+    public ImageContentIndex(DynamoDbClient dynamoDbClient, DynamoDbTableNameResolver tableNameResolver) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableNameResolver.resolve(ImageContent.class);
+    }
+
+    /**
+     * Adds a reference to content that is already stored.
+     *
+     * @return the index entry, or {@code null} when no object with this digest is known
+     */
+    public ImageContent acquire(String digest) {
+        try {
+            UpdateItemResponse response = dynamoDbClient.updateItem(builder -> builder
+                .tableName(tableName)
+                .key(keyOf(digest))
+                .updateExpression("ADD refCount :delta")
+                .conditionExpression("attribute_exists(digest)")
+                .expressionAttributeValues(Map.of(":delta", number(1)))
+                .returnValues(ReturnValue.ALL_NEW));
+            return SCHEMA.mapToItem(response.attributes());
+        } catch (ConditionalCheckFailedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records newly stored content with a single reference.
+     *
+     * @return {@code false} when another upload registered the same digest first
+     */
+    public boolean register(String digest, String objectPath, String sourceImageId) {
+        ImageContent content = new ImageContent(digest, objectPath, 1L, sourceImageId, LocalDateTime.now());
+        try {
+            dynamoDbClient.putItem(builder -> builder
+                .tableName(tableName)
+                .item(SCHEMA.itemToMap(content, true))
+                .conditionExpression("attribute_not_exists(digest)"));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Drops a reference.
+     *
+     * @return {@code true} when this was the last reference and the entry was removed, meaning the
+     *         caller should delete the S3 object
+     */
+    public boolean release(String digest) {
+        long remaining;
+        try {
+            UpdateItemResponse response = dynamoDbClient.updateItem(builder -> builder
+                .tableName(tableName)
+                .key(keyOf(digest))
+                .updateExpression("ADD refCount :delta")
+                .conditionExpression("attribute_exists(digest)")
+                .expressionAttributeValues(Map.of(":delta", number(-1)))
+                .returnValues(ReturnValue.UPDATED_NEW));
+            remaining = Long.parseLong(response.attributes().get("refCount").n());
+        } catch (ConditionalCheckFailedException e) {
+            // Without an entry we cannot tell whether other images share the object, so keep it
+            logger.warn("No content index entry for digest {}; leaving the object in place", digest);
+            return false;
+        }
+
+        if (remaining > 0) {
+            return false;
+        }
+        try {
+            // Only remove the entry if no upload re-acquired it in the meantime
+            dynamoDbClient.deleteItem(builder -> builder
+                .tableName(tableName)
+                .key(keyOf(digest))
+                .conditionExpression("refCount <= :zero")
+                .expressionAttributeValues(Map.of(":zero", number(0))));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    private static Map<String, AttributeValue> keyOf(String digest) {
+        return Map.of("digest", AttributeValue.builder().s(digest).build());
+    }
+
+    private static AttributeValue number(long value) {
+        return AttributeValue.builder().n(Long.toString(value)).build();
+    }
+}
@@ -0,0 +1,508 @@
+package com.example.demo.service;
+
+import com.example.demo.config.CacheConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Local disk tier for S3 objects that are too large for {@link ImageBytesCache}. Each object is
+ * kept as a data file with a small metadata file next to it, recording its key, S3 ETag and length.
+ * The eviction index is rebuilt from these files at startup, so the tier stays warm across
+ * restarts. The data file's modification time records the last access and drives LRU eviction.
+ * <p>
+ * Objects are written while the first download streams them to the client. They are committed
+ * only when complete and, for single-part uploads, only when their MD5 matches the S3 ETag.
+ * Hits are read from a channel opened at lookup, which keeps reading the same bytes when the entry
+ * is evicted or replaced while the response is still being written; these reads copy the bytes
+ * through the application. When the connector supports {@code sendfile}, the controller hands it a
+ * hard link to the file instead (see {@link #link}), so the kernel copies them to the socket.
+ */
+@Component
+public class ImageDiskCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDiskCache.class);
+
+    static final String METRIC_PREFIX = "image.disk.cache";
+
+    private static final String DATA_SUFFIX = ".data";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String SENDING_DIRECTORY = "sending";
+
+    // The ETag of a single-part upload is the quoted MD5 of the object
+    private static final Pattern MD5_ETAG = Pattern.compile("\"[0-9a-f]{32}\"");
+
+    // Access times are written to disk at most this often per entry
+    private static final long ACCESS_RESOLUTION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final Path directory;
+    private final Path sendingDirectory;
+    private final Duration sendfileLinkTtl;
+    private final Queue<SendfileLink> sendfileLinks = new ConcurrentLinkedQueue<>();
+    private final long maxSize;
+    private final long maxObjectSize;
+    private final Map<String, Slot> entries = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public ImageDiskCache(CacheConfig cacheConfig, MeterRegistry meterRegistry) {
+        CacheConfig.Disk config = cacheConfig.getDisk();
+        this.directory = Path.of(config.getDirectory());
+        this.sendingDirectory = directory.resolve(SENDING_DIRECTORY);
+        this.sendfileLinkTtl = config.getSendfileLinkTtl();
+        this.maxSize = config.getMaxSize().toBytes();
+        this.maxObjectSize = config.getMaxObjectSize().toBytes();
+        this.hits = Counter.builder(METRIC_PREFIX + ".gets").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder(METRIC_PREFIX + ".gets").tag("result", "miss").register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".size", size, AtomicLong::get)
+            .description("Bytes held by the disk cache")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".entries", entries, Map::size).register(meterRegistry);
+        if (maxSize > 0) {
+            loadIndex();
+        }
+    }
+
+    public boolean isCacheable(long length) {
+        return maxSize > 0 && length >= 0 && length <= maxObjectSize && length <= maxSize;
+    }
+
+    /**
+     * Returns the cached object, or {@code null} on a miss.
+     */
+    public Entry get(String objectKey) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        Slot slot = entries.get(keyOf(objectKey));
+        if (slot == null || !slot.entry.objectKey().equals(objectKey)) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        long now = System.currentTimeMillis();
+        if (now - slot.lastAccess > ACCESS_RESOLUTION_MILLIS) {
+            slot.lastAccess = now;
+            try {
+                Files.setLastModifiedTime(slot.entry.path(), FileTime.fromMillis(now));
+            } catch (IOException e) {
+                // Only the eviction order after a restart suffers
+            }
+        }
+        return slot.entry;
+    }
+
+    /**
+     * Streams {@code count} bytes of a cached object from {@code offset}. The file is opened here, so
+     * the stream is unaffected by the entry being removed afterwards.
+     */
+    public InputStream open(Entry entry, long offset, long count) throws IOException {
+        return new RegionInputStream(FileChannel.open(entry.path(), StandardOpenOption.READ), offset, count);
+    }
+
+    /**
+     * Wraps a full download of an object so it is written to the cache as it is read. It is
+     * committed once all {@code length} bytes have passed; a partial read leaves no trace.
+     */
+    public InputStream fill(String objectKey, String eTag, InputStream content, long length) {
+        String key = keyOf(objectKey);
+        Path temp = directory.resolve(key + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            return new FillingInputStream(content, objectKey, eTag, length, temp);
+        } catch (IOException e) {
+            logger.warn("Cannot cache {} on disk: {}", objectKey, e.getMessage());
+            return content;
+        }
+    }
+
+    /**
+     * Returns a new hard link to the cached object for the connector's {@code sendfile}, or
+     * {@code null} when the entry is gone, no longer has {@code eTag}, or the file system has no
+     * hard links. The connector opens the file by name only after the handler returned, by when the
+     * entry may have been evicted or replaced; the link keeps the bytes that were validated until
+     * {@link #removeExpiredLinks} deletes it.
+     */
+    public Path link(String objectKey, String eTag) {
+        if (eTag == null) {
+            return null;
+        }
+        String key = keyOf(objectKey);
+        // Under the lock that commit and remove hold while they move or delete the file
+        synchronized (this) {
+            Slot slot = entries.get(key);
+            if (slot == null || !slot.entry.objectKey().equals(objectKey) || !eTag.equals(slot.entry.eTag())) {
+                return null;
+            }
+            try {
+                Files.createDirectories(sendingDirectory);
+                Path link = Files.createLink(sendingDirectory.resolve(key + "." + UUID.randomUUID() + DATA_SUFFIX),
+                    slot.entry.path());
+                sendfileLinks.add(new SendfileLink(link, System.currentTimeMillis()));
+                return link;
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.debug("Cannot link {} for sendfile: {}", objectKey, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Deletes the {@code sendfile} links older than {@code app.cache.disk.sendfile-link-ttl}. The
+     * connector has opened them by then, and an open file stays readable after its last name goes.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.disk.sendfile-link-ttl:PT1M}",
+               initialDelayString = "${app.cache.disk.sendfile-link-ttl:PT1M}")
+    public void removeExpiredLinks() {
+        long expiredBefore = System.currentTimeMillis() - sendfileLinkTtl.toMillis();
+        for (SendfileLink link = sendfileLinks.peek(); link != null && link.created() < expiredBefore; link = sendfileLinks.peek()) {
+            sendfileLinks.poll();
+            try {
+                Files.deleteIfExists(link.path());
+            } catch (IOException e) {
+                logger.warn("Failed to delete sendfile link {}: {}", link.path(), e.getMessage());
+            }
+        }
+    }
+
+    public void invalidate(String objectKey) {
+        String key = keyOf(objectKey);
+        Slot slot = entries.get(key);
+        if (slot != null && slot.entry.objectKey().equals(objectKey)) {
+            remove(key, slot);
+        }
+    }
+
+    private void loadIndex() {
+        try {
+            Files.createDirectories(directory);
+            if (Files.isDirectory(sendingDirectory)) {
+                // Links handed to the connector before the restart
+                try (DirectoryStream<Path> links = Files.newDirectoryStream(sendingDirectory)) {
+                    for (Path link : links) {
+                        Files.deleteIfExists(link);
+                    }
+                }
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path path : files) {
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(TEMP_SUFFIX)) {
+                        // Left over from a download that was interrupted by the shutdown
+                        Files.deleteIfExists(path);
+                    } else if (name.endsWith(META_SUFFIX)) {
+                        loadEntry(name.substring(0, name.length() - META_SUFFIX.length()), path);
+                    }
+                }
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + DATA_SUFFIX)) {
+                for (Path path : files) {
+                    String name = path.getFileName().toString();
+                    if (!entries.containsKey(name.substring(0, name.length() - DATA_SUFFIX.length()))) {
+                        Files.deleteIfExists(path);
+                    }
+                }
+            }
+            evict();
+            logger.info("Disk cache in {} holds {} objects, {} bytes", directory, entries.size(), size.get());
+        } catch (IOException e) {
+            logger.error("Cannot use disk cache directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void loadEntry(String key, Path metaPath) throws IOException {
+        Path dataPath = directory.resolve(key + DATA_SUFFIX);
+        Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(metaPath, StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        }
+        String objectKey = meta.getProperty("objectKey");
+        long length = Long.parseLong(meta.getProperty("length", "-1"));
+        if (objectKey == null || !key.equals(keyOf(objectKey)) || !Files.exists(dataPath) || Files.size(dataPath) != length) {
+            logger.warn("Dropping damaged disk cache entry {}", key);
+            Files.deleteIfExists(dataPath);
+            Files.deleteIfExists(metaPath);
+            return;
+        }
+        Slot slot = new Slot(new Entry(objectKey, meta.getProperty("eTag"), length, dataPath),
+            Files.getLastModifiedTime(dataPath).toMillis());
+        entries.put(key, slot);
+        size.addAndGet(length);
+    }
+
+    private void commit(String objectKey, String eTag, long length, Path temp) throws IOException {
+        String key = keyOf(objectKey);
+        Path dataPath = directory.resolve(key + DATA_SUFFIX);
+        Path metaPath = directory.resolve(key + META_SUFFIX);
+        Path metaTemp = directory.resolve(key + "." + UUID.randomUUID() + META_SUFFIX + TEMP_SUFFIX);
+        Properties meta = new Properties();
+        meta.setProperty("objectKey", objectKey);
+        meta.setProperty("length", Long.toString(length));
+        if (eTag != null) {
+            meta.setProperty("eTag", eTag);
+        }
+        try (Writer writer = Files.newBufferedWriter(metaTemp, StandardCharsets.UTF_8)) {
+            meta.store(writer, null);
+        }
+
+        synchronized (this) {
+            Slot previous = entries.remove(key);
+            if (previous != null) {
+                size.addAndGet(-previous.entry.length());
+            }
+            Files.move(temp, dataPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(metaTemp, metaPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            entries.put(key, new Slot(new Entry(objectKey, eTag, length, dataPath), System.currentTimeMillis()));
+            size.addAndGet(length);
+        }
+        evict();
+    }
+
+    private synchronized void evict() {
+        while (size.get() > maxSize && !entries.isEmpty()) {
+            Map.Entry<String, Slot> oldest = entries.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                .orElseThrow();
+            remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private synchronized void remove(String key, Slot slot) {
+        if (!entries.remove(key, slot)) {
+            return;
+        }
+        size.addAndGet(-slot.entry.length());
+        try {
+            Files.deleteIfExists(directory.resolve(key + META_SUFFIX));
+            Files.deleteIfExists(slot.entry.path());
+        } catch (IOException e) {
+            logger.warn("Failed to delete disk cache entry {}: {}", slot.entry.objectKey(), e.getMessage());
+        }
+    }
+
+    private static String keyOf(String objectKey) {
+        return HexFormat.of().formatHex(digest("SHA-256").digest(objectKey.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " is not available", e);
+        }
+    }
+
+    /**
+     * A cached object; {@code path} is the data file holding exactly {@code length} bytes.
+     */
+    public record Entry(String objectKey, String eTag, long length, Path path) {
+    }
+
+    private record SendfileLink(Path path, long created) {
+    }
+
+    private static final class Slot {
+        private final Entry entry;
+        private volatile long lastAccess;
+
+        private Slot(Entry entry, long lastAccess) {
+            this.entry = entry;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final class FillingInputStream extends FilterInputStream {
+
+        private final String objectKey;
+        private final String eTag;
+        private final long length;
+        private final Path temp;
+        private final MessageDigest md5 = digest("MD5");
+        private OutputStream out;
+        private long written;
+
+        private FillingInputStream(InputStream content, String objectKey, String eTag, long length, Path temp)
+                throws IOException {
+            super(content);
+            this.objectKey = objectKey;
+            this.eTag = eTag;
+            this.length = length;
+            this.temp = temp;
+            this.out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                write(new byte[] {(byte) b}, 0, 1);
+            } else {
+                finish();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read > 0) {
+                write(buffer, offset, read);
+            } else if (read < 0) {
+                finish();
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            // Skipped bytes would leave a hole in the copy
+            discard();
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                super.close();
+            }
+        }
+
+        private void write(byte[] buffer, int offset, int count) {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(buffer, offset, count);
+                md5.update(buffer, offset, count);
+                written += count;
+            } catch (IOException e) {
+                logger.warn("Cannot cache {} on disk: {}", objectKey, e.getMessage());
+                discard();
+            }
+        }
+
+        private void finish() {
+            if (out == null) {
+                return;
+            }
+            if (written != length) {
+                discard();
+                return;
+            }
+            try {
+                out.close();
+                out = null;
+                if (eTag != null && MD5_ETAG.matcher(eTag).matches()
+                        && !eTag.equals("\"" + HexFormat.of().formatHex(md5.digest()) + "\"")) {
+                    logger.warn("Not caching {}: its content does not match ETag {}", objectKey, eTag);
+                    Files.deleteIfExists(temp);
+                    return;
+                }
+                commit(objectKey, eTag, length, temp);
+            } catch (IOException e) {
+                logger.warn("Cannot cache {} on disk: {}", objectKey, e.getMessage());
+                discard();
+            }
+        }
+
+        private void discard() {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                // Removed at the next startup
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Reads a region of a file with positional reads, leaving the channel position untouched.
+     */
+    private static final class RegionInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        private RegionInputStream(FileChannel channel, long offset, long count) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            if (count == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(count, end - position)), position);
+            if (read < 0) {
+                return -1;
+            }
+            position += read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
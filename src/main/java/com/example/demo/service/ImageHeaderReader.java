@@ -0,0 +1,161 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Image;
+import org.springframework.core.io.InputStreamSource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+/**
+ * Reads width, height, format, color model and EXIF orientation from the header of an image
+ * without decoding its pixels. Only the leading bytes of the stream are consumed.
+ */
+public final class ImageHeaderReader {
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private ImageHeaderReader() {
+    }
+
+    /**
+     * Sets the header attributes on {@code image}. Content that no JDK image reader recognises
+     * (e.g. WebP) leaves them unset.
+     */
+    public static void describe(Image image, InputStreamSource content) {
+        try {
+            try (InputStream in = content.getInputStream();
+                 ImageInputStream stream = new MemoryCacheImageInputStream(in)) {
+                if (!readDimensions(image, stream)) {
+                    return;
+                }
+            }
+            if ("jpeg".equals(image.getFormat())) {
+                try (InputStream in = content.getInputStream()) {
+                    image.setOrientation(readJpegOrientation(in));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Metadata is informational; a broken header must not fail the upload
+            image.setWidth(null);
+            image.setHeight(null);
+            image.setFormat(null);
+            image.setColorModel(null);
+            image.setOrientation(null);
+        }
+    }
+
+    private static boolean readDimensions(Image image, ImageInputStream stream) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            return false;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, true, true);
+            image.setWidth(reader.getWidth(0));
+            image.setHeight(reader.getHeight(0));
+            image.setFormat(reader.getFormatName().toLowerCase());
+            image.setColorModel(colorModelOf(reader));
+            return true;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static String colorModelOf(ImageReader reader) {
+        Iterator<ImageTypeSpecifier> types;
+        try {
+            types = reader.getImageTypes(0);
+        } catch (IOException e) {
+            // e.g. CMYK JPEGs, which the JDK reader cannot convert
+            return null;
+        }
+        if (types == null || !types.hasNext()) {
+            return null;
+        }
+        ColorModel colorModel = types.next().getColorModel();
+        if (colorModel instanceof IndexColorModel) {
+            return "INDEXED";
+        }
+        String space = switch (colorModel.getColorSpace().getType()) {
+            case ColorSpace.TYPE_RGB -> "RGB";
+            case ColorSpace.TYPE_GRAY -> "GRAY";
+            case ColorSpace.TYPE_CMYK -> "CMYK";
+            case ColorSpace.TYPE_YCbCr -> "YCBCR";
+            default -> "OTHER";
+        };
+        return colorModel.hasAlpha() ? space + (space.equals("RGB") ? "A" : "_ALPHA") : space;
+    }
+
+    /**
+     * Walks the JPEG segments up to the first frame header looking for the EXIF orientation tag.
+     *
+     * @return the orientation (1-8), or {@code null} when the image has no EXIF orientation
+     */
+    static Integer readJpegOrientation(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readUnsignedShort() != 0xFFD8) {
+            return null;
+        }
+        try {
+            while (true) {
+                int marker = data.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || (marker >= 0xFFC0 && marker <= 0xFFC3)) {
+                    // Start of scan or frame: EXIF always precedes them
+                    return null;
+                }
+                int length = data.readUnsignedShort() - 2;
+                if (marker == 0xFFE1) {
+                    byte[] segment = new byte[length];
+                    data.readFully(segment);
+                    Integer orientation = exifOrientation(segment);
+                    if (orientation != null) {
+                        return orientation;
+                    }
+                } else {
+                    data.skipNBytes(length);
+                }
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static Integer exifOrientation(byte[] segment) {
+        if (segment.length < 14 || !new String(segment, 0, 6, StandardCharsets.ISO_8859_1).equals("Exif\0\0")) {
+            return null;
+        }
+        ByteBuffer tiff = ByteBuffer.wrap(segment, 6, segment.length - 6).slice();
+        tiff.order(tiff.get(0) == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        int ifdOffset = tiff.getInt(4);
+        if (ifdOffset < 8 || ifdOffset + 2 > tiff.limit()) {
+            return null;
+        }
+        int entries = Short.toUnsignedInt(tiff.getShort(ifdOffset));
+        for (int i = 0; i < entries; i++) {
+            int entry = ifdOffset + 2 + i * 12;
+            if (entry + 12 > tiff.limit()) {
+                return null;
+            }
+            if (Short.toUnsignedInt(tiff.getShort(entry)) == EXIF_ORIENTATION_TAG) {
+                int orientation = Short.toUnsignedInt(tiff.getShort(entry + 8));
+                return orientation >= 1 && orientation <= 8 ? orientation : null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Image;
+import com.example.demo.model.ImageLabel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Label-to-image index used by label search: one item per (label, image id) pair, so the images
+ * carrying a label are read with a Query on the label instead of a scan of the image table.
+ * <p>
+ * The recognition Lambda adds the entries of the labels it detects; the application adds the
+ * labels an image inherits or is updated with and removes the entries of deleted images. Changes
+ * made here are applied to this task's {@link LabelBitmapIndex} right away.
+ */
+@Component
+public class ImageLabelIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageLabelIndex.class);
+
+    // DynamoDB accepts at most 25 requests per BatchWriteItem call
+    static final int BATCH_WRITE_LIMIT = 25;
+    private static final int MAX_WRITE_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_MILLIS = 50;
+
+    // Marks a completed LabelIndexBackfillService run; Rekognition never returns this label
+    private static final ImageLabel BACKFILL_MARKER = new ImageLabel("#backfill", "complete", null);
+
+    private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final DynamoDbTable<ImageLabel> labelTable;
+    private final LabelBitmapIndex labelBitmapIndex;
+
+    @Autowired
+    public ImageLabelIndex(DynamoDbEnhancedClient dynamoDbEnhancedClient, DynamoDbTable<ImageLabel> labelTable,
+                           LabelBitmapIndex labelBitmapIndex) {
+        this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.labelTable = labelTable;
+        this.labelBitmapIndex = labelBitmapIndex;
+    }
+
+    /**
+     * Adds an entry for each of {@code labels} pointing at {@code image}. Existing entries are
+     * overwritten, so adding labels again is harmless.
+     */
+    public void add(Image image, Collection<String> labels) {
+        Instant now = Instant.now();
+        List<ImageLabel> entries = labels.stream()
+            .map(label -> new ImageLabel(label, image.getId(), image.getObjectPath()).markLabelled(now))
+            .toList();
+        int failed = 0;
+        for (int from = 0; from < entries.size(); from += BATCH_WRITE_LIMIT) {
+            failed += writeChunk(entries.subList(from, Math.min(from + BATCH_WRITE_LIMIT, entries.size())),
+                WriteBatch.Builder::addPutItem, result -> result.unprocessedPutItemsForTable(labelTable)).size();
+        }
+        if (failed > 0) {
+            throw new RuntimeException("Failed to index " + failed + " labels of image " + image.getId());
+        }
+        labelBitmapIndex.add(image.getId(), image.getObjectPath(), labels);
+    }
+
+    /**
+     * Best-effort removal of the entries of {@code labels} for image {@code imageId}. Entries left
+     * behind are harmless: search skips entries whose image no longer exists or no longer carries
+     * the label.
+     */
+    public void remove(String imageId, Collection<String> labels) {
+        labelBitmapIndex.remove(imageId, labels);
+        List<Key> keys = labels.stream()
+            .map(label -> Key.builder().partitionValue(label).sortValue(imageId).build())
+            .toList();
+        int failed = 0;
+        for (int from = 0; from < keys.size(); from += BATCH_WRITE_LIMIT) {
+            failed += writeChunk(keys.subList(from, Math.min(from + BATCH_WRITE_LIMIT, keys.size())),
+                WriteBatch.Builder::addDeleteItem, result -> result.unprocessedDeleteItemsForTable(labelTable)).size();
+        }
+        if (failed > 0) {
+            logger.warn("Failed to remove {} label index entries of image {}", failed, imageId);
+        }
+    }
+
+    /**
+     * Returns the entries of {@code label} whose image id sorts after {@code afterImageId} ({@code null}
+     * for all), in image id order, read lazily with one Query per page of {@code pageSize} entries.
+     * The Query starts at the key ({@code label}, {@code afterImageId}), i.e. where the Query that
+     * returned that entry last stopped.
+     */
+    public PageIterable<ImageLabel> query(String label, String afterImageId, int pageSize) {
+        QueryEnhancedRequest.Builder request = QueryEnhancedRequest.builder()
+            .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(label).build()))
+            .limit(pageSize);
+        if (afterImageId != null) {
+            request.exclusiveStartKey(Map.of(
+                "label", AttributeValue.fromS(label),
+                "imageId", AttributeValue.fromS(afterImageId)));
+        }
+        return labelTable.query(request.build());
+    }
+
+    public boolean isBackfilled() {
+        return labelTable.getItem(BACKFILL_MARKER) != null;
+    }
+
+    public void markBackfilled() {
+        labelTable.putItem(BACKFILL_MARKER);
+    }
+
+    /**
+     * Writes one BatchWriteItem chunk, resubmitting unprocessed requests with exponential backoff.
+     * Returns the requests that could not be written.
+     */
+    private <T> List<T> writeChunk(List<T> chunk, BiConsumer<WriteBatch.Builder<ImageLabel>, T> addRequest,
+                                   Function<BatchWriteResult, List<T>> unprocessed) {
+        List<T> pending = chunk;
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            WriteBatch.Builder<ImageLabel> writeBatch = WriteBatch.builder(ImageLabel.class).mappedTableResource(labelTable);
+            pending.forEach(request -> addRequest.accept(writeBatch, request));
+
+            try {
+                if (attempt > 1) {
+                    backOff(attempt);
+                }
+                pending = unprocessed.apply(dynamoDbEnhancedClient.batchWriteItem(BatchWriteItemEnhancedRequest.builder()
+                    .writeBatches(writeBatch.build())
+                    .build()));
+            } catch (RuntimeException e) {
+                logger.error("Batch write of {} label index entries failed: {}", pending.size(), e.getMessage());
+                return pending;
+            }
+        }
+        return pending;
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = BASE_BACKOFF_MILLIS << (attempt - 1);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying unprocessed label index entries", e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.Status;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of image records by id. Caffeine's W-TinyLFU admission keeps the hot
+ * images resident when the cache is full. This task invalidates an entry whenever it writes the
+ * record; writes by other tasks and by the recognition Lambda become visible once it expires.
+ * Hits, misses and evictions are published as the {@code image.metadata} cache metrics.
+ * <p>
+ * Callers get a copy of the cached record, so changing it affects neither the cache nor concurrent
+ * requests reading the same image.
+ */
+@Component
+public class ImageMetadataCache {
+
+    static final String CACHE_NAME = "image.metadata";
+    private static final int GENERATION_STRIPES = 64;
+
+    private final Cache<UUID, Image> cache;
+    private final RequestCoalescer requestCoalescer;
+    /** Invalidations per stripe of ids, so a load can tell whether one raced with it. */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    @Autowired
+    public ImageMetadataCache(CacheConfig cacheConfig, MeterRegistry meterRegistry, RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+        CacheConfig.Metadata config = cacheConfig.getMetadata();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(config.getMaxEntries())
+            .expireAfter(expiry(config.getTtl(), config.getPendingTtl()))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns a copy of the cached record, loading it on a miss. Concurrent misses for the same id
+     * share one load through {@link RequestCoalescer}, also when the cache is disabled. Missing images
+     * ({@code null}) are not cached.
+     */
+    public Image get(UUID id, Function<UUID, Image> loader) {
+        Image cached = cache.getIfPresent(id);
+        if (cached == null) {
+            cached = requestCoalescer.execute("metadata", id, () -> load(id, loader));
+        }
+        return cached != null ? cached.copy() : null;
+    }
+
+    public void invalidate(String id) {
+        UUID key = UUID.fromString(id);
+        generations.incrementAndGet(stripe(key));
+        cache.invalidate(key);
+    }
+
+    /**
+     * Runs the loader outside any lock of the map, so a slow lookup delays only the callers waiting
+     * for the same id. An invalidation during the load may stand for a write the loaded record does
+     * not reflect; the record is then taken out again rather than served until it expires.
+     */
+    private Image load(UUID id, Function<UUID, Image> loader) {
+        int stripe = stripe(id);
+        long generation = generations.get(stripe);
+        Image loaded = loader.apply(id);
+        if (loaded != null) {
+            cache.put(id, loaded);
+            // An invalidation after this check also finds the entry already in the map
+            if (generations.get(stripe) != generation) {
+                cache.asMap().remove(id, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private static int stripe(UUID id) {
+        return Math.floorMod(id.hashCode(), GENERATION_STRIPES);
+    }
+
+    private static Expiry<UUID, Image> expiry(Duration ttl, Duration pendingTtl) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(UUID id, Image image, long currentTime) {
+                boolean settled = image.getStatus() != Status.PENDING && image.getLabels() != null;
+                return (settled ? ttl : pendingTtl).toNanos();
+            }
+
+            @Override
+            public long expireAfterUpdate(UUID id, Image image, long currentTime, long currentDuration) {
+                return expireAfterCreate(id, image, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(UUID id, Image image, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Decoding, scaling and encoding shared by the derivative and rendition pipelines.
+ */
+final class ImageScaling {
+
+    private ImageScaling() {
+    }
+
+    /**
+     * Decodes the first image of {@code in}. {@code subsampling} is given the original width and
+     * height and returns how many source pixels to skip per decoded pixel, so large images are
+     * never decoded at full resolution when only a small copy is needed.
+     *
+     * @return {@code null} when no JDK image reader understands the format
+     */
+    static Decoded decode(InputStream in, IntBinaryOperator subsampling) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int factor = Math.max(1, subsampling.applyAsInt(width, height));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(factor, factor, 0, 0);
+                return new Decoded(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Whether EXIF {@code orientation} turns the image by 90 degrees, so its upright width is the
+     * stored height and vice versa.
+     */
+    static boolean swapsSides(Integer orientation) {
+        return orientation != null && orientation >= 5 && orientation <= 8;
+    }
+
+    /**
+     * Turns a decoded image upright according to its EXIF {@code orientation} (1-8). The readers
+     * ignore the tag and re-encoding drops it, so copies made without this would be shown as stored,
+     * e.g. sideways for most phone photos.
+     */
+    static BufferedImage orient(BufferedImage source, Integer orientation) {
+        if (orientation == null || orientation <= 1 || orientation > 8) {
+            return source;
+        }
+        int width = source.getWidth();
+        int height = source.getHeight();
+        // Maps stored pixel coordinates to upright ones
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, height, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, height, width);
+            default -> new AffineTransform(0, -1, 1, 0, 0, width);
+        };
+        boolean swap = swapsSides(orientation);
+        boolean alpha = source.getColorModel().hasAlpha();
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height,
+            alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Scales to exactly {@code targetWidth} x {@code targetHeight}, halving in steps first so
+     * bilinear filtering does not skip pixels.
+     */
+    static BufferedImage scale(BufferedImage source, int targetWidth, int targetHeight, boolean alpha) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height, alpha);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, boolean alpha) {
+        BufferedImage target = new BufferedImage(width, height, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No image writer for " + format);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A decoded, possibly subsampled image and the dimensions of the original.
+     */
+    record Decoded(BufferedImage image, int originalWidth, int originalHeight) {
+
+        int originalLongestSide() {
+            return Math.max(originalWidth, originalHeight);
+        }
+    }
+}
@@ -1,132 +1,471 @@
 package com.example.demo.service;
 
 import com.example.demo.model.Image;
+import com.example.demo.model.ImageContent;
+import com.example.demo.model.ImageFile;
+import com.example.demo.model.ImageLabel;
+import com.example.demo.model.LabelSearchPage;
 import com.example.demo.model.Status;
+import com.example.demo.model.UploadMode;
 import io.awspring.cloud.dynamodb.DynamoDbTemplate;
-import io.awspring.cloud.s3.S3Template;
 import org.springframework.beans.factory.annotation.Value;
-import software.amazon.awssdk.core.sync.RequestBody;
+import org.springframework.context.ApplicationEventPublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpRange;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.multipart.MultipartFile;
 
-import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.IgnoreNullsMode;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
 import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
-import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.enhanced.dynamodb.model.UpdateItemEnhancedRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URLConnection;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class ImageService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ImageService.class);
+
+    // Enough for the EXIF segment and frame header of typical camera JPEGs
+    private static final int HEADER_BYTES = 64 * 1024;
+
+    // DynamoDB returns at most 100 items per BatchGetItem call; also the page size of label search
+    static final int BATCH_GET_LIMIT = 100;
+
     private final DynamoDbTemplate dynamoDbTemplate;
-    private final S3Template s3Template;
+    private final DynamoDbEnhancedClient dynamoDbEnhancedClient;
+    private final DynamoDbTable<Image> imageTable;
     private final S3Client s3Client;
+    private final S3StreamingUploader s3StreamingUploader;
+    private final S3BucketManager s3BucketManager;
+    private final ImageContentIndex imageContentIndex;
+    private final ImageLabelIndex imageLabelIndex;
+    private final LabelBitmapIndex labelBitmapIndex;
+    private final ImageMetadataCache imageMetadataCache;
+    private final ImageBytesCache imageBytesCache;
+    private final ImageDiskCache imageDiskCache;
+    private final RequestCoalescer requestCoalescer;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Value("${app.s3.bucket-name}")
     private String bucketName;
 
     @Autowired
-    public ImageService(DynamoDbTemplate dynamoDbTemplate, S3Template s3Template, S3Client s3Client) {
+    public ImageService(DynamoDbTemplate dynamoDbTemplate, DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                        DynamoDbTable<Image> imageTable, S3Client s3Client,
+                        S3StreamingUploader s3StreamingUploader, S3BucketManager s3BucketManager,
+                        ImageContentIndex imageContentIndex, ImageLabelIndex imageLabelIndex,
+                        LabelBitmapIndex labelBitmapIndex, ImageMetadataCache imageMetadataCache,
+                        ImageBytesCache imageBytesCache, ImageDiskCache imageDiskCache,
+                        RequestCoalescer requestCoalescer, ApplicationEventPublisher eventPublisher) {
         this.dynamoDbTemplate = dynamoDbTemplate;
-        this.s3Template = s3Template;
+        this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+        this.imageTable = imageTable;
         this.s3Client = s3Client;
+        this.s3StreamingUploader = s3StreamingUploader;
+        this.s3BucketManager = s3BucketManager;
+        this.imageContentIndex = imageContentIndex;
+        this.imageLabelIndex = imageLabelIndex;
+        this.labelBitmapIndex = labelBitmapIndex;
+        this.imageMetadataCache = imageMetadataCache;
+        this.imageBytesCache = imageBytesCache;
+        this.imageDiskCache = imageDiskCache;
+        this.requestCoalescer = requestCoalescer;
+        this.eventPublisher = eventPublisher;
     }
 
     public Image create(MultipartFile file) throws IOException {
-        // Generate unique ID for the image
-        UUID imageId = UUID.randomUUID();
-        String objectKey = "images/" + imageId.toString() + "_" + file.getOriginalFilename();
+        Image image = storeFile(file);
         
-        // Ensure bucket exists
-        try {
-            if (!s3Template.bucketExists(bucketName)) {
-                s3Template.createBucket(bucketName);
-            }
-        } catch (software.amazon.awssdk.services.s3.model.S3Exception e) {
-            if (e.statusCode() == 403) {
-                throw new RuntimeException("AWS S3 access denied. Please check your AWS credentials (AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY) and bucket permissions for bucket: " + bucketName, e);
-            } else if (e.statusCode() == 404) {
-                throw new RuntimeException("S3 bucket not found: " + bucketName + ". Please create the bucket or check the bucket name configuration.", e);
-            } else {
-                throw new RuntimeException("Failed to access S3 bucket: " + bucketName + ". Error: " + e.getMessage(), e);
+        // Save metadata to DynamoDB
+        dynamoDbTemplate.save(image);
+        publishStored(image);
+        return image;
+    }
+
+    /**
+     * Announces that the image's bytes are stored and its record is ACTIVE, which triggers the
+     * background work that follows an upload, such as generating derivatives.
+     */
+    public void publishStored(Image image) {
+        eventPublisher.publishEvent(new ImageStoredEvent(image));
+    }
+
+    /**
+     * Uploads the file content to S3 and returns the metadata describing it, without saving it.
+     * Callers persist the returned {@link Image} themselves, either one at a time or in batches.
+     */
+    public Image storeFile(MultipartFile file) {
+        return storeContent(UUID.randomUUID(), file.getOriginalFilename(), file.getContentType(), file.getSize(), file);
+    }
+
+    /**
+     * Uploads {@code size} bytes from {@code content} as the object of image {@code imageId} and returns
+     * ACTIVE metadata for it, without saving it. Content that is already stored for another image is
+     * not uploaded again; the new image references the existing object and inherits its labels.
+     */
+    public Image storeContent(UUID imageId, String fileName, String contentType, long size, InputStreamSource content) {
+        String objectKey = objectKeyFor(imageId, fileName);
+        Image image = newImage(imageId, objectKey, size, Status.ACTIVE);
+        image.setContentType(contentType);
+        
+        // The bucket is verified once at startup; this is a no-op unless that check failed or was invalidated
+        s3BucketManager.ensureBucket();
+        
+        // Identical bytes are stored once; a new record just references the existing object
+        String digest = sha256(content);
+        image.setContentDigest(digest);
+        ImageHeaderReader.describe(image, content);
+        ImageContent existing = imageContentIndex.acquire(digest);
+        if (existing != null) {
+            image.setContentKey(existing.getObjectPath());
+            Image source = existing.getSourceImageId() != null ? getById(UUID.fromString(existing.getSourceImageId())) : null;
+            if (source != null) {
+                image.setLabels(source.getLabels() != null && !source.getLabels().isEmpty() ? source.getLabels() : null);
+                image.setObjectETag(source.getObjectETag());
+                if (image.getLabels() != null) {
+                    // The recognition Lambda only labels new objects, so the inherited labels are indexed here
+                    imageLabelIndex.add(image, image.getLabels());
+                }
             }
+            return image;
         }
         
-        // Upload file to S3 using direct S3Client to avoid serialization issues
+        // Stream the content to S3 so the file is never held in heap as a whole
         try {
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(objectKey)
-                .contentType(file.getContentType())
-                .build();
-            
-            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(file.getBytes()));
+            image.setObjectETag(uploadToS3(content, objectKey, contentType, size));
+        } catch (S3Exception e) {
+            if (!isNoSuchBucket(e)) {
+                throw e;
+            }
+            // The bucket disappeared after startup; re-run the check (re-creating it if allowed) and retry once
+            s3BucketManager.invalidate();
+            s3BucketManager.ensureBucket();
+            try {
+                image.setObjectETag(uploadToS3(content, objectKey, contentType, size));
+            } catch (IOException retryException) {
+                throw new RuntimeException("Failed to upload file to S3", retryException);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Failed to upload file to S3", e);
         }
+        image.setContentKey(objectKey);
         
-        // Create Image metadata for DynamoDB
+        if (!imageContentIndex.register(digest, objectKey, imageId.toString())) {
+            // A concurrent upload of the same bytes registered first; share its object and drop ours
+            ImageContent winner = imageContentIndex.acquire(digest);
+            if (winner != null) {
+                deleteObjectQuietly(objectKey);
+                image.setContentKey(winner.getObjectPath());
+                // The winner's ETag is not known here; downloads fall back to asking S3
+                image.setObjectETag(null);
+            } else {
+                // The other upload was already released again; keep our object outside the index
+                image.setContentDigest(null);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Sets the header attributes of {@code image} (see {@link ImageHeaderReader}) from an object that
+     * was uploaded to S3 directly, fetching only its leading bytes with a ranged GET.
+     */
+    public void describeStoredObject(Image image) {
+        try (InputStream in = s3Client.getObject(builder -> builder
+                .bucket(bucketName)
+                .key(storageKeyOf(image))
+                .range("bytes=0-" + (HEADER_BYTES - 1)))) {
+            ImageHeaderReader.describe(image, new ByteArrayResource(in.readAllBytes()));
+        } catch (IOException | S3Exception e) {
+            logger.warn("Failed to read the header of {}: {}", storageKeyOf(image), e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the S3 key holding the image bytes. Records written before content deduplication
+     * store the bytes under their objectPath.
+     */
+    public String storageKeyOf(Image image) {
+        return image.getContentKey() != null ? image.getContentKey() : image.getObjectPath();
+    }
+
+    public String objectKeyFor(UUID imageId, String fileName) {
+        return "images/" + imageId.toString() + "_" + fileName;
+    }
+
+    /**
+     * Builds the metadata record for an image object; nothing is written.
+     */
+    public Image newImage(UUID imageId, String objectKey, long size, Status status) {
         Image image = new Image();
         image.setId(imageId.toString());
         image.setObjectPath(objectKey);
-        image.setObjectSize(String.valueOf(file.getSize()));
+        image.setObjectSize(String.valueOf(size));
         image.setTimeAdded(LocalDateTime.now());
         image.setTimeUpdated(LocalDateTime.now());
-        image.setStatus(Status.ACTIVE);
-        
-        // Save metadata to DynamoDB
-        dynamoDbTemplate.save(image);
+        image.setStatus(status);
         return image;
     }
 
-    public Image getById(UUID id) {
-        String idString = id.toString();
-        System.out.println("Looking for image with ID: " + idString);
-        
+    /**
+     * Writes only the non-null attributes of {@code image}, identified by its id and objectPath.
+     * Attributes maintained elsewhere (such as labels written by the recognition Lambda) are kept.
+     * Labels that are written replace the previous ones, in the record and in {@link ImageLabelIndex}.
+     * <p>
+     * Only an existing record is updated, so a background writer finishing after {@link #deleteById}
+     * does not bring the image back as a partial record.
+     *
+     * @return {@code false} when the image no longer exists; the caller then discards whatever it
+     *         stored for it
+     */
+    public boolean update(Image image) {
+        return update(image, Expression.builder().expression("attribute_exists(id)").build());
+    }
+
+    /**
+     * Writes {@code image} like {@link #update}, but only while the record is still PENDING. For
+     * writers that settle an upload which another request or a cleanup job may settle at the same time.
+     *
+     * @return {@code false} when the image no longer exists or is no longer PENDING
+     */
+    public boolean updateIfPending(Image image) {
+        return update(image, Expression.builder()
+            .expression("#status = :pending")
+            .putExpressionName("#status", "status")
+            .putExpressionValue(":pending", AttributeValue.fromS(Status.PENDING.name()))
+            .build());
+    }
+
+    private boolean update(Image image, Expression condition) {
+        Image previous = image.getLabels() != null ? getById(UUID.fromString(image.getId())) : null;
         try {
-            // Since we have a composite key (id + objectPath), we need to query by partition key
-            // and get the first match (assuming one image per ID)
-            Expression expression = Expression.builder()
-                .expression("#id = :id")
-                .putExpressionName("#id", "id")
-                .putExpressionValue(":id", AttributeValue.builder().s(idString).build())
-                .build();
+            imageTable.updateItem(UpdateItemEnhancedRequest.builder(Image.class)
+                .item(image)
+                .ignoreNullsMode(IgnoreNullsMode.SCALAR_ONLY)
+                .conditionExpression(condition)
+                .build());
+        } catch (ConditionalCheckFailedException e) {
+            logger.info("Image {} no longer satisfies {}; dropping the update of its record",
+                image.getId(), condition.expression());
+            imageMetadataCache.invalidate(image.getId());
+            return false;
+        }
+        imageMetadataCache.invalidate(image.getId());
+        if (image.getLabels() != null) {
+            imageLabelIndex.add(image, image.getLabels());
+            if (previous != null && previous.getLabels() != null) {
+                Set<String> removed = new HashSet<>(previous.getLabels());
+                removed.removeAll(image.getLabels());
+                imageLabelIndex.remove(image.getId(), removed);
+            }
+        }
+        return true;
+    }
 
-            ScanEnhancedRequest scanRequest = ScanEnhancedRequest
-                .builder()
-                .filterExpression(expression)
-                .limit(1)
-                .build();
+    /**
+     * Returns the PENDING images of uploads of {@code mode} started before {@code startedBefore}.
+     * This scans the image table, so it is meant for infrequent sweeps of abandoned uploads.
+     */
+    public Stream<Image> findPendingUploads(UploadMode mode, LocalDateTime startedBefore) {
+        Expression pending = Expression.builder()
+            .expression("#status = :pending AND uploadMode = :mode")
+            .putExpressionName("#status", "status")
+            .putExpressionValue(":pending", AttributeValue.fromS(Status.PENDING.name()))
+            .putExpressionValue(":mode", AttributeValue.fromS(mode.name()))
+            .build();
+        return imageTable.scan(ScanEnhancedRequest.builder()
+                .filterExpression(pending)
+                .attributesToProject("id", "objectPath", "timeAdded")
+                .build())
+            .items()
+            .stream()
+            .filter(image -> image.getTimeAdded() == null || image.getTimeAdded().isBefore(startedBefore));
+    }
 
-            return dynamoDbTemplate.scan(scanRequest, Image.class)
+    /**
+     * Best-effort release of content stored by {@link #storeContent} whose metadata could not be
+     * saved, so the object does not linger in the bucket without a record.
+     */
+    public void discardStoredFile(Image image) {
+        try {
+            releaseContent(image);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to release S3 object {}: {}", storageKeyOf(image), e.getMessage());
+        }
+        if (image.getLabels() != null) {
+            imageLabelIndex.remove(image.getId(), image.getLabels());
+        }
+    }
+
+    /**
+     * Drops the image's reference to its bytes and deletes the S3 object once no image uses it.
+     */
+    private void releaseContent(Image image) {
+        if (image.getContentDigest() == null || imageContentIndex.release(image.getContentDigest())) {
+            s3Client.deleteObject(builder -> builder
+                .bucket(bucketName)
+                .key(storageKeyOf(image))
+            );
+            imageBytesCache.invalidate(storageKeyOf(image));
+            imageDiskCache.invalidate(storageKeyOf(image));
+        }
+    }
+
+    private void deleteDerivatives(Image image) {
+        if (image.getDerivatives() == null || image.getDerivatives().isEmpty()) {
+            return;
+        }
+        List<ObjectIdentifier> keys = image.getDerivatives().values().stream()
+            .map(key -> ObjectIdentifier.builder().key(key).build())
+            .toList();
+        s3Client.deleteObjects(builder -> builder
+            .bucket(bucketName)
+            .delete(Delete.builder().objects(keys).quiet(true).build())
+        );
+        image.getDerivatives().values().forEach(key -> {
+            imageBytesCache.invalidate(key);
+            imageDiskCache.invalidate(key);
+        });
+    }
+
+    /**
+     * Renditions are not recorded on the image, so they are found by their key prefix.
+     */
+    private void deleteRenditions(Image image) {
+        s3Client.listObjectsV2Paginator(builder -> builder
+                .bucket(bucketName)
+                .prefix("renditions/" + image.getId() + "/"))
+            .forEach(page -> {
+                if (page.contents().isEmpty()) {
+                    return;
+                }
+                List<ObjectIdentifier> keys = page.contents().stream()
+                    .map(object -> ObjectIdentifier.builder().key(object.key()).build())
+                    .toList();
+                s3Client.deleteObjects(builder -> builder
+                    .bucket(bucketName)
+                    .delete(Delete.builder().objects(keys).quiet(true).build())
+                );
+                page.contents().forEach(object -> {
+                    imageBytesCache.invalidate(object.key());
+                    imageDiskCache.invalidate(object.key());
+                });
+            });
+    }
+
+    private void deleteObjectQuietly(String objectKey) {
+        try {
+            s3Client.deleteObject(builder -> builder.bucket(bucketName).key(objectKey));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to delete duplicate S3 object {}: {}", objectKey, e.getMessage());
+        }
+    }
+
+    private static String sha256(InputStreamSource content) {
+        try (InputStream stream = content.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read upload content", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private String uploadToS3(InputStreamSource content, String objectKey, String contentType, long size) throws IOException {
+        try (InputStream stream = content.getInputStream()) {
+            return s3StreamingUploader.upload(bucketName, objectKey, contentType, stream, size);
+        }
+    }
+
+    private static boolean isNoSuchBucket(S3Exception e) {
+        return e instanceof NoSuchBucketException
+            || (e.awsErrorDetails() != null && "NoSuchBucket".equals(e.awsErrorDetails().errorCode()));
+    }
+
+    /**
+     * Returns the image record, served from {@link ImageMetadataCache} when it was read recently.
+     */
+    public Image getById(UUID id) {
+        return imageMetadataCache.get(id, this::loadById);
+    }
+
+    private Image loadById(UUID id) {
+        try {
+            return dynamoDbTemplate.query(byIdQuery(id), Image.class)
                 .stream()
                 .flatMap(page -> page.items().stream())
                 .findFirst()
                 .orElse(null);
         } catch (Exception e) {
-            System.out.println("DynamoDB Error: " + e.getMessage());
+            logger.error("DynamoDB lookup of image {} failed: {}", id, e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * The table is keyed on (id, objectPath) and each id has exactly one item, so a Query on the
+     * partition key reads only that item: its cost does not depend on the size of the table.
+     */
+    static QueryEnhancedRequest byIdQuery(UUID id) {
+        return QueryEnhancedRequest.builder()
+            .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(id.toString()).build()))
+            .limit(1)
+            .build();
+    }
+
     public void deleteById(UUID id) {
         Image image = getById(id);
         if (image != null) {
             try {
-                // Delete file from S3 first
-                s3Client.deleteObject(builder -> builder
-                    .bucket(bucketName)
-                    .key(image.getObjectPath())
-                );
+                // Release the file first; the S3 object is deleted once no other image shares it
+                releaseContent(image);
+                deleteDerivatives(image);
+                deleteRenditions(image);
                 
                 // Then delete metadata from DynamoDB
                 Key key = Key.builder()
@@ -134,61 +473,459 @@ public class ImageService {
                     .sortValue(image.getObjectPath())
                     .build();
                 dynamoDbTemplate.delete(key, Image.class);
+                imageMetadataCache.invalidate(image.getId());
+                if (image.getLabels() != null) {
+                    imageLabelIndex.remove(image.getId(), image.getLabels());
+                }
             } catch (Exception e) {
                 throw new RuntimeException("Failed to delete image: " + e.getMessage(), e);
             }
         }
     }
 
-    public List<Image> searchByLabel(String label) {
-      Expression expression = Expression.builder()
-          .expression("contains(#labels, :label)")
-          .putExpressionName("#labels", "labels")
-          .putExpressionValue(":label", AttributeValue.builder().s(label).build())
-          .build();
+    /**
+     * Deletes the record of an upload that never completed. Such an image has no content, derivatives,
+     * renditions or labels yet, so only the record and its cached copy go.
+     */
+    public void discardPending(String id, String objectPath) {
+        dynamoDbTemplate.delete(Key.builder().partitionValue(id).sortValue(objectPath).build(), Image.class);
+        imageMetadataCache.invalidate(id);
+    }
 
-      ScanEnhancedRequest scanRequest = ScanEnhancedRequest
-          .builder()
-          .filterExpression(expression)
-          .build();
+    /**
+     * Returns the images of the next {@code limit} label index entries of {@code label}, in image id
+     * order, continuing after {@code cursor} when one is given. The page carries a cursor for the
+     * following page unless no entries remain; it may hold fewer than {@code limit} images, as images
+     * deleted or relabelled since they were indexed are skipped.
+     *
+     * @throws InvalidCursorException when {@code cursor} was not issued for this label
+     */
+    public LabelSearchPage searchByLabel(String label, int limit, String cursor) {
+        String afterImageId = cursor != null ? SearchCursor.decode(cursor, label) : null;
+        // One entry more than the page tells whether another page follows
+        List<ImageLabel> entries = labelBitmapIndex.find(label, afterImageId, limit + 1);
+        if (entries == null) {
+            entries = imageLabelIndex.query(label, afterImageId, limit + 1).items().stream()
+                .limit(limit + 1)
+                .toList();
+        }
+        if (entries.size() <= limit) {
+            return new LabelSearchPage(getAll(entries, label), null);
+        }
+        List<ImageLabel> page = entries.subList(0, limit);
+        String nextCursor = SearchCursor.encode(label, page.get(limit - 1).getImageId());
+        return new LabelSearchPage(getAll(page, label), nextCursor);
+    }
 
-      return dynamoDbTemplate.scan(scanRequest, Image.class)
-          .stream()
-          .flatMap(page -> page.items().stream())
-          .toList();
+    /**
+     * Reads the image records of {@code entries} in their order. Entries whose image no longer exists
+     * or no longer carries the label, e.g. because it was deleted while being labelled, are skipped.
+     */
+    private List<Image> getAll(List<ImageLabel> entries, String label) {
+        Map<String, Image> found = new HashMap<>();
+        for (int from = 0; from < entries.size(); from += BATCH_GET_LIMIT) {
+            ReadBatch.Builder<Image> readBatch = ReadBatch.builder(Image.class).mappedTableResource(imageTable);
+            entries.subList(from, Math.min(from + BATCH_GET_LIMIT, entries.size())).forEach(entry -> readBatch.addGetItem(
+                Key.builder().partitionValue(entry.getImageId()).sortValue(entry.getObjectPath()).build()));
+            // Unprocessed keys are requested again by the result's own pagination
+            dynamoDbEnhancedClient.batchGetItem(BatchGetItemEnhancedRequest.builder().readBatches(readBatch.build()).build())
+                .resultsForTable(imageTable)
+                .forEach(image -> found.put(image.getId(), image));
+        }
+        return entries.stream()
+            .map(entry -> found.get(entry.getImageId()))
+            .filter(image -> image != null && image.getLabels() != null && image.getLabels().contains(label))
+            .toList();
     }
 
     public byte[] downloadImageFile(UUID id) {
-        // First get the image metadata to find the S3 object path
+        return downloadImageFile(id, null);
+    }
+
+    /**
+     * Downloads the image, or its smallest derivative covering {@code size} pixels when a size is
+     * given. Falls back to the original when no such derivative exists (yet).
+     */
+    public byte[] downloadImageFile(UUID id, Integer size) {
+        try (InputStream content = getImageFile(id, size).getContent()) {
+            return content.readAllBytes();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to download image from S3: " + e.getMessage(), e);
+        }
+    }
+
+    public ImageFile getImageFile(UUID id, Integer size) {
+        return getImageFile(id, size, null);
+    }
+
+    /**
+     * Resolves the metadata once and opens the file in S3 without reading it, so serving a
+     * download costs a single lookup and the body can be streamed to the client. A {@code range}
+     * such as {@code bytes=0-1023} is passed on to S3 as is.
+     *
+     * @throws IllegalArgumentException when S3 rejects the range as not satisfiable
+     */
+    public ImageFile getImageFile(UUID id, Integer size, String range) {
+        ImageFile file = resolveImageFile(id, size);
+        openImageFile(file, range, null);
+        return file;
+    }
+
+    /**
+     * Resolves the object serving a download and its validators from the metadata alone, so a
+     * conditional request can be answered before anything is read from S3.
+     */
+    public ImageFile resolveImageFile(UUID id, Integer size) {
         Image image = getById(id);
         if (image == null) {
             throw new RuntimeException("Image not found with ID: " + id);
         }
 
+        String derivativeKey = matchingDerivativeKey(image, size);
+        ImageFile file = new ImageFile();
+        file.setImage(image);
+        file.setObjectKey(derivativeKey != null ? derivativeKey : storageKeyOf(image));
+        file.setContentType(derivativeKey != null ? contentTypeOf(derivativeKey) : contentTypeOf(image));
+        // Only the original's ETag is recorded; S3 validates derivatives itself
+        file.setETag(derivativeKey == null ? image.getObjectETag() : null);
+        // Stored objects never change, but a sized download switches to a derivative once it exists
+        LocalDateTime lastModified = size == null && image.getTimeAdded() != null ? image.getTimeAdded() : image.getTimeUpdated();
+        if (lastModified != null) {
+            file.setLastModified(lastModified.toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS));
+        }
+        return file;
+    }
+
+    /**
+     * Opens a file returned by {@link #resolveImageFile}. With {@code ifNoneMatch} S3 evaluates the
+     * validator and sends no body when it still matches. Small objects are kept in
+     * {@link ImageBytesCache} after a full read and larger ones in {@link ImageDiskCache}; both are
+     * served from there later, ranges included. A disk copy whose ETag differs from the one
+     * recorded in the metadata is dropped and read from S3 again. Concurrent full reads of an object
+     * that fits the byte cache share a single S3 GET.
+     *
+     * @return {@code false} when the object still matches {@code ifNoneMatch}; nothing is opened then,
+     *         and the ETag of the file is set to the one of the matching object
+     * @throws IllegalArgumentException when S3 rejects the range as not satisfiable
+     */
+    public boolean openImageFile(ImageFile file, String range, String ifNoneMatch) {
+        ImageBytesCache.CachedObject cached = imageBytesCache.get(file.getObjectKey());
+        if (cached != null) {
+            if (ifNoneMatch != null && matchesAny(ifNoneMatch, cached.eTag())) {
+                file.setETag(cached.eTag());
+                return false;
+            }
+            long[] bounds = boundsOf(range, cached.length(), file);
+            file.setContent(cached.open(bounds[0], bounds[1] - bounds[0] + 1));
+            file.setETag(cached.eTag());
+            return true;
+        }
+        if (openFromDisk(file, range, ifNoneMatch)) {
+            return file.getContent() != null;
+        }
+        if (range == null && ifNoneMatch == null && imageBytesCache.isCacheable(expectedLengthOf(file))) {
+            cached = requestCoalescer.execute("file", file.getObjectKey(), () -> fetchIntoBytesCache(file));
+            if (cached != null) {
+                boundsOf(null, cached.length(), file);
+                file.setContent(cached.open(0, cached.length()));
+                file.setETag(cached.eTag());
+                return true;
+            }
+        }
+
+        ResponseInputStream<GetObjectResponse> content;
+        try {
+            content = openObject(file.getObjectKey(), range, ifNoneMatch);
+        } catch (S3Exception e) {
+            if (e.statusCode() != 304) {
+                throw e;
+            }
+            file.setETag(eTagOf(e));
+            return false;
+        }
+        GetObjectResponse response = content.response();
+        learnContentType(file, response);
+        if (range == null && imageBytesCache.isCacheable(response.contentLength())) {
+            try (content) {
+                cached = imageBytesCache.put(file.getObjectKey(), response.eTag(), content, response.contentLength());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to download image from S3: " + e.getMessage(), e);
+            }
+            file.setContent(cached.open(0, cached.length()));
+        } else if (range == null && imageDiskCache.isCacheable(response.contentLength())) {
+            file.setContent(imageDiskCache.fill(file.getObjectKey(), response.eTag(), content, response.contentLength()));
+        } else {
+            file.setContent(content);
+        }
+        file.setContentLength(response.contentLength());
+        file.setContentRange(response.contentRange());
+        file.setTotalLength(totalLengthOf(response));
+        file.setETag(response.eTag());
+        return true;
+    }
+
+    /**
+     * Reads a whole object into the byte cache.
+     *
+     * @return the cached object, or {@code null} when it turned out too large for the cache
+     */
+    private ImageBytesCache.CachedObject fetchIntoBytesCache(ImageFile file) {
+        ResponseInputStream<GetObjectResponse> content = openObject(file.getObjectKey(), null, null);
+        GetObjectResponse response = content.response();
+        learnContentType(file, response);
+        if (!imageBytesCache.isCacheable(response.contentLength())) {
+            content.abort();
+            return null;
+        }
+        try (content) {
+            return imageBytesCache.put(file.getObjectKey(), response.eTag(), content, response.contentLength());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to download image from S3: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Takes the content type of an original whose record predates stored content types from the S3
+     * response. Recording it is left to {@link MetadataBackfillService}, which writes it in the
+     * background once per image, so later downloads, including cache hits, find it in the metadata.
+     */
+    private void learnContentType(ImageFile file, GetObjectResponse response) {
+        Image image = file.getImage();
+        String contentType = response.contentType();
+        if (image == null || image.getContentType() != null || contentType == null || !contentType.startsWith("image/")
+                || !file.getObjectKey().equals(storageKeyOf(image))) {
+            return;
+        }
+        file.setContentType(contentType);
+        eventPublisher.publishEvent(new ContentTypeLearnedEvent(image.getId(), image.getObjectPath(), contentType));
+    }
+
+    /**
+     * Returns the length of the object serving {@code file} when it is known without asking S3: the
+     * recorded size of an original, or the length of a cached copy. Otherwise {@code null}.
+     */
+    public Long knownLengthOf(ImageFile file) {
+        long recorded = expectedLengthOf(file);
+        if (recorded > 0) {
+            return recorded;
+        }
+        ImageBytesCache.CachedObject cached = imageBytesCache.get(file.getObjectKey());
+        if (cached != null) {
+            return cached.length();
+        }
+        ImageDiskCache.Entry entry = imageDiskCache.get(file.getObjectKey());
+        return entry != null ? entry.length() : null;
+    }
+
+    /**
+     * The size of an original is recorded; derivatives are small, so 0 stands in for them.
+     */
+    private long expectedLengthOf(ImageFile file) {
+        Image image = file.getImage();
+        if (image == null || image.getObjectSize() == null || !file.getObjectKey().equals(storageKeyOf(image))) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(image.getObjectSize());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Serves the file from the disk tier when it holds a current copy.
+     *
+     * @return {@code false} on a miss; otherwise {@code content} is left {@code null} when the copy
+     * still matches {@code ifNoneMatch}
+     */
+    private boolean openFromDisk(ImageFile file, String range, String ifNoneMatch) {
+        ImageDiskCache.Entry entry = imageDiskCache.get(file.getObjectKey());
+        if (entry == null) {
+            return false;
+        }
+        if (file.getETag() != null && !file.getETag().equals(entry.eTag())) {
+            logger.warn("Dropping disk copy of {}: ETag {} does not match {}", file.getObjectKey(), entry.eTag(), file.getETag());
+            imageDiskCache.invalidate(file.getObjectKey());
+            return false;
+        }
+        if (ifNoneMatch != null && matchesAny(ifNoneMatch, entry.eTag())) {
+            file.setContent(null);
+            file.setETag(entry.eTag());
+            return true;
+        }
+        long[] bounds = boundsOf(range, entry.length(), file);
+        try {
+            file.setContent(imageDiskCache.open(entry, bounds[0], bounds[1] - bounds[0] + 1));
+        } catch (IOException e) {
+            logger.warn("Dropping unreadable disk copy of {}: {}", file.getObjectKey(), e.getMessage());
+            imageDiskCache.invalidate(file.getObjectKey());
+            return false;
+        }
+        file.setCachedOnDisk(true);
+        file.setLocalOffset(bounds[0]);
+        file.setETag(entry.eTag());
+        return true;
+    }
+
+    /**
+     * Returns a path the connector's sendfile can open for a file read from the disk cache, or
+     * {@code null} when the file has to be streamed instead. See {@link ImageDiskCache#link}.
+     */
+    public Path linkForSendfile(ImageFile file) {
+        return file.isCachedOnDisk() ? imageDiskCache.link(file.getObjectKey(), file.getETag()) : null;
+    }
+
+    /**
+     * Opens another range of an opened file without looking up its metadata again.
+     */
+    public InputStream openRange(ImageFile file, String range) {
+        ImageFile slice = new ImageFile();
+        slice.setObjectKey(file.getObjectKey());
+        slice.setETag(file.getETag());
+        if (!openImageFileFromCache(slice, range)) {
+            return openObject(file.getObjectKey(), range, null);
+        }
+        return slice.getContent();
+    }
+
+    private boolean openImageFileFromCache(ImageFile file, String range) {
+        ImageBytesCache.CachedObject cached = imageBytesCache.get(file.getObjectKey());
+        if (cached != null) {
+            long[] bounds = boundsOf(range, cached.length(), file);
+            file.setContent(cached.open(bounds[0], bounds[1] - bounds[0] + 1));
+            return true;
+        }
+        return openFromDisk(file, range, null);
+    }
+
+    /**
+     * Resolves {@code range} against an object of {@code total} bytes held locally and sets the
+     * length fields of {@code file} accordingly.
+     *
+     * @return the first and last byte position
+     * @throws IllegalArgumentException when the range is not satisfiable
+     */
+    private static long[] boundsOf(String range, long total, ImageFile file) {
+        long start = 0;
+        long end = total - 1;
+        file.setContentRange(null);
+        if (range != null) {
+            HttpRange httpRange = HttpRange.parseRanges(range).get(0);
+            start = httpRange.getRangeStart(total);
+            if (start >= total) {
+                throw new IllegalArgumentException("Range not satisfiable: " + range);
+            }
+            end = httpRange.getRangeEnd(total);
+            file.setContentRange("bytes " + start + "-" + end + "/" + total);
+        }
+        file.setContentLength(end - start + 1);
+        file.setTotalLength(total);
+        return new long[] {start, end};
+    }
+
+    private static boolean matchesAny(String ifNoneMatch, String eTag) {
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals("*") || (eTag != null && opaqueTag(candidate).equals(opaqueTag(eTag)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private ResponseInputStream<GetObjectResponse> openObject(String objectKey, String range, String ifNoneMatch) {
         try {
-            // Download the file from S3
             GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
-                .key(image.getObjectPath())
+                .key(objectKey)
+                .range(range)
+                .ifNoneMatch(ifNoneMatch)
                 .build();
-            
-            return s3Client.getObject(getObjectRequest).readAllBytes();
+
+            return s3Client.getObject(getObjectRequest);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 304) {
+                // Not modified; only possible with ifNoneMatch, whose callers handle it
+                throw e;
+            }
+            if (e.statusCode() == 416) {
+                throw new IllegalArgumentException("Range not satisfiable: " + range, e);
+            }
+            throw new RuntimeException("Failed to download image from S3: " + e.getMessage(), e);
         } catch (Exception e) {
             throw new RuntimeException("Failed to download image from S3: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * The ETag S3 sends with a 304, i.e. the one of the object that matched.
+     */
+    private static String eTagOf(S3Exception notModified) {
+        if (notModified.awsErrorDetails() == null || notModified.awsErrorDetails().sdkHttpResponse() == null) {
+            return null;
+        }
+        return notModified.awsErrorDetails().sdkHttpResponse().firstMatchingHeader("ETag").orElse(null);
+    }
+
+    private static long totalLengthOf(GetObjectResponse response) {
+        // Content-Range is "bytes <first>-<last>/<total>"
+        String contentRange = response.contentRange();
+        if (contentRange == null) {
+            return response.contentLength();
+        }
+        return Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1));
+    }
+
     public String getImageContentType(UUID id) {
+        return getImageContentType(id, null);
+    }
+
+    public String getImageContentType(UUID id, Integer size) {
         Image image = getById(id);
         if (image == null) {
             return null;
         }
         
-        String objectPath = image.getObjectPath();
+        String derivativeKey = matchingDerivativeKey(image, size);
+        return derivativeKey != null ? contentTypeOf(derivativeKey) : contentTypeOf(image);
+    }
+
+    /**
+     * The recorded content type of the original. Records written before it was stored fall back to
+     * a guess from the object name until a download or the backfill has read it from S3.
+     */
+    private static String contentTypeOf(Image image) {
+        return image.getContentType() != null ? image.getContentType() : contentTypeOf(image.getObjectPath());
+    }
+
+    private static String contentTypeOf(String objectPath) {
         String contentType = URLConnection.guessContentTypeFromName(objectPath);
-        
         return contentType != null ? contentType : "application/octet-stream";
     }
+
+    /**
+     * Returns the key of the smallest derivative whose longest side is at least {@code size}, or
+     * {@code null} when the original should be served.
+     */
+    private static String matchingDerivativeKey(Image image, Integer size) {
+        if (size == null || image.getDerivatives() == null) {
+            return null;
+        }
+        String bestKey = null;
+        int bestSize = Integer.MAX_VALUE;
+        for (Map.Entry<String, String> derivative : image.getDerivatives().entrySet()) {
+            int derivativeSize = Integer.parseInt(derivative.getKey());
+            if (derivativeSize >= size && derivativeSize < bestSize) {
+                bestSize = derivativeSize;
+                bestKey = derivative.getValue();
+            }
+        }
+        return bestKey;
+    }
     
     public String getFileExtensionFromContentType(String contentType) {
         if (contentType == null) return "";
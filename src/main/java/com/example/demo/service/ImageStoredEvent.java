@@ -0,0 +1,10 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Image;
+
+/**
+ * Published once an image's bytes are in S3 and its record is ACTIVE, for work that follows the
+ * upload without delaying it.
+ */
+public record ImageStoredEvent(Image image) {
+}
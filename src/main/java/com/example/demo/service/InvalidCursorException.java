@@ -0,0 +1,15 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a label search cursor is malformed or was issued for another label.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.demo.service;
+
+import com.example.demo.config.SearchConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.ImageLabel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory label index that answers label searches without a DynamoDB request. Every image with
+ * labels gets a dense ordinal, and every label maps to a compressed bitmap of the ordinals of its
+ * images; the id and objectPath of each ordinal are kept so the records can be read afterwards.
+ * The ids are kept sorted, so a page can start right after its cursor.
+ * <p>
+ * The index is built after startup from a parallel scan of the image table. Labels written
+ * through {@link ImageLabelIndex} on this task are applied as they are written; entries written
+ * elsewhere, by the recognition Lambda or other tasks, are read every refresh interval through
+ * the {@value ImageLabel#LABELLED_INDEX} of the label index table. Labels removed on other tasks
+ * stay in the bitmaps until restart; searches drop such hits when they read the records.
+ */
+@Component
+public class LabelBitmapIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LabelBitmapIndex.class);
+
+    private static final String METRIC_PREFIX = "image.labels.index";
+
+    private static final Comparator<ImageLabel> BY_IMAGE_ID = Comparator.comparing(ImageLabel::getImageId);
+
+    // Allows for clock skew between the writers of index entries and this task
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    // Approximate heap cost of an ordinal besides the characters of its id and objectPath: the tree
+    // map entry, the boxed ordinal, two list slots and two String headers
+    private static final long ORDINAL_OVERHEAD_BYTES = 160;
+
+    private final DynamoDbTable<Image> imageTable;
+    private final DynamoDbTable<ImageLabel> labelTable;
+    private final SearchConfig.MemoryIndex config;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Integer> ordinals = new TreeMap<>();
+    private final List<String> imageIds = new ArrayList<>();
+    private final List<String> objectPaths = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final Map<String, RoaringBitmap> bitmaps = new HashMap<>();
+    private long ordinalBytes;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+    private volatile boolean ready;
+    private volatile Instant refreshedUntil;
+
+    @Autowired
+    public LabelBitmapIndex(DynamoDbTable<Image> imageTable, DynamoDbTable<ImageLabel> labelTable,
+                            SearchConfig searchConfig, MeterRegistry meterRegistry) {
+        this.imageTable = imageTable;
+        this.labelTable = labelTable;
+        this.config = searchConfig.getMemoryIndex();
+        Gauge.builder(METRIC_PREFIX + ".images", this, LabelBitmapIndex::imageCount)
+            .description("Images with labels held by the in-memory label index")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".labels", this, LabelBitmapIndex::labelCount)
+            .description("Distinct labels held by the in-memory label index")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".memory", this, LabelBitmapIndex::memoryBytes)
+            .description("Estimated heap used by the in-memory label index")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".memory.per.million.images", this, LabelBitmapIndex::memoryPerMillionImages)
+            .description("Estimated heap used by the in-memory label index per million images")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (config.isEnabled()) {
+            startBuild();
+        }
+    }
+
+    /**
+     * Returns the entries of the first {@code count} images carrying {@code label} whose id sorts after
+     * {@code afterImageId} ({@code null} for the first page), in image id order, or {@code null}
+     * while the index is not built, in which case the caller has to query DynamoDB.
+     * <p>
+     * The sorted ids are walked from the cursor until {@code count} of them carry the label, which
+     * visits about {@code count * images / matches} ids. For labels so rare that this exceeds their
+     * number of matches, their ordinals are visited instead and the {@code count} smallest ids kept
+     * in a heap.
+     */
+    public List<ImageLabel> find(String label, String afterImageId, int count) {
+        if (!ready) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            RoaringBitmap bitmap = bitmaps.get(label);
+            if (bitmap == null) {
+                return new ArrayList<>();
+            }
+            long matches = bitmap.getLongCardinality();
+            if ((double) count * ordinals.size() / matches <= matches) {
+                return walkIds(label, bitmap, afterImageId, count);
+            }
+            return smallestIds(label, bitmap, afterImageId, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ImageLabel> walkIds(String label, RoaringBitmap bitmap, String afterImageId, int count) {
+        Map<String, Integer> after = afterImageId == null ? ordinals : ordinals.tailMap(afterImageId, false);
+        List<ImageLabel> entries = new ArrayList<>(count);
+        for (Map.Entry<String, Integer> image : after.entrySet()) {
+            if (entries.size() >= count) {
+                break;
+            }
+            int ordinal = image.getValue();
+            if (bitmap.contains(ordinal)) {
+                entries.add(new ImageLabel(label, image.getKey(), objectPaths.get(ordinal)));
+            }
+        }
+        return entries;
+    }
+
+    private List<ImageLabel> smallestIds(String label, RoaringBitmap bitmap, String afterImageId, int count) {
+        PriorityQueue<ImageLabel> smallest = new PriorityQueue<>(BY_IMAGE_ID.reversed());
+        IntIterator matching = bitmap.getIntIterator();
+        while (matching.hasNext()) {
+            int ordinal = matching.next();
+            String imageId = imageIds.get(ordinal);
+            if (afterImageId != null && imageId.compareTo(afterImageId) <= 0) {
+                continue;
+            }
+            if (smallest.size() < count) {
+                smallest.add(new ImageLabel(label, imageId, objectPaths.get(ordinal)));
+            } else if (!smallest.isEmpty() && imageId.compareTo(smallest.peek().getImageId()) < 0) {
+                smallest.poll();
+                smallest.add(new ImageLabel(label, imageId, objectPaths.get(ordinal)));
+            }
+        }
+        List<ImageLabel> entries = new ArrayList<>(smallest);
+        entries.sort(BY_IMAGE_ID);
+        return entries;
+    }
+
+    public void add(String imageId, String objectPath, Collection<String> labels) {
+        lock.writeLock().lock();
+        try {
+            addLocked(imageId, objectPath, labels);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes {@code labels} from the image; its ordinal is reused once it carries no label.
+     */
+    public void remove(String imageId, Collection<String> labels) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(imageId);
+            if (ordinal == null) {
+                return;
+            }
+            for (String label : labels) {
+                RoaringBitmap bitmap = bitmaps.get(label);
+                if (bitmap != null) {
+                    bitmap.remove(ordinal);
+                    if (bitmap.isEmpty()) {
+                        bitmaps.remove(label);
+                    }
+                }
+            }
+            if (bitmaps.values().stream().noneMatch(bitmap -> bitmap.contains(ordinal))) {
+                ordinals.remove(imageId);
+                ordinalBytes -= ordinalCost(imageIds.get(ordinal), objectPaths.get(ordinal));
+                imageIds.set(ordinal, null);
+                objectPaths.set(ordinal, null);
+                freeOrdinals.push(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Scans the image table in {@code scanSegments} parallel segments and adds the labels of every
+     * image. Searches are answered from memory once a build has completed.
+     */
+    public void build() {
+        Instant started = Instant.now();
+        int segments = config.getScanSegments();
+        ExecutorService scanners = Executors.newFixedThreadPool(segments,
+            Thread.ofPlatform().name("label-index-scan-", 0).daemon().factory());
+        try {
+            List<CompletableFuture<Integer>> scans = IntStream.range(0, segments)
+                .mapToObj(segment -> CompletableFuture.supplyAsync(() -> scanSegment(segment, segments), scanners))
+                .toList();
+            int images = scans.stream().mapToInt(CompletableFuture::join).sum();
+            // Entries written while the scan was running are picked up by the first refresh
+            refreshedUntil = started.minus(REFRESH_OVERLAP);
+            ready = true;
+            logger.info("Label index built from {} images in {} ms", images, Duration.between(started, Instant.now()).toMillis());
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.error("Building the label index failed: {}", cause.getMessage());
+        } finally {
+            scanners.shutdown();
+        }
+    }
+
+    /**
+     * Reads the label index entries written since the last refresh, one Query per minute bucket of
+     * the {@value ImageLabel#LABELLED_INDEX}. Restarts the build if it has not completed.
+     */
+    @Scheduled(fixedDelayString = "${app.search.memory-index.refresh-interval:PT30S}",
+               initialDelayString = "${app.search.memory-index.refresh-interval:PT30S}")
+    public void refresh() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        if (!ready) {
+            startBuild();
+            return;
+        }
+        Instant now = Instant.now();
+        Instant from = refreshedUntil;
+        int entries = 0;
+        try {
+            for (Instant minute = from.truncatedTo(ChronoUnit.MINUTES); !minute.isAfter(now); minute = minute.plus(1, ChronoUnit.MINUTES)) {
+                QueryEnhancedRequest request = QueryEnhancedRequest.builder()
+                    .queryConditional(QueryConditional.sortGreaterThanOrEqualTo(Key.builder()
+                        .partitionValue(ImageLabel.minuteOf(minute))
+                        .sortValue(from.toEpochMilli())
+                        .build()))
+                    .build();
+                for (Page<ImageLabel> page : labelTable.index(ImageLabel.LABELLED_INDEX).query(request)) {
+                    for (ImageLabel entry : page.items()) {
+                        add(entry.getImageId(), entry.getObjectPath(), List.of(entry.getLabel()));
+                        entries++;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Refreshing the label index failed after {} entries: {}", entries, e.getMessage());
+            return;
+        }
+        refreshedUntil = now.minus(REFRESH_OVERLAP);
+        logger.debug("Label index refreshed with {} entries", entries);
+    }
+
+    private void startBuild() {
+        if (building.compareAndSet(false, true)) {
+            Thread.ofPlatform().name("label-index-build").daemon().start(() -> {
+                try {
+                    build();
+                } finally {
+                    building.set(false);
+                }
+            });
+        }
+    }
+
+    private int scanSegment(int segment, int totalSegments) {
+        ScanEnhancedRequest request = ScanEnhancedRequest.builder()
+            .segment(segment)
+            .totalSegments(totalSegments)
+            .filterExpression(Expression.builder().expression("attribute_exists(labels)").build())
+            .attributesToProject("id", "objectPath", "labels")
+            .build();
+        int images = 0;
+        for (Page<Image> page : imageTable.scan(request)) {
+            lock.writeLock().lock();
+            try {
+                for (Image image : page.items()) {
+                    addLocked(image.getId(), image.getObjectPath(), image.getLabels());
+                    images++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return images;
+    }
+
+    private void addLocked(String imageId, String objectPath, Collection<String> labels) {
+        Integer ordinal = ordinals.get(imageId);
+        if (ordinal == null) {
+            if (freeOrdinals.isEmpty()) {
+                ordinal = imageIds.size();
+                imageIds.add(imageId);
+                objectPaths.add(objectPath);
+            } else {
+                ordinal = freeOrdinals.pop();
+                imageIds.set(ordinal, imageId);
+                objectPaths.set(ordinal, objectPath);
+            }
+            ordinals.put(imageId, ordinal);
+            ordinalBytes += ordinalCost(imageId, objectPath);
+        }
+        for (String label : labels) {
+            bitmaps.computeIfAbsent(label, key -> new RoaringBitmap()).add(ordinal);
+        }
+    }
+
+    private static long ordinalCost(String imageId, String objectPath) {
+        return ORDINAL_OVERHEAD_BYTES + imageId.length() + (objectPath != null ? objectPath.length() : 0);
+    }
+
+    private int imageCount() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int labelCount() {
+        lock.readLock().lock();
+        try {
+            return bitmaps.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return ordinalBytes + bitmaps.values().stream().mapToLong(RoaringBitmap::getLongSizeInBytes).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private double memoryPerMillionImages() {
+        int images = imageCount();
+        return images == 0 ? 0 : memoryBytes() * 1_000_000.0 / images;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Image;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+
+/**
+ * Indexes the labels of image records written before {@link ImageLabelIndex} existed. The index
+ * is complete once one run has scanned the whole table, since all later label writes maintain it;
+ * the run records this in the index, so later runs, also of other tasks, return without scanning.
+ */
+@Service
+public class LabelIndexBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LabelIndexBackfillService.class);
+
+    private final ImageLabelIndex imageLabelIndex;
+    private final DynamoDbTable<Image> imageTable;
+    private volatile boolean complete;
+
+    @Autowired
+    public LabelIndexBackfillService(ImageLabelIndex imageLabelIndex, DynamoDbTable<Image> imageTable) {
+        this.imageLabelIndex = imageLabelIndex;
+        this.imageTable = imageTable;
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.label-backfill-interval:PT1H}",
+               initialDelayString = "${app.search.label-backfill-delay:PT1M}")
+    public void backfill() {
+        if (complete) {
+            return;
+        }
+        int indexed = 0;
+        try {
+            if (imageLabelIndex.isBackfilled()) {
+                complete = true;
+                return;
+            }
+            ScanEnhancedRequest request = ScanEnhancedRequest.builder()
+                .filterExpression(Expression.builder().expression("attribute_exists(labels)").build())
+                .attributesToProject("id", "objectPath", "labels")
+                .build();
+            for (Image image : imageTable.scan(request).items()) {
+                imageLabelIndex.add(image, image.getLabels());
+                indexed++;
+            }
+            imageLabelIndex.markBackfilled();
+        } catch (RuntimeException e) {
+            logger.error("Label index backfill failed after {} images: {}", indexed, e.getMessage());
+            return;
+        }
+        logger.info("Label index backfill indexed the labels of {} images", indexed);
+        complete = true;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Image;
+import com.example.demo.model.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Completes image records written before the content type was stored at upload: their content
+ * type, and the ETag and size where missing, are read from the S3 object with a HEAD request.
+ * Uploads record all three, so the set of such records only shrinks; once a scan finds none, later
+ * runs return without scanning the table again. Records that cannot be completed, for now or for
+ * good, keep the scans going.
+ * <p>
+ * Content types that downloads learn from S3 in the meantime are written here as well, batched per
+ * image, so a popular legacy image costs one write rather than one per download.
+ */
+@Service
+public class MetadataBackfillService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetadataBackfillService.class);
+
+    // Bounds the memory held by learned content types when writes fall behind
+    private static final int MAX_LEARNED = 10_000;
+
+    private final ImageService imageService;
+    private final DynamoDbTable<Image> imageTable;
+    private final S3Client s3Client;
+    private final Map<String, ContentTypeLearnedEvent> learned = new ConcurrentHashMap<>();
+    private volatile boolean complete;
+
+    @Value("${app.s3.bucket-name}")
+    private String bucketName;
+
+    @Autowired
+    public MetadataBackfillService(ImageService imageService, DynamoDbTable<Image> imageTable, S3Client s3Client) {
+        this.imageService = imageService;
+        this.imageTable = imageTable;
+        this.s3Client = s3Client;
+    }
+
+    @Scheduled(fixedDelayString = "${app.download.metadata-backfill-interval:PT1H}",
+               initialDelayString = "${app.download.metadata-backfill-interval:PT1H}")
+    public void backfill() {
+        if (complete) {
+            return;
+        }
+        Expression legacy = Expression.builder()
+            .expression("attribute_not_exists(contentType) AND #status = :active")
+            .putExpressionName("#status", "status")
+            .putExpressionValue(":active", AttributeValue.builder().s(Status.ACTIVE.name()).build())
+            .build();
+        int candidates = 0;
+        int completed = 0;
+        try {
+            for (Image image : imageTable.scan(ScanEnhancedRequest.builder().filterExpression(legacy).build()).items()) {
+                candidates++;
+                if (complete(image)) {
+                    completed++;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Metadata backfill failed after {} records: {}", candidates, e.getMessage());
+            return;
+        }
+        logger.info("Metadata backfill completed {} of {} records", completed, candidates);
+        complete = candidates == 0;
+    }
+
+    @EventListener
+    public void onContentTypeLearned(ContentTypeLearnedEvent event) {
+        if (learned.size() < MAX_LEARNED) {
+            learned.putIfAbsent(event.imageId(), event);
+        }
+    }
+
+    /**
+     * Writes the content types learned by downloads since the last run. A failed write is dropped;
+     * the next download or the backfill learns the content type again.
+     */
+    @Scheduled(fixedDelayString = "${app.download.learned-content-type-interval:PT10S}",
+               initialDelayString = "${app.download.learned-content-type-interval:PT10S}")
+    public void recordLearnedContentTypes() {
+        for (String imageId : learned.keySet()) {
+            ContentTypeLearnedEvent event = learned.remove(imageId);
+            Image result = new Image();
+            result.setId(event.imageId());
+            result.setObjectPath(event.objectPath());
+            result.setContentType(event.contentType());
+            result.setTimeUpdated(LocalDateTime.now());
+            try {
+                imageService.update(result);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to record content type of image {}: {}", imageId, e.getMessage());
+            }
+        }
+    }
+
+    private boolean complete(Image image) {
+        String objectKey = imageService.storageKeyOf(image);
+        HeadObjectResponse head;
+        try {
+            head = s3Client.headObject(builder -> builder.bucket(bucketName).key(objectKey));
+        } catch (S3Exception e) {
+            logger.warn("Cannot backfill image {}: HEAD of {} failed: {}", image.getId(), objectKey, e.getMessage());
+            return false;
+        }
+        if (head.contentType() == null || !head.contentType().startsWith("image/")) {
+            logger.warn("Cannot backfill image {}: {} has content type {}", image.getId(), objectKey, head.contentType());
+            return false;
+        }
+
+        Image result = new Image();
+        result.setId(image.getId());
+        result.setObjectPath(image.getObjectPath());
+        result.setContentType(head.contentType());
+        if (image.getObjectETag() == null) {
+            result.setObjectETag(head.eTag());
+        }
+        if (image.getObjectSize() == null && head.contentLength() != null) {
+            result.setObjectSize(String.valueOf(head.contentLength()));
+        }
+        result.setTimeUpdated(LocalDateTime.now());
+        return imageService.update(result);
+    }
+}
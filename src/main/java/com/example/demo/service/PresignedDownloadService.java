@@ -0,0 +1,87 @@
+package com.example.demo.service;
+
+import com.example.demo.config.DownloadConfig;
+import com.example.demo.model.ImageFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Presigns short-lived S3 GET URLs for the redirect download mode. Signing is done locally but
+ * still costs an HMAC chain per URL, so URLs are cached per image and object until shortly before
+ * they expire.
+ */
+@Service
+public class PresignedDownloadService {
+
+    private final S3Presigner s3Presigner;
+    private final DownloadConfig downloadConfig;
+    private final Map<String, PresignedUrl> cache;
+
+    @Value("${app.s3.bucket-name}")
+    private String bucketName;
+
+    @Autowired
+    public PresignedDownloadService(S3Presigner s3Presigner, DownloadConfig downloadConfig) {
+        this.s3Presigner = s3Presigner;
+        this.downloadConfig = downloadConfig;
+        int capacity = downloadConfig.getPresignedUrlCacheSize();
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PresignedUrl> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * Returns a presigned GET URL for a file resolved by {@link ImageService#resolveImageFile}. S3 is
+     * asked to answer with the file's content type and an inline disposition, like the proxy mode.
+     */
+    public URI presignedUrlFor(ImageFile file, String fileName) {
+        String cacheKey = file.getImage().getId() + "|" + file.getObjectKey();
+        Instant reusableUntil = Instant.now().plus(downloadConfig.getPresignedUrlMinRemaining());
+        PresignedUrl cached = cache.get(cacheKey);
+        if (cached != null && cached.expiresAt().isAfter(reusableUntil)) {
+            return cached.url();
+        }
+
+        PresignedGetObjectRequest presigned = s3Presigner.presignGetObject(builder -> builder
+            .signatureDuration(downloadConfig.getPresignedUrlTtl())
+            .getObjectRequest(request -> request
+                .bucket(bucketName)
+                .key(file.getObjectKey())
+                .responseContentType(file.getContentType())
+                .responseContentDisposition("inline; filename=\"" + fileName + "\"")));
+        PresignedUrl url;
+        try {
+            url = new PresignedUrl(presigned.url().toURI(), presigned.expiration());
+        } catch (URISyntaxException e) {
+            throw new RuntimeException("Failed to presign download of " + file.getObjectKey(), e);
+        }
+        cache.put(cacheKey, url);
+        return url.url();
+    }
+
+    /**
+     * Drops the cached URLs of an image, e.g. after it was deleted.
+     */
+    public void evict(String imageId) {
+        String prefix = imageId + "|";
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    private record PresignedUrl(URI url, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.PresignedUpload;
+import com.example.demo.model.Status;
+import com.example.demo.model.UploadMode;
+import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Direct-to-S3 uploads: the client PUTs the bytes to a presigned URL, so they never pass through
+ * the application. The image stays PENDING until {@link #complete(UUID)} has verified the object;
+ * uploads not completed before their URL expired are given up by {@link #cleanUpExpiredUploads()}.
+ */
+@Service
+public class PresignedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresignedUploadService.class);
+
+    private final ImageService imageService;
+    private final DynamoDbTemplate dynamoDbTemplate;
+    private final S3Client s3Client;
+    private final S3Presigner s3Presigner;
+    private final S3BucketManager s3BucketManager;
+    private final UploadConfig uploadConfig;
+
+    @Value("${app.s3.bucket-name}")
+    private String bucketName;
+
+    @Autowired
+    public PresignedUploadService(ImageService imageService, DynamoDbTemplate dynamoDbTemplate, S3Client s3Client,
+                                  S3Presigner s3Presigner, S3BucketManager s3BucketManager, UploadConfig uploadConfig) {
+        this.imageService = imageService;
+        this.dynamoDbTemplate = dynamoDbTemplate;
+        this.s3Client = s3Client;
+        this.s3Presigner = s3Presigner;
+        this.s3BucketManager = s3BucketManager;
+        this.uploadConfig = uploadConfig;
+    }
+
+    /**
+     * Saves a PENDING image and presigns a PUT for its object. Content type and length are part of
+     * the signature, so S3 rejects a PUT that does not match what was announced here.
+     */
+    public PresignedUpload createUploadUrl(String fileName, String contentType, long size) {
+        s3BucketManager.ensureBucket();
+
+        UUID imageId = UUID.randomUUID();
+        String objectKey = imageService.objectKeyFor(imageId, fileName);
+        Image pending = imageService.newImage(imageId, objectKey, size, Status.PENDING);
+        pending.setContentType(contentType);
+        pending.setUploadMode(UploadMode.PRESIGNED);
+        dynamoDbTemplate.save(pending);
+
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(builder -> builder
+            .signatureDuration(uploadConfig.getPresignedUrlTtl())
+            .putObjectRequest(request -> request
+                .bucket(bucketName)
+                .key(objectKey)
+                .contentType(contentType)
+                .contentLength(size)));
+
+        Map<String, String> headers = new HashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            // The HTTP client sets Host itself
+            if (!"host".equalsIgnoreCase(name)) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return new PresignedUpload(pending.getId(), objectKey, presigned.url().toString(), headers, presigned.expiration());
+    }
+
+    /**
+     * Verifies the uploaded object against the PENDING record and marks the image ACTIVE, or INACTIVE
+     * (removing the object) when its size or content type is not acceptable. Completing an image that
+     * is no longer PENDING, also when another request or the cleanup job settled it meanwhile, just
+     * returns it.
+     *
+     * @return the image, or {@code null} when it does not exist or was deleted while completing
+     * @throws IllegalStateException when the object has not been uploaded yet
+     */
+    public Image complete(UUID id) {
+        Image image = imageService.getById(id);
+        if (image == null || image.getStatus() != Status.PENDING) {
+            return image;
+        }
+
+        HeadObjectResponse head;
+        try {
+            head = s3Client.headObject(builder -> builder.bucket(bucketName).key(image.getObjectPath()));
+        } catch (NoSuchKeyException e) {
+            throw new IllegalStateException("Image file has not been uploaded yet");
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new IllegalStateException("Image file has not been uploaded yet");
+            }
+            throw e;
+        }
+
+        Image result = new Image();
+        result.setId(image.getId());
+        result.setObjectPath(image.getObjectPath());
+        result.setTimeUpdated(LocalDateTime.now());
+        if (isAcceptable(image, head)) {
+            result.setStatus(Status.ACTIVE);
+            result.setObjectETag(head.eTag());
+            result.setContentType(head.contentType());
+            imageService.describeStoredObject(result);
+            copyHeaderAttributes(result, image);
+        } else {
+            logger.warn("Rejecting direct upload of image {}: size {} and content type {} do not match the request",
+                id, head.contentLength(), head.contentType());
+            s3Client.deleteObject(builder -> builder.bucket(bucketName).key(image.getObjectPath()));
+            result.setStatus(Status.INACTIVE);
+        }
+        if (!imageService.updateIfPending(result)) {
+            Image current = imageService.getById(id);
+            if (current == null && result.getStatus() == Status.ACTIVE) {
+                // Deleted while completing; the uploaded object has no record to belong to
+                s3Client.deleteObject(builder -> builder.bucket(bucketName).key(image.getObjectPath()));
+            }
+            return current;
+        }
+
+        image.setStatus(result.getStatus());
+        image.setObjectETag(result.getObjectETag());
+        image.setTimeUpdated(result.getTimeUpdated());
+        if (image.getStatus() == Status.ACTIVE) {
+            imageService.publishStored(image);
+        }
+        return image;
+    }
+
+    /**
+     * Marks direct uploads that are still PENDING a grace period after their presigned URL expired
+     * INACTIVE and removes whatever object the client managed to PUT. Several tasks may run this at
+     * the same time, and {@link #complete} may settle an upload between the scan and its update; the
+     * update only applies to records still PENDING, and the object is removed only after it did.
+     */
+    @Scheduled(fixedDelayString = "${app.upload.presigned-cleanup-interval:PT15M}",
+               initialDelayString = "${app.upload.presigned-cleanup-interval:PT15M}")
+    public void cleanUpExpiredUploads() {
+        LocalDateTime expiredBefore = LocalDateTime.now()
+            .minus(uploadConfig.getPresignedUrlTtl())
+            .minus(uploadConfig.getPresignedCleanupGrace());
+        try {
+            imageService.findPendingUploads(UploadMode.PRESIGNED, expiredBefore).forEach(this::expire);
+        } catch (RuntimeException e) {
+            logger.error("Cleanup of expired direct uploads failed: {}", e.getMessage());
+        }
+    }
+
+    private void expire(Image pending) {
+        Image image = new Image();
+        image.setId(pending.getId());
+        image.setObjectPath(pending.getObjectPath());
+        image.setStatus(Status.INACTIVE);
+        image.setTimeUpdated(LocalDateTime.now());
+        if (!imageService.updateIfPending(image)) {
+            // Completed or deleted since the scan
+            return;
+        }
+        logger.info("Gave up direct upload of image {}", pending.getId());
+        s3Client.deleteObject(builder -> builder.bucket(bucketName).key(pending.getObjectPath()));
+    }
+
+    private static void copyHeaderAttributes(Image from, Image to) {
+        to.setWidth(from.getWidth());
+        to.setHeight(from.getHeight());
+        to.setFormat(from.getFormat());
+        to.setColorModel(from.getColorModel());
+        to.setOrientation(from.getOrientation());
+    }
+
+    private boolean isAcceptable(Image image, HeadObjectResponse head) {
+        List<String> supportedTypes = uploadConfig.getSupportedImageTypes();
+        return head.contentLength() != null
+            && String.valueOf(head.contentLength()).equals(image.getObjectSize())
+            && head.contentType() != null
+            && supportedTypes.contains(head.contentType());
+    }
+}
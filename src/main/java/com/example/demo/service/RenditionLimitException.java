@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a rendition that is not stored yet is requested for an image that already has
+ * {@code app.download.renditions.max-per-image} of them.
+ */
+public class RenditionLimitException extends RuntimeException {
+
+    public RenditionLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.demo.service;
+
+import com.example.demo.config.DownloadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.ImageFile;
+import com.example.demo.model.Rendition;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves resized and cropped renditions of stored images. Each rendition is made from the
+ * original once, stored under a key derived from the request ({@code renditions/{id}/}) and from
+ * then on served like any other object, caches included. Concurrent requests for a rendition that
+ * does not exist yet share one rendering. Sides are limited to the configured sizes and the number
+ * of renditions per image is capped, so the stored copies of an image stay bounded.
+ * <p>
+ * Rendering runs on a bounded pool with one worker per processor by default. When its queue is
+ * full the request is rejected with {@link RejectedExecutionException} instead of piling up
+ * threads and decoded images; rejections are counted as {@code image.renditions.rejected} and the
+ * queue depth is published as {@code image.renditions.queue}.
+ */
+@Service
+public class RenditionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenditionService.class);
+
+    static final String METRIC_PREFIX = "image.renditions";
+
+    private final ImageService imageService;
+    private final S3Client s3Client;
+    private final RequestCoalescer requestCoalescer;
+    private final MeterRegistry meterRegistry;
+    private final int maxDimension;
+    private final Set<Integer> sizes;
+    private final int maxPerImage;
+    private final ThreadPoolExecutor renderWorkers;
+
+    @Value("${app.s3.bucket-name}")
+    private String bucketName;
+
+    @Autowired
+    public RenditionService(ImageService imageService, S3Client s3Client, RequestCoalescer requestCoalescer,
+                            DownloadConfig downloadConfig, MeterRegistry meterRegistry) {
+        this.imageService = imageService;
+        this.s3Client = s3Client;
+        this.requestCoalescer = requestCoalescer;
+        this.meterRegistry = meterRegistry;
+
+        DownloadConfig.Renditions renditions = downloadConfig.getRenditions();
+        this.maxDimension = renditions.getMaxDimension();
+        this.sizes = Set.copyOf(renditions.getSizes());
+        this.maxPerImage = renditions.getMaxPerImage();
+        int workers = renditions.getWorkers() > 0 ? renditions.getWorkers() : Runtime.getRuntime().availableProcessors();
+        this.renderWorkers = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(renditions.getQueueCapacity()),
+            Thread.ofPlatform().name("rendition-", 0).daemon().factory(),
+            new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder(METRIC_PREFIX + ".queue", renderWorkers, executor -> executor.getQueue().size())
+            .description("Renditions waiting for a worker")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderWorkers.shutdownNow();
+    }
+
+    /**
+     * Whether the rendition can be made: every given side one of {@code app.download.renditions.sizes}
+     * and within {@code max-dimension}, at least one side given, and both for {@code COVER} and {@code FILL}.
+     */
+    public boolean isValid(Rendition rendition) {
+        Integer width = rendition.getWidth();
+        Integer height = rendition.getHeight();
+        if ((width != null && !isAllowedSide(width)) || (height != null && !isAllowedSide(height))) {
+            return false;
+        }
+        if (rendition.getFit() == Rendition.Fit.CONTAIN) {
+            return width != null || height != null;
+        }
+        return width != null && height != null;
+    }
+
+    private boolean isAllowedSide(int side) {
+        return side > 0 && side <= maxDimension && sizes.contains(side);
+    }
+
+    /**
+     * Resolves the object serving the rendition from the metadata alone. Renditions are made from
+     * the immutable original, so the original's time added is their Last-Modified.
+     */
+    public ImageFile resolve(UUID id, Rendition rendition) {
+        Image image = imageService.getById(id);
+        if (image == null) {
+            throw new RuntimeException("Image not found with ID: " + id);
+        }
+
+        String format = formatOf(image);
+        ImageFile file = new ImageFile();
+        file.setImage(image);
+        file.setObjectKey(renditionKeyFor(image.getId(), rendition, format));
+        file.setContentType("png".equals(format) ? "image/png" : "image/jpeg");
+        if (image.getTimeAdded() != null) {
+            file.setLastModified(image.getTimeAdded().toInstant(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS));
+        }
+        return file;
+    }
+
+    /**
+     * Opens the rendition like {@link ImageService#openImageFile}, rendering and storing it first
+     * when it does not exist yet.
+     *
+     * @throws RejectedExecutionException when the rendition has to be made and the queue is full
+     * @throws RenditionLimitException when the rendition has to be made and the image has too many
+     * @throws UnrenderableImageException when the rendition has to be made and the original cannot be decoded
+     */
+    public boolean open(ImageFile file, Rendition rendition, String range, String ifNoneMatch) {
+        try {
+            return imageService.openImageFile(file, range, ifNoneMatch);
+        } catch (RuntimeException e) {
+            if (!isMissingObject(e)) {
+                throw e;
+            }
+        }
+        render(file, rendition);
+        return imageService.openImageFile(file, range, ifNoneMatch);
+    }
+
+    /**
+     * Makes sure the rendition is stored, for callers handing out its S3 location instead of its bytes.
+     *
+     * @throws RejectedExecutionException when the rendition has to be made and the queue is full
+     * @throws RenditionLimitException when the rendition has to be made and the image has too many
+     * @throws UnrenderableImageException when the rendition has to be made and the original cannot be decoded
+     */
+    public void ensureStored(ImageFile file, Rendition rendition) {
+        try {
+            s3Client.headObject(builder -> builder.bucket(bucketName).key(file.getObjectKey()));
+        } catch (S3Exception e) {
+            if (!isMissingObject(e)) {
+                throw e;
+            }
+            render(file, rendition);
+        }
+    }
+
+    /**
+     * The key a rendition is stored under. Unconstrained sides are written as 0.
+     */
+    public static String renditionKeyFor(String imageId, Rendition rendition, String format) {
+        int width = rendition.getWidth() != null ? rendition.getWidth() : 0;
+        int height = rendition.getHeight() != null ? rendition.getHeight() : 0;
+        return "renditions/" + imageId + "/" + width + "x" + height + "-"
+            + rendition.getFit().name().toLowerCase(Locale.ROOT) + "." + format;
+    }
+
+    private void render(ImageFile file, Rendition rendition) {
+        requestCoalescer.execute("rendition", file.getObjectKey(), () -> {
+            CompletableFuture<Void> task;
+            try {
+                task = CompletableFuture.runAsync(() -> renderAndStore(file, rendition), renderWorkers);
+            } catch (RejectedExecutionException e) {
+                meterRegistry.counter(METRIC_PREFIX + ".rejected").increment();
+                throw e;
+            }
+            try {
+                return task.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        });
+    }
+
+    private void renderAndStore(ImageFile file, Rendition rendition) {
+        Image image = file.getImage();
+        int stored = s3Client.listObjectsV2(builder -> builder
+                .bucket(bucketName)
+                .prefix("renditions/" + image.getId() + "/")
+                .maxKeys(maxPerImage))
+            .contents().size();
+        if (stored >= maxPerImage) {
+            throw new RenditionLimitException("Image " + image.getId() + " already has " + stored + " renditions");
+        }
+        ImageFile original = imageService.resolveImageFile(UUID.fromString(image.getId()), null);
+        imageService.openImageFile(original, null, null);
+
+        // The box is meant for the upright image, which for orientations 5-8 has the sides swapped
+        Integer orientation = image.getOrientation();
+        boolean swap = ImageScaling.swapsSides(orientation);
+        ImageScaling.Decoded decoded;
+        try (InputStream in = original.getContent()) {
+            decoded = ImageScaling.decode(in, (storedWidth, storedHeight) -> {
+                int width = swap ? storedHeight : storedWidth;
+                int height = swap ? storedWidth : storedHeight;
+                // Keep at least twice the output size so the final scaling still has enough detail
+                int[] crop = cropOf(width, height, rendition);
+                int[] target = targetSize(width, height, rendition);
+                return Math.min(crop[2] / (2 * target[0]), crop[3] / (2 * target[1]));
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read image " + image.getId() + ": " + e.getMessage(), e);
+        }
+        if (decoded == null) {
+            throw new UnrenderableImageException("Image " + image.getId() + " cannot be rendered: no image reader for its format");
+        }
+
+        BufferedImage source = ImageScaling.orient(decoded.image(), orientation);
+        int[] crop = cropOf(source.getWidth(), source.getHeight(), rendition);
+        int[] target = swap
+            ? targetSize(decoded.originalHeight(), decoded.originalWidth(), rendition)
+            : targetSize(decoded.originalWidth(), decoded.originalHeight(), rendition);
+        String format = file.getContentType().equals("image/png") ? "png" : "jpg";
+        boolean alpha = "png".equals(format) && source.getColorModel().hasAlpha();
+        BufferedImage scaled = ImageScaling.scale(source.getSubimage(crop[0], crop[1], crop[2], crop[3]),
+            target[0], target[1], alpha);
+        byte[] bytes;
+        try {
+            bytes = ImageScaling.encode(scaled, format);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode rendition of image " + image.getId() + ": " + e.getMessage(), e);
+        }
+        s3Client.putObject(builder -> builder
+                .bucket(bucketName)
+                .key(file.getObjectKey())
+                .contentType(file.getContentType()),
+            RequestBody.fromBytes(bytes));
+        logger.debug("Stored rendition {} ({} bytes)", file.getObjectKey(), bytes.length);
+    }
+
+    /**
+     * The size of the rendition made from a {@code width} x {@code height} original.
+     */
+    static int[] targetSize(int width, int height, Rendition rendition) {
+        Integer boxWidth = rendition.getWidth();
+        Integer boxHeight = rendition.getHeight();
+        if (rendition.getFit() != Rendition.Fit.CONTAIN) {
+            return new int[]{boxWidth, boxHeight};
+        }
+        double factor = Math.min(1.0, Math.min(
+            boxWidth != null ? boxWidth / (double) width : Double.MAX_VALUE,
+            boxHeight != null ? boxHeight / (double) height : Double.MAX_VALUE));
+        return new int[]{Math.max(1, (int) Math.round(width * factor)), Math.max(1, (int) Math.round(height * factor))};
+    }
+
+    /**
+     * The part of a {@code width} x {@code height} image that is scaled, as {x, y, width, height}:
+     * for {@code COVER} the largest centered region with the aspect ratio of the box, otherwise all
+     * of it. Cropping before scaling keeps the intermediate image no larger than the source.
+     */
+    static int[] cropOf(int width, int height, Rendition rendition) {
+        if (rendition.getFit() != Rendition.Fit.COVER) {
+            return new int[]{0, 0, width, height};
+        }
+        double aspect = rendition.getWidth() / (double) rendition.getHeight();
+        int cropWidth = Math.max(1, Math.min(width, (int) Math.round(height * aspect)));
+        int cropHeight = Math.max(1, Math.min(height, (int) Math.round(width / aspect)));
+        return new int[]{(width - cropWidth) / 2, (height - cropHeight) / 2, cropWidth, cropHeight};
+    }
+
+    /**
+     * Formats that may carry transparency are rendered as PNG, everything else as JPEG.
+     */
+    private static String formatOf(Image image) {
+        if (image.getContentType() != null) {
+            return image.getContentType().equals("image/png") || image.getContentType().equals("image/gif") ? "png" : "jpg";
+        }
+        String path = image.getObjectPath() == null ? "" : image.getObjectPath().toLowerCase(Locale.ROOT);
+        return path.endsWith(".png") || path.endsWith(".gif") ? "png" : "jpg";
+    }
+
+    private static boolean isMissingObject(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof S3Exception s3Exception && s3Exception.statusCode() == 404) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of backend calls: while a call for a key is in flight, identical calls
+ * wait for it and receive its result (or exception) instead of issuing their own. Calls are
+ * counted as {@code image.coalescing.calls}, tagged with their kind and whether they went to the
+ * backend ({@code leader}) or shared another call ({@code follower}).
+ */
+@Component
+public class RequestCoalescer {
+
+    static final String METRIC_NAME = "image.coalescing.calls";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String kind, Object key, Supplier<T> call) {
+        FlightKey flightKey = new FlightKey(kind, key);
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(flightKey, own);
+        if (running != null) {
+            meterRegistry.counter(METRIC_NAME, "kind", kind, "role", "follower").increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        meterRegistry.counter(METRIC_NAME, "kind", kind, "role", "leader").increment();
+        try {
+            T result = call.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, own);
+        }
+    }
+
+    private record FlightKey(String kind, Object key) {
+    }
+}
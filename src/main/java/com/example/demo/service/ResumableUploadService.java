@@ -0,0 +1,273 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.Status;
+import com.example.demo.model.UploadSession;
+import io.awspring.cloud.dynamodb.DynamoDbTableNameResolver;
+import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resumable uploads: a client initiates a session, sends the file in numbered parts in any order
+ * (retrying only the parts that failed) and completes it. Each session maps onto an S3 multipart
+ * upload and is tracked in DynamoDB, so any task can accept the next part. Sessions without
+ * activity for {@code app.upload.resumable.session-ttl} are aborted in the background.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    // S3 multipart uploads consist of at most 10000 parts
+    private static final int MAX_PARTS = 10_000;
+
+    private final ImageService imageService;
+    private final DynamoDbTemplate dynamoDbTemplate;
+    private final DynamoDbTable<UploadSession> sessionTable;
+    private final DynamoDbClient dynamoDbClient;
+    private final S3Client s3Client;
+    private final S3BucketManager s3BucketManager;
+    private final UploadConfig.Resumable resumable;
+    private final String sessionTableName;
+
+    @Value("${app.s3.bucket-name}")
+    private String bucketName;
+
+    @Autowired
+    public ResumableUploadService(ImageService imageService, DynamoDbTemplate dynamoDbTemplate,
+                                  DynamoDbTable<UploadSession> sessionTable, DynamoDbClient dynamoDbClient,
+                                  DynamoDbTableNameResolver tableNameResolver, S3Client s3Client,
+                                  S3BucketManager s3BucketManager, UploadConfig uploadConfig) {
+        this.imageService = imageService;
+        this.dynamoDbTemplate = dynamoDbTemplate;
+        this.sessionTable = sessionTable;
+        this.dynamoDbClient = dynamoDbClient;
+        this.s3Client = s3Client;
+        this.s3BucketManager = s3BucketManager;
+        this.resumable = uploadConfig.getResumable();
+        this.sessionTableName = tableNameResolver.resolve(UploadSession.class);
+    }
+
+    /**
+     * Starts the S3 multipart upload, saves a PENDING image and records the session.
+     *
+     * @throws IllegalArgumentException when the file needs more parts than S3 allows
+     */
+    public UploadSession initiate(String fileName, String contentType, long size) {
+        long partSize = resumable.getPartSize().toBytes();
+        if ((size + partSize - 1) / partSize > MAX_PARTS) {
+            throw new IllegalArgumentException("File needs more than " + MAX_PARTS + " parts");
+        }
+        s3BucketManager.ensureBucket();
+
+        UUID imageId = UUID.randomUUID();
+        String objectKey = imageService.objectKeyFor(imageId, fileName);
+        String s3UploadId = s3Client.createMultipartUpload(builder -> builder
+            .bucket(bucketName)
+            .key(objectKey)
+            .contentType(contentType)
+        ).uploadId();
+
+        UploadSession session = new UploadSession(imageId.toString(), objectKey, s3UploadId, contentType, size, partSize,
+            new HashMap<>(), LocalDateTime.now(), nextExpiry());
+        sessionTable.putItem(session);
+        dynamoDbTemplate.save(imageService.newImage(imageId, objectKey, size, Status.PENDING));
+        return session;
+    }
+
+    public UploadSession getSession(UUID id) {
+        return sessionTable.getItem(Key.builder().partitionValue(id.toString()).build());
+    }
+
+    /**
+     * Streams one part to S3 and records its ETag. Sending a part again replaces it.
+     *
+     * @return the updated session, or {@code null} when there is no such session
+     * @throws IllegalArgumentException when the part number or length does not fit the session
+     */
+    public UploadSession uploadPart(UUID id, int partNumber, InputStream content, long length) {
+        UploadSession session = getSession(id);
+        if (session == null) {
+            return null;
+        }
+        if (partNumber < 1 || partNumber > session.partCount()) {
+            throw new IllegalArgumentException("Part number must be between 1 and " + session.partCount());
+        }
+        if (length != session.partLength(partNumber)) {
+            throw new IllegalArgumentException("Part " + partNumber + " must be " + session.partLength(partNumber) + " bytes");
+        }
+
+        UploadPartResponse response = s3Client.uploadPart(builder -> builder
+                .bucket(bucketName)
+                .key(session.getObjectPath())
+                .uploadId(session.getS3UploadId())
+                .partNumber(partNumber)
+                .contentLength(length),
+            RequestBody.fromInputStream(content, length));
+
+        // Update only this part's map entry so concurrent parts of the same session do not overwrite each other
+        long expiresAt = nextExpiry();
+        try {
+            dynamoDbClient.updateItem(builder -> builder
+                .tableName(sessionTableName)
+                .key(Map.of("id", AttributeValue.builder().s(session.getId()).build()))
+                .updateExpression("SET #parts.#part = :etag, expiresAt = :expiresAt")
+                .conditionExpression("attribute_exists(id)")
+                .expressionAttributeNames(Map.of("#parts", "parts", "#part", String.valueOf(partNumber)))
+                .expressionAttributeValues(Map.of(
+                    ":etag", AttributeValue.builder().s(response.eTag()).build(),
+                    ":expiresAt", AttributeValue.builder().n(Long.toString(expiresAt)).build())));
+        } catch (ConditionalCheckFailedException e) {
+            // Completed, aborted or cleaned up while the part was in flight
+            return null;
+        }
+        if (session.getParts() == null) {
+            session.setParts(new HashMap<>());
+        }
+        session.getParts().put(String.valueOf(partNumber), response.eTag());
+        session.setExpiresAt(expiresAt);
+        return session;
+    }
+
+    /**
+     * Assembles the parts into the image object and marks the image ACTIVE.
+     *
+     * @return the stored image, or {@code null} when there is no such session or the image was deleted
+     * @throws IllegalStateException when parts are still missing
+     */
+    public Image complete(UUID id) {
+        UploadSession session = getSession(id);
+        if (session == null) {
+            return null;
+        }
+        Map<String, String> parts = session.getParts() != null ? session.getParts() : Map.of();
+        if (parts.size() < session.partCount()) {
+            throw new IllegalStateException("Upload is missing " + (session.partCount() - parts.size()) + " parts");
+        }
+
+        List<CompletedPart> completedParts = parts.entrySet().stream()
+            .map(part -> CompletedPart.builder().partNumber(Integer.parseInt(part.getKey())).eTag(part.getValue()).build())
+            .sorted(Comparator.comparing(CompletedPart::partNumber))
+            .toList();
+        String eTag;
+        try {
+            eTag = s3Client.completeMultipartUpload(builder -> builder
+                .bucket(bucketName)
+                .key(session.getObjectPath())
+                .uploadId(session.getS3UploadId())
+                .multipartUpload(upload -> upload.parts(completedParts))).eTag();
+        } catch (NoSuchUploadException e) {
+            // A previous attempt completed the upload but failed before the session was removed
+            eTag = s3Client.headObject(builder -> builder.bucket(bucketName).key(session.getObjectPath())).eTag();
+        }
+        sessionTable.deleteItem(session);
+
+        Image image = new Image();
+        image.setId(session.getId());
+        image.setObjectPath(session.getObjectPath());
+        image.setObjectSize(String.valueOf(session.getSize()));
+        image.setContentType(session.getContentType());
+        image.setStatus(Status.ACTIVE);
+        image.setObjectETag(eTag);
+        image.setTimeUpdated(LocalDateTime.now());
+        imageService.describeStoredObject(image);
+        if (!imageService.update(image)) {
+            // Deleted while uploading; the assembled object has no record to belong to
+            s3Client.deleteObject(builder -> builder.bucket(bucketName).key(session.getObjectPath()));
+            return null;
+        }
+        imageService.publishStored(image);
+        return image;
+    }
+
+    /**
+     * Cancels the upload, discarding the received parts and the PENDING image.
+     *
+     * @return {@code false} when there is no such session
+     */
+    public boolean abort(UUID id) {
+        UploadSession session = getSession(id);
+        if (session == null) {
+            return false;
+        }
+        abortMultipartUpload(session);
+        sessionTable.deleteItem(session);
+        imageService.discardPending(session.getId(), session.getObjectPath());
+        return true;
+    }
+
+    /**
+     * Aborts sessions whose last part arrived longer than the session TTL ago and marks their images
+     * INACTIVE. Several tasks may run this at the same time; every step tolerates that.
+     */
+    @Scheduled(fixedDelayString = "${app.upload.resumable.cleanup-interval:PT15M}",
+               initialDelayString = "${app.upload.resumable.cleanup-interval:PT15M}")
+    public void cleanUpExpiredSessions() {
+        Expression expired = Expression.builder()
+            .expression("expiresAt < :now")
+            .putExpressionValue(":now", AttributeValue.builder().n(Long.toString(Instant.now().getEpochSecond())).build())
+            .build();
+        try {
+            sessionTable.scan(ScanEnhancedRequest.builder().filterExpression(expired).build())
+                .items()
+                .forEach(this::expire);
+        } catch (RuntimeException e) {
+            logger.error("Cleanup of expired upload sessions failed: {}", e.getMessage());
+        }
+    }
+
+    private void expire(UploadSession session) {
+        logger.info("Aborting abandoned upload of image {}", session.getId());
+        abortMultipartUpload(session);
+        sessionTable.deleteItem(session);
+
+        Image image = new Image();
+        image.setId(session.getId());
+        image.setObjectPath(session.getObjectPath());
+        image.setStatus(Status.INACTIVE);
+        image.setTimeUpdated(LocalDateTime.now());
+        imageService.update(image);
+    }
+
+    private void abortMultipartUpload(UploadSession session) {
+        try {
+            s3Client.abortMultipartUpload(builder -> builder
+                .bucket(bucketName)
+                .key(session.getObjectPath())
+                .uploadId(session.getS3UploadId()));
+        } catch (NoSuchUploadException e) {
+            // Already aborted or completed
+        }
+    }
+
+    private long nextExpiry() {
+        return Instant.now().plus(resumable.getSessionTtl()).getEpochSecond();
+    }
+}
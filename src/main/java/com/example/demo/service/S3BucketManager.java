@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import io.awspring.cloud.s3.S3Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * Verifies (and if needed provisions) the image bucket once at startup and remembers the result,
+ * so uploads do not pay a HEAD round trip each time. The check is repeated only after
+ * {@link #invalidate()} is called, e.g. when a PUT reports that the bucket no longer exists.
+ */
+@Component
+public class S3BucketManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3BucketManager.class);
+
+    private final S3Template s3Template;
+
+    @Value("${app.s3.bucket-name}")
+    private String bucketName;
+
+    private volatile boolean bucketReady;
+
+    @Autowired
+    public S3BucketManager(S3Template s3Template) {
+        this.s3Template = s3Template;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyBucketOnStartup() {
+        try {
+            ensureBucket();
+            logger.info("S3 bucket '{}' is available", bucketName);
+        } catch (RuntimeException e) {
+            // Keep the application up; the health indicator reports not ready and retries the check
+            logger.error("S3 bucket check failed at startup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns immediately once the bucket has been verified; otherwise checks for the bucket,
+     * creating it when missing, and maps S3 errors to descriptive exceptions.
+     */
+    public void ensureBucket() {
+        if (bucketReady) {
+            return;
+        }
+        synchronized (this) {
+            if (bucketReady) {
+                return;
+            }
+            try {
+                if (!s3Template.bucketExists(bucketName)) {
+                    s3Template.createBucket(bucketName);
+                }
+                bucketReady = true;
+            } catch (S3Exception e) {
+                if (e.statusCode() == 403) {
+                    throw new RuntimeException("AWS S3 access denied. Please check your AWS credentials (AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY) and bucket permissions for bucket: " + bucketName, e);
+                } else if (e.statusCode() == 404) {
+                    throw new RuntimeException("S3 bucket not found: " + bucketName + ". Please create the bucket or check the bucket name configuration.", e);
+                } else {
+                    throw new RuntimeException("Failed to access S3 bucket: " + bucketName + ". Error: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the cached result so the next {@link #ensureBucket()} checks S3 again.
+     */
+    public void invalidate() {
+        logger.warn("S3 bucket '{}' reported missing, it will be checked again", bucketName);
+        bucketReady = false;
+    }
+
+    public boolean isBucketReady() {
+        return bucketReady;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UploadConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams upload content into S3 without materializing the whole object in heap.
+ * Small objects are sent with a single streamed PUT; larger ones use a multipart
+ * upload that reuses one part-sized buffer for the whole transfer.
+ */
+@Component
+public class S3StreamingUploader {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3StreamingUploader.class);
+
+    // S3 limits for multipart uploads
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    private final S3Client s3Client;
+    private final UploadConfig uploadConfig;
+
+    @Autowired
+    public S3StreamingUploader(S3Client s3Client, UploadConfig uploadConfig) {
+        this.s3Client = s3Client;
+        this.uploadConfig = uploadConfig;
+    }
+
+    /**
+     * Uploads {@code contentLength} bytes read from {@code content} to {@code bucket/key}.
+     * The stream is not closed.
+     *
+     * @return the ETag S3 assigned to the stored object
+     */
+    public String upload(String bucket, String key, String contentType, InputStream content, long contentLength)
+            throws IOException {
+        if (contentLength <= uploadConfig.getMultipartThreshold().toBytes()) {
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .contentLength(contentLength)
+                .build();
+
+            return s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(content, contentLength)).eTag();
+        }
+        return uploadMultipart(bucket, key, contentType, content, contentLength);
+    }
+
+    private String uploadMultipart(String bucket, String key, String contentType, InputStream content, long contentLength)
+            throws IOException {
+        int partSize = partSizeFor(contentLength);
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .contentType(contentType)
+            .build()).uploadId();
+
+        logger.debug("Started multipart upload {} for {} ({} bytes, {} byte parts)", uploadId, key, contentLength, partSize);
+
+        try {
+            byte[] buffer = new byte[partSize];
+            List<CompletedPart> completedParts = new ArrayList<>();
+            long remaining = contentLength;
+            int partNumber = 1;
+
+            while (remaining > 0) {
+                int toRead = (int) Math.min(partSize, remaining);
+                int read = content.readNBytes(buffer, 0, toRead);
+                if (read < toRead) {
+                    throw new IOException("Upload stream ended after " + (contentLength - remaining + read)
+                        + " of " + contentLength + " bytes");
+                }
+
+                UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .contentLength((long) read)
+                    .build();
+
+                // The provider hands out a fresh view of the shared buffer so SDK retries can re-read the part
+                String eTag = s3Client.uploadPart(uploadPartRequest,
+                    RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buffer, 0, read), read, contentType)).eTag();
+
+                completedParts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+                remaining -= read;
+                partNumber++;
+            }
+
+            return s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                .build()).eTag();
+        } catch (IOException | RuntimeException e) {
+            abortQuietly(bucket, key, uploadId);
+            throw e;
+        }
+    }
+
+    private int partSizeFor(long contentLength) {
+        long partSize = Math.max(uploadConfig.getPartSize().toBytes(), MIN_PART_SIZE);
+        // Grow the part size only when the object would otherwise exceed the S3 part count limit
+        long minimumForLength = (contentLength + MAX_PARTS - 1) / MAX_PARTS;
+        return (int) Math.max(partSize, minimumForLength);
+    }
+
+    private void abortQuietly(String bucket, String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .build());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to abort multipart upload {} for {}: {}", uploadId, key, e.getMessage());
+        }
+    }
+}
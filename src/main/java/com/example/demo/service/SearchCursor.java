@@ -0,0 +1,42 @@
+package com.example.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor of a label search: the key of the last label index entry a page covered, which is
+ * the LastEvaluatedKey a Query stopping there returns, encoded as URL-safe base64. Both the label
+ * index table and {@link LabelBitmapIndex} list entries in image id order, so a cursor can be
+ * continued by any task, whichever of the two answers it.
+ */
+final class SearchCursor {
+
+    private static final char SEPARATOR = '\n';
+
+    private SearchCursor() {
+    }
+
+    static String encode(String label, String imageId) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((label + SEPARATOR + imageId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the image id after which the search for {@code label} continues.
+     *
+     * @throws InvalidCursorException when the cursor is malformed or belongs to another label
+     */
+    static String decode(String cursor, String label) {
+        String key;
+        try {
+            key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor", e);
+        }
+        int separator = key.lastIndexOf(SEPARATOR);
+        if (separator < 0 || !key.substring(0, separator).equals(label) || separator == key.length() - 1) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+        return key.substring(separator + 1);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a rendition is requested for an image whose format no available reader can decode.
+ */
+public class UnrenderableImageException extends RuntimeException {
+
+    public UnrenderableImageException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.controller;
+
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ImageAsyncUploadControllerTest {
+
+    private static final List<String> createdImageIds = new ArrayList<>();
+    private static File testImageFile;
+
+    @BeforeAll
+    static void setUpClass() {
+        // Load actual test image from resources
+        ClassLoader classLoader = ImageAsyncUploadControllerTest.class.getClassLoader();
+        java.net.URL resource = classLoader.getResource("test-images/test-image.jpg");
+        if (resource == null) {
+            throw new RuntimeException("Test image not found at src/test/resources/test-images/test-image.jpg");
+        }
+        testImageFile = new File(resource.getFile());
+    }
+
+    @BeforeEach
+    void setUp() {
+        String baseUri = System.getenv().getOrDefault("TEST_BASE_URI", "http://localhost:8080");
+        RestAssured.baseURI = baseUri;
+        RestAssured.basePath = "/image";
+    }
+
+    @AfterEach
+    void cleanUp() {
+        createdImageIds.forEach(id -> {
+            try {
+                given().pathParam("id", id).delete("/{id}");
+            } catch (Exception ignored) {
+                // Ignore cleanup errors during test teardown
+            }
+        });
+        createdImageIds.clear();
+    }
+
+    @Test
+    @Order(1)
+    void testAsyncUpload() throws InterruptedException {
+        Response response = given()
+            .multiPart("file", testImageFile, "image/jpeg")
+        .when()
+            .post("/async")
+        .then()
+            .statusCode(202)
+            .header("Location", endsWith("/status"))
+            .body("id", notNullValue())
+            .body("status", equalTo("PENDING"))
+            .extract().response();
+        String imageId = response.jsonPath().getString("id");
+        createdImageIds.add(imageId);
+
+        // Poll the status resource until the background upload has finished (max 30s, poll every 1s)
+        String status = null;
+        for (int attempt = 0; attempt < 30; attempt++) {
+            status = given()
+                .pathParam("id", imageId)
+            .when()
+                .get("/{id}/status")
+            .then()
+                .statusCode(200)
+                .extract().jsonPath().getString("status");
+            if (!"PENDING".equals(status)) {
+                break;
+            }
+            Thread.sleep(1000);
+        }
+
+        Assertions.assertEquals("ACTIVE", status, "Async upload should become ACTIVE once stored");
+    }
+
+    @Test
+    @Order(2)
+    void testStatusOfNonExistentImage() {
+        given()
+            .pathParam("id", UUID.randomUUID().toString())
+        .when()
+            .get("/{id}/status")
+        .then()
+            .statusCode(404);
+    }
+}
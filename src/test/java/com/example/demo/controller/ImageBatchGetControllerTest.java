@@ -0,0 +1,99 @@
+package com.example.demo.controller;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ImageBatchGetControllerTest {
+
+    private static final List<String> createdImageIds = new ArrayList<>();
+    private static File testImageFile;
+
+    @BeforeAll
+    static void setUpClass() {
+        ClassLoader classLoader = ImageBatchGetControllerTest.class.getClassLoader();
+        java.net.URL resource = classLoader.getResource("test-images/test-image.jpg");
+        if (resource == null) {
+            throw new RuntimeException("Test image not found at src/test/resources/test-images/test-image.jpg");
+        }
+        testImageFile = new File(resource.getFile());
+    }
+
+    @BeforeEach
+    void setUp() {
+        String baseUri = System.getenv().getOrDefault("TEST_BASE_URI", "http://localhost:8080");
+        RestAssured.baseURI = baseUri;
+        RestAssured.basePath = "/image";
+    }
+
+    @AfterEach
+    void cleanUp() {
+        createdImageIds.forEach(id -> {
+            try {
+                given().pathParam("id", id).delete("/{id}");
+            } catch (Exception ignored) {
+                // Ignore cleanup errors during test teardown
+            }
+        });
+        createdImageIds.clear();
+    }
+
+    @Test
+    @Order(1)
+    void testBatchGetKeepsOrderAndMarksMissingImages() {
+        String first = upload();
+        String second = upload();
+        String missing = UUID.randomUUID().toString();
+
+        given()
+            .contentType(ContentType.JSON)
+            .body(Map.of("ids", List.of(second, missing, first)))
+        .when()
+            .post("/batch-get")
+        .then()
+            .statusCode(200)
+            .body("size()", equalTo(3))
+            .body("[0].id", equalTo(second))
+            .body("[0].found", equalTo(true))
+            .body("[0].image.objectPath", containsString(second))
+            .body("[1].id", equalTo(missing))
+            .body("[1].found", equalTo(false))
+            .body("[1].image", nullValue())
+            .body("[2].id", equalTo(first))
+            .body("[2].found", equalTo(true));
+    }
+
+    @Test
+    @Order(2)
+    void testBatchGetRejectsEmptyBatch() {
+        given()
+            .contentType(ContentType.JSON)
+            .body(Map.of("ids", List.of()))
+        .when()
+            .post("/batch-get")
+        .then()
+            .statusCode(400);
+    }
+
+    private String upload() {
+        Response response = given()
+            .multiPart("file", testImageFile, "image/jpeg")
+        .when()
+            .post();
+        response.then().statusCode(200);
+        String imageId = response.jsonPath().getString("id");
+        createdImageIds.add(imageId);
+        return imageId;
+    }
+}
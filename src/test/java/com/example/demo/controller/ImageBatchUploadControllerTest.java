@@ -0,0 +1,118 @@
+package com.example.demo.controller;
+
+import io.restassured.RestAssured;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ImageBatchUploadControllerTest {
+
+    private static final List<String> createdImageIds = new ArrayList<>();
+    private static File jpegImageFile;
+    private static File pngImageFile;
+
+    @BeforeAll
+    static void setUpClass() {
+        // Load actual test images from resources
+        ClassLoader classLoader = ImageBatchUploadControllerTest.class.getClassLoader();
+        java.net.URL jpegResource = classLoader.getResource("test-images/test-image.jpg");
+        java.net.URL pngResource = classLoader.getResource("test-images/test-image.png");
+        if (jpegResource == null || pngResource == null) {
+            throw new RuntimeException("Test images not found in src/test/resources/test-images/");
+        }
+        jpegImageFile = new File(jpegResource.getFile());
+        pngImageFile = new File(pngResource.getFile());
+    }
+
+    @BeforeEach
+    void setUp() {
+        String baseUri = System.getenv().getOrDefault("TEST_BASE_URI", "http://localhost:8080");
+        RestAssured.baseURI = baseUri;
+        RestAssured.basePath = "/image";
+    }
+
+    @AfterEach
+    void cleanUp() {
+        createdImageIds.forEach(id -> {
+            try {
+                given().pathParam("id", id).delete("/{id}");
+            } catch (Exception ignored) {
+                // Ignore cleanup errors during test teardown
+            }
+        });
+        createdImageIds.clear();
+    }
+
+    @Test
+    @Order(1)
+    void testBatchUpload() {
+        Response response = given()
+            .multiPart("files", jpegImageFile, "image/jpeg")
+            .multiPart("files", pngImageFile, "image/png")
+        .when()
+            .post("/batch")
+        .then()
+            .statusCode(200)
+            .body("size()", equalTo(2))
+            .body("success", everyItem(equalTo(true)))
+            .body("id", everyItem(notNullValue()))
+            .extract().response();
+        createdImageIds.addAll(response.jsonPath().getList("id", String.class));
+
+        // Every stored image must be retrievable individually
+        createdImageIds.forEach(id -> given()
+            .pathParam("id", id)
+        .when()
+            .get("/{id}")
+        .then()
+            .statusCode(200)
+            .body("id", equalTo(id)));
+    }
+
+    @Test
+    @Order(2)
+    void testBatchUploadWithNonImageFile() throws Exception {
+        File txtFile = File.createTempFile("test-document", ".txt");
+        try (java.io.FileWriter writer = new java.io.FileWriter(txtFile)) {
+            writer.write("This is a test text file, not an image!");
+        }
+
+        try {
+            Response response = given()
+                .multiPart("files", jpegImageFile, "image/jpeg")
+                .multiPart("files", txtFile, "text/plain")
+            .when()
+                .post("/batch")
+            .then()
+                .statusCode(200)
+                .body("size()", equalTo(2))
+                .body("[0].success", equalTo(true))
+                .body("[1].success", equalTo(false))
+                .body("[1].error", notNullValue())
+                .extract().response();
+            createdImageIds.add(response.jsonPath().getString("[0].id"));
+        } finally {
+            // Clean up the temporary file
+            if (txtFile.exists()) {
+                txtFile.delete();
+            }
+        }
+    }
+
+    @Test
+    @Order(3)
+    void testBatchUploadMissingFiles() {
+        given()
+        .when()
+            .post("/batch")
+        .then()
+            .statusCode(415); // Missing multipart body returns 415 Unsupported Media Type
+    }
+}
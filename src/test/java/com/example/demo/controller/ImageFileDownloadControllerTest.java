@@ -180,5 +180,200 @@ class ImageFileDownloadControllerTest {
         // Verify response body is not empty
         byte[] responseBody = downloadResponse.getBody().asByteArray();
         assert responseBody.length > 0 : "Downloaded file should not be empty";
+        assert String.valueOf(testImageFile.length()).equals(downloadResponse.getHeader("Content-Length"))
+            : "Content-Length should be the stored object's size";
     }
-}
\ No newline at end of file
+
+    @Test
+    @Order(5)
+    void testDownloadImageFileWithSize() {
+        Response createResponse = given()
+            .multiPart("file", testImageFile, "image/jpeg")
+        .when()
+            .post();
+        String imageId = createResponse.jsonPath().getString("id");
+        createdImageIds.add(imageId);
+
+        // Wait for the derivatives to be generated in the background
+        try {
+            Thread.sleep(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        byte[] original = given()
+            .pathParam("id", imageId)
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(200)
+            .extract().asByteArray();
+
+        byte[] thumbnail = given()
+            .pathParam("id", imageId)
+            .queryParam("size", 128)
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(200)
+            .contentType("image/jpeg")
+            .extract().asByteArray();
+
+        assert thumbnail.length <= original.length : "Thumbnail should not be larger than the original";
+    }
+
+    @Test
+    @Order(6)
+    void testDownloadImageFileWithInvalidSize() {
+        given()
+            .pathParam("id", UUID.randomUUID().toString())
+            .queryParam("size", 0)
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @Order(7)
+    void testDownloadImageFileRanges() throws java.io.IOException {
+        byte[] content = java.nio.file.Files.readAllBytes(testImageFile.toPath());
+        Response createResponse = given()
+            .multiPart("file", testImageFile, "image/jpeg")
+        .when()
+            .post();
+        String imageId = createResponse.jsonPath().getString("id");
+        createdImageIds.add(imageId);
+
+        byte[] firstBytes = given()
+            .pathParam("id", imageId)
+            .header("Range", "bytes=0-99")
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(206)
+            .header("Accept-Ranges", "bytes")
+            .header("Content-Range", "bytes 0-99/" + content.length)
+            .extract().asByteArray();
+        assert java.util.Arrays.equals(java.util.Arrays.copyOfRange(content, 0, 100), firstBytes)
+            : "Range should return the first 100 bytes";
+
+        given()
+            .pathParam("id", imageId)
+            .header("Range", "bytes=0-9,-10")
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(206)
+            .contentType(containsString("multipart/byteranges"))
+            .body(containsString("Content-Range: bytes 0-9/" + content.length))
+            .body(containsString("Content-Range: bytes " + (content.length - 10) + "-" + (content.length - 1) + "/" + content.length));
+
+        given()
+            .pathParam("id", imageId)
+            .header("Range", "bytes=" + content.length + "-")
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(416);
+    }
+
+    @Test
+    @Order(8)
+    void testConditionalDownloads() {
+        Response createResponse = given()
+            .multiPart("file", testImageFile, "image/jpeg")
+        .when()
+            .post();
+        String imageId = createResponse.jsonPath().getString("id");
+        createdImageIds.add(imageId);
+
+        Response download = given()
+            .pathParam("id", imageId)
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(200)
+            .header("ETag", notNullValue())
+            .header("Last-Modified", notNullValue())
+            .extract().response();
+
+        given()
+            .pathParam("id", imageId)
+            .header("If-None-Match", download.getHeader("ETag"))
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(304);
+
+        given()
+            .pathParam("id", imageId)
+            .header("If-Modified-Since", download.getHeader("Last-Modified"))
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(304);
+
+        String metadataETag = given()
+            .pathParam("id", imageId)
+        .when()
+            .get("/{id}")
+        .then()
+            .statusCode(200)
+            .extract().header("ETag");
+
+        given()
+            .pathParam("id", imageId)
+            .header("If-None-Match", metadataETag)
+        .when()
+            .get("/{id}")
+        .then()
+            .statusCode(304);
+    }
+
+    @Test
+    @Order(9)
+    void testDownloadImageFileRendition() throws java.io.IOException {
+        Response createResponse = given()
+            .multiPart("file", testImageFile, "image/jpeg")
+        .when()
+            .post();
+        String imageId = createResponse.jsonPath().getString("id");
+        createdImageIds.add(imageId);
+
+        byte[] rendition = given()
+            .pathParam("id", imageId)
+            .queryParam("w", 64)
+            .queryParam("h", 64)
+            .queryParam("fit", "cover")
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(200)
+            .contentType("image/jpeg")
+            .extract().asByteArray();
+        java.awt.image.BufferedImage image = javax.imageio.ImageIO.read(new java.io.ByteArrayInputStream(rendition));
+        assert image.getWidth() == 64 && image.getHeight() == 64 : "Rendition should be cropped to the requested box";
+
+        // Served from the stored rendition the second time
+        given()
+            .pathParam("id", imageId)
+            .queryParam("w", 64)
+            .queryParam("h", 64)
+            .queryParam("fit", "cover")
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(200)
+            .header("Content-Length", String.valueOf(rendition.length));
+
+        given()
+            .pathParam("id", imageId)
+            .queryParam("w", 64)
+            .queryParam("fit", "stretch")
+        .when()
+            .get("/file/{id}")
+        .then()
+            .statusCode(400);
+    }
+}
@@ -77,6 +77,7 @@ class ImageGetByIdControllerTest {
             .body("objectPath", containsString(imageId))
             .body("objectSize", notNullValue())
             .body("objectSize", matchesPattern("\\d+")) // Should be a numeric string
+            .body("contentType", equalTo("image/jpeg"))
             .body("timeAdded", notNullValue())
             .body("timeUpdated", notNullValue())
             .body("status", equalTo("ACTIVE"))
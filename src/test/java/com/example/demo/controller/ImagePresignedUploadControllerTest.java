@@ -0,0 +1,132 @@
+package com.example.demo.controller;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ImagePresignedUploadControllerTest {
+
+    private static final List<String> createdImageIds = new ArrayList<>();
+    private static File testImageFile;
+
+    @BeforeAll
+    static void setUpClass() {
+        // Load actual test image from resources
+        ClassLoader classLoader = ImagePresignedUploadControllerTest.class.getClassLoader();
+        java.net.URL resource = classLoader.getResource("test-images/test-image.jpg");
+        if (resource == null) {
+            throw new RuntimeException("Test image not found at src/test/resources/test-images/test-image.jpg");
+        }
+        testImageFile = new File(resource.getFile());
+    }
+
+    @BeforeEach
+    void setUp() {
+        String baseUri = System.getenv().getOrDefault("TEST_BASE_URI", "http://localhost:8080");
+        RestAssured.baseURI = baseUri;
+        RestAssured.basePath = "/image";
+    }
+
+    @AfterEach
+    void cleanUp() {
+        createdImageIds.forEach(id -> {
+            try {
+                given().pathParam("id", id).delete("/{id}");
+            } catch (Exception ignored) {
+                // Ignore cleanup errors during test teardown
+            }
+        });
+        createdImageIds.clear();
+    }
+
+    @Test
+    @Order(1)
+    void testDirectUploadAndComplete() throws IOException {
+        byte[] content = Files.readAllBytes(testImageFile.toPath());
+
+        Response response = given()
+            .contentType(ContentType.JSON)
+            .body(Map.of("fileName", "direct.jpg", "contentType", "image/jpeg", "size", content.length))
+        .when()
+            .post("/upload-url")
+        .then()
+            .statusCode(201)
+            .body("id", notNullValue())
+            .body("uploadUrl", notNullValue())
+            .extract().response();
+        String imageId = response.jsonPath().getString("id");
+        createdImageIds.add(imageId);
+
+        given()
+            .pathParam("id", imageId)
+        .when()
+            .get("/{id}/status")
+        .then()
+            .statusCode(200)
+            .body("status", equalTo("PENDING"));
+
+        // Completing before the PUT is a conflict
+        given()
+            .pathParam("id", imageId)
+        .when()
+            .post("/{id}/complete")
+        .then()
+            .statusCode(409);
+
+        // PUT the bytes straight to S3, bypassing the application
+        given()
+            .baseUri("")
+            .basePath("")
+            .urlEncodingEnabled(false)
+            .contentType("image/jpeg")
+            .body(content)
+        .when()
+            .put(response.jsonPath().getString("uploadUrl"))
+        .then()
+            .statusCode(200);
+
+        given()
+            .pathParam("id", imageId)
+        .when()
+            .post("/{id}/complete")
+        .then()
+            .statusCode(200)
+            .body("status", equalTo("ACTIVE"));
+    }
+
+    @Test
+    @Order(2)
+    void testUploadUrlWithUnsupportedContentType() {
+        given()
+            .contentType(ContentType.JSON)
+            .body(Map.of("fileName", "document.pdf", "contentType", "application/pdf", "size", 1024))
+        .when()
+            .post("/upload-url")
+        .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @Order(3)
+    void testCompleteNonExistentImage() {
+        given()
+            .pathParam("id", UUID.randomUUID().toString())
+        .when()
+            .post("/{id}/complete")
+        .then()
+            .statusCode(404);
+    }
+}
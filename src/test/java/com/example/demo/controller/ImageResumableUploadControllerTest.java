@@ -0,0 +1,187 @@
+package com.example.demo.controller;
+
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.*;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ImageResumableUploadControllerTest {
+
+    private static final List<String> createdImageIds = new ArrayList<>();
+    private static File testImageFile;
+
+    @BeforeAll
+    static void setUpClass() {
+        // Load actual test image from resources
+        ClassLoader classLoader = ImageResumableUploadControllerTest.class.getClassLoader();
+        java.net.URL resource = classLoader.getResource("test-images/test-image.jpg");
+        if (resource == null) {
+            throw new RuntimeException("Test image not found at src/test/resources/test-images/test-image.jpg");
+        }
+        testImageFile = new File(resource.getFile());
+    }
+
+    @BeforeEach
+    void setUp() {
+        String baseUri = System.getenv().getOrDefault("TEST_BASE_URI", "http://localhost:8080");
+        RestAssured.baseURI = baseUri;
+        RestAssured.basePath = "/image";
+    }
+
+    @AfterEach
+    void cleanUp() {
+        createdImageIds.forEach(id -> {
+            try {
+                given().pathParam("id", id).delete("/{id}");
+            } catch (Exception ignored) {
+                // Ignore cleanup errors during test teardown
+            }
+        });
+        createdImageIds.clear();
+    }
+
+    @Test
+    @Order(1)
+    void testResumableUploadAndComplete() throws IOException {
+        byte[] content = Files.readAllBytes(testImageFile.toPath());
+
+        Response response = given()
+            .contentType(ContentType.JSON)
+            .body(Map.of("fileName", "resumable.jpg", "contentType", "image/jpeg", "size", content.length))
+        .when()
+            .post("/uploads")
+        .then()
+            .statusCode(201)
+            .body("id", notNullValue())
+            .body("receivedParts", empty())
+            .extract().response();
+        String uploadId = response.jsonPath().getString("id");
+        createdImageIds.add(uploadId);
+        int partCount = response.jsonPath().getInt("partCount");
+        int partSize = response.jsonPath().getInt("partSize");
+
+        // Nothing has been received yet, so completing is a conflict
+        given()
+            .pathParam("id", uploadId)
+        .when()
+            .post("/uploads/{id}/complete")
+        .then()
+            .statusCode(409);
+
+        for (int partNumber = partCount; partNumber >= 1; partNumber--) {
+            int from = (partNumber - 1) * partSize;
+            int to = Math.min(content.length, from + partSize);
+            byte[] part = java.util.Arrays.copyOfRange(content, from, to);
+            given()
+                .pathParam("id", uploadId)
+                .pathParam("partNumber", partNumber)
+                .contentType(ContentType.BINARY)
+                .body(part)
+            .when()
+                .put("/uploads/{id}/parts/{partNumber}")
+            .then()
+                .statusCode(200)
+                .body("receivedParts", hasItem(partNumber));
+        }
+
+        given()
+            .pathParam("id", uploadId)
+        .when()
+            .get("/uploads/{id}")
+        .then()
+            .statusCode(200)
+            .body("missingParts", empty())
+            .body("receivedBytes", equalTo(content.length));
+
+        given()
+            .pathParam("id", uploadId)
+        .when()
+            .post("/uploads/{id}/complete")
+        .then()
+            .statusCode(200)
+            .body("status", equalTo("ACTIVE"))
+            .body("objectSize", equalTo(String.valueOf(content.length)));
+
+        given()
+            .pathParam("id", uploadId)
+        .when()
+            .get("/uploads/{id}")
+        .then()
+            .statusCode(404);
+    }
+
+    @Test
+    @Order(2)
+    void testAbortResumableUpload() {
+        String uploadId = given()
+            .contentType(ContentType.JSON)
+            .body(Map.of("fileName", "abandoned.jpg", "contentType", "image/jpeg", "size", 1024))
+        .when()
+            .post("/uploads")
+        .then()
+            .statusCode(201)
+            .extract().jsonPath().getString("id");
+
+        given()
+            .pathParam("id", uploadId)
+        .when()
+            .delete("/uploads/{id}")
+        .then()
+            .statusCode(204);
+
+        given()
+            .pathParam("id", uploadId)
+        .when()
+            .get("/{id}")
+        .then()
+            .statusCode(404);
+    }
+
+    @Test
+    @Order(3)
+    void testPartWithWrongLength() {
+        String uploadId = given()
+            .contentType(ContentType.JSON)
+            .body(Map.of("fileName", "short.jpg", "contentType", "image/jpeg", "size", 1024))
+        .when()
+            .post("/uploads")
+        .then()
+            .statusCode(201)
+            .extract().jsonPath().getString("id");
+        createdImageIds.add(uploadId);
+
+        given()
+            .pathParam("id", uploadId)
+            .contentType(ContentType.BINARY)
+            .body(new byte[10])
+        .when()
+            .put("/uploads/{id}/parts/1")
+        .then()
+            .statusCode(400);
+
+        given().pathParam("id", uploadId).delete("/uploads/{id}");
+    }
+
+    @Test
+    @Order(4)
+    void testUnknownUpload() {
+        given()
+            .pathParam("id", UUID.randomUUID().toString())
+        .when()
+            .get("/uploads/{id}")
+        .then()
+            .statusCode(404);
+    }
+}
@@ -117,4 +117,29 @@ class ImageSearchByLabelControllerTest {
             .statusCode(200)
             .body("size()", equalTo(0)); // Should return empty array
     }
+
+    @Test
+    @Order(4)
+    void testSearchWithLimitAboveMaximum() {
+        // The server caps the page size (app.search.max-page-size, 1000 by default)
+        given()
+            .queryParam("label", "cat")
+            .queryParam("limit", 100000)
+        .when()
+            .get("/")
+        .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @Order(5)
+    void testSearchWithInvalidCursor() {
+        given()
+            .queryParam("label", "cat")
+            .queryParam("cursor", "not a cursor")
+        .when()
+            .get("/")
+        .then()
+            .statusCode(400);
+    }
 }
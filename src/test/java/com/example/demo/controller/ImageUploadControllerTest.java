@@ -62,6 +62,9 @@ class ImageUploadControllerTest {
             .statusCode(200)
             .body("id", notNullValue())
             .body("objectPath", notNullValue())
+            .body("width", greaterThan(0))
+            .body("height", greaterThan(0))
+            .body("format", equalTo("jpeg"))
             .extract().response();
         String imageId = response.jsonPath().getString("id");
         createdImageIds.add(imageId);
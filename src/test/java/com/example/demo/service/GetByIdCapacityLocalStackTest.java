@@ -0,0 +1,121 @@
+package com.example.demo.service;
+
+import com.example.demo.config.TestcontainersConfiguration;
+import com.example.demo.model.Image;
+import io.awspring.cloud.dynamodb.DynamoDbTableNameResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the read capacity of the id lookup against LocalStack with 100 and with 100k images
+ * in the table; a key-based lookup has to cost the same in both cases.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class GetByIdCapacityLocalStackTest {
+
+    private static final int SMALL_TABLE = 100;
+    private static final int LARGE_TABLE = 100_000;
+    private static final int BATCH_SIZE = 25;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private DynamoDbTable<Image> imageTable;
+
+    @Autowired
+    private DynamoDbClient dynamoDbClient;
+
+    @Autowired
+    private DynamoDbTableNameResolver tableNameResolver;
+
+    private final List<Map<String, AttributeValue>> createdKeys = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void cleanUp() {
+        forEachBatch(createdKeys, key -> WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(key).build()).build());
+        createdKeys.clear();
+    }
+
+    @Test
+    void testGetById_ReadCapacityIndependentOfTableSize() {
+        // Arrange
+        UUID probe = UUID.randomUUID();
+        fill(List.of(probe));
+        fill(IntStream.range(1, SMALL_TABLE).mapToObj(i -> UUID.randomUUID()).toList());
+        double smallTableCapacity = consumedCapacity(probe);
+
+        fill(IntStream.range(SMALL_TABLE, LARGE_TABLE).mapToObj(i -> UUID.randomUUID()).toList());
+
+        // Act
+        double largeTableCapacity = consumedCapacity(probe);
+        Image image = imageService.getById(probe);
+
+        // Assert
+        assertEquals(probe.toString(), image.getId());
+        assertTrue(smallTableCapacity > 0, "LocalStack did not report consumed capacity");
+        assertEquals(smallTableCapacity, largeTableCapacity,
+            "Lookup cost grew with the table: " + smallTableCapacity + " RCU vs " + largeTableCapacity + " RCU");
+    }
+
+    private double consumedCapacity(UUID id) {
+        Page<Image> page = imageTable.query(ImageService.byIdQuery(id).toBuilder()
+                .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                .build())
+            .iterator().next();
+        assertEquals(1, page.items().size());
+        return page.consumedCapacity().capacityUnits();
+    }
+
+    private void fill(List<UUID> ids) {
+        List<Map<String, AttributeValue>> items = ids.stream()
+            .map(id -> Map.of(
+                "id", AttributeValue.builder().s(id.toString()).build(),
+                "objectPath", AttributeValue.builder().s("images/" + id + "_capacity.jpg").build(),
+                "objectSize", AttributeValue.builder().s("1024").build(),
+                "status", AttributeValue.builder().s("ACTIVE").build()))
+            .toList();
+        items.forEach(item -> createdKeys.add(Map.of("id", item.get("id"), "objectPath", item.get("objectPath"))));
+        forEachBatch(items, item -> WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+    }
+
+    private void forEachBatch(List<Map<String, AttributeValue>> entries,
+                              java.util.function.Function<Map<String, AttributeValue>, WriteRequest> toRequest) {
+        String tableName = tableNameResolver.resolve(Image.class);
+        List<Map<String, AttributeValue>> snapshot = List.copyOf(entries);
+        IntStream.range(0, (snapshot.size() + BATCH_SIZE - 1) / BATCH_SIZE).parallel().forEach(batch -> {
+            List<WriteRequest> requests = snapshot.subList(batch * BATCH_SIZE, Math.min(snapshot.size(), (batch + 1) * BATCH_SIZE))
+                .stream().map(toRequest).toList();
+            Map<String, List<WriteRequest>> pending = Map.of(tableName, requests);
+            while (!pending.isEmpty()) {
+                Map<String, List<WriteRequest>> request = pending;
+                pending = dynamoDbClient.batchWriteItem(builder -> builder.requestItems(request)).unprocessedItems();
+            }
+        });
+    }
+}
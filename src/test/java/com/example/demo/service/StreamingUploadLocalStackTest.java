@@ -0,0 +1,152 @@
+package com.example.demo.service;
+
+import com.example.demo.config.TestcontainersConfiguration;
+import com.example.demo.model.Image;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.multipart.MultipartFile;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uploads an object many times larger than the per-upload part buffer against LocalStack
+ * and checks it arrives intact through the multipart path without the file ever being
+ * read into a single byte array.
+ */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.NONE,
+    properties = {
+        "app.upload.multipart-threshold=5MB",
+        "app.upload.part-size=5MB"
+    })
+@Import(TestcontainersConfiguration.class)
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class StreamingUploadLocalStackTest {
+
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+    private static final long FILE_SIZE = 64L * 1024 * 1024;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private S3Client s3Client;
+
+    @Value("${app.s3.bucket-name}")
+    private String bucketName;
+
+    private final List<UUID> createdImageIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        createdImageIds.forEach(imageService::deleteById);
+        createdImageIds.clear();
+    }
+
+    @Test
+    void testCreate_LargeFileIsStreamedInParts() throws Exception {
+        // Act
+        Image image = imageService.create(new GeneratedMultipartFile("large.jpg", FILE_SIZE));
+        createdImageIds.add(UUID.fromString(image.getId()));
+
+        // Assert
+        HeadObjectResponse head = s3Client.headObject(builder -> builder
+            .bucket(bucketName)
+            .key(image.getObjectPath()));
+        long expectedParts = (FILE_SIZE + PART_SIZE - 1) / PART_SIZE;
+
+        assertEquals(FILE_SIZE, head.contentLength());
+        assertTrue(head.eTag().endsWith("-" + expectedParts + "\""),
+            "Expected a multipart ETag with " + expectedParts + " parts but was " + head.eTag());
+        assertEquals(String.valueOf(FILE_SIZE), image.getObjectSize());
+    }
+
+    /**
+     * Multipart file whose content is generated on the fly. {@link #getBytes()} fails so the
+     * test breaks if the upload path ever tries to buffer the whole file.
+     */
+    private static final class GeneratedMultipartFile implements MultipartFile {
+
+        private final String name;
+        private final long size;
+
+        GeneratedMultipartFile(String name, long size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return name;
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException("Upload content must be streamed, not buffered");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long position;
+
+                @Override
+                public int read() {
+                    return position < size ? (int) (position++ % 251) : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (position >= size) {
+                        return -1;
+                    }
+                    int count = (int) Math.min(len, size - position);
+                    for (int i = 0; i < count; i++) {
+                        b[off + i] = (byte) (position++ % 251);
+                    }
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
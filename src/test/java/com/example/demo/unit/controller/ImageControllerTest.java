@@ -1,22 +1,56 @@
 package com.example.demo.unit.controller;
 
+import com.example.demo.config.DownloadConfig;
+import com.example.demo.config.SearchConfig;
 import com.example.demo.config.UploadConfig;
 import com.example.demo.controller.ImageController;
+import com.example.demo.model.BatchGetRequest;
+import com.example.demo.model.BatchGetResult;
+import com.example.demo.model.BatchUploadResult;
 import com.example.demo.model.Image;
+import com.example.demo.model.ImageFile;
+import com.example.demo.model.ImageStatus;
+import com.example.demo.model.LabelSearchPage;
+import com.example.demo.model.PresignedUpload;
+import com.example.demo.model.PresignedUploadRequest;
+import com.example.demo.model.Rendition;
+import com.example.demo.model.ResumableUploadRequest;
+import com.example.demo.model.ResumableUploadStatus;
 import com.example.demo.model.Status;
+import com.example.demo.model.UploadSession;
+import com.example.demo.service.AsyncUploadService;
+import com.example.demo.service.BatchGetService;
+import com.example.demo.service.BatchUploadService;
 import com.example.demo.service.ImageService;
+import com.example.demo.service.InvalidCursorException;
+import com.example.demo.service.PresignedDownloadService;
+import com.example.demo.service.PresignedUploadService;
+import com.example.demo.service.RenditionLimitException;
+import com.example.demo.service.RenditionService;
+import com.example.demo.service.UnrenderableImageException;
+import com.example.demo.service.ResumableUploadService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,9 +62,36 @@ class ImageControllerTest {
     @Mock
     private ImageService imageService;
 
+    @Mock
+    private BatchUploadService batchUploadService;
+
+    @Mock
+    private BatchGetService batchGetService;
+
+    @Mock
+    private AsyncUploadService asyncUploadService;
+
+    @Mock
+    private PresignedUploadService presignedUploadService;
+
+    @Mock
+    private ResumableUploadService resumableUploadService;
+
+    @Mock
+    private PresignedDownloadService presignedDownloadService;
+
+    @Mock
+    private RenditionService renditionService;
+
     @Mock
     private UploadConfig uploadConfig;
 
+    @Mock
+    private DownloadConfig downloadConfig;
+
+    @Mock
+    private SearchConfig searchConfig;
+
     @InjectMocks
     private ImageController imageController;
 
@@ -178,7 +239,7 @@ class ImageControllerTest {
         when(imageService.getById(imageId)).thenReturn(image);
 
         // Act
-        ResponseEntity<Object> response = imageController.getImage(imageId);
+        ResponseEntity<Object> response = imageController.getImage(imageId, new HttpHeaders());
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -188,6 +249,33 @@ class ImageControllerTest {
         verify(imageService).getById(imageId);
     }
 
+    @Test
+    void testGetImage_ConditionalRequests() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setTimeUpdated(java.time.LocalDateTime.of(2024, 1, 1, 10, 0, 0));
+        when(imageService.getById(imageId)).thenReturn(image);
+        String eTag = imageController.getImage(imageId, new HttpHeaders()).getHeaders().getETag();
+
+        // Act
+        ResponseEntity<Object> sameVersion = imageController.getImage(imageId, headers(HttpHeaders.IF_NONE_MATCH, eTag));
+        ResponseEntity<Object> notChangedSince =
+            imageController.getImage(imageId, headers(HttpHeaders.IF_MODIFIED_SINCE, "Mon, 01 Jan 2024 10:00:00 GMT"));
+        image.setTimeUpdated(image.getTimeUpdated().plusSeconds(5));
+        ResponseEntity<Object> newVersion = imageController.getImage(imageId, headers(HttpHeaders.IF_NONE_MATCH, eTag));
+
+        // Assert
+        assertNotNull(eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, sameVersion.getStatusCode());
+        assertNull(sameVersion.getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED, notChangedSince.getStatusCode());
+        assertEquals(HttpStatus.OK, newVersion.getStatusCode());
+        assertNotEquals(eTag, newVersion.getHeaders().getETag());
+        assertEquals(java.time.Instant.parse("2024-01-01T10:00:05Z").toEpochMilli(), newVersion.getHeaders().getLastModified());
+    }
+
     @Test
     void testGetImage_NotFound() {
         // Arrange
@@ -195,7 +283,7 @@ class ImageControllerTest {
         when(imageService.getById(imageId)).thenReturn(null);
 
         // Act
-        ResponseEntity<Object> response = imageController.getImage(imageId);
+        ResponseEntity<Object> response = imageController.getImage(imageId, new HttpHeaders());
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -214,6 +302,7 @@ class ImageControllerTest {
         // Assert
         assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
         verify(imageService).deleteById(imageId);
+        verify(presignedDownloadService).evict(imageId.toString());
     }
 
     @Test
@@ -225,83 +314,669 @@ class ImageControllerTest {
             createTestImage("id2", "cat2.jpg")
         );
 
-        when(imageService.searchByLabel(label)).thenReturn(images);
+        when(searchConfig.getDefaultPageSize()).thenReturn(100);
+        when(searchConfig.getMaxPageSize()).thenReturn(1000);
+        when(imageService.searchByLabel(label, 100, null)).thenReturn(new LabelSearchPage(images, null));
 
         // Act
-        ResponseEntity<List<Image>> response = imageController.searchByLabel(label);
+        ResponseEntity<List<Image>> response = imageController.searchByLabel(label, null, null, searchRequest(label));
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(2, response.getBody().size());
-        verify(imageService).searchByLabel(label);
+        assertNull(response.getHeaders().getFirst(HttpHeaders.LINK));
+        verify(imageService).searchByLabel(label, 100, null);
     }
 
     @Test
     void testSearchByLabel_NoResults() {
         // Arrange
         String label = "dog";
-        when(imageService.searchByLabel(label)).thenReturn(Collections.emptyList());
+        when(searchConfig.getDefaultPageSize()).thenReturn(100);
+        when(searchConfig.getMaxPageSize()).thenReturn(1000);
+        when(imageService.searchByLabel(label, 100, null)).thenReturn(new LabelSearchPage(Collections.emptyList(), null));
 
         // Act
-        ResponseEntity<List<Image>> response = imageController.searchByLabel(label);
+        ResponseEntity<List<Image>> response = imageController.searchByLabel(label, null, null, searchRequest(label));
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertTrue(response.getBody().isEmpty());
-        verify(imageService).searchByLabel(label);
+        verify(imageService).searchByLabel(label, 100, null);
+    }
+
+    @Test
+    void testSearchByLabel_LinksNextPage() {
+        // Arrange
+        String label = "cat";
+        List<Image> images = List.of(createTestImage("id1", "cat1.jpg"));
+        when(searchConfig.getMaxPageSize()).thenReturn(1000);
+        when(imageService.searchByLabel(label, 1, "first")).thenReturn(new LabelSearchPage(images, "second"));
+        MockHttpServletRequest request = searchRequest(label);
+        request.setQueryString("label=cat&limit=1&cursor=first");
+
+        // Act
+        ResponseEntity<List<Image>> response = imageController.searchByLabel(label, 1, "first", request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(images, response.getBody());
+        assertEquals("<http://localhost/image/?label=cat&limit=1&cursor=second>; rel=\"next\"",
+            response.getHeaders().getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    void testSearchByLabel_LimitAboveMaximum() {
+        // Arrange
+        when(searchConfig.getMaxPageSize()).thenReturn(1000);
+
+        // Act
+        ResponseEntity<List<Image>> response = imageController.searchByLabel("cat", 1001, null, searchRequest("cat"));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(imageService, never()).searchByLabel(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void testSearchByLabel_InvalidCursor() {
+        // Arrange
+        when(searchConfig.getDefaultPageSize()).thenReturn(100);
+        when(searchConfig.getMaxPageSize()).thenReturn(1000);
+        when(imageService.searchByLabel("cat", 100, "bogus")).thenThrow(new InvalidCursorException("Invalid cursor"));
+
+        // Act
+        ResponseEntity<List<Image>> response = imageController.searchByLabel("cat", null, "bogus", searchRequest("cat"));
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
 
     @Test
-    void testDownloadImageFile_Success() {
+    void testSearchByLabel_InternalErrorIsNotBlamedOnTheRequest() {
+        // Arrange
+        when(searchConfig.getDefaultPageSize()).thenReturn(100);
+        when(searchConfig.getMaxPageSize()).thenReturn(1000);
+        when(imageService.searchByLabel("cat", 100, null)).thenThrow(new IllegalArgumentException("Bad page size"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> imageController.searchByLabel("cat", null, null, searchRequest("cat")));
+    }
+
+    private static MockHttpServletRequest searchRequest(String label) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/image/");
+        request.setQueryString("label=" + label);
+        return request;
+    }
+
+    @Test
+    void testDownloadImageFile_Success() throws IOException {
         // Arrange
         UUID imageId = UUID.randomUUID();
         byte[] fileContent = "test content".getBytes();
-
-        when(imageService.downloadImageFile(imageId)).thenReturn(fileContent);
-        when(imageService.getImageContentType(imageId)).thenReturn("image/jpeg");
+        ImageFile file = resolvedFile(imageId, null, "\"abc\"");
+        stubOpen(file, null, fileContent, null, fileContent.length);
         when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
 
         // Act
-        ResponseEntity<byte[]> response = imageController.downloadImageFile(imageId);
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null, new HttpHeaders(), new MockHttpServletRequest());
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertArrayEquals(fileContent, response.getBody());
-        verify(imageService).downloadImageFile(imageId);
-        verify(imageService).getImageContentType(imageId);
+        assertArrayEquals(fileContent, response.getBody().getInputStream().readAllBytes());
+        assertEquals(fileContent.length, response.getHeaders().getContentLength());
+        assertEquals("\"abc\"", response.getHeaders().getETag());
+        assertEquals(file.getLastModified().toEpochMilli(), response.getHeaders().getLastModified());
+        verify(imageService).resolveImageFile(imageId, null);
+        verify(imageService, never()).getImageContentType(any(), any());
+        verify(imageService, never()).getById(any());
+    }
+
+    @Test
+    void testDownloadImageFile_DiskCacheHitIsHandedToSendfile() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, "\"abc\"");
+        when(imageService.openImageFile(file, "bytes=10-19", null)).thenAnswer(invocation -> {
+            file.setContent(new ByteArrayInputStream(new byte[10]));
+            file.setContentLength(10);
+            file.setContentRange("bytes 10-19/100");
+            file.setTotalLength(100);
+            file.setCachedOnDisk(true);
+            file.setLocalOffset(10);
+            return true;
+        });
+        when(imageService.linkForSendfile(file)).thenReturn(java.nio.file.Path.of("/cache/sending/abc.data"));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.RANGE, "bytes=10-19"), request);
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(10, response.getHeaders().getContentLength());
+        assertEquals("bytes 10-19/100", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals("/cache/sending/abc.data", request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(20L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    void testDownloadImageFile_WithSize() throws IOException {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        byte[] thumbnail = "thumbnail".getBytes();
+        ImageFile file = resolvedFile(imageId, 128, null);
+        stubOpen(file, null, thumbnail, null, thumbnail.length);
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, 128, null, null, null, new HttpHeaders(), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(thumbnail, response.getBody().getInputStream().readAllBytes());
+    }
+
+    @Test
+    void testDownloadImageFile_InvalidSize() {
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(UUID.randomUUID(), 0, null, null, null, new HttpHeaders(), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(imageService);
     }
 
     @Test
     void testDownloadImageFile_NotFound() {
         // Arrange
         UUID imageId = UUID.randomUUID();
-        when(imageService.downloadImageFile(imageId))
+        when(imageService.resolveImageFile(imageId, null))
             .thenThrow(new RuntimeException("Image not found with ID: " + imageId));
 
         // Act
-        ResponseEntity<byte[]> response = imageController.downloadImageFile(imageId);
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null, new HttpHeaders(), new MockHttpServletRequest());
 
         // Assert
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-        verify(imageService).downloadImageFile(imageId);
+        verify(imageService).resolveImageFile(imageId, null);
     }
 
     @Test
     void testDownloadImageFile_S3Error() {
         // Arrange
         UUID imageId = UUID.randomUUID();
-        when(imageService.downloadImageFile(imageId))
+        ImageFile file = resolvedFile(imageId, null, null);
+        when(imageService.openImageFile(file, null, null))
             .thenThrow(new RuntimeException("Failed to download image from S3"));
 
         // Act
-        ResponseEntity<byte[]> response = imageController.downloadImageFile(imageId);
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null, new HttpHeaders(), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(imageService).openImageFile(file, null, null);
+    }
+
+    @Test
+    void testDownloadImageFile_SingleRange() throws IOException {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, null);
+        stubOpen(file, "bytes=2-5", "2345".getBytes(), "bytes 2-5/10", 10);
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.RANGE, "bytes=2-5"), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 2-5/10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(4, response.getHeaders().getContentLength());
+        assertArrayEquals("2345".getBytes(), response.getBody().getInputStream().readAllBytes());
+    }
+
+    @Test
+    void testDownloadImageFile_MultipleRanges() throws IOException {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, null);
+        // A derivative's length is not known before it is opened
+        when(imageService.knownLengthOf(file)).thenReturn(null);
+        stubOpen(file, "bytes=0-1", "01".getBytes(), "bytes 0-1/10", 10);
+        when(imageService.openRange(file, "bytes=7-9")).thenReturn(new ResponseInputStream<>(
+            GetObjectResponse.builder().build(), new ByteArrayInputStream("789".getBytes())));
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.RANGE, "bytes=0-1, -3"), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        MediaType contentType = response.getHeaders().getContentType();
+        assertEquals("multipart/byteranges", contentType.getType() + "/" + contentType.getSubtype());
+        String boundary = contentType.getParameter("boundary");
+        byte[] body = response.getBody().getInputStream().readAllBytes();
+        assertEquals(body.length, response.getHeaders().getContentLength());
+        assertEquals("\r\n--" + boundary + "\r\nContent-Type: image/jpeg\r\nContent-Range: bytes 0-1/10\r\n\r\n01"
+            + "\r\n--" + boundary + "\r\nContent-Type: image/jpeg\r\nContent-Range: bytes 7-9/10\r\n\r\n789"
+            + "\r\n--" + boundary + "--\r\n", new String(body, java.nio.charset.StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void testDownloadImageFile_RangeNotSatisfiable() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, null);
+        when(imageService.openImageFile(file, "bytes=100-", null))
+            .thenThrow(new IllegalArgumentException("Range not satisfiable: bytes=100-"));
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.RANGE, "bytes=100-"), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+    }
+
+    @Test
+    void testDownloadImageFile_UnsatisfiableRangeIsLeftOutWhenAnotherCanBeServed() throws IOException {
+        // Arrange - the recorded size tells that the first range starts beyond the end
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, null);
+        when(imageService.knownLengthOf(file)).thenReturn(500L);
+        stubOpen(file, "bytes=0-9", "0123456789".getBytes(), "bytes 0-9/500", 500);
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.RANGE, "bytes=1000-,0-9"), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 0-9/500", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        verify(imageService, never()).openImageFile(eq(file), eq("bytes=1000-"), any());
+    }
+
+    @Test
+    void testDownloadImageFile_UnsatisfiableRangeOfUnknownLengthIsSkipped() throws IOException {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, null);
+        when(imageService.knownLengthOf(file)).thenReturn(null);
+        when(imageService.openImageFile(file, "bytes=1000-", null))
+            .thenThrow(new IllegalArgumentException("Range not satisfiable: bytes=1000-"));
+        stubOpen(file, "bytes=0-9", "0123456789".getBytes(), "bytes 0-9/500", 500);
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.RANGE, "bytes=1000-,0-9"), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("0123456789", new String(response.getBody().getInputStream().readAllBytes()));
+    }
+
+    @Test
+    void testDownloadImageFile_NoSatisfiableRange() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, null);
+        when(imageService.knownLengthOf(file)).thenReturn(500L);
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.RANGE, "bytes=1000-,600-700"), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        verify(imageService, never()).openImageFile(any(), any(), any());
+    }
+
+    @Test
+    void testDownloadImageFile_MalformedRangeIsIgnored() throws IOException {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, null);
+        stubOpen(file, null, "0123456789".getBytes(), null, 10);
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.RANGE, "pages=1-2"), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void testDownloadImageFile_IfNoneMatchAnsweredFromMetadata() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        resolvedFile(imageId, null, "\"abc\"");
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.IF_NONE_MATCH, "\"abc\""), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"abc\"", response.getHeaders().getETag());
+        assertNull(response.getBody());
+        verify(imageService, never()).openImageFile(any(), any(), any());
+    }
+
+    @Test
+    void testDownloadImageFile_IfModifiedSinceAnsweredFromMetadata() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, null);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfModifiedSince(file.getLastModified().plusSeconds(60));
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null, headers, new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(imageService, never()).openImageFile(any(), any(), any());
+    }
+
+    @Test
+    void testDownloadImageFile_UnknownETagIsCheckedByS3() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, 128, null);
+        String ifNoneMatch = "\"other\", \"s3-etag\"";
+        when(imageService.openImageFile(file, null, ifNoneMatch)).thenAnswer(invocation -> {
+            file.setETag("\"s3-etag\"");
+            return false;
+        });
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, 128, null, null, null, headers(HttpHeaders.IF_NONE_MATCH, ifNoneMatch), new MockHttpServletRequest());
+
+        // Assert - the ETag of the matching object, not the client's list
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"s3-etag\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    void testDownloadImageFile_StaleIfRangeSendsWholeFile() throws IOException {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, null, "\"new\"");
+        stubOpen(file, null, "0123456789".getBytes(), null, 10);
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+        HttpHeaders headers = headers(HttpHeaders.RANGE, "bytes=2-5");
+        headers.set(HttpHeaders.IF_RANGE, "\"old\"");
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null, headers, new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(10, response.getHeaders().getContentLength());
+    }
+
+    @Test
+    void testDownloadImageFile_RedirectModeSendsPresignedUrl() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile file = resolvedFile(imageId, 128, "\"abc\"");
+        when(downloadConfig.getMode()).thenReturn(DownloadConfig.Mode.REDIRECT);
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+        java.net.URI url = java.net.URI.create("https://bucket.s3.amazonaws.com/" + file.getObjectKey() + "?X-Amz-Signature=x");
+        when(presignedDownloadService.presignedUrlFor(file, "image-" + imageId + ".jpg")).thenReturn(url);
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, 128, null, null, null, headers(HttpHeaders.RANGE, "bytes=0-1"), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.FOUND, response.getStatusCode());
+        assertEquals(url, response.getHeaders().getLocation());
+        assertNull(response.getBody());
+        verify(imageService, never()).openImageFile(any(), any(), any());
+    }
+
+    @Test
+    void testDownloadImageFile_RedirectModeStillAnswersNotModified() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        resolvedFile(imageId, null, "\"abc\"");
+        lenient().when(downloadConfig.getMode()).thenReturn(DownloadConfig.Mode.REDIRECT);
+
+        // Act
+        ResponseEntity<Resource> response =
+            imageController.downloadImageFile(imageId, null, null, null, null, headers(HttpHeaders.IF_NONE_MATCH, "\"abc\""), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verifyNoInteractions(presignedDownloadService);
+    }
+
+    @Test
+    void testDownloadImageFile_ServesRendition() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Rendition rendition = new Rendition(200, 100, Rendition.Fit.COVER);
+        ImageFile file = new ImageFile();
+        file.setObjectKey("renditions/" + imageId + "/200x100-cover.jpg");
+        file.setContentType("image/jpeg");
+        when(renditionService.isValid(rendition)).thenReturn(true);
+        when(renditionService.resolve(imageId, rendition)).thenReturn(file);
+        when(imageService.getFileExtensionFromContentType("image/jpeg")).thenReturn(".jpg");
+        when(renditionService.open(file, rendition, null, null)).thenAnswer(invocation -> {
+            file.setContent(new ByteArrayInputStream("rendition".getBytes()));
+            file.setContentLength(9);
+            return true;
+        });
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, 200, 100, "cover",
+            new HttpHeaders(), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(9, response.getHeaders().getContentLength());
+        verify(imageService, never()).resolveImageFile(any(), any());
+        verify(imageService, never()).openImageFile(any(), any(), any());
+    }
+
+    @Test
+    void testDownloadImageFile_InvalidRenditionParameters() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        lenient().when(renditionService.isValid(any())).thenReturn(true);
+
+        // Act & Assert
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.downloadImageFile(imageId, null, 200, null, "squash",
+            new HttpHeaders(), new MockHttpServletRequest()).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.downloadImageFile(imageId, 128, 200, null, null,
+            new HttpHeaders(), new MockHttpServletRequest()).getStatusCode());
+        when(renditionService.isValid(any())).thenReturn(false);
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.downloadImageFile(imageId, null, 99999, null, null,
+            new HttpHeaders(), new MockHttpServletRequest()).getStatusCode());
+        verify(renditionService, never()).resolve(any(), any());
+    }
+
+    @Test
+    void testDownloadImageFile_RenditionQueueFull() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Rendition rendition = new Rendition(200, null, Rendition.Fit.CONTAIN);
+        ImageFile file = new ImageFile();
+        file.setContentType("image/jpeg");
+        when(renditionService.isValid(rendition)).thenReturn(true);
+        when(renditionService.resolve(imageId, rendition)).thenReturn(file);
+        when(renditionService.open(file, rendition, null, null)).thenThrow(new RejectedExecutionException("full"));
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, 200, null, null,
+            new HttpHeaders(), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    void testDownloadImageFile_RenditionLimitReached() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Rendition rendition = new Rendition(200, null, Rendition.Fit.CONTAIN);
+        ImageFile file = new ImageFile();
+        file.setContentType("image/jpeg");
+        when(renditionService.isValid(rendition)).thenReturn(true);
+        when(renditionService.resolve(imageId, rendition)).thenReturn(file);
+        when(renditionService.open(file, rendition, null, null)).thenThrow(new RenditionLimitException("too many"));
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, 200, null, null,
+            new HttpHeaders(), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void testDownloadImageFile_UnrenderableImage() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Rendition rendition = new Rendition(200, null, Rendition.Fit.CONTAIN);
+        ImageFile file = new ImageFile();
+        file.setContentType("image/jpeg");
+        when(renditionService.isValid(rendition)).thenReturn(true);
+        when(renditionService.resolve(imageId, rendition)).thenReturn(file);
+        when(renditionService.open(file, rendition, null, null)).thenThrow(new UnrenderableImageException(null));
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, 200, null, null,
+            new HttpHeaders(), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, response.getStatusCode());
+    }
+
+    @Test
+    void testDownloadImageFile_FailureWithoutMessage() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        when(imageService.resolveImageFile(imageId, null)).thenThrow(new RuntimeException());
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, null, null,
+            new HttpHeaders(), new MockHttpServletRequest());
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
-        verify(imageService).downloadImageFile(imageId);
+    }
+
+    @Test
+    void testDownloadImageFile_RedirectModeStoresRenditionFirst() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Rendition rendition = new Rendition(null, 300, Rendition.Fit.CONTAIN);
+        ImageFile file = new ImageFile();
+        file.setContentType("image/png");
+        when(renditionService.isValid(rendition)).thenReturn(true);
+        when(renditionService.resolve(imageId, rendition)).thenReturn(file);
+        when(imageService.getFileExtensionFromContentType("image/png")).thenReturn(".png");
+        when(downloadConfig.getMode()).thenReturn(DownloadConfig.Mode.REDIRECT);
+        when(presignedDownloadService.presignedUrlFor(file, "image-" + imageId + ".png"))
+            .thenReturn(java.net.URI.create("https://bucket.s3.amazonaws.com/rendition?X-Amz-Signature=abc"));
+
+        // Act
+        ResponseEntity<Resource> response = imageController.downloadImageFile(imageId, null, null, 300, "contain",
+            new HttpHeaders(), new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.FOUND, response.getStatusCode());
+        verify(renditionService).ensureStored(file, rendition);
+        verify(renditionService, never()).open(any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetImages_ReturnsResultsOfBatchGet() {
+        // Arrange
+        when(downloadConfig.getBatchGetMaxIds()).thenReturn(100);
+        List<String> ids = List.of("id1", "id2");
+        List<BatchGetResult> results = List.of(
+            BatchGetResult.found("id1", createTestImage("id1", "first.jpg")),
+            BatchGetResult.notFound("id2"));
+        when(batchGetService.getBatch(ids)).thenReturn(results);
+
+        // Act
+        ResponseEntity<List<BatchGetResult>> response = imageController.getImages(new BatchGetRequest(ids));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(results, response.getBody());
+    }
+
+    @Test
+    void testGetImages_FullLookupQueue() {
+        // Arrange
+        when(downloadConfig.getBatchGetMaxIds()).thenReturn(100);
+        List<String> ids = List.of("id1");
+        when(batchGetService.getBatch(ids)).thenThrow(new RejectedExecutionException("full"));
+
+        // Act
+        ResponseEntity<List<BatchGetResult>> response = imageController.getImages(new BatchGetRequest(ids));
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    void testGetImages_RejectsEmptyAndOversizedBatches() {
+        // Arrange
+        lenient().when(downloadConfig.getBatchGetMaxIds()).thenReturn(2);
+
+        // Act & Assert
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.getImages(new BatchGetRequest(null)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.getImages(new BatchGetRequest(List.of())).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+            imageController.getImages(new BatchGetRequest(List.of("a", "b", "c"))).getStatusCode());
+        verifyNoInteractions(batchGetService);
+    }
+
+    private ImageFile resolvedFile(UUID imageId, Integer size, String eTag) {
+        ImageFile file = new ImageFile();
+        file.setImage(new Image());
+        file.setObjectKey("images/" + imageId + "_test.jpg");
+        file.setContentType("image/jpeg");
+        file.setETag(eTag);
+        file.setLastModified(java.time.Instant.parse("2024-01-01T10:00:00Z"));
+        when(imageService.resolveImageFile(imageId, size)).thenReturn(file);
+        return file;
+    }
+
+    private void stubOpen(ImageFile file, String range, byte[] content, String contentRange, long totalLength) {
+        when(imageService.openImageFile(file, range, null)).thenAnswer(invocation -> {
+            file.setContent(new ByteArrayInputStream(content));
+            file.setContentLength(content.length);
+            file.setContentRange(contentRange);
+            file.setTotalLength(totalLength);
+            return true;
+        });
+    }
+
+    private static HttpHeaders headers(String name, String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(name, value);
+        return headers;
     }
 
     @Test
@@ -313,7 +988,7 @@ class ImageControllerTest {
         when(imageService.getById(imageId)).thenThrow(testException);
 
         // Act
-        ResponseEntity<Object> response = imageController.getImage(imageId);
+        ResponseEntity<Object> response = imageController.getImage(imageId, new HttpHeaders());
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
@@ -345,6 +1020,136 @@ class ImageControllerTest {
         }
     }
 
+    @Test
+    void testUploadImages_MergesRejectedFilesInInputOrder() {
+        // Arrange
+        when(uploadConfig.getMaxBatchSize()).thenReturn(10);
+        MockMultipartFile first = new MockMultipartFile("files", "first.jpg", "image/jpeg", "first".getBytes());
+        MockMultipartFile invalid = new MockMultipartFile("files", "notes.txt", "text/plain", "text".getBytes());
+        MockMultipartFile second = new MockMultipartFile("files", "second.png", "image/png", "second".getBytes());
+
+        when(batchUploadService.createBatch(List.of(first, second))).thenReturn(List.of(
+            BatchUploadResult.stored("first.jpg", createTestImage("id1", "first.jpg")),
+            BatchUploadResult.stored("second.png", createTestImage("id2", "second.png"))
+        ));
+
+        // Act
+        ResponseEntity<List<BatchUploadResult>> response =
+            imageController.uploadImages(List.of(first, invalid, second));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<BatchUploadResult> results = response.getBody();
+        assertNotNull(results);
+        assertEquals(3, results.size());
+        assertEquals("id1", results.get(0).getId());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("notes.txt", results.get(1).getFileName());
+        assertEquals("id2", results.get(2).getId());
+    }
+
+    @Test
+    void testUploadImages_EmptyBatch() {
+        // Act
+        ResponseEntity<List<BatchUploadResult>> response = imageController.uploadImages(Collections.emptyList());
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(batchUploadService, never()).createBatch(any());
+    }
+
+    @Test
+    void testUploadImages_TooManyFiles() {
+        // Arrange
+        when(uploadConfig.getMaxBatchSize()).thenReturn(1);
+        List<MultipartFile> files = List.of(
+            new MockMultipartFile("files", "a.jpg", "image/jpeg", "a".getBytes()),
+            new MockMultipartFile("files", "b.jpg", "image/jpeg", "b".getBytes())
+        );
+
+        // Act
+        ResponseEntity<List<BatchUploadResult>> response = imageController.uploadImages(files);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(batchUploadService, never()).createBatch(any());
+    }
+
+    @Test
+    void testUploadImageAsync_Accepted() throws IOException {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "content".getBytes());
+        Image pending = createTestImage("id1", "test.jpg");
+        pending.setStatus(Status.PENDING);
+        when(asyncUploadService.submit(file)).thenReturn(pending);
+
+        // Act
+        ResponseEntity<Image> response = imageController.uploadImageAsync(file);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(Status.PENDING, response.getBody().getStatus());
+        assertEquals("/image/id1/status", response.getHeaders().getLocation().toString());
+    }
+
+    @Test
+    void testUploadImageAsync_QueueFull() throws IOException {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "content".getBytes());
+        when(asyncUploadService.submit(file)).thenThrow(new RejectedExecutionException("queue full"));
+
+        // Act
+        ResponseEntity<Image> response = imageController.uploadImageAsync(file);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    void testUploadImageAsync_InvalidContentType() throws IOException {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "test.txt", "text/plain", "content".getBytes());
+
+        // Act
+        ResponseEntity<Image> response = imageController.uploadImageAsync(file);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(asyncUploadService, never()).submit(any());
+    }
+
+    @Test
+    void testGetImageStatus_Success() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = createTestImage(imageId.toString(), "test.jpg");
+        image.setStatus(Status.PENDING);
+        when(imageService.getById(imageId)).thenReturn(image);
+
+        // Act
+        ResponseEntity<ImageStatus> response = imageController.getImageStatus(imageId);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getBody());
+        assertEquals(imageId.toString(), response.getBody().getId());
+        assertEquals(Status.PENDING, response.getBody().getStatus());
+    }
+
+    @Test
+    void testGetImageStatus_NotFound() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        when(imageService.getById(imageId)).thenReturn(null);
+
+        // Act
+        ResponseEntity<ImageStatus> response = imageController.getImageStatus(imageId);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
     // Helper method to create test images
     private Image createTestImage(String id, String filename) {
         Image image = new Image();
@@ -355,4 +1160,251 @@ class ImageControllerTest {
         image.setLabels(new HashSet<>());
         return image;
     }
+
+    @Test
+    void testCreateUploadUrl_Success() {
+        // Arrange
+        when(uploadConfig.getPresignedMaxSize()).thenReturn(DataSize.ofGigabytes(1));
+        String id = UUID.randomUUID().toString();
+        PresignedUpload upload = new PresignedUpload(id, "images/" + id + "_test.jpg",
+            "https://bucket.s3.amazonaws.com/images/test.jpg?X-Amz-Signature=abc",
+            Map.of("content-type", "image/jpeg"), java.time.Instant.now());
+        when(presignedUploadService.createUploadUrl("test.jpg", "image/jpeg", 1024L)).thenReturn(upload);
+
+        // Act
+        ResponseEntity<PresignedUpload> response =
+            imageController.createUploadUrl(new PresignedUploadRequest("test.jpg", "image/jpeg", 1024L));
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("/image/" + id, response.getHeaders().getLocation().toString());
+        assertSame(upload, response.getBody());
+    }
+
+    @Test
+    void testCreateUploadUrl_InvalidRequest() {
+        // Arrange
+        lenient().when(uploadConfig.getPresignedMaxSize()).thenReturn(DataSize.ofMegabytes(10));
+
+        // Act & Assert
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.createUploadUrl(
+            new PresignedUploadRequest("test.txt", "text/plain", 1024L)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.createUploadUrl(
+            new PresignedUploadRequest("test.jpg", "image/jpeg", 0L)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.createUploadUrl(
+            new PresignedUploadRequest("test.jpg", "image/jpeg", DataSize.ofMegabytes(11).toBytes())).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.createUploadUrl(
+            new PresignedUploadRequest(" ", "image/jpeg", 1024L)).getStatusCode());
+        verifyNoInteractions(presignedUploadService);
+    }
+
+    @Test
+    void testCompleteUpload_Active() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(id.toString());
+        image.setStatus(Status.ACTIVE);
+        when(presignedUploadService.complete(id)).thenReturn(image);
+
+        // Act
+        ResponseEntity<Image> response = imageController.completeUpload(id);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Status.ACTIVE, response.getBody().getStatus());
+    }
+
+    @Test
+    void testCompleteUpload_Rejected() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(id.toString());
+        image.setStatus(Status.INACTIVE);
+        when(presignedUploadService.complete(id)).thenReturn(image);
+
+        // Act
+        ResponseEntity<Image> response = imageController.completeUpload(id);
+
+        // Assert
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+    }
+
+    @Test
+    void testCompleteUpload_NotUploadedYet() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        when(presignedUploadService.complete(id)).thenThrow(new IllegalStateException("Image file has not been uploaded yet"));
+
+        // Act
+        ResponseEntity<Image> response = imageController.completeUpload(id);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+
+    @Test
+    void testCompleteUpload_NotFound() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        when(presignedUploadService.complete(id)).thenReturn(null);
+
+        // Act
+        ResponseEntity<Image> response = imageController.completeUpload(id);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void testInitiateResumableUpload_Success() {
+        // Arrange
+        when(uploadConfig.getResumable()).thenReturn(new UploadConfig.Resumable());
+        UploadSession session = uploadSession(20L * 1024 * 1024);
+        when(resumableUploadService.initiate("test.jpg", "image/jpeg", session.getSize())).thenReturn(session);
+
+        // Act
+        ResponseEntity<ResumableUploadStatus> response = imageController.initiateResumableUpload(
+            new ResumableUploadRequest("test.jpg", "image/jpeg", session.getSize()));
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals("/image/uploads/" + session.getId(), response.getHeaders().getLocation().toString());
+        assertEquals(3, response.getBody().getPartCount());
+        assertEquals(List.of(1, 2, 3), response.getBody().getMissingParts());
+    }
+
+    @Test
+    void testInitiateResumableUpload_InvalidRequest() {
+        // Arrange
+        lenient().when(uploadConfig.getResumable()).thenReturn(new UploadConfig.Resumable());
+
+        // Act & Assert
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.initiateResumableUpload(
+            new ResumableUploadRequest("test.txt", "text/plain", 1024L)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.initiateResumableUpload(
+            new ResumableUploadRequest("test.jpg", "image/jpeg", 0L)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.initiateResumableUpload(
+            new ResumableUploadRequest("test.jpg", "image/jpeg", DataSize.ofGigabytes(6).toBytes())).getStatusCode());
+        verifyNoInteractions(resumableUploadService);
+    }
+
+    @Test
+    void testGetResumableUpload_ReportsReceivedParts() {
+        // Arrange
+        UploadSession session = uploadSession(20L * 1024 * 1024);
+        session.getParts().put("2", "etag-2");
+        when(resumableUploadService.getSession(UUID.fromString(session.getId()))).thenReturn(session);
+
+        // Act
+        ResponseEntity<ResumableUploadStatus> response =
+            imageController.getResumableUpload(UUID.fromString(session.getId()));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(2), response.getBody().getReceivedParts());
+        assertEquals(List.of(1, 3), response.getBody().getMissingParts());
+        assertEquals(8L * 1024 * 1024, response.getBody().getReceivedBytes());
+    }
+
+    @Test
+    void testGetResumableUpload_NotFound() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        when(resumableUploadService.getSession(id)).thenReturn(null);
+
+        // Act & Assert
+        assertEquals(HttpStatus.NOT_FOUND, imageController.getResumableUpload(id).getStatusCode());
+    }
+
+    @Test
+    void testUploadPart_Success() throws IOException {
+        // Arrange
+        UploadSession session = uploadSession(4);
+        session.getParts().put("1", "etag-1");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("data".getBytes());
+        UUID id = UUID.fromString(session.getId());
+        when(resumableUploadService.uploadPart(eq(id), eq(1), any(), eq(4L))).thenReturn(session);
+
+        // Act
+        ResponseEntity<ResumableUploadStatus> response = imageController.uploadPart(id, 1, request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(1), response.getBody().getReceivedParts());
+    }
+
+    @Test
+    void testUploadPart_LengthRequired() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+
+        // Act
+        ResponseEntity<ResumableUploadStatus> response = imageController.uploadPart(id, 1, new MockHttpServletRequest());
+
+        // Assert
+        assertEquals(HttpStatus.LENGTH_REQUIRED, response.getStatusCode());
+        verifyNoInteractions(resumableUploadService);
+    }
+
+    @Test
+    void testUploadPart_WrongLength() throws IOException {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContent("data".getBytes());
+        when(resumableUploadService.uploadPart(eq(id), eq(1), any(), eq(4L)))
+            .thenThrow(new IllegalArgumentException("Part 1 must be 8388608 bytes"));
+
+        // Act & Assert
+        assertEquals(HttpStatus.BAD_REQUEST, imageController.uploadPart(id, 1, request).getStatusCode());
+    }
+
+    @Test
+    void testCompleteResumableUpload_Success() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(id.toString());
+        image.setStatus(Status.ACTIVE);
+        when(resumableUploadService.complete(id)).thenReturn(image);
+
+        // Act
+        ResponseEntity<Image> response = imageController.completeResumableUpload(id);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(image, response.getBody());
+    }
+
+    @Test
+    void testCompleteResumableUpload_MissingParts() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        when(resumableUploadService.complete(id)).thenThrow(new IllegalStateException("Upload is missing 2 parts"));
+
+        // Act & Assert
+        assertEquals(HttpStatus.CONFLICT, imageController.completeResumableUpload(id).getStatusCode());
+    }
+
+    @Test
+    void testAbortResumableUpload() {
+        // Arrange
+        UUID existing = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        when(resumableUploadService.abort(existing)).thenReturn(true);
+        when(resumableUploadService.abort(unknown)).thenReturn(false);
+
+        // Act & Assert
+        assertEquals(HttpStatus.NO_CONTENT, imageController.abortResumableUpload(existing).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, imageController.abortResumableUpload(unknown).getStatusCode());
+    }
+
+    private UploadSession uploadSession(long size) {
+        String id = UUID.randomUUID().toString();
+        return new UploadSession(id, "images/" + id + "_test.jpg", "upload-id", "image/jpeg", size,
+            8L * 1024 * 1024, new HashMap<>(), java.time.LocalDateTime.now(), java.time.Instant.now().getEpochSecond() + 3600);
+    }
 }
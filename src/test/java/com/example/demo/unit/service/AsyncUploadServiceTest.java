@@ -0,0 +1,231 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.Status;
+import com.example.demo.model.UploadMode;
+import com.example.demo.service.AsyncUploadService;
+import com.example.demo.service.ImageService;
+import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncUploadServiceTest {
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private DynamoDbTemplate dynamoDbTemplate;
+
+    @TempDir
+    Path spoolDir;
+
+    private AsyncUploadService asyncUploadService;
+
+    @BeforeEach
+    void setUp() {
+        UploadConfig uploadConfig = new UploadConfig();
+        uploadConfig.getAsync().setSpoolDir(spoolDir.toString());
+        uploadConfig.getAsync().setWorkers(1);
+        uploadConfig.getAsync().setQueueCapacity(1);
+        asyncUploadService = new AsyncUploadService(imageService, dynamoDbTemplate, uploadConfig);
+
+        lenient().when(imageService.objectKeyFor(any(), any()))
+            .thenAnswer(invocation -> "images/" + invocation.getArgument(0) + "_" + invocation.getArgument(1));
+        lenient().when(imageService.newImage(any(), any(), anyLong(), any())).thenAnswer(invocation -> {
+            Image image = new Image();
+            image.setId(invocation.getArgument(0).toString());
+            image.setObjectPath(invocation.getArgument(1));
+            image.setObjectSize(String.valueOf((long) invocation.getArgument(2)));
+            image.setStatus(invocation.getArgument(3));
+            return image;
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        asyncUploadService.shutdown();
+    }
+
+    @Test
+    void testSubmit_ReturnsPendingAndFinishesInBackground() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "content".getBytes());
+        when(imageService.storeContent(any(), eq("test.jpg"), eq("image/jpeg"), eq(7L), any()))
+            .thenAnswer(invocation -> {
+                Image stored = new Image();
+                stored.setStatus(Status.ACTIVE);
+                stored.setObjectSize("7");
+                return stored;
+            });
+
+        // Act
+        Image pending = asyncUploadService.submit(file);
+
+        // Assert
+        assertEquals(Status.PENDING, pending.getStatus());
+        assertEquals(UploadMode.ASYNC, pending.getUploadMode());
+        verify(dynamoDbTemplate).save(pending);
+
+        ArgumentCaptor<Image> captor = ArgumentCaptor.forClass(Image.class);
+        verify(imageService, timeout(5000)).update(captor.capture());
+        assertEquals(pending.getId(), captor.getValue().getId());
+        assertEquals(Status.ACTIVE, captor.getValue().getStatus());
+        assertNull(captor.getValue().getLabels());
+        assertSpoolDirEmpty();
+    }
+
+    @Test
+    void testSubmit_UploadFailureMarksImageInactive() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "content".getBytes());
+        when(imageService.storeContent(any(), any(), any(), anyLong(), any()))
+            .thenThrow(new RuntimeException("Failed to upload file to S3"));
+
+        // Act
+        asyncUploadService.submit(file);
+
+        // Assert
+        ArgumentCaptor<Image> captor = ArgumentCaptor.forClass(Image.class);
+        verify(imageService, timeout(5000)).update(captor.capture());
+        assertEquals(Status.INACTIVE, captor.getValue().getStatus());
+        assertSpoolDirEmpty();
+    }
+
+    @Test
+    void testSubmit_ImageDeletedWhileUploadingDiscardsStoredFile() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "test.jpg", "image/jpeg", "content".getBytes());
+        Image stored = new Image();
+        stored.setStatus(Status.ACTIVE);
+        when(imageService.storeContent(any(), any(), any(), anyLong(), any())).thenReturn(stored);
+        when(imageService.update(any())).thenReturn(false);
+
+        // Act
+        asyncUploadService.submit(file);
+
+        // Assert
+        verify(imageService, timeout(5000)).discardStoredFile(stored);
+        verify(imageService, never()).publishStored(any());
+        assertSpoolDirEmpty();
+    }
+
+    @Test
+    void testSubmit_QueueFullIsRejected() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        when(imageService.storeContent(any(), any(), any(), anyLong(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            Image stored = new Image();
+            stored.setStatus(Status.ACTIVE);
+            return stored;
+        });
+
+        // One upload occupies the worker and one waits in the queue
+        asyncUploadService.submit(new MockMultipartFile("file", "a.jpg", "image/jpeg", "a".getBytes()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        asyncUploadService.submit(new MockMultipartFile("file", "b.jpg", "image/jpeg", "b".getBytes()));
+
+        // Act & Assert
+        try {
+            assertThrows(RejectedExecutionException.class, () ->
+                asyncUploadService.submit(new MockMultipartFile("file", "c.jpg", "image/jpeg", "c".getBytes())));
+            verify(dynamoDbTemplate).delete(argThat((Image image) -> image.getObjectPath().endsWith("_c.jpg")));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testResumeSpooledUploads_QueuesPendingUploadsAgain() throws Exception {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Files.writeString(spoolDir.resolve(imageId.toString()), "content");
+        Image pending = new Image();
+        pending.setId(imageId.toString());
+        pending.setObjectPath("images/" + imageId + "_test.jpg");
+        pending.setContentType("image/jpeg");
+        pending.setStatus(Status.PENDING);
+        when(imageService.getById(imageId)).thenReturn(pending);
+        Image stored = new Image();
+        stored.setStatus(Status.ACTIVE);
+        when(imageService.storeContent(eq(imageId), eq("test.jpg"), eq("image/jpeg"), eq(7L), any())).thenReturn(stored);
+        when(imageService.update(any())).thenReturn(true);
+
+        // Act
+        asyncUploadService.resumeSpooledUploads();
+
+        // Assert
+        verify(imageService, timeout(5000)).publishStored(stored);
+        assertEquals(pending.getObjectPath(), stored.getObjectPath());
+        assertSpoolDirEmpty();
+    }
+
+    @Test
+    void testResumeSpooledUploads_DiscardsFilesWithoutPendingRecord() throws Exception {
+        // Arrange - the task stopped before the record was saved
+        UUID imageId = UUID.randomUUID();
+        Files.writeString(spoolDir.resolve(imageId.toString()), "cont");
+        when(imageService.getById(imageId)).thenReturn(null);
+
+        // Act
+        asyncUploadService.resumeSpooledUploads();
+
+        // Assert
+        assertSpoolDirEmpty();
+        verify(imageService, never()).storeContent(any(), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void testSweepAbandonedUploads_MarksOldPendingUploadsInactive() {
+        // Arrange
+        Image abandoned = new Image();
+        abandoned.setId(UUID.randomUUID().toString());
+        abandoned.setObjectPath("images/" + abandoned.getId() + "_old.jpg");
+        when(imageService.findPendingUploads(eq(UploadMode.ASYNC), any())).thenReturn(Stream.of(abandoned));
+
+        // Act
+        asyncUploadService.sweepAbandonedUploads();
+
+        // Assert - uploads started before the 1h pending timeout are given up
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(imageService).findPendingUploads(eq(UploadMode.ASYNC), cutoff.capture());
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusMinutes(59)));
+        ArgumentCaptor<Image> captor = ArgumentCaptor.forClass(Image.class);
+        verify(imageService).updateIfPending(captor.capture());
+        verify(imageService, never()).update(any());
+        assertEquals(abandoned.getId(), captor.getValue().getId());
+        assertEquals(Status.INACTIVE, captor.getValue().getStatus());
+    }
+
+    private void assertSpoolDirEmpty() throws IOException {
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
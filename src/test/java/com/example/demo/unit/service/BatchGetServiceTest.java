@@ -0,0 +1,199 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.DownloadConfig;
+import com.example.demo.model.BatchGetResult;
+import com.example.demo.model.Image;
+import com.example.demo.service.BatchGetService;
+import com.example.demo.service.ImageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchGetServiceTest {
+
+    @Mock
+    private ImageService imageService;
+
+    private DownloadConfig downloadConfig;
+    private BatchGetService batchGetService;
+
+    @BeforeEach
+    void setUp() {
+        downloadConfig = new DownloadConfig();
+        downloadConfig.setBatchGetConcurrency(4);
+        batchGetService = new BatchGetService(imageService, downloadConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchGetService.shutdown();
+    }
+
+    @Test
+    void testGetBatch_KeepsInputOrderAndMarksMissingImages() {
+        // Arrange
+        UUID first = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(imageService.getById(first)).thenReturn(image(first));
+        when(imageService.getById(missing)).thenReturn(null);
+        when(imageService.getById(second)).thenReturn(image(second));
+
+        // Act
+        List<BatchGetResult> results = batchGetService.getBatch(List.of(
+            second.toString(), missing.toString(), "not-a-uuid", first.toString()));
+
+        // Assert
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isFound());
+        assertEquals(second.toString(), results.get(0).getImage().getId());
+        assertFalse(results.get(1).isFound());
+        assertNull(results.get(1).getError());
+        assertEquals(missing.toString(), results.get(1).getId());
+        assertFalse(results.get(2).isFound());
+        assertEquals("Invalid image id", results.get(2).getError());
+        assertEquals(first.toString(), results.get(3).getImage().getId());
+    }
+
+    @Test
+    void testGetBatch_RepeatedIdsAreLookedUpOnce() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        when(imageService.getById(id)).thenReturn(image(id));
+
+        // Act
+        List<BatchGetResult> results = batchGetService.getBatch(List.of(id.toString(), id.toString()));
+
+        // Assert
+        assertTrue(results.get(0).isFound());
+        assertTrue(results.get(1).isFound());
+        verify(imageService, times(1)).getById(id);
+    }
+
+    @Test
+    void testGetBatch_RetriesThrottledLookups() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        when(imageService.getById(id))
+            .thenThrow(throttled())
+            .thenThrow(throttled())
+            .thenReturn(image(id));
+
+        // Act
+        List<BatchGetResult> results = batchGetService.getBatch(List.of(id.toString()));
+
+        // Assert
+        assertTrue(results.get(0).isFound());
+        verify(imageService, times(3)).getById(id);
+    }
+
+    @Test
+    void testGetBatch_FailedLookupDoesNotAffectOthers() {
+        // Arrange
+        UUID failing = UUID.randomUUID();
+        UUID ok = UUID.randomUUID();
+        when(imageService.getById(failing)).thenThrow(new RuntimeException("DynamoDB unavailable"));
+        when(imageService.getById(ok)).thenReturn(image(ok));
+
+        // Act
+        List<BatchGetResult> results = batchGetService.getBatch(List.of(failing.toString(), ok.toString()));
+
+        // Assert
+        assertFalse(results.get(0).isFound());
+        assertEquals("DynamoDB unavailable", results.get(0).getError());
+        assertTrue(results.get(1).isFound());
+        verify(imageService, times(1)).getById(failing);
+    }
+
+    @Test
+    void testGetBatch_UnfinishedLookupsFailAtTheDeadline() throws InterruptedException {
+        // Arrange
+        downloadConfig.setBatchGetTimeout(Duration.ofMillis(100));
+        BatchGetService service = new BatchGetService(imageService, downloadConfig);
+        UUID slow = UUID.randomUUID();
+        UUID fast = UUID.randomUUID();
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageService.getById(slow)).thenAnswer(invocation -> {
+            release.await();
+            return image(slow);
+        });
+        when(imageService.getById(fast)).thenReturn(image(fast));
+
+        try {
+            // Act
+            List<BatchGetResult> results = service.getBatch(List.of(slow.toString(), fast.toString()));
+
+            // Assert
+            assertFalse(results.get(0).isFound());
+            assertEquals("Lookup timed out", results.get(0).getError());
+            assertTrue(results.get(1).isFound());
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testGetBatch_RejectsBatchWhenQueueIsFull() throws InterruptedException {
+        // Arrange
+        downloadConfig.setBatchGetConcurrency(1);
+        downloadConfig.setBatchGetQueueCapacity(1);
+        BatchGetService service = new BatchGetService(imageService, downloadConfig);
+        UUID busy = UUID.randomUUID();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageService.getById(busy)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return image(busy);
+        });
+        Thread first = new Thread(() -> service.getBatch(List.of(busy.toString())));
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        UUID queued = UUID.randomUUID();
+        UUID rejected = UUID.randomUUID();
+
+        try {
+            // Act & Assert
+            assertThrows(RejectedExecutionException.class,
+                () -> service.getBatch(List.of(queued.toString(), rejected.toString())));
+        } finally {
+            release.countDown();
+            first.join();
+            service.shutdown();
+        }
+        // The part of the batch that was queued is cancelled rather than looked up
+        verify(imageService, never()).getById(queued);
+        verify(imageService, never()).getById(rejected);
+    }
+
+    private static ProvisionedThroughputExceededException throttled() {
+        return (ProvisionedThroughputExceededException) ProvisionedThroughputExceededException.builder()
+            .statusCode(400)
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode("ProvisionedThroughputExceededException").build())
+            .build();
+    }
+
+    private static Image image(UUID id) {
+        Image image = new Image();
+        image.setId(id.toString());
+        image.setObjectPath("images/" + id + "_test.jpg");
+        return image;
+    }
+}
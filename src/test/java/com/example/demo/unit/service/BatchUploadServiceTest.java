@@ -0,0 +1,168 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.BatchUploadResult;
+import com.example.demo.model.Image;
+import com.example.demo.model.Status;
+import com.example.demo.service.BatchUploadService;
+import com.example.demo.service.ImageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchUploadServiceTest {
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private DynamoDbEnhancedClient dynamoDbEnhancedClient;
+
+    @Mock
+    private BatchWriteResult batchWriteResult;
+
+    private DynamoDbTable<Image> imageTable;
+
+    private BatchUploadService batchUploadService;
+
+    @BeforeEach
+    void setUp() {
+        // A real table handle is needed to build write requests; it never calls DynamoDB here
+        imageTable = DynamoDbEnhancedClient.builder()
+            .dynamoDbClient(mock(DynamoDbClient.class))
+            .build()
+            .table("test-table", TableSchema.fromBean(Image.class));
+
+        UploadConfig uploadConfig = new UploadConfig();
+        uploadConfig.setBatchConcurrency(4);
+        batchUploadService = new BatchUploadService(imageService, dynamoDbEnhancedClient, imageTable, uploadConfig);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchUploadService.shutdown();
+    }
+
+    @Test
+    void testCreateBatch_WritesMetadataInChunksOf25() {
+        // Arrange
+        List<MultipartFile> files = createFiles(30);
+        when(imageService.storeFile(any())).thenAnswer(invocation -> createImage(invocation.getArgument(0)));
+        when(dynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class))).thenReturn(batchWriteResult);
+        when(batchWriteResult.unprocessedPutItemsForTable(imageTable)).thenReturn(Collections.emptyList());
+
+        // Act
+        List<BatchUploadResult> results = batchUploadService.createBatch(files);
+
+        // Assert
+        assertEquals(30, results.size());
+        for (int i = 0; i < files.size(); i++) {
+            assertTrue(results.get(i).isSuccess());
+            assertEquals(files.get(i).getOriginalFilename(), results.get(i).getFileName());
+            assertNotNull(results.get(i).getId());
+        }
+        verify(imageService, times(30)).storeFile(any());
+        verify(dynamoDbEnhancedClient, times(2)).batchWriteItem(any(BatchWriteItemEnhancedRequest.class));
+    }
+
+    @Test
+    void testCreateBatch_RetriesUnprocessedItems() {
+        // Arrange
+        List<MultipartFile> files = createFiles(3);
+        List<Image> stored = new ArrayList<>();
+        when(imageService.storeFile(any())).thenAnswer(invocation -> {
+            Image image = createImage(invocation.getArgument(0));
+            synchronized (stored) {
+                stored.add(image);
+            }
+            return image;
+        });
+        when(dynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class))).thenReturn(batchWriteResult);
+        when(batchWriteResult.unprocessedPutItemsForTable(imageTable))
+            .thenAnswer(invocation -> List.of(stored.get(0)))
+            .thenReturn(Collections.emptyList());
+
+        // Act
+        List<BatchUploadResult> results = batchUploadService.createBatch(files);
+
+        // Assert
+        assertTrue(results.stream().allMatch(BatchUploadResult::isSuccess));
+        verify(dynamoDbEnhancedClient, times(2)).batchWriteItem(any(BatchWriteItemEnhancedRequest.class));
+        verify(imageService, never()).discardStoredFile(any());
+    }
+
+    @Test
+    void testCreateBatch_PersistentlyUnprocessedItemsAreReportedAndCleanedUp() {
+        // Arrange
+        List<MultipartFile> files = createFiles(1);
+        Image image = createImage(files.get(0));
+        when(imageService.storeFile(any())).thenReturn(image);
+        when(dynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class))).thenReturn(batchWriteResult);
+        when(batchWriteResult.unprocessedPutItemsForTable(imageTable)).thenReturn(List.of(image));
+
+        // Act
+        List<BatchUploadResult> results = batchUploadService.createBatch(files);
+
+        // Assert
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("Failed to save image metadata", results.get(0).getError());
+        verify(dynamoDbEnhancedClient, times(5)).batchWriteItem(any(BatchWriteItemEnhancedRequest.class));
+        verify(imageService).discardStoredFile(image);
+    }
+
+    @Test
+    void testCreateBatch_UploadFailureDoesNotAffectOtherFiles() {
+        // Arrange
+        List<MultipartFile> files = createFiles(2);
+        when(imageService.storeFile(files.get(0))).thenThrow(new RuntimeException("Failed to upload file to S3"));
+        when(imageService.storeFile(files.get(1))).thenAnswer(invocation -> createImage(invocation.getArgument(0)));
+        when(dynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class))).thenReturn(batchWriteResult);
+        when(batchWriteResult.unprocessedPutItemsForTable(imageTable)).thenReturn(Collections.emptyList());
+
+        // Act
+        List<BatchUploadResult> results = batchUploadService.createBatch(files);
+
+        // Assert
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(0).getError().contains("Failed to upload file to S3"));
+        assertTrue(results.get(1).isSuccess());
+    }
+
+    private List<MultipartFile> createFiles(int count) {
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(new MockMultipartFile("files", "image-" + i + ".jpg", "image/jpeg", ("content " + i).getBytes()));
+        }
+        return files;
+    }
+
+    private Image createImage(MultipartFile file) {
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/" + image.getId() + "_" + file.getOriginalFilename());
+        image.setObjectSize(String.valueOf(file.getSize()));
+        image.setStatus(Status.ACTIVE);
+        return image;
+    }
+}
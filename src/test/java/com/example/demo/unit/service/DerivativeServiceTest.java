@@ -0,0 +1,195 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.service.DerivativeService;
+import com.example.demo.service.ImageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DerivativeServiceTest {
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private S3Client s3Client;
+
+    private DerivativeService derivativeService;
+
+    @BeforeEach
+    void setUp() {
+        UploadConfig uploadConfig = new UploadConfig();
+        uploadConfig.getDerivatives().setSizes(List.of(512, 128, 1024));
+        derivativeService = new DerivativeService(imageService, s3Client, uploadConfig);
+        ReflectionTestUtils.setField(derivativeService, "bucketName", "test-bucket");
+    }
+
+    @AfterEach
+    void tearDown() {
+        derivativeService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGenerate_StoresSizesSmallerThanOriginal() throws IOException {
+        // Arrange
+        Image image = storedImage();
+        stubSource(image, encode(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "jpg"));
+        List<PutObjectRequest> puts = new ArrayList<>();
+        List<byte[]> bodies = new ArrayList<>();
+        when(s3Client.putObject(any(Consumer.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            PutObjectRequest.Builder builder = PutObjectRequest.builder();
+            ((Consumer<PutObjectRequest.Builder>) invocation.getArgument(0)).accept(builder);
+            puts.add(builder.build());
+            try (var stream = ((RequestBody) invocation.getArgument(1)).contentStreamProvider().newStream()) {
+                bodies.add(stream.readAllBytes());
+            }
+            return null;
+        });
+
+        // Act
+        derivativeService.generate(image);
+
+        // Assert - 1024 is not smaller than the 800px original
+        assertEquals(2, puts.size());
+        assertEquals("derivatives/" + image.getId() + "/128.jpg", puts.get(0).key());
+        assertEquals("image/jpeg", puts.get(0).contentType());
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(bodies.get(0)));
+        assertEquals(128, thumbnail.getWidth());
+        assertEquals(64, thumbnail.getHeight());
+
+        ArgumentCaptor<Image> captor = ArgumentCaptor.forClass(Image.class);
+        verify(imageService).update(captor.capture());
+        assertEquals(Map.of(
+            "128", "derivatives/" + image.getId() + "/128.jpg",
+            "512", "derivatives/" + image.getId() + "/512.jpg"), captor.getValue().getDerivatives());
+        assertNull(captor.getValue().getLabels());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGenerate_RotatedPhotoIsStoredUpright() throws IOException {
+        // Arrange - stored landscape, shown portrait
+        Image image = storedImage();
+        image.setOrientation(6);
+        stubSource(image, encode(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "jpg"));
+        List<byte[]> bodies = new ArrayList<>();
+        when(s3Client.putObject(any(Consumer.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            try (var stream = ((RequestBody) invocation.getArgument(1)).contentStreamProvider().newStream()) {
+                bodies.add(stream.readAllBytes());
+            }
+            return null;
+        });
+
+        // Act
+        derivativeService.generate(image);
+
+        // Assert
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(bodies.get(0)));
+        assertEquals(64, thumbnail.getWidth());
+        assertEquals(128, thumbnail.getHeight());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGenerate_TransparentImagesStayPng() throws IOException {
+        // Arrange
+        Image image = storedImage();
+        stubSource(image, encode(new BufferedImage(300, 300, BufferedImage.TYPE_INT_ARGB), "png"));
+
+        // Act
+        derivativeService.generate(image);
+
+        // Assert
+        ArgumentCaptor<Image> captor = ArgumentCaptor.forClass(Image.class);
+        verify(imageService).update(captor.capture());
+        assertEquals(Map.of("128", "derivatives/" + image.getId() + "/128.png"), captor.getValue().getDerivatives());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGenerate_ImageDeletedWhileResizingDiscardsDerivatives() throws IOException {
+        // Arrange
+        Image image = storedImage();
+        stubSource(image, encode(new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB), "jpg"));
+        when(imageService.update(any())).thenReturn(false);
+
+        // Act
+        derivativeService.generate(image);
+
+        // Assert
+        ArgumentCaptor<Consumer<DeleteObjectsRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(s3Client).deleteObjects(captor.capture());
+        DeleteObjectsRequest.Builder builder = DeleteObjectsRequest.builder();
+        captor.getValue().accept(builder);
+        assertEquals(List.of("derivatives/" + image.getId() + "/128.jpg"),
+            builder.build().delete().objects().stream().map(ObjectIdentifier::key).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGenerate_UndecodableImageIsSkipped() {
+        // Arrange
+        Image image = storedImage();
+        stubSource(image, "not an image".getBytes());
+
+        // Act
+        derivativeService.generate(image);
+
+        // Assert
+        verify(s3Client, never()).putObject(any(Consumer.class), any(RequestBody.class));
+        verify(imageService, never()).update(any());
+    }
+
+    private Image storedImage() {
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/" + image.getId() + "_test.jpg");
+        when(imageService.storageKeyOf(image)).thenReturn(image.getObjectPath());
+        return image;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubSource(Image image, byte[] content) {
+        when(s3Client.getObject(any(Consumer.class))).thenAnswer(invocation -> new ResponseInputStream<>(
+            GetObjectResponse.builder().build(),
+            AbortableInputStream.create(new ByteArrayInputStream(content))));
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.service.ImageBytesCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageBytesCacheTest {
+
+    private CacheConfig cacheConfig;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        cacheConfig = new CacheConfig();
+        cacheConfig.getBytes().setMaxSize(DataSize.ofKilobytes(4));
+        cacheConfig.getBytes().setMaxObjectSize(DataSize.ofKilobytes(1));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testPut_KeepsBodyOffHeapAndServesViews() throws IOException {
+        // Arrange
+        ImageBytesCache cache = new ImageBytesCache(cacheConfig, meterRegistry);
+        byte[] bytes = "0123456789".getBytes();
+        cache.put("key", "\"etag\"", new ByteArrayInputStream(bytes), bytes.length);
+
+        // Act
+        cache.put("key", "\"etag\"", new ByteArrayInputStream(bytes), bytes.length);
+        ImageBytesCache.CachedObject cached = cache.get("key");
+
+        // Assert
+        assertTrue(cached.bytes().isDirect());
+        assertTrue(cached.bytes().isReadOnly());
+        assertEquals("\"etag\"", cached.eTag());
+        assertArrayEquals(bytes, cached.open(0, bytes.length).readAllBytes());
+        assertArrayEquals("345".getBytes(), cached.open(3, 3).readAllBytes());
+        // Views do not move the shared buffer
+        assertArrayEquals(bytes, cached.open(0, bytes.length).readAllBytes());
+        assertEquals(10.0, meterRegistry.get("image.bytes.cache.size").gauge().value());
+        assertNotNull(meterRegistry.find("cache.gets").tag("cache", "image.bytes").functionCounter());
+    }
+
+    @Test
+    void testPut_FirstReadIsServedFromHeapWithoutCaching() throws IOException {
+        // Arrange
+        ImageBytesCache cache = new ImageBytesCache(cacheConfig, meterRegistry);
+        byte[] bytes = "0123456789".getBytes();
+
+        // Act
+        ImageBytesCache.CachedObject once = cache.put("key", "\"etag\"", new ByteArrayInputStream(bytes), bytes.length);
+
+        // Assert
+        assertFalse(once.bytes().isDirect());
+        assertArrayEquals(bytes, once.open(0, bytes.length).readAllBytes());
+        assertNull(cache.get("key"));
+        assertEquals(0.0, meterRegistry.get("image.bytes.cache.size").gauge().value());
+    }
+
+    @Test
+    void testPut_AdmissionWindowForgetsWhenFull() throws IOException {
+        // Arrange
+        cacheConfig.getBytes().setAdmissionWindow(2);
+        ImageBytesCache cache = new ImageBytesCache(cacheConfig, meterRegistry);
+        cache.put("a", null, new ByteArrayInputStream(new byte[1]), 1);
+        cache.put("b", null, new ByteArrayInputStream(new byte[1]), 1);
+
+        // Act
+        cache.put("c", null, new ByteArrayInputStream(new byte[1]), 1);
+        cache.put("a", null, new ByteArrayInputStream(new byte[1]), 1);
+        cache.put("c", null, new ByteArrayInputStream(new byte[1]), 1);
+
+        // Assert
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    void testPut_TruncatedStreamIsNotCached() {
+        // Arrange
+        ImageBytesCache cache = new ImageBytesCache(cacheConfig, meterRegistry);
+
+        // Act & Assert
+        assertThrows(EOFException.class, () -> cache.put("key", null, new ByteArrayInputStream(new byte[5]), 10));
+        assertThrows(EOFException.class, () -> cache.put("key", null, new ByteArrayInputStream(new byte[5]), 10));
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    void testIsCacheable_RespectsObjectLimitAndDisabledCache() {
+        // Arrange
+        ImageBytesCache cache = new ImageBytesCache(cacheConfig, meterRegistry);
+        cacheConfig.getBytes().setMaxSize(DataSize.ofBytes(0));
+        ImageBytesCache disabled = new ImageBytesCache(cacheConfig, new SimpleMeterRegistry());
+
+        // Act & Assert
+        assertTrue(cache.isCacheable(1024));
+        assertFalse(cache.isCacheable(1025));
+        assertFalse(disabled.isCacheable(10));
+    }
+
+    @Test
+    void testInvalidate_DropsEntry() throws IOException {
+        // Arrange
+        ImageBytesCache cache = new ImageBytesCache(cacheConfig, meterRegistry);
+        cache.put("key", null, new ByteArrayInputStream(new byte[10]), 10);
+        cache.put("key", null, new ByteArrayInputStream(new byte[10]), 10);
+
+        // Act
+        cache.invalidate("key");
+
+        // Assert
+        assertNull(cache.get("key"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.model.ImageContent;
+import com.example.demo.service.ImageContentIndex;
+import io.awspring.cloud.dynamodb.DynamoDbTableNameResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageContentIndexTest {
+
+    @Mock
+    private DynamoDbClient dynamoDbClient;
+
+    @Mock
+    private DynamoDbTableNameResolver tableNameResolver;
+
+    private ImageContentIndex imageContentIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(tableNameResolver.resolve(ImageContent.class)).thenReturn("content-table");
+        imageContentIndex = new ImageContentIndex(dynamoDbClient, tableNameResolver);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAcquire_KnownDigestReturnsEntry() {
+        // Arrange
+        when(dynamoDbClient.updateItem(any(Consumer.class))).thenReturn(UpdateItemResponse.builder()
+            .attributes(Map.of(
+                "digest", AttributeValue.builder().s("abc").build(),
+                "objectPath", AttributeValue.builder().s("images/original.jpg").build(),
+                "refCount", AttributeValue.builder().n("2").build()))
+            .build());
+
+        // Act
+        ImageContent content = imageContentIndex.acquire("abc");
+
+        // Assert
+        assertEquals("images/original.jpg", content.getObjectPath());
+        assertEquals(2L, content.getRefCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAcquire_UnknownDigestReturnsNull() {
+        // Arrange
+        when(dynamoDbClient.updateItem(any(Consumer.class)))
+            .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+
+        // Act & Assert
+        assertNull(imageContentIndex.acquire("abc"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRegister_ConflictReturnsFalse() {
+        // Arrange
+        when(dynamoDbClient.putItem(any(Consumer.class)))
+            .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+
+        // Act & Assert
+        assertFalse(imageContentIndex.register("abc", "images/test.jpg", "id"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRelease_RemainingReferencesKeepEntry() {
+        // Arrange
+        when(dynamoDbClient.updateItem(any(Consumer.class))).thenReturn(refCountResponse(1));
+
+        // Act & Assert
+        assertFalse(imageContentIndex.release("abc"));
+        verify(dynamoDbClient, never()).deleteItem(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRelease_LastReferenceDeletesEntry() {
+        // Arrange
+        when(dynamoDbClient.updateItem(any(Consumer.class))).thenReturn(refCountResponse(0));
+
+        // Act & Assert
+        assertTrue(imageContentIndex.release("abc"));
+        verify(dynamoDbClient).deleteItem(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRelease_ReacquiredBeforeDeleteKeepsObject() {
+        // Arrange
+        when(dynamoDbClient.updateItem(any(Consumer.class))).thenReturn(refCountResponse(0));
+        when(dynamoDbClient.deleteItem(any(Consumer.class)))
+            .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+
+        // Act & Assert
+        assertFalse(imageContentIndex.release("abc"));
+    }
+
+    private static UpdateItemResponse refCountResponse(long refCount) {
+        return UpdateItemResponse.builder()
+            .attributes(Map.of("refCount", AttributeValue.builder().n(Long.toString(refCount)).build()))
+            .build();
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.service.ImageDiskCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageDiskCacheTest {
+
+    @TempDir
+    private Path directory;
+
+    private CacheConfig cacheConfig;
+
+    @BeforeEach
+    void setUp() {
+        cacheConfig = new CacheConfig();
+        cacheConfig.getDisk().setDirectory(directory.toString());
+        cacheConfig.getDisk().setMaxSize(DataSize.ofKilobytes(10));
+        cacheConfig.getDisk().setMaxObjectSize(DataSize.ofKilobytes(4));
+    }
+
+    @Test
+    void testFill_CommitsCompleteDownloadMatchingETag() throws Exception {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        byte[] bytes = randomBytes(2048);
+
+        // Act
+        read(cache.fill("images/a.jpg", md5ETag(bytes), new ByteArrayInputStream(bytes), bytes.length));
+        ImageDiskCache.Entry entry = cache.get("images/a.jpg");
+
+        // Assert
+        assertNotNull(entry);
+        assertEquals(md5ETag(bytes), entry.eTag());
+        assertArrayEquals(bytes, Files.readAllBytes(entry.path()));
+        try (InputStream region = cache.open(entry, 1000, 48)) {
+            assertArrayEquals(java.util.Arrays.copyOfRange(bytes, 1000, 1048), region.readAllBytes());
+        }
+    }
+
+    @Test
+    void testFill_ContentNotMatchingETagIsNotCached() throws Exception {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        byte[] bytes = randomBytes(2048);
+
+        // Act
+        read(cache.fill("images/a.jpg", md5ETag(new byte[2048]), new ByteArrayInputStream(bytes), bytes.length));
+
+        // Assert
+        assertNull(cache.get("images/a.jpg"));
+        assertFiles(0);
+    }
+
+    @Test
+    void testFill_AbandonedDownloadLeavesNoTrace() throws IOException {
+        // Arrange
+        ImageDiskCache cache = newCache();
+
+        // Act
+        try (InputStream content = cache.fill("images/a.jpg", null, new ByteArrayInputStream(new byte[2048]), 2048)) {
+            content.readNBytes(100);
+        }
+
+        // Assert
+        assertNull(cache.get("images/a.jpg"));
+        assertFiles(0);
+    }
+
+    @Test
+    void testIndex_SurvivesRestartAndDropsDamagedEntries() throws IOException {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        read(cache.fill("images/a.jpg", "\"multi-2\"", new ByteArrayInputStream(new byte[1024]), 1024));
+        read(cache.fill("images/b.jpg", "\"multi-2\"", new ByteArrayInputStream(new byte[1024]), 1024));
+        Files.write(cache.get("images/b.jpg").path(), new byte[10]);
+        Files.writeString(directory.resolve("leftover.tmp"), "partial");
+
+        // Act
+        ImageDiskCache restarted = newCache();
+
+        // Assert
+        assertNotNull(restarted.get("images/a.jpg"));
+        assertEquals("\"multi-2\"", restarted.get("images/a.jpg").eTag());
+        assertNull(restarted.get("images/b.jpg"));
+        assertFiles(2);
+    }
+
+    @Test
+    void testFill_EvictsLeastRecentlyUsedBeyondBudget() throws IOException {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        read(cache.fill("images/old.jpg", null, new ByteArrayInputStream(new byte[4096]), 4096));
+        read(cache.fill("images/recent.jpg", null, new ByteArrayInputStream(new byte[4096]), 4096));
+        Files.setLastModifiedTime(cache.get("images/old.jpg").path(), FileTime.fromMillis(0));
+        cache = newCache();
+
+        // Act
+        read(cache.fill("images/new.jpg", null, new ByteArrayInputStream(new byte[4096]), 4096));
+
+        // Assert
+        assertNull(cache.get("images/old.jpg"));
+        assertNotNull(cache.get("images/recent.jpg"));
+        assertNotNull(cache.get("images/new.jpg"));
+    }
+
+    @Test
+    void testInvalidate_DeletesFiles() throws IOException {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        read(cache.fill("images/a.jpg", null, new ByteArrayInputStream(new byte[1024]), 1024));
+
+        // Act
+        cache.invalidate("images/a.jpg");
+
+        // Assert
+        assertNull(cache.get("images/a.jpg"));
+        assertFiles(0);
+    }
+
+    @Test
+    void testOpen_StreamOutlivesRemovalOfTheEntry() throws IOException {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        byte[] bytes = randomBytes(2048);
+        read(cache.fill("images/a.jpg", null, new ByteArrayInputStream(bytes), bytes.length));
+        InputStream region = cache.open(cache.get("images/a.jpg"), 100, 1000);
+        cache.invalidate("images/a.jpg");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        try (region) {
+            region.transferTo(out);
+        }
+
+        // Assert
+        assertFiles(0);
+        assertArrayEquals(java.util.Arrays.copyOfRange(bytes, 100, 1100), out.toByteArray());
+    }
+
+    @Test
+    void testLink_KeepsValidatedBytesForSendfileAfterEviction() throws Exception {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        byte[] bytes = randomBytes(2048);
+        read(cache.fill("images/a.jpg", md5ETag(bytes), new ByteArrayInputStream(bytes), bytes.length));
+
+        // Act
+        Path link = cache.link("images/a.jpg", md5ETag(bytes));
+        cache.invalidate("images/a.jpg");
+
+        // Assert
+        assertNotNull(link);
+        assertArrayEquals(bytes, Files.readAllBytes(link));
+        assertNull(cache.link("images/a.jpg", md5ETag(bytes)));
+    }
+
+    @Test
+    void testLink_RefusedForAnotherVersionOfTheObject() throws Exception {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        read(cache.fill("images/a.jpg", "\"multi-2\"", new ByteArrayInputStream(new byte[1024]), 1024));
+
+        // Act & Assert
+        assertNull(cache.link("images/a.jpg", "\"multi-3\""));
+        assertNull(cache.link("images/a.jpg", null));
+    }
+
+    @Test
+    void testRemoveExpiredLinks_DeletesOnlyTheLinks() throws Exception {
+        // Arrange
+        cacheConfig.getDisk().setSendfileLinkTtl(Duration.ZERO);
+        ImageDiskCache cache = newCache();
+        read(cache.fill("images/a.jpg", "\"multi-2\"", new ByteArrayInputStream(new byte[1024]), 1024));
+        Path link = cache.link("images/a.jpg", "\"multi-2\"");
+        Thread.sleep(5);
+
+        // Act
+        cache.removeExpiredLinks();
+
+        // Assert
+        assertFalse(Files.exists(link));
+        assertNotNull(cache.get("images/a.jpg"));
+        assertTrue(Files.exists(cache.get("images/a.jpg").path()));
+    }
+
+    @Test
+    void testIsCacheable_RespectsObjectLimitAndDisabledTier() {
+        // Arrange
+        ImageDiskCache cache = newCache();
+        cacheConfig.getDisk().setMaxSize(DataSize.ofBytes(0));
+        ImageDiskCache disabled = newCache();
+
+        // Act & Assert
+        assertTrue(cache.isCacheable(4096));
+        assertFalse(cache.isCacheable(4097));
+        assertFalse(disabled.isCacheable(10));
+        assertNull(disabled.get("images/a.jpg"));
+    }
+
+    private ImageDiskCache newCache() {
+        return new ImageDiskCache(cacheConfig, new SimpleMeterRegistry());
+    }
+
+    private void assertFiles(int count) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(count, files.count());
+        }
+    }
+
+    private static void read(InputStream content) throws IOException {
+        try (content) {
+            content.readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String md5ETag(byte[] bytes) throws Exception {
+        return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(bytes)) + "\"";
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.model.Image;
+import com.example.demo.service.ImageHeaderReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageHeaderReaderTest {
+
+    @Test
+    void testDescribe_Jpeg() throws IOException {
+        // Arrange
+        byte[] jpeg = encode(new BufferedImage(320, 200, BufferedImage.TYPE_INT_RGB), "jpg");
+        Image image = new Image();
+
+        // Act
+        ImageHeaderReader.describe(image, new ByteArrayResource(jpeg));
+
+        // Assert
+        assertEquals(320, image.getWidth());
+        assertEquals(200, image.getHeight());
+        assertEquals("jpeg", image.getFormat());
+        assertEquals("RGB", image.getColorModel());
+        assertNull(image.getOrientation());
+    }
+
+    @Test
+    void testDescribe_PngWithAlpha() throws IOException {
+        // Arrange
+        byte[] png = encode(new BufferedImage(16, 48, BufferedImage.TYPE_INT_ARGB), "png");
+        Image image = new Image();
+
+        // Act
+        ImageHeaderReader.describe(image, new ByteArrayResource(png));
+
+        // Assert
+        assertEquals(16, image.getWidth());
+        assertEquals(48, image.getHeight());
+        assertEquals("png", image.getFormat());
+        assertEquals("RGBA", image.getColorModel());
+    }
+
+    @Test
+    void testDescribe_ReadsExifOrientation() throws IOException {
+        // Arrange
+        byte[] jpeg = encode(new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB), "jpg");
+        Image image = new Image();
+
+        // Act
+        ImageHeaderReader.describe(image, new ByteArrayResource(withExifOrientation(jpeg, 6)));
+
+        // Assert
+        assertEquals(20, image.getWidth());
+        assertEquals(6, image.getOrientation());
+    }
+
+    @Test
+    void testDescribe_UnknownFormatLeavesAttributesUnset() {
+        // Arrange
+        Image image = new Image();
+
+        // Act
+        ImageHeaderReader.describe(image, new ByteArrayResource("not an image".getBytes()));
+
+        // Assert
+        assertNull(image.getWidth());
+        assertNull(image.getHeight());
+        assertNull(image.getFormat());
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Inserts a little-endian EXIF APP1 segment with a single orientation entry right after SOI.
+     */
+    private static byte[] withExifOrientation(byte[] jpeg, int orientation) {
+        ByteBuffer tiff = ByteBuffer.allocate(8 + 2 + 12 + 4).order(ByteOrder.LITTLE_ENDIAN);
+        tiff.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort((short) orientation).putShort((short) 0);
+        tiff.putInt(0);
+
+        byte[] exifHeader = "Exif\0\0".getBytes();
+        int segmentLength = 2 + exifHeader.length + tiff.capacity();
+        ByteBuffer result = ByteBuffer.allocate(jpeg.length + 2 + segmentLength);
+        result.put(jpeg, 0, 2);
+        result.put((byte) 0xFF).put((byte) 0xE1).putShort((short) segmentLength);
+        result.put(exifHeader).put(tiff.array());
+        result.put(jpeg, 2, jpeg.length - 2);
+        return result.array();
+    }
+}
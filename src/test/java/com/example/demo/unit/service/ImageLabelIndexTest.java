@@ -0,0 +1,126 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.model.Image;
+import com.example.demo.model.ImageLabel;
+import com.example.demo.service.ImageLabelIndex;
+import com.example.demo.service.LabelBitmapIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageLabelIndexTest {
+
+    @Mock
+    private DynamoDbEnhancedClient dynamoDbEnhancedClient;
+
+    @Mock
+    private BatchWriteResult batchWriteResult;
+
+    @Mock
+    private LabelBitmapIndex labelBitmapIndex;
+
+    private DynamoDbTable<ImageLabel> labelTable;
+
+    private ImageLabelIndex imageLabelIndex;
+
+    @BeforeEach
+    void setUp() {
+        // A real table handle is needed to build write requests; it never calls DynamoDB here
+        labelTable = DynamoDbEnhancedClient.builder()
+            .dynamoDbClient(mock(DynamoDbClient.class))
+            .build()
+            .table("label-table", TableSchema.fromBean(ImageLabel.class));
+        imageLabelIndex = new ImageLabelIndex(dynamoDbEnhancedClient, labelTable, labelBitmapIndex);
+    }
+
+    @Test
+    void testAdd_WritesOneEntryPerLabelInChunksOf25() {
+        // Arrange
+        Image image = image();
+        Set<String> labels = IntStream.range(0, 30).mapToObj(i -> "label-" + i).collect(Collectors.toSet());
+        when(dynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class))).thenReturn(batchWriteResult);
+        when(batchWriteResult.unprocessedPutItemsForTable(labelTable)).thenReturn(Collections.emptyList());
+
+        // Act
+        imageLabelIndex.add(image, labels);
+
+        // Assert
+        ArgumentCaptor<BatchWriteItemEnhancedRequest> captor = ArgumentCaptor.forClass(BatchWriteItemEnhancedRequest.class);
+        verify(dynamoDbEnhancedClient, times(2)).batchWriteItem(captor.capture());
+        List<WriteRequest> writes = captor.getAllValues().stream()
+            .flatMap(request -> request.writeBatches().stream())
+            .flatMap(batch -> batch.writeRequests().stream())
+            .toList();
+        assertEquals(30, writes.size());
+        WriteRequest first = writes.get(0);
+        assertEquals(image.getId(), first.putRequest().item().get("imageId").s());
+        assertEquals(image.getObjectPath(), first.putRequest().item().get("objectPath").s());
+        // Entries are stamped so that other tasks find them through the labelled-index
+        assertNotNull(first.putRequest().item().get("labelledMinute").s());
+        assertNotNull(first.putRequest().item().get("labelledAt").n());
+        verify(labelBitmapIndex).add(image.getId(), image.getObjectPath(), labels);
+    }
+
+    @Test
+    void testAdd_RetriesUnprocessedEntriesThenFails() {
+        // Arrange
+        Image image = image();
+        ImageLabel unprocessed = new ImageLabel("cat", image.getId(), image.getObjectPath());
+        when(dynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class))).thenReturn(batchWriteResult);
+        when(batchWriteResult.unprocessedPutItemsForTable(labelTable)).thenReturn(List.of(unprocessed));
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> imageLabelIndex.add(image, Set.of("cat")));
+        assertTrue(exception.getMessage().contains("Failed to index 1 labels"));
+        verify(dynamoDbEnhancedClient, times(5)).batchWriteItem(any(BatchWriteItemEnhancedRequest.class));
+        verifyNoInteractions(labelBitmapIndex);
+    }
+
+    @Test
+    void testRemove_FailureIsNotPropagated() {
+        // Arrange
+        String imageId = UUID.randomUUID().toString();
+        when(dynamoDbEnhancedClient.batchWriteItem(any(BatchWriteItemEnhancedRequest.class)))
+            .thenThrow(new RuntimeException("DynamoDB unavailable"));
+
+        // Act
+        imageLabelIndex.remove(imageId, Set.of("cat"));
+
+        // Assert
+        ArgumentCaptor<BatchWriteItemEnhancedRequest> captor = ArgumentCaptor.forClass(BatchWriteItemEnhancedRequest.class);
+        verify(dynamoDbEnhancedClient).batchWriteItem(captor.capture());
+        WriteRequest delete = captor.getValue().writeBatches().iterator().next().writeRequests().iterator().next();
+        assertEquals("cat", delete.deleteRequest().key().get("label").s());
+        assertEquals(imageId, delete.deleteRequest().key().get("imageId").s());
+        verify(labelBitmapIndex).remove(imageId, Set.of("cat"));
+    }
+
+    private static Image image() {
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/" + image.getId() + "_test.jpg");
+        return image;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.Status;
+import com.example.demo.service.ImageMetadataCache;
+import com.example.demo.service.RequestCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageMetadataCacheTest {
+
+    private CacheConfig cacheConfig;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        cacheConfig = new CacheConfig();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testGet_LoadsOnceAndPublishesMetrics() {
+        // Arrange
+        ImageMetadataCache cache = new ImageMetadataCache(cacheConfig, meterRegistry, new RequestCoalescer(meterRegistry));
+        UUID id = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get(id, key -> { loads.incrementAndGet(); return image(key, Status.ACTIVE, Set.of("cat")); });
+        cache.get(id, key -> { loads.incrementAndGet(); return image(key, Status.ACTIVE, Set.of("cat")); });
+
+        // Assert
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "image.metadata").tag("result", "hit")
+            .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "image.metadata").tag("result", "miss")
+            .functionCounter().count());
+        assertNotNull(meterRegistry.find("cache.evictions").tag("cache", "image.metadata").functionCounter());
+    }
+
+    @Test
+    void testGet_MissingImagesAreNotCached() {
+        // Arrange
+        ImageMetadataCache cache = new ImageMetadataCache(cacheConfig, meterRegistry, new RequestCoalescer(meterRegistry));
+        UUID id = UUID.randomUUID();
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        cache.get(id, key -> { loads.incrementAndGet(); return null; });
+        Image image = cache.get(id, key -> { loads.incrementAndGet(); return null; });
+
+        // Assert
+        assertNull(image);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testInvalidate_ReloadsNextTime() {
+        // Arrange
+        ImageMetadataCache cache = new ImageMetadataCache(cacheConfig, meterRegistry, new RequestCoalescer(meterRegistry));
+        UUID id = UUID.randomUUID();
+        cache.get(id, key -> image(key, Status.ACTIVE, Set.of("cat")));
+
+        // Act
+        cache.invalidate(id.toString());
+        Image reloaded = cache.get(id, key -> image(key, Status.INACTIVE, Set.of("cat")));
+
+        // Assert
+        assertEquals(Status.INACTIVE, reloaded.getStatus());
+    }
+
+    @Test
+    void testInvalidate_DuringLoadDropsTheLoadedRecord() {
+        // Arrange
+        ImageMetadataCache cache = new ImageMetadataCache(cacheConfig, meterRegistry, new RequestCoalescer(meterRegistry));
+        UUID id = UUID.randomUUID();
+
+        // Act
+        Image stale = cache.get(id, key -> {
+            // A write lands while the old record is being read
+            cache.invalidate(key.toString());
+            return image(key, Status.PENDING, null);
+        });
+        Image reloaded = cache.get(id, key -> image(key, Status.ACTIVE, Set.of("cat")));
+
+        // Assert
+        assertEquals(Status.PENDING, stale.getStatus());
+        assertEquals(Status.ACTIVE, reloaded.getStatus());
+    }
+
+    @Test
+    void testGet_LoadDoesNotHoldUpOtherIds() throws Exception {
+        // Arrange
+        ImageMetadataCache cache = new ImageMetadataCache(cacheConfig, meterRegistry, new RequestCoalescer(meterRegistry));
+        UUID slowId = UUID.randomUUID();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slow = new Thread(() -> cache.get(slowId, key -> {
+            loading.countDown();
+            awaitQuietly(release);
+            return image(key, Status.ACTIVE, Set.of("cat"));
+        }));
+        slow.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        try {
+            // Act
+            Image other = cache.get(UUID.randomUUID(), key -> image(key, Status.ACTIVE, Set.of("dog")));
+            cache.invalidate(slowId.toString());
+
+            // Assert
+            assertEquals(Set.of("dog"), other.getLabels());
+        } finally {
+            release.countDown();
+            slow.join();
+        }
+    }
+
+    @Test
+    void testGet_CallersCannotChangeTheCachedRecord() {
+        // Arrange
+        ImageMetadataCache cache = new ImageMetadataCache(cacheConfig, meterRegistry, new RequestCoalescer(meterRegistry));
+        UUID id = UUID.randomUUID();
+        Image first = cache.get(id, key -> image(key, Status.ACTIVE, new HashSet<>(Set.of("cat"))));
+
+        // Act
+        first.setStatus(Status.INACTIVE);
+        first.getLabels().add("dog");
+        Image second = cache.get(id, key -> fail("should have been cached"));
+
+        // Assert
+        assertNotSame(first, second);
+        assertEquals(Status.ACTIVE, second.getStatus());
+        assertEquals(Set.of("cat"), second.getLabels());
+    }
+
+    @Test
+    void testGet_PendingRecordsExpireEarly() throws InterruptedException {
+        // Arrange
+        cacheConfig.getMetadata().setPendingTtl(Duration.ofMillis(1));
+        ImageMetadataCache cache = new ImageMetadataCache(cacheConfig, meterRegistry, new RequestCoalescer(meterRegistry));
+        UUID pending = UUID.randomUUID();
+        UUID unlabelled = UUID.randomUUID();
+        UUID settled = UUID.randomUUID();
+        cache.get(pending, key -> image(key, Status.PENDING, null));
+        cache.get(unlabelled, key -> image(key, Status.ACTIVE, null));
+        cache.get(settled, key -> image(key, Status.ACTIVE, Set.of("cat")));
+        Thread.sleep(20);
+
+        // Act
+        Image pendingAgain = cache.get(pending, key -> image(key, Status.ACTIVE, Set.of("cat")));
+        Image unlabelledAgain = cache.get(unlabelled, key -> image(key, Status.ACTIVE, Set.of("dog")));
+        Image settledAgain = cache.get(settled, key -> image(key, Status.INACTIVE, Set.of("cat")));
+
+        // Assert
+        assertEquals(Status.ACTIVE, pendingAgain.getStatus());
+        assertEquals(Set.of("dog"), unlabelledAgain.getLabels());
+        assertEquals(Status.ACTIVE, settledAgain.getStatus());
+    }
+
+    private static Image image(UUID id, Status status, Set<String> labels) {
+        Image image = new Image();
+        image.setId(id.toString());
+        image.setStatus(status);
+        image.setLabels(labels);
+        return image;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,27 +1,71 @@
 package com.example.demo.unit.service;
 
+import com.example.demo.config.CacheConfig;
 import com.example.demo.model.Image;
+import com.example.demo.model.ImageContent;
+import com.example.demo.model.ImageFile;
+import com.example.demo.model.ImageLabel;
+import com.example.demo.model.LabelSearchPage;
 import com.example.demo.model.Status;
+import com.example.demo.model.UploadMode;
+import com.example.demo.service.ImageBytesCache;
+import com.example.demo.service.ImageContentIndex;
+import com.example.demo.service.ImageDiskCache;
+import com.example.demo.service.ImageLabelIndex;
+import com.example.demo.service.ImageMetadataCache;
 import com.example.demo.service.ImageService;
+import com.example.demo.service.ContentTypeLearnedEvent;
+import com.example.demo.service.ImageStoredEvent;
+import com.example.demo.service.InvalidCursorException;
+import com.example.demo.service.LabelBitmapIndex;
+import com.example.demo.service.RequestCoalescer;
+import com.example.demo.service.S3BucketManager;
+import com.example.demo.service.S3StreamingUploader;
 import io.awspring.cloud.dynamodb.DynamoDbTemplate;
-import io.awspring.cloud.s3.S3Template;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetResultPageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.IgnoreNullsMode;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.UpdateItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
@@ -36,11 +80,46 @@ class ImageServiceTest {
     private DynamoDbTemplate dynamoDbTemplate;
 
     @Mock
-    private S3Template s3Template;
+    private DynamoDbEnhancedClient dynamoDbEnhancedClient;
+
+    @Mock
+    private DynamoDbTable<Image> imageTable;
+
+    @Mock
+    private S3BucketManager s3BucketManager;
 
     @Mock
     private S3Client s3Client;
 
+    @Mock
+    private S3StreamingUploader s3StreamingUploader;
+
+    @Mock
+    private ImageContentIndex imageContentIndex;
+
+    @Mock
+    private ImageLabelIndex imageLabelIndex;
+
+    @Mock
+    private LabelBitmapIndex labelBitmapIndex;
+
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(new SimpleMeterRegistry());
+
+    @Spy
+    private ImageMetadataCache imageMetadataCache =
+        new ImageMetadataCache(new CacheConfig(), new SimpleMeterRegistry(), new RequestCoalescer(new SimpleMeterRegistry()));
+
+    // Disabled here so the streams mocked by most tests are not read into it; see withBytesCache()
+    @Spy
+    private ImageBytesCache imageBytesCache = new ImageBytesCache(bytesCacheConfig(0), new SimpleMeterRegistry());
+
+    @Spy
+    private ImageDiskCache imageDiskCache = new ImageDiskCache(diskCacheConfig(null, 0), new SimpleMeterRegistry());
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private MultipartFile multipartFile;
 
@@ -61,11 +140,12 @@ class ImageServiceTest {
         byte[] fileContent = "test content".getBytes();
         
         when(multipartFile.getOriginalFilename()).thenReturn(fileName);
-        when(multipartFile.getBytes()).thenReturn(fileContent);
+        when(multipartFile.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(fileContent));
         when(multipartFile.getSize()).thenReturn((long) fileContent.length);
         when(multipartFile.getContentType()).thenReturn("image/jpeg");
+        when(imageContentIndex.register(any(), any(), any())).thenReturn(true);
+        when(s3StreamingUploader.upload(any(), any(), any(), any(InputStream.class), anyLong())).thenReturn("\"etag\"");
         
-        when(s3Template.bucketExists(testBucketName)).thenReturn(true);
         when(dynamoDbTemplate.save(any(Image.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
@@ -77,24 +157,89 @@ class ImageServiceTest {
         assertTrue(result.getObjectPath().contains("images/"));
         assertTrue(result.getObjectPath().contains(fileName));
         assertEquals(String.valueOf(fileContent.length), result.getObjectSize());
+        assertEquals("image/jpeg", result.getContentType());
         assertEquals(Status.ACTIVE, result.getStatus());
         assertNotNull(result.getTimeAdded());
 
-        verify(s3Client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        verify(s3StreamingUploader).upload(eq(testBucketName), eq(result.getObjectPath()), eq("image/jpeg"),
+            any(InputStream.class), eq((long) fileContent.length));
+        verify(multipartFile, never()).getBytes();
         verify(dynamoDbTemplate).save(any(Image.class));
+        // SHA-256 of "test content"
+        assertEquals("6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72", result.getContentDigest());
+        assertEquals(result.getObjectPath(), result.getContentKey());
+        assertEquals("\"etag\"", result.getObjectETag());
+        verify(imageContentIndex).register(result.getContentDigest(), result.getObjectPath(), result.getId());
+        verify(eventPublisher).publishEvent(new ImageStoredEvent(result));
+    }
+
+    @Test
+    void testCreate_DuplicateContentReusesStoredObject() throws IOException {
+        // Arrange
+        byte[] fileContent = "test content".getBytes();
+        UUID sourceId = UUID.randomUUID();
+        when(multipartFile.getOriginalFilename()).thenReturn("copy.jpg");
+        when(multipartFile.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(fileContent));
+        when(multipartFile.getSize()).thenReturn((long) fileContent.length);
+        when(imageContentIndex.acquire(any())).thenReturn(
+            new ImageContent("digest", "images/original.jpg", 2L, sourceId.toString(), null));
+        when(dynamoDbTemplate.save(any(Image.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Image source = new Image();
+        source.setId(sourceId.toString());
+        source.setLabels(java.util.Set.of("cat"));
+        source.setObjectETag("\"source-etag\"");
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(source)).build()
+        ));
+
+        // Act
+        Image result = imageService.create(multipartFile);
+
+        // Assert
+        assertTrue(result.getObjectPath().endsWith("_copy.jpg"));
+        assertEquals("images/original.jpg", result.getContentKey());
+        assertEquals(java.util.Set.of("cat"), result.getLabels());
+        assertEquals("\"source-etag\"", result.getObjectETag());
+        verify(imageLabelIndex).add(result, java.util.Set.of("cat"));
+        verify(s3StreamingUploader, never()).upload(any(), any(), any(), any(), anyLong());
+        verify(imageContentIndex, never()).register(any(), any(), any());
+    }
+
+    @Test
+    void testCreate_ConcurrentDuplicateDropsOwnObject() throws IOException {
+        // Arrange
+        byte[] fileContent = "test content".getBytes();
+        when(multipartFile.getOriginalFilename()).thenReturn("test.jpg");
+        when(multipartFile.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(fileContent));
+        when(multipartFile.getSize()).thenReturn((long) fileContent.length);
+        when(imageContentIndex.acquire(any()))
+            .thenReturn(null)
+            .thenReturn(new ImageContent("digest", "images/winner.jpg", 2L, UUID.randomUUID().toString(), null));
+        when(imageContentIndex.register(any(), any(), any())).thenReturn(false);
+        when(dynamoDbTemplate.save(any(Image.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Image result = imageService.create(multipartFile);
+
+        // Assert
+        assertEquals("images/winner.jpg", result.getContentKey());
+        verify(s3Client).deleteObject(any(java.util.function.Consumer.class));
     }
 
     @Test
     void testCreate_ThrowsIOException() throws IOException {
         // Arrange
         when(multipartFile.getOriginalFilename()).thenReturn("test.jpg");
-        when(multipartFile.getContentType()).thenReturn("image/jpeg");
-        when(s3Template.bucketExists(testBucketName)).thenReturn(true);
-        when(multipartFile.getBytes()).thenThrow(new IOException("Test exception"));
+        when(multipartFile.getInputStream()).thenThrow(new IOException("Test exception"));
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> imageService.create(multipartFile));
-        assertTrue(exception.getMessage().contains("Failed to upload file to S3"));
+        assertTrue(exception.getMessage().contains("Failed to read upload content"));
         verify(dynamoDbTemplate, never()).save(any(Image.class));
     }
 
@@ -125,22 +270,74 @@ class ImageServiceTest {
         Image existingImage = new Image();
         existingImage.setId(imageId.toString());
         existingImage.setObjectPath("images/test.jpg");
+        existingImage.setLabels(java.util.Set.of("cat"));
         
         // Mock the scan to return the image  
         @SuppressWarnings("unchecked")
         software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
         
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
         when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
-            software.amazon.awssdk.enhanced.dynamodb.model.Page.create(java.util.List.of(existingImage))
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(existingImage)).build()
         ));
+        stubRenditions();
 
         // Act
         imageService.deleteById(imageId);
 
         // Assert
         verify(dynamoDbTemplate).delete(any(), eq(Image.class));
+        verify(imageLabelIndex).remove(imageId.toString(), java.util.Set.of("cat"));
+    }
+
+    @Test
+    void testDiscardPending_DeletesRecordAndCachedCopy() {
+        // Arrange
+        String id = UUID.randomUUID().toString();
+
+        // Act
+        imageService.discardPending(id, "images/big.jpg");
+
+        // Assert
+        verify(dynamoDbTemplate).delete(argThat((Key key) -> key.partitionKeyValue().s().equals(id)
+            && key.sortKeyValue().orElseThrow().s().equals("images/big.jpg")), eq(Image.class));
+        verify(imageMetadataCache).invalidate(id);
+    }
+
+    @Test
+    void testDeleteById_SharedContentIsKeptUntilLastReference() {
+        // Arrange
+        Image shared = new Image();
+        shared.setId(UUID.randomUUID().toString());
+        shared.setObjectPath("images/copy.jpg");
+        shared.setContentDigest("digest");
+        shared.setContentKey("images/original.jpg");
+
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenAnswer(invocation -> java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(shared)).build()
+        ));
+        when(imageContentIndex.release("digest")).thenReturn(false).thenReturn(true);
+        stubRenditions();
+
+        // Act & Assert - another image still references the object
+        imageService.deleteById(UUID.fromString(shared.getId()));
+        verify(s3Client, never()).deleteObject(any(java.util.function.Consumer.class));
+
+        // Act & Assert - the last reference removes the shared object
+        imageService.deleteById(UUID.fromString(shared.getId()));
+        @SuppressWarnings("unchecked")
+        org.mockito.ArgumentCaptor<java.util.function.Consumer<DeleteObjectRequest.Builder>> captor =
+            org.mockito.ArgumentCaptor.forClass(java.util.function.Consumer.class);
+        verify(s3Client).deleteObject(captor.capture());
+        DeleteObjectRequest.Builder request = DeleteObjectRequest.builder();
+        captor.getValue().accept(request);
+        assertEquals("images/original.jpg", request.build().key());
+        verify(dynamoDbTemplate, times(2)).delete(any(), eq(Image.class));
     }
 
     @Test
@@ -152,7 +349,7 @@ class ImageServiceTest {
         software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
         
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
         when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.empty());
 
         // Act
@@ -175,9 +372,9 @@ class ImageServiceTest {
         software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
         
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
         when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
-            software.amazon.awssdk.enhanced.dynamodb.model.Page.create(java.util.List.of(expectedImage))
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(expectedImage)).build()
         ));
 
         // Act
@@ -198,7 +395,7 @@ class ImageServiceTest {
         software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
         
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
         when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.empty());
 
         // Act
@@ -209,32 +406,184 @@ class ImageServiceTest {
     }
 
     @Test
-    void testSearchByLabel_WithResults() {
+    void testGetById_QueriesPartitionKeyInsteadOfScanning() {
         // Arrange
-        String label = "cat";
-        Image image1 = new Image();
-        image1.setId(UUID.randomUUID().toString());
-        image1.setLabels(java.util.Set.of("cat", "animal"));
-        
-        Image image2 = new Image();
-        image2.setId(UUID.randomUUID().toString());
-        image2.setLabels(java.util.Set.of("cat", "pet"));
-        
+        UUID imageId = UUID.randomUUID();
         @SuppressWarnings("unchecked")
-        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
-        
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
-        when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
-            software.amazon.awssdk.enhanced.dynamodb.model.Page.create(java.util.List.of(image1, image2))
-        ));
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.empty());
 
         // Act
-        List<Image> result = imageService.searchByLabel(label);
+        imageService.getById(imageId);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(2, result.size());
+        ArgumentCaptor<QueryEnhancedRequest> captor = ArgumentCaptor.forClass(QueryEnhancedRequest.class);
+        verify(dynamoDbTemplate).query(captor.capture(), eq(Image.class));
+        assertEquals(1, captor.getValue().limit());
+        assertNull(captor.getValue().filterExpression());
+        verify(dynamoDbTemplate, never()).scan(any(), eq(Image.class));
+    }
+
+    @Test
+    void testGetById_ServedFromCacheUntilWritten() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setObjectPath("images/" + imageId + "_test.jpg");
+        image.setStatus(Status.ACTIVE);
+        image.setLabels(java.util.Set.of("cat"));
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenAnswer(invocation ->
+            java.util.stream.Stream.of(software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(List.of(image)).build()));
+
+        // Act
+        Image first = imageService.getById(imageId);
+        Image second = imageService.getById(imageId);
+        imageService.update(image);
+        imageService.getById(imageId);
+
+        // Assert
+        assertEquals(first, second);
+        verify(dynamoDbTemplate, times(2)).query(any(), eq(Image.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchByLabel_ReadsIndexInsteadOfScanning() {
+        // Arrange
+        String label = "cat";
+        Image image1 = labelledImage("cat", "animal");
+        Image image2 = labelledImage("cat", "pet");
+        // Its labels were replaced after the index entry was written
+        Image relabelled = labelledImage("dog");
+        // The in-memory index is not built yet
+        when(labelBitmapIndex.find(label, null, 101)).thenReturn(null);
+        when(imageLabelIndex.query(label, null, 101)).thenReturn(PageIterable.create(() -> List.of(
+            Page.builder(ImageLabel.class).items(List.of(entryOf(label, image2), entryOf(label, relabelled))).build(),
+            Page.builder(ImageLabel.class).items(List.of(entryOf(label, image1))).build()).iterator()));
+        when(imageTable.tableName()).thenReturn("test-table");
+        when(imageTable.tableSchema()).thenReturn(TableSchema.fromBean(Image.class));
+        BatchGetResultPageIterable batch = mock(BatchGetResultPageIterable.class);
+        // BatchGetItem does not keep the order of the keys
+        when(batch.resultsForTable(imageTable)).thenReturn((SdkIterable<Image>) () -> List.of(image1, relabelled, image2).iterator());
+        when(dynamoDbEnhancedClient.batchGetItem(any(BatchGetItemEnhancedRequest.class))).thenReturn(batch);
+
+        // Act
+        LabelSearchPage result = imageService.searchByLabel(label, 100, null);
+
+        // Assert
+        assertEquals(List.of(image2, image1), result.getImages());
+        assertNull(result.getNextCursor());
+        verify(dynamoDbEnhancedClient).batchGetItem(any(BatchGetItemEnhancedRequest.class));
+        verify(dynamoDbTemplate, never()).scan(any(), eq(Image.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchByLabel_StopsReadingIndexOncePageIsFull() {
+        // Arrange
+        String label = "cat";
+        Image image = labelledImage("cat");
+        when(labelBitmapIndex.find(label, null, 2)).thenReturn(null);
+        Iterator<Page<ImageLabel>> pages = mock(Iterator.class);
+        when(pages.hasNext()).thenReturn(true);
+        when(pages.next()).thenReturn(
+            Page.builder(ImageLabel.class).items(List.of(entryOf(label, image))).build(),
+            Page.builder(ImageLabel.class).items(List.of(entryOf(label, labelledImage("cat")))).build());
+        when(imageLabelIndex.query(label, null, 2)).thenReturn(PageIterable.create(() -> pages));
+        when(imageTable.tableName()).thenReturn("test-table");
+        when(imageTable.tableSchema()).thenReturn(TableSchema.fromBean(Image.class));
+        BatchGetResultPageIterable batch = mock(BatchGetResultPageIterable.class);
+        when(batch.resultsForTable(imageTable)).thenReturn((SdkIterable<Image>) () -> List.of(image).iterator());
+        when(dynamoDbEnhancedClient.batchGetItem(any(BatchGetItemEnhancedRequest.class))).thenReturn(batch);
+
+        // Act
+        LabelSearchPage result = imageService.searchByLabel(label, 1, null);
+
+        // Assert - the Query is not continued past the entry that shows another page follows
+        assertEquals(List.of(image), result.getImages());
+        assertNotNull(result.getNextCursor());
+        verify(pages, times(2)).next();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchByLabel_AnsweredFromMemoryOnceBuilt() {
+        // Arrange
+        Image image = labelledImage("cat");
+        Image next = labelledImage("cat");
+        when(labelBitmapIndex.find("cat", null, 2)).thenReturn(List.of(entryOf("cat", image), entryOf("cat", next)));
+        when(imageTable.tableName()).thenReturn("test-table");
+        when(imageTable.tableSchema()).thenReturn(TableSchema.fromBean(Image.class));
+        BatchGetResultPageIterable batch = mock(BatchGetResultPageIterable.class);
+        when(batch.resultsForTable(imageTable)).thenReturn((SdkIterable<Image>) () -> List.of(image).iterator());
+        when(dynamoDbEnhancedClient.batchGetItem(any(BatchGetItemEnhancedRequest.class))).thenReturn(batch);
+
+        // Act
+        LabelSearchPage result = imageService.searchByLabel("cat", 1, null);
+        imageService.searchByLabel("cat", 1, result.getNextCursor());
+
+        // Assert - the cursor continues after the last image of the page
+        assertEquals(List.of(image), result.getImages());
+        verify(labelBitmapIndex).find("cat", image.getId(), 2);
+        verify(imageLabelIndex, never()).query(any(), any(), anyInt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchByLabel_RejectsCursorOfAnotherLabel() {
+        // Arrange
+        Image image = labelledImage("dog");
+        when(labelBitmapIndex.find("dog", null, 2)).thenReturn(List.of(entryOf("dog", image), entryOf("dog", labelledImage("dog"))));
+        when(imageTable.tableName()).thenReturn("test-table");
+        when(imageTable.tableSchema()).thenReturn(TableSchema.fromBean(Image.class));
+        BatchGetResultPageIterable batch = mock(BatchGetResultPageIterable.class);
+        when(batch.resultsForTable(imageTable)).thenReturn((SdkIterable<Image>) () -> List.<Image>of().iterator());
+        when(dynamoDbEnhancedClient.batchGetItem(any(BatchGetItemEnhancedRequest.class))).thenReturn(batch);
+        String dogCursor = imageService.searchByLabel("dog", 1, null).getNextCursor();
+
+        // Act & Assert
+        assertThrows(InvalidCursorException.class, () -> imageService.searchByLabel("cat", 1, dogCursor));
+        assertThrows(InvalidCursorException.class, () -> imageService.searchByLabel("cat", 1, "not a cursor"));
+    }
+
+    @Test
+    void testUpdate_LabelsReplaceIndexEntries() {
+        // Arrange
+        Image existing = labelledImage("cat", "animal");
+        @SuppressWarnings("unchecked")
+        PageIterable<Image> mockPageIterable = mock(PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenAnswer(invocation -> java.util.stream.Stream.of(Page.builder(Image.class).items(List.of(existing)).build()));
+        Image update = new Image();
+        update.setId(existing.getId());
+        update.setObjectPath(existing.getObjectPath());
+        update.setLabels(java.util.Set.of("cat", "pet"));
+
+        // Act
+        imageService.update(update);
+
+        // Assert
+        verify(imageLabelIndex).add(update, java.util.Set.of("cat", "pet"));
+        verify(imageLabelIndex).remove(existing.getId(), java.util.Set.of("animal"));
+    }
+
+    private static Image labelledImage(String... labels) {
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/" + image.getId() + "_test.jpg");
+        image.setLabels(java.util.Set.of(labels));
+        return image;
+    }
+
+    private static ImageLabel entryOf(String label, Image image) {
+        return new ImageLabel(label, image.getId(), image.getObjectPath());
     }
 
     @Test
@@ -251,9 +600,9 @@ class ImageServiceTest {
         software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
         
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
         when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
-            software.amazon.awssdk.enhanced.dynamodb.model.Page.create(java.util.List.of(image))
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
         ));
         
         @SuppressWarnings("unchecked")
@@ -261,6 +610,8 @@ class ImageServiceTest {
             mock(ResponseInputStream.class);
         when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(mockInputStream);
         when(mockInputStream.readAllBytes()).thenReturn(expectedBytes);
+        when(mockInputStream.response()).thenReturn(
+            GetObjectResponse.builder().contentLength((long) expectedBytes.length).build());
 
         // Act
         byte[] result = imageService.downloadImageFile(imageId);
@@ -270,6 +621,360 @@ class ImageServiceTest {
         assertArrayEquals(expectedBytes, result);
     }
 
+    @Test
+    void testGetImageFile_ResolvesMetadataOnce() throws Exception {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setObjectPath("images/" + imageId + "_test.png");
+        byte[] expectedBytes = "png bytes".getBytes();
+
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
+        ));
+
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+            GetObjectResponse.builder().contentLength((long) expectedBytes.length).build(),
+            new ByteArrayInputStream(expectedBytes)));
+
+        // Act
+        ImageFile file = imageService.getImageFile(imageId, null);
+
+        // Assert
+        assertEquals(image, file.getImage());
+        assertArrayEquals(expectedBytes, file.getContent().readAllBytes());
+        assertEquals("image/png", file.getContentType());
+        assertEquals(expectedBytes.length, file.getContentLength());
+        verify(dynamoDbTemplate, times(1)).query(any(), eq(Image.class));
+    }
+
+    @Test
+    void testGetImageFile_PassesRangeToS3() throws Exception {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setObjectPath("images/" + imageId + "_test.jpg");
+
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
+        ));
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+            GetObjectResponse.builder().contentLength(100L).contentRange("bytes 0-99/5000").build(),
+            new ByteArrayInputStream(new byte[100])));
+
+        // Act
+        ImageFile file = imageService.getImageFile(imageId, null, "bytes=0-99");
+
+        // Assert
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3Client).getObject(captor.capture());
+        assertEquals("bytes=0-99", captor.getValue().range());
+        assertEquals(100, file.getContentLength());
+        assertEquals("bytes 0-99/5000", file.getContentRange());
+        assertEquals(5000, file.getTotalLength());
+    }
+
+    @Test
+    void testResolveImageFile_UsesRecordedValidatorsWithoutS3() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setObjectPath("images/" + imageId + "_test.jpg");
+        image.setObjectETag("\"etag\"");
+        image.setTimeAdded(java.time.LocalDateTime.of(2024, 1, 1, 10, 0, 0, 500));
+        image.setDerivatives(java.util.Map.of("128", "derivatives/" + imageId + "/128.jpg"));
+
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenAnswer(invocation -> java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
+        ));
+
+        // Act
+        ImageFile original = imageService.resolveImageFile(imageId, null);
+        ImageFile thumbnail = imageService.resolveImageFile(imageId, 100);
+
+        // Assert
+        assertEquals("\"etag\"", original.getETag());
+        assertEquals(java.time.Instant.parse("2024-01-01T10:00:00Z"), original.getLastModified());
+        assertEquals("derivatives/" + imageId + "/128.jpg", thumbnail.getObjectKey());
+        assertNull(thumbnail.getETag());
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    void testResolveImageFile_UsesRecordedContentType() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setObjectPath("images/" + imageId + "_photo.webp");
+        image.setContentType("image/webp");
+
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenAnswer(invocation -> java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
+        ));
+
+        // Act
+        ImageFile file = imageService.resolveImageFile(imageId, null);
+
+        // Assert - the name alone would not tell the type of a WebP file
+        assertEquals("image/webp", file.getContentType());
+        assertEquals("image/webp", imageService.getImageContentType(imageId));
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    void testOpenImageFile_LegacyRecordTakesContentTypeFromS3() {
+        // Arrange
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/legacy.webp");
+        ImageFile file = new ImageFile();
+        file.setImage(image);
+        file.setObjectKey("images/legacy.webp");
+        file.setContentType("application/octet-stream");
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> new ResponseInputStream<>(
+            GetObjectResponse.builder().contentLength(4L).contentType("image/webp").build(),
+            new ByteArrayInputStream(new byte[4])));
+
+        // Act
+        imageService.openImageFile(file, null, null);
+
+        // Assert
+        assertEquals("image/webp", file.getContentType());
+        // Recorded in the background, not by the download
+        verify(eventPublisher).publishEvent(new ContentTypeLearnedEvent(image.getId(), "images/legacy.webp", "image/webp"));
+        verify(imageTable, never()).updateItem(any(UpdateItemEnhancedRequest.class));
+        assertNull(image.getContentType());
+    }
+
+    @Test
+    void testOpenImageFile_NotModifiedInS3() {
+        // Arrange
+        ImageFile file = new ImageFile();
+        file.setObjectKey("derivatives/x/128.jpg");
+        when(s3Client.getObject(any(GetObjectRequest.class)))
+            .thenThrow(software.amazon.awssdk.services.s3.model.S3Exception.builder()
+                .statusCode(304)
+                .awsErrorDetails(software.amazon.awssdk.awscore.exception.AwsErrorDetails.builder()
+                    .sdkHttpResponse(software.amazon.awssdk.http.SdkHttpResponse.builder()
+                        .statusCode(304)
+                        .putHeader("ETag", "\"etag\"")
+                        .build())
+                    .build())
+                .build());
+
+        // Act
+        boolean opened = imageService.openImageFile(file, null, "\"other\", \"etag\"");
+
+        // Assert - the ETag of the object, not the client's list
+        assertFalse(opened);
+        assertEquals("\"etag\"", file.getETag());
+        ArgumentCaptor<GetObjectRequest> captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3Client).getObject(captor.capture());
+        assertEquals("\"other\", \"etag\"", captor.getValue().ifNoneMatch());
+        assertNull(file.getContent());
+    }
+
+    @Test
+    void testOpenImageFile_SmallObjectServedFromBytesCache() throws IOException {
+        // Arrange
+        withBytesCache();
+        ImageFile file = new ImageFile();
+        file.setObjectKey("images/cached.jpg");
+        byte[] bytes = "0123456789".getBytes();
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+            GetObjectResponse.builder().contentLength((long) bytes.length).eTag("\"e1\"").build(),
+            new ByteArrayInputStream(bytes)), new ResponseInputStream<>(
+            GetObjectResponse.builder().contentLength((long) bytes.length).eTag("\"e1\"").build(),
+            new ByteArrayInputStream(bytes)));
+        imageService.openImageFile(file, null, null);
+        // Only an object read a second time is admitted
+        ImageFile second = new ImageFile();
+        second.setObjectKey("images/cached.jpg");
+        imageService.openImageFile(second, null, null);
+
+        // Act
+        ImageFile whole = new ImageFile();
+        whole.setObjectKey("images/cached.jpg");
+        imageService.openImageFile(whole, null, null);
+        ImageFile range = new ImageFile();
+        range.setObjectKey("images/cached.jpg");
+        imageService.openImageFile(range, "bytes=-3", null);
+        ImageFile notModified = new ImageFile();
+        notModified.setObjectKey("images/cached.jpg");
+        boolean opened = imageService.openImageFile(notModified, null, "\"e0\", W/\"e1\"");
+
+        // Assert
+        verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+        assertArrayEquals(bytes, file.getContent().readAllBytes());
+        assertArrayEquals(bytes, second.getContent().readAllBytes());
+        assertArrayEquals(bytes, whole.getContent().readAllBytes());
+        assertEquals("\"e1\"", whole.getETag());
+        assertArrayEquals("789".getBytes(), range.getContent().readAllBytes());
+        assertEquals("bytes 7-9/10", range.getContentRange());
+        assertEquals(3, range.getContentLength());
+        assertFalse(opened);
+        assertEquals("\"e1\"", notModified.getETag());
+        ImageFile unsatisfiable = new ImageFile();
+        unsatisfiable.setObjectKey("images/cached.jpg");
+        assertThrows(IllegalArgumentException.class, () -> imageService.openImageFile(unsatisfiable, "bytes=10-", null));
+    }
+
+    @Test
+    void testOpenImageFile_ConcurrentReadsShareOneS3Get() throws Exception {
+        // Arrange
+        withBytesCache();
+        java.util.concurrent.CountDownLatch released = new java.util.concurrent.CountDownLatch(1);
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+            released.await();
+            return new ResponseInputStream<>(GetObjectResponse.builder().contentLength(4L).build(),
+                new ByteArrayInputStream("abcd".getBytes()));
+        });
+        int readers = 8;
+        java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(readers);
+
+        // Act
+        List<java.util.concurrent.Future<byte[]>> results = new java.util.ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            results.add(executor.submit(() -> {
+                ImageFile file = new ImageFile();
+                file.setObjectKey("images/viral.jpg");
+                imageService.openImageFile(file, null, null);
+                return file.getContent().readAllBytes();
+            }));
+        }
+        Thread.sleep(200);
+        released.countDown();
+
+        // Assert
+        for (java.util.concurrent.Future<byte[]> result : results) {
+            assertArrayEquals("abcd".getBytes(), result.get());
+        }
+        executor.shutdown();
+        verify(s3Client, times(1)).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    void testOpenImageFile_RangedAndLargeReadsBypassBytesCache() {
+        // Arrange
+        withBytesCache();
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> new ResponseInputStream<>(
+            GetObjectResponse.builder().contentLength(2L * 1024 * 1024).build(),
+            new ByteArrayInputStream(new byte[0])));
+        Image image = new Image();
+        image.setObjectPath("images/large.jpg");
+        image.setObjectSize(String.valueOf(2L * 1024 * 1024));
+        ImageFile large = new ImageFile();
+        large.setImage(image);
+        large.setObjectKey("images/large.jpg");
+
+        // Act
+        imageService.openImageFile(large, null, null);
+        imageService.openImageFile(large, null, null);
+
+        // Assert
+        verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+        assertNull(imageBytesCache.get("images/large.jpg"));
+    }
+
+    @Test
+    void testOpenImageFile_LargeObjectServedFromDiskCache(@TempDir Path directory) throws Exception {
+        // Arrange
+        withDiskCache(directory);
+        byte[] bytes = new byte[4096];
+        new java.util.Random(7).nextBytes(bytes);
+        String eTag = "\"" + java.util.HexFormat.of().formatHex(java.security.MessageDigest.getInstance("MD5").digest(bytes)) + "\"";
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(new ResponseInputStream<>(
+            GetObjectResponse.builder().contentLength((long) bytes.length).eTag(eTag).build(),
+            new ByteArrayInputStream(bytes)));
+        ImageFile first = new ImageFile();
+        first.setObjectKey("images/large.jpg");
+        imageService.openImageFile(first, null, null);
+        try (InputStream content = first.getContent()) {
+            assertArrayEquals(bytes, content.readAllBytes());
+        }
+
+        // Act
+        ImageFile hit = new ImageFile();
+        hit.setObjectKey("images/large.jpg");
+        hit.setETag(eTag);
+        imageService.openImageFile(hit, "bytes=100-199", null);
+
+        // Assert
+        verify(s3Client, times(1)).getObject(any(GetObjectRequest.class));
+        assertTrue(hit.isCachedOnDisk());
+        assertEquals(100, hit.getLocalOffset());
+        assertEquals("bytes 100-199/4096", hit.getContentRange());
+        try (InputStream content = hit.getContent()) {
+            assertArrayEquals(java.util.Arrays.copyOfRange(bytes, 100, 200), content.readAllBytes());
+        }
+    }
+
+    @Test
+    void testOpenImageFile_StaleDiskCopyIsReadFromS3Again(@TempDir Path directory) throws Exception {
+        // Arrange
+        withDiskCache(directory);
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> new ResponseInputStream<>(
+            GetObjectResponse.builder().contentLength(4096L).eTag("\"old-1\"").build(),
+            new ByteArrayInputStream(new byte[4096])));
+        ImageFile first = new ImageFile();
+        first.setObjectKey("images/large.jpg");
+        imageService.openImageFile(first, null, null);
+        first.getContent().readAllBytes();
+        first.getContent().close();
+
+        // Act
+        ImageFile current = new ImageFile();
+        current.setObjectKey("images/large.jpg");
+        current.setETag("\"new\"");
+        imageService.openImageFile(current, null, null);
+
+        // Assert
+        verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+        assertFalse(current.isCachedOnDisk());
+    }
+
+    @Test
+    void testGetImageFile_UnsatisfiableRange() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setObjectPath("images/" + imageId + "_test.jpg");
+
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
+        ));
+        when(s3Client.getObject(any(GetObjectRequest.class)))
+            .thenThrow(software.amazon.awssdk.services.s3.model.S3Exception.builder().statusCode(416).build());
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> imageService.getImageFile(imageId, null, "bytes=9000-"));
+    }
+
     @Test
     void testDownloadImageFile_ImageNotFound() {
         // Arrange
@@ -279,7 +984,7 @@ class ImageServiceTest {
         software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
         
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
         when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.empty());
 
         // Act & Assert
@@ -300,9 +1005,9 @@ class ImageServiceTest {
         software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
         
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
         when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
-            software.amazon.awssdk.enhanced.dynamodb.model.Page.create(java.util.List.of(image))
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
         ));
 
         // Act
@@ -322,7 +1027,7 @@ class ImageServiceTest {
         software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable = 
             mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
         
-        when(dynamoDbTemplate.scan(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
         when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.empty());
 
         // Act
@@ -333,66 +1038,265 @@ class ImageServiceTest {
     }
 
     @Test
-    void testCreate_S3AccessDenied() {
+    void testCreate_NoSuchBucketRechecksBucketAndRetries() throws IOException {
         // Arrange
-        software.amazon.awssdk.services.s3.model.S3Exception s3Exception = 
-            (software.amazon.awssdk.services.s3.model.S3Exception) software.amazon.awssdk.services.s3.model.S3Exception
-                .builder()
-                .statusCode(403)
-                .message("Access Denied")
-                .build();
-        
-        when(s3Template.bucketExists(testBucketName)).thenThrow(s3Exception);
+        byte[] fileContent = "test content".getBytes();
+        when(multipartFile.getOriginalFilename()).thenReturn("test-image.jpg");
+        when(multipartFile.getInputStream()).thenAnswer(invocation -> new ByteArrayInputStream(fileContent));
+        when(multipartFile.getSize()).thenReturn((long) fileContent.length);
+        when(multipartFile.getContentType()).thenReturn("image/jpeg");
+
+        when(s3StreamingUploader.upload(eq(testBucketName), any(), any(), any(InputStream.class), anyLong()))
+            .thenThrow(NoSuchBucketException.builder().message("The specified bucket does not exist").build())
+            .thenReturn("\"etag\"");
+        when(dynamoDbTemplate.save(any(Image.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Image result = imageService.create(multipartFile);
+
+        // Assert
+        assertNotNull(result);
+        verify(s3BucketManager).invalidate();
+        verify(s3BucketManager, times(2)).ensureBucket();
+        verify(s3StreamingUploader, times(2)).upload(eq(testBucketName), any(), any(), any(InputStream.class), anyLong());
+        verify(dynamoDbTemplate).save(any(Image.class));
+    }
+
+    @Test
+    void testCreate_BucketUnavailable() throws IOException {
+        // Arrange
+        when(multipartFile.getOriginalFilename()).thenReturn("test.jpg");
+        doThrow(new RuntimeException("AWS S3 access denied. Please check your AWS credentials"))
+            .when(s3BucketManager).ensureBucket();
 
         // Act & Assert
-        RuntimeException exception = assertThrows(RuntimeException.class, 
+        RuntimeException exception = assertThrows(RuntimeException.class,
             () -> imageService.create(multipartFile));
         assertTrue(exception.getMessage().contains("AWS S3 access denied"));
-        verify(s3Template).bucketExists(testBucketName);
+        verify(s3StreamingUploader, never()).upload(any(), any(), any(), any(), anyLong());
         verify(dynamoDbTemplate, never()).save(any());
     }
 
     @Test
-    void testCreate_S3BucketNotFound() {
+    void testUpdate_WritesOnlyNonNullAttributes() {
         // Arrange
-        software.amazon.awssdk.services.s3.model.S3Exception s3Exception = 
-            (software.amazon.awssdk.services.s3.model.S3Exception) software.amazon.awssdk.services.s3.model.S3Exception
-                .builder()
-                .statusCode(404)
-                .message("Bucket not found")
-                .build();
-        
-        when(s3Template.bucketExists(testBucketName)).thenThrow(s3Exception);
+        Image partial = new Image();
+        partial.setId(UUID.randomUUID().toString());
+        partial.setObjectPath("images/test.jpg");
+        partial.setStatus(Status.ACTIVE);
 
-        // Act & Assert
-        RuntimeException exception = assertThrows(RuntimeException.class, 
-            () -> imageService.create(multipartFile));
-        assertTrue(exception.getMessage().contains("S3 bucket not found"));
-        verify(s3Template).bucketExists(testBucketName);
-        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        // Act
+        boolean updated = imageService.update(partial);
+
+        // Assert - without labels the index is left alone
+        assertTrue(updated);
+        verifyNoInteractions(imageLabelIndex);
+        @SuppressWarnings("unchecked")
+        org.mockito.ArgumentCaptor<UpdateItemEnhancedRequest<Image>> captor =
+            org.mockito.ArgumentCaptor.forClass(UpdateItemEnhancedRequest.class);
+        verify(imageTable).updateItem(captor.capture());
+        assertSame(partial, captor.getValue().item());
+        assertEquals(IgnoreNullsMode.SCALAR_ONLY, captor.getValue().ignoreNullsMode());
+        assertEquals("attribute_exists(id)", captor.getValue().conditionExpression().expression());
     }
 
     @Test
-    void testCreate_BucketDoesNotExist_CreatesBucket() throws IOException {
+    void testFindPendingUploads_ReturnsUploadsOfModeStartedBeforeCutoff() {
         // Arrange
-        String fileName = "test-image.jpg";
-        byte[] fileContent = "test content".getBytes();
-        
-        when(multipartFile.getOriginalFilename()).thenReturn(fileName);
-        when(multipartFile.getBytes()).thenReturn(fileContent);
-        when(multipartFile.getSize()).thenReturn((long) fileContent.length);
-        when(multipartFile.getContentType()).thenReturn("image/jpeg");
-        
-        when(s3Template.bucketExists(testBucketName)).thenReturn(false);
-        when(s3Template.createBucket(testBucketName)).thenReturn(null);
-        when(dynamoDbTemplate.save(any(Image.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Image old = labelledImage();
+        old.setTimeAdded(LocalDateTime.now().minusHours(2));
+        Image recent = labelledImage();
+        recent.setTimeAdded(LocalDateTime.now().minusMinutes(5));
+        when(imageTable.scan(any(ScanEnhancedRequest.class)))
+            .thenReturn(PageIterable.create(() -> List.of(Page.builder(Image.class).items(List.of(old, recent)).build()).iterator()));
 
         // Act
-        Image result = imageService.create(multipartFile);
+        List<Image> result = imageService.findPendingUploads(UploadMode.ASYNC, LocalDateTime.now().minusHours(1)).toList();
 
         // Assert
-        assertNotNull(result);
-        verify(s3Template).createBucket(testBucketName);
-        verify(s3Client).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+        assertEquals(List.of(old), result);
+        ArgumentCaptor<ScanEnhancedRequest> captor = ArgumentCaptor.forClass(ScanEnhancedRequest.class);
+        verify(imageTable).scan(captor.capture());
+        assertEquals("PENDING", captor.getValue().filterExpression().expressionValues().get(":pending").s());
+        assertEquals("ASYNC", captor.getValue().filterExpression().expressionValues().get(":mode").s());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdate_DeletedImageIsNotRecreated() {
+        // Arrange
+        Image partial = new Image();
+        partial.setId(UUID.randomUUID().toString());
+        partial.setObjectPath("images/test.jpg");
+        partial.setStatus(Status.ACTIVE);
+        when(imageTable.updateItem(any(UpdateItemEnhancedRequest.class)))
+            .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+
+        // Act
+        boolean updated = imageService.update(partial);
+
+        // Assert
+        assertFalse(updated);
+        verify(imageMetadataCache).invalidate(partial.getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateIfPending_ConditionsOnPendingStatus() {
+        // Arrange
+        Image inactive = new Image();
+        inactive.setId(UUID.randomUUID().toString());
+        inactive.setObjectPath("images/test.jpg");
+        inactive.setStatus(Status.INACTIVE);
+        when(imageTable.updateItem(any(UpdateItemEnhancedRequest.class)))
+            .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+
+        // Act
+        boolean updated = imageService.updateIfPending(inactive);
+
+        // Assert
+        assertFalse(updated);
+        ArgumentCaptor<UpdateItemEnhancedRequest<Image>> captor = ArgumentCaptor.forClass(UpdateItemEnhancedRequest.class);
+        verify(imageTable).updateItem(captor.capture());
+        assertEquals("#status = :pending", captor.getValue().conditionExpression().expression());
+        assertEquals("PENDING", captor.getValue().conditionExpression().expressionValues().get(":pending").s());
+    }
+
+    @Test
+    void testDownloadImageFile_WithSizeUsesSmallestCoveringDerivative() throws Exception {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setObjectPath("images/test.png");
+        image.setDerivatives(java.util.Map.of(
+            "128", "derivatives/" + imageId + "/128.jpg",
+            "512", "derivatives/" + imageId + "/512.jpg"));
+
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenAnswer(invocation -> java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
+        ));
+
+        @SuppressWarnings("unchecked")
+        ResponseInputStream<GetObjectResponse> mockInputStream = mock(ResponseInputStream.class);
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenReturn(mockInputStream);
+        when(mockInputStream.readAllBytes()).thenReturn("bytes".getBytes());
+        when(mockInputStream.response()).thenReturn(GetObjectResponse.builder().contentLength(5L).build());
+
+        // Act
+        imageService.downloadImageFile(imageId, 200);
+        imageService.downloadImageFile(imageId, 2048);
+
+        // Assert
+        org.mockito.ArgumentCaptor<GetObjectRequest> captor = org.mockito.ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3Client, times(2)).getObject(captor.capture());
+        assertEquals("derivatives/" + imageId + "/512.jpg", captor.getAllValues().get(0).key());
+        assertEquals("images/test.png", captor.getAllValues().get(1).key());
+        assertEquals("image/jpeg", imageService.getImageContentType(imageId, 100));
+        assertEquals("image/png", imageService.getImageContentType(imageId, null));
+    }
+
+    @Test
+    void testDeleteById_RemovesDerivatives() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        Image image = new Image();
+        image.setId(imageId.toString());
+        image.setObjectPath("images/test.jpg");
+        image.setDerivatives(java.util.Map.of("128", "derivatives/" + imageId + "/128.jpg"));
+
+        @SuppressWarnings("unchecked")
+        software.amazon.awssdk.enhanced.dynamodb.model.PageIterable<Image> mockPageIterable =
+            mock(software.amazon.awssdk.enhanced.dynamodb.model.PageIterable.class);
+        when(dynamoDbTemplate.query(any(), eq(Image.class))).thenReturn(mockPageIterable);
+        when(mockPageIterable.stream()).thenReturn(java.util.stream.Stream.of(
+            software.amazon.awssdk.enhanced.dynamodb.model.Page.builder(Image.class).items(java.util.List.of(image)).build()
+        ));
+        stubRenditions("renditions/" + imageId + "/200x0-contain.jpg");
+
+        // Act
+        imageService.deleteById(imageId);
+
+        // Assert - derivatives are recorded on the image, renditions are listed by prefix
+        @SuppressWarnings("unchecked")
+        org.mockito.ArgumentCaptor<java.util.function.Consumer<software.amazon.awssdk.services.s3.model.DeleteObjectsRequest.Builder>> captor =
+            org.mockito.ArgumentCaptor.forClass(java.util.function.Consumer.class);
+        verify(s3Client, times(2)).deleteObjects(captor.capture());
+        software.amazon.awssdk.services.s3.model.DeleteObjectsRequest.Builder request =
+            software.amazon.awssdk.services.s3.model.DeleteObjectsRequest.builder();
+        captor.getAllValues().get(0).accept(request);
+        assertEquals("derivatives/" + imageId + "/128.jpg", request.build().delete().objects().get(0).key());
+        captor.getAllValues().get(1).accept(request);
+        assertEquals("renditions/" + imageId + "/200x0-contain.jpg", request.build().delete().objects().get(0).key());
+        verify(s3Client).listObjectsV2(argThat((ListObjectsV2Request list) -> list.prefix().equals("renditions/" + imageId + "/")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubRenditions(String... keys) {
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(ListObjectsV2Response.builder()
+            .contents(java.util.Arrays.stream(keys).map(key -> S3Object.builder().key(key).build()).toList())
+            .build());
+        when(s3Client.listObjectsV2Paginator(any(java.util.function.Consumer.class))).thenAnswer(invocation -> {
+            ListObjectsV2Request.Builder builder = ListObjectsV2Request.builder();
+            ((java.util.function.Consumer<ListObjectsV2Request.Builder>) invocation.getArgument(0)).accept(builder);
+            return new ListObjectsV2Iterable(s3Client, builder.build());
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDescribeStoredObject_ReadsOnlyTheHeaderRange() throws IOException {
+        // Arrange
+        Image image = new Image();
+        image.setObjectPath("images/test.jpg");
+        java.io.ByteArrayOutputStream jpeg = new java.io.ByteArrayOutputStream();
+        javax.imageio.ImageIO.write(new java.awt.image.BufferedImage(40, 30, java.awt.image.BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+        List<GetObjectRequest> requests = new java.util.ArrayList<>();
+        when(s3Client.getObject(any(java.util.function.Consumer.class))).thenAnswer(invocation -> {
+            GetObjectRequest.Builder builder = GetObjectRequest.builder();
+            ((java.util.function.Consumer<GetObjectRequest.Builder>) invocation.getArgument(0)).accept(builder);
+            requests.add(builder.build());
+            return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+                software.amazon.awssdk.http.AbortableInputStream.create(new ByteArrayInputStream(jpeg.toByteArray())));
+        });
+
+        // Act
+        imageService.describeStoredObject(image);
+
+        // Assert
+        assertEquals("bytes=0-65535", requests.get(0).range());
+        assertEquals(40, image.getWidth());
+        assertEquals(30, image.getHeight());
+        assertEquals("jpeg", image.getFormat());
+    }
+
+    private void withBytesCache() {
+        ReflectionTestUtils.setField(imageService, "imageBytesCache",
+            imageBytesCache = new ImageBytesCache(bytesCacheConfig(64 * 1024 * 1024), new SimpleMeterRegistry()));
+    }
+
+    private static CacheConfig bytesCacheConfig(long maxSize) {
+        CacheConfig config = new CacheConfig();
+        config.getBytes().setMaxSize(org.springframework.util.unit.DataSize.ofBytes(maxSize));
+        return config;
+    }
+
+    private void withDiskCache(Path directory) {
+        // The byte cache would take the small objects these tests use
+        ReflectionTestUtils.setField(imageService, "imageDiskCache",
+            imageDiskCache = new ImageDiskCache(diskCacheConfig(directory, 1024 * 1024), new SimpleMeterRegistry()));
+    }
+
+    private static CacheConfig diskCacheConfig(Path directory, long maxSize) {
+        CacheConfig config = new CacheConfig();
+        if (directory != null) {
+            config.getDisk().setDirectory(directory.toString());
+        }
+        config.getDisk().setMaxSize(org.springframework.util.unit.DataSize.ofBytes(maxSize));
+        return config;
     }
 }
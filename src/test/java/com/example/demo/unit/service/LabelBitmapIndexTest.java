@@ -0,0 +1,195 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.SearchConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.ImageLabel;
+import com.example.demo.service.LabelBitmapIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LabelBitmapIndexTest {
+
+    @Mock
+    private DynamoDbTable<Image> imageTable;
+
+    @Mock
+    private DynamoDbTable<ImageLabel> labelTable;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LabelBitmapIndex labelBitmapIndex;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        SearchConfig searchConfig = new SearchConfig();
+        searchConfig.getMemoryIndex().setScanSegments(2);
+        labelBitmapIndex = new LabelBitmapIndex(imageTable, labelTable, searchConfig, meterRegistry);
+    }
+
+    @Test
+    void testFind_NotAnsweredBeforeBuild() {
+        // Act & Assert
+        assertNull(labelBitmapIndex.find("cat", null, 10));
+    }
+
+    @Test
+    void testBuild_ScansSegmentsInParallelAndAnswersInIdOrder() {
+        // Arrange
+        Image first = labelledImage("00000000-0000-0000-0000-000000000001", "cat", "animal");
+        Image second = labelledImage("00000000-0000-0000-0000-000000000002", "cat");
+        Image dog = labelledImage("00000000-0000-0000-0000-000000000003", "dog");
+        stubSegment(0, second, dog);
+        stubSegment(1, first);
+
+        // Act
+        labelBitmapIndex.build();
+        List<ImageLabel> cats = labelBitmapIndex.find("cat", null, 10);
+
+        // Assert
+        ArgumentCaptor<ScanEnhancedRequest> scans = ArgumentCaptor.forClass(ScanEnhancedRequest.class);
+        verify(imageTable, times(2)).scan(scans.capture());
+        assertTrue(scans.getAllValues().stream().allMatch(scan -> scan.totalSegments() == 2));
+        assertEquals(List.of(first.getId(), second.getId()), cats.stream().map(ImageLabel::getImageId).toList());
+        assertEquals(first.getObjectPath(), cats.get(0).getObjectPath());
+        assertEquals(List.of(), labelBitmapIndex.find("bird", null, 10));
+        assertEquals(3.0, meterRegistry.get("image.labels.index.images").gauge().value());
+        assertEquals(3.0, meterRegistry.get("image.labels.index.labels").gauge().value());
+        assertTrue(meterRegistry.get("image.labels.index.memory").gauge().value() > 0);
+        assertTrue(meterRegistry.get("image.labels.index.memory.per.million.images").gauge().value() > 0);
+    }
+
+    @Test
+    void testFind_ReturnsPageAfterCursorInIdOrder() {
+        // Arrange
+        stubSegment(0,
+            labelledImage("00000000-0000-0000-0000-000000000004", "cat"),
+            labelledImage("00000000-0000-0000-0000-000000000001", "cat"),
+            labelledImage("00000000-0000-0000-0000-000000000003", "cat"));
+        stubSegment(1,
+            labelledImage("00000000-0000-0000-0000-000000000005", "cat"),
+            labelledImage("00000000-0000-0000-0000-000000000002", "cat"));
+        labelBitmapIndex.build();
+
+        // Act
+        List<ImageLabel> page = labelBitmapIndex.find("cat", "00000000-0000-0000-0000-000000000001", 2);
+
+        // Assert
+        assertEquals(List.of("00000000-0000-0000-0000-000000000002", "00000000-0000-0000-0000-000000000003"),
+            page.stream().map(ImageLabel::getImageId).toList());
+    }
+
+    @Test
+    void testFind_PagesThroughCommonAndRareLabelsInIdOrder() {
+        // Arrange
+        stubSegment(0);
+        stubSegment(1);
+        labelBitmapIndex.build();
+        List<String> all = new ArrayList<>();
+        for (int i = 20; i > 0; i--) {
+            String imageId = String.format("00000000-0000-0000-0000-%012d", i);
+            labelBitmapIndex.add(imageId, "images/" + imageId + "_test.jpg", i % 7 == 0 ? Set.of("pet", "rare") : Set.of("pet"));
+            all.add(0, imageId);
+        }
+
+        // Act
+        List<String> pets = pageThrough("pet", 3);
+        List<String> rare = pageThrough("rare", 3);
+
+        // Assert
+        assertEquals(all, pets);
+        assertEquals(List.of("00000000-0000-0000-0000-000000000007", "00000000-0000-0000-0000-000000000014"), rare);
+    }
+
+    @Test
+    void testRemove_ReleasesOrdinalOfImageWithoutLabels() {
+        // Arrange
+        stubSegment(0);
+        stubSegment(1);
+        labelBitmapIndex.build();
+        String imageId = UUID.randomUUID().toString();
+        labelBitmapIndex.add(imageId, "images/" + imageId + "_test.jpg", Set.of("cat", "pet"));
+
+        // Act
+        labelBitmapIndex.remove(imageId, Set.of("pet"));
+        double imagesAfterFirstRemoval = meterRegistry.get("image.labels.index.images").gauge().value();
+        labelBitmapIndex.remove(imageId, Set.of("cat"));
+
+        // Assert
+        assertEquals(1.0, imagesAfterFirstRemoval);
+        assertEquals(0.0, meterRegistry.get("image.labels.index.images").gauge().value());
+        assertEquals(0.0, meterRegistry.get("image.labels.index.labels").gauge().value());
+        assertEquals(List.of(), labelBitmapIndex.find("cat", null, 10));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefresh_AddsEntriesWrittenElsewhere() {
+        // Arrange
+        stubSegment(0);
+        stubSegment(1);
+        labelBitmapIndex.build();
+        String imageId = UUID.randomUUID().toString();
+        ImageLabel entry = new ImageLabel("cat", imageId, "images/" + imageId + "_test.jpg").markLabelled(Instant.now());
+        DynamoDbIndex<ImageLabel> labelledIndex = mock(DynamoDbIndex.class);
+        when(labelTable.index(ImageLabel.LABELLED_INDEX)).thenReturn(labelledIndex);
+        SdkIterable<Page<ImageLabel>> pages = () -> List.of(Page.builder(ImageLabel.class).items(List.of(entry)).build()).iterator();
+        when(labelledIndex.query(any(QueryEnhancedRequest.class))).thenReturn(pages);
+
+        // Act
+        labelBitmapIndex.refresh();
+
+        // Assert - each queried minute bucket is read from the end of the last refresh on
+        ArgumentCaptor<QueryEnhancedRequest> queries = ArgumentCaptor.forClass(QueryEnhancedRequest.class);
+        verify(labelledIndex, atLeastOnce()).query(queries.capture());
+        assertTrue(queries.getAllValues().size() <= 3);
+        List<ImageLabel> cats = labelBitmapIndex.find("cat", null, 10);
+        assertEquals(1, cats.size());
+        assertEquals(imageId, cats.get(0).getImageId());
+    }
+
+    private List<String> pageThrough(String label, int count) {
+        List<String> imageIds = new ArrayList<>();
+        List<ImageLabel> page = labelBitmapIndex.find(label, null, count);
+        while (!page.isEmpty()) {
+            page.forEach(entry -> imageIds.add(entry.getImageId()));
+            page = labelBitmapIndex.find(label, imageIds.get(imageIds.size() - 1), count);
+        }
+        return imageIds;
+    }
+
+    private static Image labelledImage(String id, String... labels) {
+        Image image = new Image();
+        image.setId(id);
+        image.setObjectPath("images/" + id + "_test.jpg");
+        image.setLabels(Set.of(labels));
+        return image;
+    }
+
+    private void stubSegment(int segment, Image... images) {
+        when(imageTable.scan(argThat((ScanEnhancedRequest scan) -> scan != null && scan.segment() == segment)))
+            .thenReturn(PageIterable.create(() -> List.of(Page.builder(Image.class).items(List.of(images)).build()).iterator()));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.model.Image;
+import com.example.demo.service.ImageLabelIndex;
+import com.example.demo.service.LabelIndexBackfillService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LabelIndexBackfillServiceTest {
+
+    @Mock
+    private ImageLabelIndex imageLabelIndex;
+
+    @Mock
+    private DynamoDbTable<Image> imageTable;
+
+    private LabelIndexBackfillService labelIndexBackfillService;
+
+    @BeforeEach
+    void setUp() {
+        labelIndexBackfillService = new LabelIndexBackfillService(imageLabelIndex, imageTable);
+    }
+
+    @Test
+    void testBackfill_IndexesLabelledImagesOnce() {
+        // Arrange
+        Image image = labelledImage();
+        stubScan(image);
+
+        // Act
+        labelIndexBackfillService.backfill();
+        labelIndexBackfillService.backfill();
+
+        // Assert
+        ArgumentCaptor<ScanEnhancedRequest> scan = ArgumentCaptor.forClass(ScanEnhancedRequest.class);
+        verify(imageTable, times(1)).scan(scan.capture());
+        assertEquals("attribute_exists(labels)", scan.getValue().filterExpression().expression());
+        verify(imageLabelIndex).add(image, Set.of("cat"));
+        verify(imageLabelIndex).markBackfilled();
+    }
+
+    @Test
+    void testBackfill_SkippedWhenAnotherTaskCompletedIt() {
+        // Arrange
+        when(imageLabelIndex.isBackfilled()).thenReturn(true);
+
+        // Act
+        labelIndexBackfillService.backfill();
+
+        // Assert
+        verify(imageTable, never()).scan(any(ScanEnhancedRequest.class));
+        verify(imageLabelIndex, never()).markBackfilled();
+    }
+
+    @Test
+    void testBackfill_FailedRunIsRepeated() {
+        // Arrange
+        Image image = labelledImage();
+        stubScan(image);
+        doThrow(new RuntimeException("Failed to index 1 labels of image " + image.getId()))
+            .doNothing()
+            .when(imageLabelIndex).add(image, Set.of("cat"));
+
+        // Act
+        labelIndexBackfillService.backfill();
+        labelIndexBackfillService.backfill();
+
+        // Assert
+        verify(imageTable, times(2)).scan(any(ScanEnhancedRequest.class));
+        verify(imageLabelIndex, times(1)).markBackfilled();
+    }
+
+    private static Image labelledImage() {
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/" + image.getId() + "_cat.jpg");
+        image.setLabels(Set.of("cat"));
+        return image;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubScan(Image... images) {
+        PageIterable<Image> pages = mock(PageIterable.class);
+        SdkIterable<Image> items = () -> List.of(images).iterator();
+        when(pages.items()).thenReturn(items);
+        when(imageTable.scan(any(ScanEnhancedRequest.class))).thenReturn(pages);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.model.Image;
+import com.example.demo.service.ContentTypeLearnedEvent;
+import com.example.demo.service.ImageService;
+import com.example.demo.service.MetadataBackfillService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetadataBackfillServiceTest {
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private DynamoDbTable<Image> imageTable;
+
+    @Mock
+    private S3Client s3Client;
+
+    private MetadataBackfillService metadataBackfillService;
+
+    @BeforeEach
+    void setUp() {
+        metadataBackfillService = new MetadataBackfillService(imageService, imageTable, s3Client);
+        ReflectionTestUtils.setField(metadataBackfillService, "bucketName", "test-bucket");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBackfill_CompletesLegacyRecordsFromS3() {
+        // Arrange
+        Image legacy = legacyImage();
+        legacy.setObjectSize("2048");
+        stubScan(legacy);
+        when(imageService.storageKeyOf(legacy)).thenReturn(legacy.getObjectPath());
+        when(s3Client.headObject(any(Consumer.class))).thenReturn(HeadObjectResponse.builder()
+            .contentType("image/webp")
+            .contentLength(2048L)
+            .eTag("\"legacy\"")
+            .build());
+
+        // Act
+        metadataBackfillService.backfill();
+
+        // Assert
+        ArgumentCaptor<ScanEnhancedRequest> scan = ArgumentCaptor.forClass(ScanEnhancedRequest.class);
+        verify(imageTable).scan(scan.capture());
+        assertTrue(scan.getValue().filterExpression().expression().contains("attribute_not_exists(contentType)"));
+        ArgumentCaptor<Image> captor = ArgumentCaptor.forClass(Image.class);
+        verify(imageService).update(captor.capture());
+        Image result = captor.getValue();
+        assertEquals(legacy.getId(), result.getId());
+        assertEquals("image/webp", result.getContentType());
+        assertEquals("\"legacy\"", result.getObjectETag());
+        // Only missing attributes are written
+        assertNull(result.getObjectSize());
+        assertNull(result.getLabels());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBackfill_UnusableContentTypeIsLeftAlone() {
+        // Arrange
+        Image legacy = legacyImage();
+        stubScan(legacy);
+        when(imageService.storageKeyOf(legacy)).thenReturn(legacy.getObjectPath());
+        when(s3Client.headObject(any(Consumer.class))).thenReturn(HeadObjectResponse.builder()
+            .contentType("binary/octet-stream")
+            .build());
+
+        // Act
+        metadataBackfillService.backfill();
+
+        // Assert
+        verify(imageService, never()).update(any());
+    }
+
+    @Test
+    void testBackfill_StopsScanningOnceNothingIsLeft() {
+        // Arrange
+        stubScan();
+
+        // Act
+        metadataBackfillService.backfill();
+        metadataBackfillService.backfill();
+
+        // Assert
+        verify(imageTable, times(1)).scan(any(ScanEnhancedRequest.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBackfill_KeepsScanningWhileRecordsCannotBeCompleted() {
+        // Arrange
+        Image legacy = legacyImage();
+        stubScan(legacy);
+        when(imageService.storageKeyOf(legacy)).thenReturn(legacy.getObjectPath());
+        when(s3Client.headObject(any(Consumer.class))).thenThrow(S3Exception.builder().message("Slow Down").statusCode(503).build());
+
+        // Act
+        metadataBackfillService.backfill();
+        metadataBackfillService.backfill();
+
+        // Assert
+        verify(imageTable, times(2)).scan(any(ScanEnhancedRequest.class));
+        verify(imageService, never()).update(any());
+    }
+
+    @Test
+    void testRecordLearnedContentTypes_WritesOncePerImage() {
+        // Arrange
+        ContentTypeLearnedEvent event = new ContentTypeLearnedEvent(UUID.randomUUID().toString(), "images/legacy.webp", "image/webp");
+        metadataBackfillService.onContentTypeLearned(event);
+        metadataBackfillService.onContentTypeLearned(event);
+
+        // Act
+        metadataBackfillService.recordLearnedContentTypes();
+        metadataBackfillService.recordLearnedContentTypes();
+
+        // Assert
+        ArgumentCaptor<Image> captor = ArgumentCaptor.forClass(Image.class);
+        verify(imageService, times(1)).update(captor.capture());
+        Image result = captor.getValue();
+        assertEquals(event.imageId(), result.getId());
+        assertEquals("images/legacy.webp", result.getObjectPath());
+        assertEquals("image/webp", result.getContentType());
+        assertNull(result.getLabels());
+    }
+
+    private static Image legacyImage() {
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/" + image.getId() + "_photo.webp");
+        return image;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubScan(Image... images) {
+        PageIterable<Image> pages = mock(PageIterable.class);
+        SdkIterable<Image> items = () -> List.of(images).iterator();
+        when(pages.items()).thenReturn(items);
+        when(imageTable.scan(any(ScanEnhancedRequest.class))).thenReturn(pages);
+    }
+}
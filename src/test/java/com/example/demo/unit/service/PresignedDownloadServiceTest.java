@@ -0,0 +1,143 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.DownloadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.ImageFile;
+import com.example.demo.service.PresignedDownloadService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PresignedDownloadServiceTest {
+
+    // Presigning is a local computation, so a real presigner with static credentials is spied on
+    private S3Presigner s3Presigner;
+
+    private DownloadConfig downloadConfig;
+
+    private PresignedDownloadService presignedDownloadService;
+
+    @BeforeEach
+    void setUp() {
+        s3Presigner = spy(S3Presigner.builder()
+            .region(Region.US_EAST_1)
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+            .build());
+        downloadConfig = new DownloadConfig();
+        presignedDownloadService = new PresignedDownloadService(s3Presigner, downloadConfig);
+        ReflectionTestUtils.setField(presignedDownloadService, "bucketName", "test-bucket");
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Presigner.close();
+    }
+
+    @Test
+    void testPresignedUrlFor_SignsGetWithResponseHeaders() {
+        // Arrange
+        ImageFile file = imageFile(UUID.randomUUID(), "image/png");
+
+        // Act
+        URI url = presignedDownloadService.presignedUrlFor(file, "image.png");
+
+        // Assert
+        String query = url.getRawQuery();
+        assertTrue(url.getPath().endsWith(file.getObjectKey()));
+        assertTrue(url.getHost().startsWith("test-bucket"));
+        assertTrue(query.contains("response-content-type=image%2Fpng"));
+        assertTrue(query.contains("response-content-disposition=inline"));
+        assertTrue(query.contains("X-Amz-Expires=600"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPresignedUrlFor_ReusesUrlUntilShortlyBeforeExpiry() {
+        // Arrange
+        ImageFile file = imageFile(UUID.randomUUID(), "image/jpeg");
+
+        // Act
+        URI first = presignedDownloadService.presignedUrlFor(file, "image.jpg");
+        URI second = presignedDownloadService.presignedUrlFor(file, "image.jpg");
+
+        // Assert
+        assertSame(first, second);
+        verify(s3Presigner, times(1)).presignGetObject(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPresignedUrlFor_SignsAgainWhenTooLittleValidityRemains() {
+        // Arrange
+        downloadConfig.setPresignedUrlTtl(Duration.ofMinutes(1));
+        downloadConfig.setPresignedUrlMinRemaining(Duration.ofMinutes(2));
+        ImageFile file = imageFile(UUID.randomUUID(), "image/jpeg");
+
+        // Act
+        presignedDownloadService.presignedUrlFor(file, "image.jpg");
+        presignedDownloadService.presignedUrlFor(file, "image.jpg");
+
+        // Assert
+        verify(s3Presigner, times(2)).presignGetObject(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEvict_DropsUrlsOfImage() {
+        // Arrange
+        UUID imageId = UUID.randomUUID();
+        ImageFile original = imageFile(imageId, "image/jpeg");
+        ImageFile other = imageFile(UUID.randomUUID(), "image/jpeg");
+        presignedDownloadService.presignedUrlFor(original, "image.jpg");
+        presignedDownloadService.presignedUrlFor(other, "image.jpg");
+
+        // Act
+        presignedDownloadService.evict(imageId.toString());
+        presignedDownloadService.presignedUrlFor(original, "image.jpg");
+        presignedDownloadService.presignedUrlFor(other, "image.jpg");
+
+        // Assert
+        verify(s3Presigner, times(3)).presignGetObject(any(Consumer.class));
+    }
+
+    @Test
+    void testPresignedUrlFor_CacheIsBounded() {
+        // Arrange
+        downloadConfig.setPresignedUrlCacheSize(1);
+        presignedDownloadService = new PresignedDownloadService(s3Presigner, downloadConfig);
+        ReflectionTestUtils.setField(presignedDownloadService, "bucketName", "test-bucket");
+        ImageFile first = imageFile(UUID.randomUUID(), "image/jpeg");
+        ImageFile second = imageFile(UUID.randomUUID(), "image/jpeg");
+
+        // Act
+        URI url = presignedDownloadService.presignedUrlFor(first, "image.jpg");
+        presignedDownloadService.presignedUrlFor(second, "image.jpg");
+
+        // Assert
+        assertNotSame(url, presignedDownloadService.presignedUrlFor(first, "image.jpg"));
+    }
+
+    private static ImageFile imageFile(UUID id, String contentType) {
+        Image image = new Image();
+        image.setId(id.toString());
+        ImageFile file = new ImageFile();
+        file.setImage(image);
+        file.setObjectKey("images/" + id + "_test.jpg");
+        file.setContentType(contentType);
+        return file;
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.PresignedUpload;
+import com.example.demo.model.Status;
+import com.example.demo.model.UploadMode;
+import com.example.demo.service.ImageService;
+import com.example.demo.service.PresignedUploadService;
+import com.example.demo.service.S3BucketManager;
+import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresignedUploadServiceTest {
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private DynamoDbTemplate dynamoDbTemplate;
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private S3BucketManager s3BucketManager;
+
+    // Presigning is a local computation, so a real presigner with static credentials is used
+    private S3Presigner s3Presigner;
+
+    private PresignedUploadService presignedUploadService;
+
+    @BeforeEach
+    void setUp() {
+        s3Presigner = S3Presigner.builder()
+            .region(Region.US_EAST_1)
+            .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+            .build();
+
+        UploadConfig uploadConfig = new UploadConfig();
+        uploadConfig.setSupportedImageTypes(List.of("image/jpeg", "image/png"));
+        presignedUploadService = new PresignedUploadService(imageService, dynamoDbTemplate, s3Client, s3Presigner,
+            s3BucketManager, uploadConfig);
+        ReflectionTestUtils.setField(presignedUploadService, "bucketName", "test-bucket");
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Presigner.close();
+    }
+
+    @Test
+    void testCreateUploadUrl_SavesPendingImageAndSignsContentHeaders() {
+        // Arrange
+        Image pending = pendingImage("1024");
+        when(imageService.objectKeyFor(any(), eq("test.jpg"))).thenReturn(pending.getObjectPath());
+        when(imageService.newImage(any(), eq(pending.getObjectPath()), eq(1024L), eq(Status.PENDING))).thenReturn(pending);
+
+        // Act
+        PresignedUpload upload = presignedUploadService.createUploadUrl("test.jpg", "image/jpeg", 1024L);
+
+        // Assert
+        verify(s3BucketManager).ensureBucket();
+        verify(dynamoDbTemplate).save(pending);
+        assertEquals(UploadMode.PRESIGNED, pending.getUploadMode());
+        assertEquals(pending.getId(), upload.getId());
+        assertTrue(upload.getUploadUrl().contains("test-bucket"));
+        assertTrue(upload.getUploadUrl().contains("X-Amz-Signature"));
+        assertEquals("image/jpeg", upload.getHeaders().get("content-type"));
+        assertEquals("1024", upload.getHeaders().get("content-length"));
+        assertFalse(upload.getHeaders().containsKey("host"));
+        assertNotNull(upload.getExpiresAt());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testComplete_MatchingObjectActivatesImage() {
+        // Arrange
+        Image pending = pendingImage("1024");
+        when(imageService.getById(UUID.fromString(pending.getId()))).thenReturn(pending);
+        when(imageService.updateIfPending(any())).thenReturn(true);
+        when(s3Client.headObject(any(Consumer.class))).thenReturn(HeadObjectResponse.builder()
+            .contentLength(1024L)
+            .contentType("image/jpeg")
+            .eTag("\"direct\"")
+            .build());
+        doAnswer(invocation -> {
+            Image described = invocation.getArgument(0);
+            described.setWidth(40);
+            described.setHeight(30);
+            described.setFormat("jpeg");
+            return null;
+        }).when(imageService).describeStoredObject(any());
+
+        // Act
+        Image result = presignedUploadService.complete(UUID.fromString(pending.getId()));
+
+        // Assert
+        assertEquals(Status.ACTIVE, result.getStatus());
+        assertEquals(40, result.getWidth());
+        ArgumentCaptor<Image> captor = ArgumentCaptor.forClass(Image.class);
+        verify(imageService).updateIfPending(captor.capture());
+        assertEquals(Status.ACTIVE, captor.getValue().getStatus());
+        assertEquals(40, captor.getValue().getWidth());
+        assertEquals(30, captor.getValue().getHeight());
+        assertEquals("jpeg", captor.getValue().getFormat());
+        assertEquals("\"direct\"", captor.getValue().getObjectETag());
+        assertEquals("image/jpeg", captor.getValue().getContentType());
+        assertNull(captor.getValue().getLabels());
+        verify(s3Client, never()).deleteObject(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testComplete_SizeMismatchRejectsUpload() {
+        // Arrange
+        Image pending = pendingImage("1024");
+        when(imageService.getById(UUID.fromString(pending.getId()))).thenReturn(pending);
+        when(imageService.updateIfPending(any())).thenReturn(true);
+        when(s3Client.headObject(any(Consumer.class))).thenReturn(HeadObjectResponse.builder()
+            .contentLength(4096L)
+            .contentType("image/jpeg")
+            .build());
+
+        // Act
+        Image result = presignedUploadService.complete(UUID.fromString(pending.getId()));
+
+        // Assert
+        assertEquals(Status.INACTIVE, result.getStatus());
+        verify(s3Client).deleteObject(any(Consumer.class));
+        verify(imageService).updateIfPending(argThat(image -> image.getStatus() == Status.INACTIVE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testComplete_UnsupportedContentTypeRejectsUpload() {
+        // Arrange
+        Image pending = pendingImage("1024");
+        when(imageService.getById(UUID.fromString(pending.getId()))).thenReturn(pending);
+        when(imageService.updateIfPending(any())).thenReturn(true);
+        when(s3Client.headObject(any(Consumer.class))).thenReturn(HeadObjectResponse.builder()
+            .contentLength(1024L)
+            .contentType("text/html")
+            .build());
+
+        // Act
+        Image result = presignedUploadService.complete(UUID.fromString(pending.getId()));
+
+        // Assert
+        assertEquals(Status.INACTIVE, result.getStatus());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testComplete_ImageDeletedMeanwhileDiscardsObject() {
+        // Arrange
+        Image pending = pendingImage("1024");
+        when(imageService.getById(UUID.fromString(pending.getId()))).thenReturn(pending, (Image) null);
+        when(imageService.updateIfPending(any())).thenReturn(false);
+        when(s3Client.headObject(any(Consumer.class))).thenReturn(HeadObjectResponse.builder()
+            .contentLength(1024L)
+            .contentType("image/jpeg")
+            .build());
+
+        // Act
+        Image result = presignedUploadService.complete(UUID.fromString(pending.getId()));
+
+        // Assert
+        assertNull(result);
+        verify(s3Client).deleteObject(any(Consumer.class));
+        verify(imageService, never()).publishStored(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testComplete_SettledMeanwhileKeepsObject() {
+        // Arrange
+        Image pending = pendingImage("1024");
+        Image active = pendingImage("1024");
+        active.setId(pending.getId());
+        active.setStatus(Status.ACTIVE);
+        when(imageService.getById(UUID.fromString(pending.getId()))).thenReturn(pending, active);
+        when(imageService.updateIfPending(any())).thenReturn(false);
+        when(s3Client.headObject(any(Consumer.class))).thenReturn(HeadObjectResponse.builder()
+            .contentLength(1024L)
+            .contentType("image/jpeg")
+            .build());
+
+        // Act
+        Image result = presignedUploadService.complete(UUID.fromString(pending.getId()));
+
+        // Assert
+        assertSame(active, result);
+        verify(s3Client, never()).deleteObject(any(Consumer.class));
+        verify(imageService, never()).publishStored(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCleanUpExpiredUploads_DeactivatesUploadsPastTheUrlTtl() {
+        // Arrange
+        Image expired = pendingImage("1024");
+        when(imageService.findPendingUploads(eq(UploadMode.PRESIGNED), any())).thenReturn(Stream.of(expired));
+        when(imageService.updateIfPending(any())).thenReturn(true);
+
+        // Act
+        presignedUploadService.cleanUpExpiredUploads();
+
+        // Assert - the URLs live 15 minutes, followed by an hour of grace
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(imageService).findPendingUploads(eq(UploadMode.PRESIGNED), cutoff.capture());
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusMinutes(74)));
+        assertTrue(cutoff.getValue().isAfter(LocalDateTime.now().minusMinutes(76)));
+        verify(s3Client).deleteObject(any(Consumer.class));
+        verify(imageService).updateIfPending(argThat(image ->
+            image.getId().equals(expired.getId()) && image.getStatus() == Status.INACTIVE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCleanUpExpiredUploads_UploadCompletedSinceTheScanIsKept() {
+        // Arrange
+        Image expired = pendingImage("1024");
+        when(imageService.findPendingUploads(eq(UploadMode.PRESIGNED), any())).thenReturn(Stream.of(expired));
+        when(imageService.updateIfPending(any())).thenReturn(false);
+
+        // Act
+        presignedUploadService.cleanUpExpiredUploads();
+
+        // Assert
+        verify(s3Client, never()).deleteObject(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testComplete_ObjectNotUploadedYet() {
+        // Arrange
+        Image pending = pendingImage("1024");
+        when(imageService.getById(UUID.fromString(pending.getId()))).thenReturn(pending);
+        when(s3Client.headObject(any(Consumer.class))).thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> presignedUploadService.complete(UUID.fromString(pending.getId())));
+        verify(imageService, never()).updateIfPending(any());
+    }
+
+    @Test
+    void testComplete_AlreadyActiveIsReturnedUnchanged() {
+        // Arrange
+        Image active = pendingImage("1024");
+        active.setStatus(Status.ACTIVE);
+        when(imageService.getById(UUID.fromString(active.getId()))).thenReturn(active);
+
+        // Act
+        Image result = presignedUploadService.complete(UUID.fromString(active.getId()));
+
+        // Assert
+        assertSame(active, result);
+        verify(s3Client, never()).headObject(any(HeadObjectRequest.class));
+        verify(imageService, never()).updateIfPending(any());
+    }
+
+    private Image pendingImage(String size) {
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/" + image.getId() + "_test.jpg");
+        image.setObjectSize(size);
+        image.setStatus(Status.PENDING);
+        return image;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.DownloadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.ImageFile;
+import com.example.demo.model.Rendition;
+import com.example.demo.service.ImageService;
+import com.example.demo.service.RenditionLimitException;
+import com.example.demo.service.RenditionService;
+import com.example.demo.service.RequestCoalescer;
+import com.example.demo.service.UnrenderableImageException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RenditionServiceTest {
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private S3Client s3Client;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RenditionService renditionService;
+    private final List<PutObjectRequest> puts = new ArrayList<>();
+    private final List<byte[]> bodies = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DownloadConfig downloadConfig = new DownloadConfig();
+        downloadConfig.getRenditions().setMaxDimension(1000);
+        downloadConfig.getRenditions().setSizes(List.of(100, 200, 300, 500, 1001));
+        downloadConfig.getRenditions().setMaxPerImage(3);
+        renditionService = new RenditionService(imageService, s3Client, new RequestCoalescer(meterRegistry),
+            downloadConfig, meterRegistry);
+        ReflectionTestUtils.setField(renditionService, "bucketName", "test-bucket");
+    }
+
+    @AfterEach
+    void tearDown() {
+        renditionService.shutdown();
+    }
+
+    @Test
+    void testIsValid() {
+        // Act & Assert
+        assertTrue(renditionService.isValid(new Rendition(200, null, Rendition.Fit.CONTAIN)));
+        assertTrue(renditionService.isValid(new Rendition(200, 100, Rendition.Fit.COVER)));
+        assertFalse(renditionService.isValid(new Rendition(null, null, Rendition.Fit.CONTAIN)));
+        assertFalse(renditionService.isValid(new Rendition(200, null, Rendition.Fit.COVER)));
+        assertFalse(renditionService.isValid(new Rendition(0, 100, Rendition.Fit.FILL)));
+        assertFalse(renditionService.isValid(new Rendition(1001, 100, Rendition.Fit.FILL)));
+        assertFalse(renditionService.isValid(new Rendition(150, 100, Rendition.Fit.FILL)));
+        assertFalse(renditionService.isValid(new Rendition(null, 250, Rendition.Fit.CONTAIN)));
+    }
+
+    @Test
+    void testResolve_KeyDependsOnlyOnRequest() {
+        // Arrange
+        Image image = storedImage("png");
+
+        // Act
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), new Rendition(200, null, Rendition.Fit.CONTAIN));
+
+        // Assert
+        assertEquals("renditions/" + image.getId() + "/200x0-contain.png", file.getObjectKey());
+        assertEquals("image/png", file.getContentType());
+        assertEquals(java.time.Instant.parse("2024-01-01T10:00:00Z"), file.getLastModified());
+        assertNull(file.getETag());
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOpen_StoredRenditionIsNotRenderedAgain() {
+        // Arrange
+        Image image = storedImage("jpg");
+        Rendition rendition = new Rendition(100, 100, Rendition.Fit.FILL);
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), rendition);
+        when(imageService.openImageFile(file, "bytes=0-9", null)).thenReturn(true);
+
+        // Act
+        assertTrue(renditionService.open(file, rendition, "bytes=0-9", null));
+
+        // Assert
+        verify(imageService, never()).resolveImageFile(any(), any());
+        verify(s3Client, never()).putObject(any(Consumer.class), any(RequestBody.class));
+    }
+
+    @Test
+    void testOpen_MissingRenditionIsCroppedFromOriginalAndStored() throws IOException {
+        // Arrange
+        Image image = storedImage("jpg");
+        Rendition rendition = new Rendition(100, 100, Rendition.Fit.COVER);
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), rendition);
+        when(imageService.openImageFile(file, null, null))
+            .thenThrow(new RuntimeException("Failed to download image from S3", NoSuchKeyException.builder().statusCode(404).build()))
+            .thenReturn(true);
+        stubStoredRenditions(0);
+        stubOriginal(image, encode(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "jpg"));
+        capturePuts();
+
+        // Act
+        assertTrue(renditionService.open(file, rendition, null, null));
+
+        // Assert
+        assertEquals(1, puts.size());
+        assertEquals("renditions/" + image.getId() + "/100x100-cover.jpg", puts.get(0).key());
+        assertEquals("image/jpeg", puts.get(0).contentType());
+        BufferedImage stored = ImageIO.read(new ByteArrayInputStream(bodies.get(0)));
+        assertEquals(100, stored.getWidth());
+        assertEquals(100, stored.getHeight());
+        verify(imageService, times(2)).openImageFile(file, null, null);
+    }
+
+    @Test
+    void testEnsureStored_ContainNeverEnlarges() throws IOException {
+        // Arrange
+        Image image = storedImage("png");
+        Rendition rendition = new Rendition(500, 500, Rendition.Fit.CONTAIN);
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), rendition);
+        when(s3Client.headObject(any(Consumer.class))).thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+        stubStoredRenditions(2);
+        stubOriginal(image, encode(new BufferedImage(300, 150, BufferedImage.TYPE_INT_ARGB), "png"));
+        capturePuts();
+
+        // Act
+        renditionService.ensureStored(file, rendition);
+
+        // Assert
+        BufferedImage stored = ImageIO.read(new ByteArrayInputStream(bodies.get(0)));
+        assertEquals(300, stored.getWidth());
+        assertEquals(150, stored.getHeight());
+        assertTrue(stored.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void testEnsureStored_RotatedPhotoIsRenderedUpright() throws IOException {
+        // Arrange - stored red left and blue right, to be turned 90 degrees clockwise for display
+        Image image = storedImage("png");
+        image.setOrientation(6);
+        Rendition rendition = new Rendition(100, null, Rendition.Fit.CONTAIN);
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), rendition);
+        when(s3Client.headObject(any(Consumer.class))).thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+        BufferedImage stored = new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB);
+        java.awt.Graphics2D graphics = stored.createGraphics();
+        graphics.setColor(java.awt.Color.RED);
+        graphics.fillRect(0, 0, 200, 200);
+        graphics.setColor(java.awt.Color.BLUE);
+        graphics.fillRect(200, 0, 200, 200);
+        graphics.dispose();
+        stubStoredRenditions(0);
+        stubOriginal(image, encode(stored, "png"));
+        capturePuts();
+
+        // Act
+        renditionService.ensureStored(file, rendition);
+
+        // Assert
+        BufferedImage upright = ImageIO.read(new ByteArrayInputStream(bodies.get(0)));
+        assertEquals(100, upright.getWidth());
+        assertEquals(200, upright.getHeight());
+        assertEquals(java.awt.Color.RED.getRGB(), upright.getRGB(50, 20));
+        assertEquals(java.awt.Color.BLUE.getRGB(), upright.getRGB(50, 180));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEnsureStored_ExistingRenditionIsKept() {
+        // Arrange
+        Image image = storedImage("jpg");
+        Rendition rendition = new Rendition(100, null, Rendition.Fit.CONTAIN);
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), rendition);
+        when(s3Client.headObject(any(Consumer.class))).thenReturn(HeadObjectResponse.builder().build());
+
+        // Act
+        renditionService.ensureStored(file, rendition);
+
+        // Assert
+        verify(s3Client, never()).putObject(any(Consumer.class), any(RequestBody.class));
+    }
+
+    @Test
+    void testOpen_FullQueueIsRejected() {
+        // Arrange
+        Image image = storedImage("jpg");
+        Rendition rendition = new Rendition(100, null, Rendition.Fit.CONTAIN);
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), rendition);
+        when(imageService.openImageFile(file, null, null))
+            .thenThrow(new RuntimeException("Failed to download image from S3", NoSuchKeyException.builder().statusCode(404).build()));
+        renditionService.shutdown();
+
+        // Act & Assert
+        assertThrows(RejectedExecutionException.class, () -> renditionService.open(file, rendition, null, null));
+        assertEquals(1.0, meterRegistry.counter("image.renditions.rejected").count());
+        verify(imageService, never()).resolveImageFile(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOpen_ImageWithTooManyRenditionsGetsNoMore() {
+        // Arrange
+        Image image = storedImage("jpg");
+        Rendition rendition = new Rendition(100, null, Rendition.Fit.CONTAIN);
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), rendition);
+        when(imageService.openImageFile(file, null, null))
+            .thenThrow(new RuntimeException("Failed to download image from S3", NoSuchKeyException.builder().statusCode(404).build()));
+        stubStoredRenditions(3);
+
+        // Act & Assert
+        assertThrows(RenditionLimitException.class, () -> renditionService.open(file, rendition, null, null));
+        verify(imageService, never()).resolveImageFile(any(), any());
+        verify(s3Client, never()).putObject(any(Consumer.class), any(RequestBody.class));
+    }
+
+    @Test
+    void testOpen_UndecodableOriginalIsReportedAsSuch() {
+        // Arrange
+        Image image = storedImage("jpg");
+        Rendition rendition = new Rendition(100, null, Rendition.Fit.CONTAIN);
+        ImageFile file = renditionService.resolve(UUID.fromString(image.getId()), rendition);
+        when(imageService.openImageFile(file, null, null))
+            .thenThrow(new RuntimeException("Failed to download image from S3", NoSuchKeyException.builder().statusCode(404).build()));
+        stubStoredRenditions(0);
+        stubOriginal(image, "not an image".getBytes());
+
+        // Act & Assert
+        assertThrows(UnrenderableImageException.class, () -> renditionService.open(file, rendition, null, null));
+    }
+
+    private Image storedImage(String extension) {
+        Image image = new Image();
+        image.setId(UUID.randomUUID().toString());
+        image.setObjectPath("images/" + image.getId() + "_test." + extension);
+        image.setTimeAdded(LocalDateTime.of(2024, 1, 1, 10, 0));
+        when(imageService.getById(UUID.fromString(image.getId()))).thenReturn(image);
+        return image;
+    }
+
+    private void stubOriginal(Image image, byte[] content) {
+        ImageFile original = new ImageFile();
+        original.setImage(image);
+        when(imageService.resolveImageFile(UUID.fromString(image.getId()), null)).thenReturn(original);
+        when(imageService.openImageFile(original, null, null)).thenAnswer(invocation -> {
+            original.setContent(new ByteArrayInputStream(content));
+            return true;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubStoredRenditions(int count) {
+        List<S3Object> contents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            contents.add(S3Object.builder().key("renditions/" + i).build());
+        }
+        when(s3Client.listObjectsV2(any(Consumer.class))).thenReturn(ListObjectsV2Response.builder().contents(contents).build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void capturePuts() {
+        when(s3Client.putObject(any(Consumer.class), any(RequestBody.class))).thenAnswer(invocation -> {
+            PutObjectRequest.Builder builder = PutObjectRequest.builder();
+            ((Consumer<PutObjectRequest.Builder>) invocation.getArgument(0)).accept(builder);
+            puts.add(builder.build());
+            try (var stream = ((RequestBody) invocation.getArgument(1)).contentStreamProvider().newStream()) {
+                bodies.add(stream.readAllBytes());
+            }
+            return null;
+        });
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
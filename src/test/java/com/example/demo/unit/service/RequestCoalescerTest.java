@@ -0,0 +1,127 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.service.RequestCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private static final int CALLERS = 10;
+
+    private MeterRegistry meterRegistry;
+    private RequestCoalescer requestCoalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        requestCoalescer = new RequestCoalescer(meterRegistry);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testExecute_ConcurrentCallsShareOneResult() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        List<Future<String>> results = submitAll(() -> requestCoalescer.execute("metadata", "id-1", () -> {
+            calls.incrementAndGet();
+            await(release);
+            return "result";
+        }));
+        awaitFollowers(CALLERS - 1);
+        release.countDown();
+
+        // Assert
+        for (Future<String> result : results) {
+            assertEquals("result", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1.0, count("leader"));
+        assertEquals(CALLERS - 1.0, count("follower"));
+    }
+
+    @Test
+    void testExecute_FailureIsSharedAndNotRemembered() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Act
+        List<Future<String>> results = submitAll(() -> requestCoalescer.execute("file", "key", () -> {
+            await(release);
+            throw new IllegalStateException("S3 is down");
+        }));
+        awaitFollowers(CALLERS - 1);
+        release.countDown();
+
+        // Assert
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        assertEquals("recovered", requestCoalescer.execute("file", "key", () -> "recovered"));
+    }
+
+    @Test
+    void testExecute_DifferentKeysAndKindsDoNotShare() {
+        // Act
+        String first = requestCoalescer.execute("file", "key", () -> "file");
+        String second = requestCoalescer.execute("metadata", "key", () -> "metadata");
+
+        // Assert
+        assertEquals("file", first);
+        assertEquals("metadata", second);
+        assertEquals(0.0, count("follower"));
+    }
+
+    private List<Future<String>> submitAll(java.util.concurrent.Callable<String> call) {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(call));
+        }
+        return results;
+    }
+
+    private void awaitFollowers(int followers) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count("follower") < followers && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private double count(String role) {
+        return meterRegistry.find("image.coalescing.calls").tag("role", role).counters().stream()
+            .mapToDouble(counter -> counter.count())
+            .sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.model.Image;
+import com.example.demo.model.Status;
+import com.example.demo.model.UploadSession;
+import com.example.demo.service.ImageService;
+import com.example.demo.service.ResumableUploadService;
+import com.example.demo.service.S3BucketManager;
+import io.awspring.cloud.dynamodb.DynamoDbTableNameResolver;
+import io.awspring.cloud.dynamodb.DynamoDbTemplate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResumableUploadServiceTest {
+
+    private static final long PART_SIZE = 8L * 1024 * 1024;
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private DynamoDbTemplate dynamoDbTemplate;
+
+    @Mock
+    private DynamoDbTable<UploadSession> sessionTable;
+
+    @Mock
+    private DynamoDbClient dynamoDbClient;
+
+    @Mock
+    private DynamoDbTableNameResolver tableNameResolver;
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private S3BucketManager s3BucketManager;
+
+    private ResumableUploadService resumableUploadService;
+
+    @BeforeEach
+    void setUp() {
+        when(tableNameResolver.resolve(UploadSession.class)).thenReturn("test-uploads");
+        resumableUploadService = new ResumableUploadService(imageService, dynamoDbTemplate, sessionTable, dynamoDbClient,
+            tableNameResolver, s3Client, s3BucketManager, new UploadConfig());
+        ReflectionTestUtils.setField(resumableUploadService, "bucketName", "test-bucket");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testInitiate_StartsMultipartUploadAndSavesPendingImage() {
+        // Arrange
+        when(imageService.objectKeyFor(any(), eq("big.jpg"))).thenReturn("images/abc_big.jpg");
+        when(s3Client.createMultipartUpload(any(Consumer.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        Image pending = new Image();
+        when(imageService.newImage(any(), eq("images/abc_big.jpg"), eq(20 * 1024 * 1024L), eq(Status.PENDING)))
+            .thenReturn(pending);
+
+        // Act
+        UploadSession session = resumableUploadService.initiate("big.jpg", "image/jpeg", 20 * 1024 * 1024L);
+
+        // Assert
+        verify(s3BucketManager).ensureBucket();
+        verify(sessionTable).putItem(session);
+        verify(dynamoDbTemplate).save(pending);
+        assertEquals("upload-1", session.getS3UploadId());
+        assertEquals(PART_SIZE, session.getPartSize());
+        assertEquals(3, session.partCount());
+        assertTrue(session.getExpiresAt() > Instant.now().getEpochSecond());
+    }
+
+    @Test
+    void testInitiate_TooManyParts() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+            () -> resumableUploadService.initiate("huge.jpg", "image/jpeg", 10_001 * PART_SIZE));
+        verifyNoInteractions(s3Client, sessionTable);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUploadPart_RecordsETagOfPart() {
+        // Arrange
+        UploadSession session = session(PART_SIZE + 100);
+        when(sessionTable.getItem(any(Key.class))).thenReturn(session);
+        when(s3Client.uploadPart(any(Consumer.class), any(RequestBody.class)))
+            .thenReturn(UploadPartResponse.builder().eTag("\"etag-2\"").build());
+
+        // Act
+        UploadSession result = resumableUploadService.uploadPart(UUID.fromString(session.getId()), 2,
+            new ByteArrayInputStream(new byte[100]), 100);
+
+        // Assert
+        assertEquals("\"etag-2\"", result.getParts().get("2"));
+        ArgumentCaptor<Consumer<UpdateItemRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(dynamoDbClient).updateItem(captor.capture());
+        UpdateItemRequest.Builder builder = UpdateItemRequest.builder();
+        captor.getValue().accept(builder);
+        UpdateItemRequest request = builder.build();
+        assertEquals("test-uploads", request.tableName());
+        assertEquals("2", request.expressionAttributeNames().get("#part"));
+        assertEquals("\"etag-2\"", request.expressionAttributeValues().get(":etag").s());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUploadPart_WrongLengthIsRejected() {
+        // Arrange
+        UploadSession session = session(PART_SIZE + 100);
+        when(sessionTable.getItem(any(Key.class))).thenReturn(session);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> resumableUploadService.uploadPart(
+            UUID.fromString(session.getId()), 1, new ByteArrayInputStream(new byte[100]), 100));
+        assertThrows(IllegalArgumentException.class, () -> resumableUploadService.uploadPart(
+            UUID.fromString(session.getId()), 3, new ByteArrayInputStream(new byte[100]), 100));
+        verify(s3Client, never()).uploadPart(any(Consumer.class), any(RequestBody.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUploadPart_SessionRemovedWhileUploading() {
+        // Arrange
+        UploadSession session = session(100);
+        when(sessionTable.getItem(any(Key.class))).thenReturn(session);
+        when(s3Client.uploadPart(any(Consumer.class), any(RequestBody.class)))
+            .thenReturn(UploadPartResponse.builder().eTag("\"etag-1\"").build());
+        when(dynamoDbClient.updateItem(any(Consumer.class))).thenThrow(ConditionalCheckFailedException.builder().build());
+
+        // Act
+        UploadSession result = resumableUploadService.uploadPart(UUID.fromString(session.getId()), 1,
+            new ByteArrayInputStream(new byte[100]), 100);
+
+        // Assert
+        assertNull(result);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testComplete_MissingParts() {
+        // Arrange
+        UploadSession session = session(PART_SIZE + 100);
+        session.getParts().put("1", "\"etag-1\"");
+        when(sessionTable.getItem(any(Key.class))).thenReturn(session);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> resumableUploadService.complete(UUID.fromString(session.getId())));
+        verify(s3Client, never()).completeMultipartUpload(any(Consumer.class));
+        verify(imageService, never()).update(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testComplete_AssemblesPartsInOrderAndActivatesImage() {
+        // Arrange
+        UploadSession session = session(PART_SIZE + 100);
+        session.getParts().put("2", "\"etag-2\"");
+        session.getParts().put("1", "\"etag-1\"");
+        when(sessionTable.getItem(any(Key.class))).thenReturn(session);
+        when(s3Client.completeMultipartUpload(any(Consumer.class)))
+            .thenReturn(CompleteMultipartUploadResponse.builder().eTag("\"object-2\"").build());
+        when(imageService.update(any())).thenReturn(true);
+
+        // Act
+        Image image = resumableUploadService.complete(UUID.fromString(session.getId()));
+
+        // Assert
+        ArgumentCaptor<Consumer<CompleteMultipartUploadRequest.Builder>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(s3Client).completeMultipartUpload(captor.capture());
+        CompleteMultipartUploadRequest.Builder builder = CompleteMultipartUploadRequest.builder();
+        captor.getValue().accept(builder);
+        CompleteMultipartUploadRequest request = builder.build();
+        assertEquals("upload-1", request.uploadId());
+        assertEquals(List.of(1, 2), request.multipartUpload().parts().stream().map(part -> part.partNumber()).toList());
+
+        verify(sessionTable).deleteItem(session);
+        assertEquals(Status.ACTIVE, image.getStatus());
+        assertEquals(String.valueOf(PART_SIZE + 100), image.getObjectSize());
+        assertEquals("\"object-2\"", image.getObjectETag());
+        assertEquals("image/jpeg", image.getContentType());
+        verify(imageService).describeStoredObject(image);
+        verify(imageService).update(image);
+        verify(imageService).publishStored(image);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAbort_DiscardsPartsAndPendingImage() {
+        // Arrange
+        UploadSession session = session(100);
+        when(sessionTable.getItem(any(Key.class))).thenReturn(session);
+
+        // Act
+        boolean aborted = resumableUploadService.abort(UUID.fromString(session.getId()));
+
+        // Assert
+        assertTrue(aborted);
+        verify(s3Client).abortMultipartUpload(any(Consumer.class));
+        verify(sessionTable).deleteItem(session);
+        verify(imageService).discardPending(session.getId(), session.getObjectPath());
+    }
+
+    @Test
+    void testAbort_UnknownSession() {
+        // Arrange
+        when(sessionTable.getItem(any(Key.class))).thenReturn(null);
+
+        // Act & Assert
+        assertFalse(resumableUploadService.abort(UUID.randomUUID()));
+        verifyNoInteractions(s3Client);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCleanUpExpiredSessions_AbortsAndDeactivates() {
+        // Arrange
+        UploadSession expired = session(100);
+        PageIterable<UploadSession> pages = mock(PageIterable.class);
+        SdkIterable<UploadSession> items = () -> List.of(expired).iterator();
+        when(pages.items()).thenReturn(items);
+        when(sessionTable.scan(any(ScanEnhancedRequest.class))).thenReturn(pages);
+
+        // Act
+        resumableUploadService.cleanUpExpiredSessions();
+
+        // Assert
+        verify(s3Client).abortMultipartUpload(any(Consumer.class));
+        verify(sessionTable).deleteItem(expired);
+        verify(imageService).update(argThat(image ->
+            image.getId().equals(expired.getId()) && image.getStatus() == Status.INACTIVE && image.getLabels() == null));
+    }
+
+    private UploadSession session(long size) {
+        String id = UUID.randomUUID().toString();
+        return new UploadSession(id, "images/" + id + "_big.jpg", "upload-1", "image/jpeg", size, PART_SIZE,
+            new HashMap<>(), LocalDateTime.now(), Instant.now().getEpochSecond() + 3600);
+    }
+}
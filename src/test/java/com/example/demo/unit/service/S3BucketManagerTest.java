@@ -0,0 +1,120 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.service.S3BucketManager;
+import io.awspring.cloud.s3.S3Template;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3BucketManagerTest {
+
+    @Mock
+    private S3Template s3Template;
+
+    @InjectMocks
+    private S3BucketManager s3BucketManager;
+
+    private final String testBucketName = "test-bucket";
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(s3BucketManager, "bucketName", testBucketName);
+    }
+
+    @Test
+    void testEnsureBucket_ChecksOnlyOnce() {
+        // Arrange
+        when(s3Template.bucketExists(testBucketName)).thenReturn(true);
+
+        // Act
+        s3BucketManager.ensureBucket();
+        s3BucketManager.ensureBucket();
+
+        // Assert
+        assertTrue(s3BucketManager.isBucketReady());
+        verify(s3Template, times(1)).bucketExists(testBucketName);
+        verify(s3Template, never()).createBucket(testBucketName);
+    }
+
+    @Test
+    void testEnsureBucket_BucketDoesNotExist_CreatesBucket() {
+        // Arrange
+        when(s3Template.bucketExists(testBucketName)).thenReturn(false);
+
+        // Act
+        s3BucketManager.ensureBucket();
+
+        // Assert
+        assertTrue(s3BucketManager.isBucketReady());
+        verify(s3Template).createBucket(testBucketName);
+    }
+
+    @Test
+    void testEnsureBucket_AfterInvalidate_ChecksAgain() {
+        // Arrange
+        when(s3Template.bucketExists(testBucketName)).thenReturn(true);
+        s3BucketManager.ensureBucket();
+
+        // Act
+        s3BucketManager.invalidate();
+        s3BucketManager.ensureBucket();
+
+        // Assert
+        verify(s3Template, times(2)).bucketExists(testBucketName);
+    }
+
+    @Test
+    void testEnsureBucket_S3AccessDenied() {
+        // Arrange
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(403)
+            .message("Access Denied")
+            .build();
+        when(s3Template.bucketExists(testBucketName)).thenThrow(s3Exception);
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> s3BucketManager.ensureBucket());
+        assertTrue(exception.getMessage().contains("AWS S3 access denied"));
+        assertFalse(s3BucketManager.isBucketReady());
+    }
+
+    @Test
+    void testEnsureBucket_S3BucketNotFound() {
+        // Arrange
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(404)
+            .message("Bucket not found")
+            .build();
+        when(s3Template.bucketExists(testBucketName)).thenThrow(s3Exception);
+
+        // Act & Assert
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> s3BucketManager.ensureBucket());
+        assertTrue(exception.getMessage().contains("S3 bucket not found"));
+        assertFalse(s3BucketManager.isBucketReady());
+    }
+
+    @Test
+    void testVerifyBucketOnStartup_FailureDoesNotPropagate() {
+        // Arrange
+        S3Exception s3Exception = (S3Exception) S3Exception.builder()
+            .statusCode(500)
+            .message("Internal Error")
+            .build();
+        when(s3Template.bucketExists(testBucketName)).thenThrow(s3Exception);
+
+        // Act
+        s3BucketManager.verifyBucketOnStartup();
+
+        // Assert
+        assertFalse(s3BucketManager.isBucketReady());
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.unit.service;
+
+import com.example.demo.config.UploadConfig;
+import com.example.demo.service.S3StreamingUploader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3StreamingUploaderTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @Mock
+    private S3Client s3Client;
+
+    private S3StreamingUploader uploader;
+
+    @BeforeEach
+    void setUp() {
+        UploadConfig uploadConfig = new UploadConfig();
+        uploadConfig.setMultipartThreshold(DataSize.ofMegabytes(6));
+        uploadConfig.setPartSize(DataSize.ofMegabytes(5));
+        uploader = new S3StreamingUploader(s3Client, uploadConfig);
+    }
+
+    @Test
+    void testUpload_SmallFileUsesSinglePut() throws IOException {
+        // Arrange
+        byte[] content = "small image".getBytes();
+        when(s3Client.putObject(any(PutObjectRequest.class), any(RequestBody.class)))
+            .thenReturn(PutObjectResponse.builder().eTag("\"etag\"").build());
+
+        // Act
+        String eTag = uploader.upload("bucket", "images/small.jpg", "image/jpeg",
+            new ByteArrayInputStream(content), content.length);
+
+        // Assert
+        assertEquals("\"etag\"", eTag);
+        ArgumentCaptor<PutObjectRequest> captor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3Client).putObject(captor.capture(), any(RequestBody.class));
+        assertEquals(content.length, captor.getValue().contentLength());
+        verify(s3Client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testUpload_LargeFileUsesMultipartParts() throws IOException {
+        // Arrange
+        int length = 12 * MB;
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+            .thenReturn(UploadPartResponse.builder().eTag("\"part\"").build());
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+            .thenReturn(CompleteMultipartUploadResponse.builder().eTag("\"etag-3\"").build());
+
+        // Act
+        String eTag = uploader.upload("bucket", "images/large.jpg", "image/jpeg",
+            new ByteArrayInputStream(new byte[length]), length);
+
+        // Assert
+        assertEquals("\"etag-3\"", eTag);
+        ArgumentCaptor<UploadPartRequest> partCaptor = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(s3Client, times(3)).uploadPart(partCaptor.capture(), any(RequestBody.class));
+        assertEquals(5L * MB, partCaptor.getAllValues().get(0).contentLength());
+        assertEquals(2L * MB, partCaptor.getAllValues().get(2).contentLength());
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor =
+            ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(s3Client).completeMultipartUpload(completeCaptor.capture());
+        assertEquals(3, completeCaptor.getValue().multipartUpload().parts().size());
+        verify(s3Client, never()).putObject(any(PutObjectRequest.class), any(RequestBody.class));
+    }
+
+    @Test
+    void testUpload_TruncatedStreamAbortsMultipartUpload() {
+        // Arrange
+        when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+            .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-2").build());
+        when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+            .thenReturn(UploadPartResponse.builder().eTag("\"part\"").build());
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> uploader.upload("bucket", "images/broken.jpg", "image/jpeg",
+            new ByteArrayInputStream(new byte[7 * MB]), 12L * MB));
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+}
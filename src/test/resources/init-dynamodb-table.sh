@@ -1,14 +1,47 @@
 #!/bin/bash
 partition_key="id"
+sort_key="objectPath"
 image_table_name="setadvancedtable"
 
 echo "Starting image table creation in LocalStack..."
 
+# Mirrors the key schema of the image table in terraform/modules/tf-environment/dynamodb.tf
 awslocal dynamodb create-table \
 --table-name "$image_table_name" \
---key-schema AttributeName="$partition_key",KeyType=HASH \
---attribute-definitions AttributeName="$partition_key",AttributeType=S \
+--key-schema AttributeName="$partition_key",KeyType=HASH AttributeName="$sort_key",KeyType=RANGE \
+--attribute-definitions AttributeName="$partition_key",AttributeType=S AttributeName="$sort_key",AttributeType=S \
 --billing-mode PAY_PER_REQUEST
 
-echo "DynamoDB image table '$image_table_name' created successfully with partition key '$partition_key'"
-echo "Executed init-dynamodb-table.sh"
\ No newline at end of file
+echo "DynamoDB image table '$image_table_name' created successfully with partition key '$partition_key' and sort key '$sort_key'"
+content_table_name="setadvancedcontent"
+
+awslocal dynamodb create-table \
+--table-name "$content_table_name" \
+--key-schema AttributeName=digest,KeyType=HASH \
+--attribute-definitions AttributeName=digest,AttributeType=S \
+--billing-mode PAY_PER_REQUEST
+
+echo "DynamoDB content table '$content_table_name' created successfully"
+
+upload_session_table_name="setadvanceduploads"
+
+awslocal dynamodb create-table \
+--table-name "$upload_session_table_name" \
+--key-schema AttributeName=id,KeyType=HASH \
+--attribute-definitions AttributeName=id,AttributeType=S \
+--billing-mode PAY_PER_REQUEST
+
+echo "DynamoDB upload session table '$upload_session_table_name' created successfully"
+
+label_table_name="setadvancedlabels"
+
+awslocal dynamodb create-table \
+--table-name "$label_table_name" \
+--key-schema AttributeName=label,KeyType=HASH AttributeName=imageId,KeyType=RANGE \
+--attribute-definitions AttributeName=label,AttributeType=S AttributeName=imageId,AttributeType=S \
+  AttributeName=labelledMinute,AttributeType=S AttributeName=labelledAt,AttributeType=N \
+--global-secondary-indexes '[{"IndexName":"labelled-index","KeySchema":[{"AttributeName":"labelledMinute","KeyType":"HASH"},{"AttributeName":"labelledAt","KeyType":"RANGE"}],"Projection":{"ProjectionType":"INCLUDE","NonKeyAttributes":["objectPath"]}}]' \
+--billing-mode PAY_PER_REQUEST
+
+echo "DynamoDB label table '$label_table_name' created successfully"
+echo "Executed init-dynamodb-table.sh"
@@ -49,6 +49,15 @@ data "aws_iam_policy_document" "lambda_policy" {
     resources = ["arn:aws:dynamodb:${var.region_name}:${data.aws_caller_identity.current.account_id}:table/${var.dynamodb_table_name}"]
   }
 
+  statement {
+    effect = "Allow"
+    actions = [
+      "dynamodb:PutItem",
+      "dynamodb:BatchWriteItem"
+    ]
+    resources = ["arn:aws:dynamodb:${var.region_name}:${data.aws_caller_identity.current.account_id}:table/${var.dynamodb_label_table_name}"]
+  }
+
   statement {
     effect = "Allow"
     actions = [
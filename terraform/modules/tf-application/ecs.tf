@@ -159,6 +159,18 @@ resource "aws_ecs_task_definition" "app_task" {
         name  = "DYNAMODB_TABLE_NAME"
         value = var.dynamodb_table_name
       },
+      {
+        name  = "DYNAMODB_CONTENT_TABLE_NAME"
+        value = var.dynamodb_content_table_name
+      },
+      {
+        name  = "DYNAMODB_UPLOAD_SESSION_TABLE_NAME"
+        value = var.dynamodb_upload_session_table_name
+      },
+      {
+        name  = "DYNAMODB_LABEL_TABLE_NAME"
+        value = var.dynamodb_label_table_name
+      },
       {
         name  = "AWS_DEFAULT_REGION"
         value = var.region_name
@@ -166,6 +178,13 @@ resource "aws_ecs_task_definition" "app_task" {
       {
         name  = "SPRING_PROFILES_ACTIVE"
         value = var.environment
+      },
+      {
+        # Direct memory otherwise defaults to the heap size. The byte cache (app.cache.bytes.max-size)
+        # keeps up to 64MB in direct buffers and evicted ones linger until a GC; the rest is for the
+        # connector and the SDK clients.
+        name  = "JAVA_TOOL_OPTIONS"
+        value = "-XX:MaxDirectMemorySize=256m"
       }
     ]
   }])
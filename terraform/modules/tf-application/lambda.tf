@@ -94,6 +94,7 @@ resource "aws_lambda_function" "image_processing_lambda" {
   environment {
     variables = {
       DYNAMODB_TABLE_NAME = var.dynamodb_table_name
+      DYNAMODB_LABEL_TABLE_NAME = var.dynamodb_label_table_name
       S3_BUCKET_NAME     = var.s3_bucket_name
       SQS_QUEUE_URL      = var.sqs_queue_url
       # AWS region is automatically detected by boto3 in Lambda environment
@@ -7,6 +7,7 @@ from botocore.config import Config
 
 # Get environment variables
 dynamodb_table_name = os.environ.get('DYNAMODB_TABLE_NAME', 'setadvancedtable')
+label_table_name = os.environ.get('DYNAMODB_LABEL_TABLE_NAME', 'setadvancedlabels')
 s3_bucket_name = os.environ.get('S3_BUCKET_NAME', 'default-bucket')
 # AWS region is automatically detected by boto3 in Lambda environment
 # But we can override with our custom variable if needed
@@ -24,10 +25,25 @@ s3 = boto3.client("s3", config=config)
 rekognition = boto3.client("rekognition", region_name="eu-west-1", config=config)  # Keep hardcoded for Rekognition
 dynamodb = boto3.resource("dynamodb", config=config)
 table = dynamodb.Table(dynamodb_table_name)
+label_table = dynamodb.Table(label_table_name)
 
 def is_image_file(key):
     return key.lower().endswith(('.jpg', '.jpeg', '.png'))
 
+def index_labels(item_id, object_path, labels):
+    # Label search queries this index instead of scanning the image table; the labelled time lets
+    # the application tasks pick up new entries through the labelled-index GSI
+    labelled = datetime.datetime.now(datetime.timezone.utc)
+    with label_table.batch_writer(overwrite_by_pkeys=["label", "imageId"]) as batch:
+        for label in labels:
+            batch.put_item(Item={
+                "label": label,
+                "imageId": item_id,
+                "objectPath": object_path,
+                "labelledMinute": labelled.strftime('%Y-%m-%dT%H:%M'),
+                "labelledAt": int(labelled.timestamp() * 1000),
+            })
+
 def lambda_handler(event, context):
     for event_record in event["Records"]:
         try:
@@ -65,8 +81,9 @@ def lambda_handler(event, context):
                 now = datetime.datetime.now()
                 iso_time = now.strftime('%Y-%m-%dT%H:%M:%S.%f') + '000'
 
+                # Deduplicated uploads share one object, referenced through contentKey
                 scan_response = table.scan(
-                    FilterExpression=Attr("objectPath").eq(key)
+                    FilterExpression=Attr("objectPath").eq(key) | Attr("contentKey").eq(key)
                 )
 
                 if not scan_response.get("Items"):
@@ -76,26 +93,41 @@ def lambda_handler(event, context):
                 for item in scan_response["Items"]:
                     item_id = item["id"]
                     try:
-                        table.update_item(
-                            Key={
-                                "id": item_id,
-                                "objectPath": key
-                            },
-                            UpdateExpression="""
-                                ADD labels :new_labels
-                                SET #status = :status,
-                                    timeUpdated = :timeUpdated
-                            """,
-                            ExpressionAttributeValues={
-                                ":new_labels": set(labels),
-                                ":status": "ACTIVE",
-                                ":timeUpdated": iso_time,
-                            },
-                            ExpressionAttributeNames={
-                                "#status": "status"
-                            }
-                        )
-                        print(f"Updated item with id={item_id} and objectPath={key}")
+                        if item.get("status") == "PENDING":
+                            # The application activates pending uploads once it has verified them
+                            table.update_item(
+                                Key={
+                                    "id": item_id,
+                                    "objectPath": item["objectPath"]
+                                },
+                                UpdateExpression="ADD labels :new_labels SET timeUpdated = :timeUpdated",
+                                ExpressionAttributeValues={
+                                    ":new_labels": set(labels),
+                                    ":timeUpdated": iso_time,
+                                }
+                            )
+                        else:
+                            table.update_item(
+                                Key={
+                                    "id": item_id,
+                                    "objectPath": item["objectPath"]
+                                },
+                                UpdateExpression="""
+                                    ADD labels :new_labels
+                                    SET #status = :status,
+                                        timeUpdated = :timeUpdated
+                                """,
+                                ExpressionAttributeValues={
+                                    ":new_labels": set(labels),
+                                    ":status": "ACTIVE",
+                                    ":timeUpdated": iso_time,
+                                },
+                                ExpressionAttributeNames={
+                                    "#status": "status"
+                                }
+                            )
+                        index_labels(item_id, item["objectPath"], set(labels))
+                        print(f"Updated item with id={item_id} and objectPath={item['objectPath']}")
                     except Exception as e:
                         print(f"Error updating DynamoDB for id={item_id}, key={key}: {e}")
 
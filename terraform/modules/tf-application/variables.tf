@@ -8,6 +8,21 @@ variable "dynamodb_table_name" {
   description = "Name of the DynamoDB table for results"
 }
 
+variable "dynamodb_content_table_name" {
+  type        = string
+  description = "Name of the DynamoDB content index table used for upload deduplication"
+}
+
+variable "dynamodb_upload_session_table_name" {
+  type        = string
+  description = "Name of the DynamoDB table for resumable upload sessions"
+}
+
+variable "dynamodb_label_table_name" {
+  type        = string
+  description = "Name of the DynamoDB label index table used for label search"
+}
+
 variable "subnet_ids" {
   type        = list(string)
   description = "List of public subnet IDs for ALB"
@@ -32,4 +32,105 @@ resource "aws_dynamodb_table" "image_recognition_results" {
     Name        = var.dynamodb_table_name
     Environment = var.environment
   }
-}
\ No newline at end of file
+}
+
+# Content index for deduplicated uploads: SHA-256 digest -> S3 object and reference count
+resource "aws_dynamodb_table" "image_content" {
+  name         = "${var.dynamodb_table_name}-content"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "digest"
+
+  server_side_encryption {
+    enabled     = true
+    kms_key_arn = aws_kms_key.dynamodb_key.arn
+  }
+
+  point_in_time_recovery {
+    enabled = true
+  }
+
+  attribute {
+    name = "digest"
+    type = "S"
+  }
+
+  tags = {
+    Name        = "${var.dynamodb_table_name}-content"
+    Environment = var.environment
+  }
+}
+
+# Sessions of resumable uploads; abandoned sessions expire through TTL after the app has aborted them
+resource "aws_dynamodb_table" "upload_sessions" {
+  name         = "${var.dynamodb_table_name}-uploads"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "id"
+
+  server_side_encryption {
+    enabled     = true
+    kms_key_arn = aws_kms_key.dynamodb_key.arn
+  }
+
+  attribute {
+    name = "id"
+    type = "S"
+  }
+
+  ttl {
+    attribute_name = "expiresAt"
+    enabled        = true
+  }
+
+  tags = {
+    Name        = "${var.dynamodb_table_name}-uploads"
+    Environment = var.environment
+  }
+}
+
+# Inverted label index: one item per (label, image) pair, written by the recognition Lambda.
+# The labelled-index GSI lists entries by the minute they were written, so each task can keep its
+# in-memory label index current without scanning.
+resource "aws_dynamodb_table" "image_labels" {
+  name         = "${var.dynamodb_table_name}-labels"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "label"
+  range_key    = "imageId"
+
+  server_side_encryption {
+    enabled     = true
+    kms_key_arn = aws_kms_key.dynamodb_key.arn
+  }
+
+  attribute {
+    name = "label"
+    type = "S"
+  }
+
+  attribute {
+    name = "imageId"
+    type = "S"
+  }
+
+  attribute {
+    name = "labelledMinute"
+    type = "S"
+  }
+
+  attribute {
+    name = "labelledAt"
+    type = "N"
+  }
+
+  global_secondary_index {
+    name               = "labelled-index"
+    hash_key           = "labelledMinute"
+    range_key          = "labelledAt"
+    projection_type    = "INCLUDE"
+    non_key_attributes = ["objectPath"]
+  }
+
+  tags = {
+    Name        = "${var.dynamodb_table_name}-labels"
+    Environment = var.environment
+  }
+}
@@ -8,6 +8,21 @@ output "dynamodb_table_name" {
   description = "Name of the DynamoDB table"
 }
 
+output "dynamodb_content_table_name" {
+  value       = aws_dynamodb_table.image_content.name
+  description = "Name of the DynamoDB content index table"
+}
+
+output "dynamodb_upload_session_table_name" {
+  value       = aws_dynamodb_table.upload_sessions.name
+  description = "Name of the DynamoDB table for resumable upload sessions"
+}
+
+output "dynamodb_label_table_name" {
+  value       = aws_dynamodb_table.image_labels.name
+  description = "Name of the DynamoDB label index table"
+}
+
 output "default_subnet_ids" {
   value       = aws_subnet.public[*].id
   description = "IDs of the public subnets"
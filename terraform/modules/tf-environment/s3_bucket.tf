@@ -163,8 +163,10 @@ resource "aws_s3_bucket_notification" "image_bucket_notification" {
   bucket = aws_s3_bucket.image_bucket.id
 
   topic {
-    topic_arn = aws_sns_topic.image_notification.arn
-    events    = ["s3:ObjectCreated:*"]
+    topic_arn     = aws_sns_topic.image_notification.arn
+    events        = ["s3:ObjectCreated:*"]
+    # Only originals go to recognition; derivatives/ and renditions/ hold generated copies
+    filter_prefix = "images/"
   }
 
   depends_on = [aws_sns_topic_policy.image_notification_policy]
@@ -19,6 +19,9 @@ module "application" {
   
   s3_bucket_name      = module.environment.s3_bucket_name
   dynamodb_table_name = module.environment.dynamodb_table_name
+  dynamodb_content_table_name = module.environment.dynamodb_content_table_name
+  dynamodb_upload_session_table_name = module.environment.dynamodb_upload_session_table_name
+  dynamodb_label_table_name = module.environment.dynamodb_label_table_name
   subnet_ids          = module.environment.default_subnet_ids
   private_subnet_ids  = module.environment.private_subnet_ids
   vpc_id              = module.environment.default_vpc_id